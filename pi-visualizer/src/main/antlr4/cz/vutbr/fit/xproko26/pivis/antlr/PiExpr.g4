@@ -14,6 +14,15 @@ cmd     :   'agent' ID def      # Agent
         |   'reduce'            # Reduce
         |   'simplify'          # Simplify
         |   'env' ID?           # Env
+        |   'stats' 'reset'     # StatsReset
+        |   'stats'             # Stats
+        |   'check' 'resume'                # CheckResume
+        |   'check' 'cancel'                # CheckCancel
+        |   'check' 'deadlock' bounds       # CheckDeadlock
+        |   'check' '\'' name bounds        # CheckOutput
+        |   'check' 'in' name bounds        # CheckInput
+        |   'check' name bounds             # CheckInput
+        |   'lts' name bounds               # Lts
         |   'clear'             # Clear
         |   'reset'             # Reset
         |   'help'              # Help
@@ -22,6 +31,15 @@ cmd     :   'agent' ID def      # Agent
         |                       # Empty
         ;
 
+bounds  :   (INT INT?)? option*;
+
+option  :   'por'                       # PartialOrder
+        |   'sym'                       # Symmetry
+        |   'disk'                      # DiskStore
+        |   'bitstate'                  # Bitstate
+        |   'checkpoint'                # Checkpoint
+        ;
+
 def     :   '=' sum
         |   '(' varlist ')' '=' sum
         |   '=' '(' '\\' varlist ')' sum
@@ -40,7 +58,7 @@ proc    :   NIL                         # Nil
         |   ID '(' varlist ')'          # Concretization
         |   ID                          # Concretization                
         |   pi proc                     # Prefix
-        |   '[' NAME '=' NAME ']' proc  # Match
+        |   '[' name '=' name ']' proc  # Match
         |   '!' proc                    # Replication
         |   '(' '^' nlist ')' proc      # Restriction
         |   '(' sum ')'                 # Parentheses
@@ -48,28 +66,34 @@ proc    :   NIL                         # Nil
 
 pi      :   TAU '.'                        # Tau
 
-        |   NAME '.' '(' '\\' varlist ')'   # Input
-        |   NAME '(' varlist ')' '.'        # Input
-        |   NAME '.'                        # Input
+        |   name '.' '(' '\\' varlist ')'   # Input
+        |   name '(' varlist ')' '.'        # Input
+        |   name '.'                        # Input
         
-        |   '\'' NAME '.' '[' varlist ']'  # Output
-        |   '\'' NAME  '<' varlist '>' '.' # Output
-        |   '\'' NAME '.'                  # Output        
+        |   '\'' name '.' '[' varlist ']'  # Output
+        |   '\'' name  '<' varlist '>' '.' # Output
+        |   '\'' name '.'                  # Output        
         
         ;
 
-nlist   :   NAME (',' NAME)*;
+nlist   :   name (',' name)*;
 
 varlist :   varname (',' varname)*;
 
-varname :   NAME
+varname :   name
         |   ID
         ;
 
+name    :   NAME
+        |   'check' | 'in' | 'deadlock' | 'resume' | 'cancel' | 'stats' | 'lts'
+        |   'por' | 'sym' | 'disk' | 'bitstate' | 'checkpoint'
+        ;
+
 TAU:    't';
 NIL:    '0';
 ID:     [A-Z]([a-zA-Z0-9] | '_' | '-')*;
 NAME:   [a-z]([a-zA-Z0-9] | '_' | '-')*;
+INT:    [1-9][0-9]*;
 
 NL:     '\r'? '\n';
 WS:     [ \t]+ -> skip;
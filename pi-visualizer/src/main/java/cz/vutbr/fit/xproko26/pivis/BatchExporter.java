@@ -0,0 +1,414 @@
+/*
+ * Copyright 2017 Dagmar Prokopova <xproko26@stud.fit.vutbr.cz>.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package cz.vutbr.fit.xproko26.pivis;
+
+import cz.vutbr.fit.xproko26.pivis.filemanager.FileManager;
+import cz.vutbr.fit.xproko26.pivis.gui.graph.GraphManager;
+import cz.vutbr.fit.xproko26.pivis.gui.graph.GraphManagerListener;
+import cz.vutbr.fit.xproko26.pivis.gui.graph.graphlib.ExportAction;
+import cz.vutbr.fit.xproko26.pivis.model.Model;
+import cz.vutbr.fit.xproko26.pivis.model.ModelListener;
+import cz.vutbr.fit.xproko26.pivis.model.ProcessDefinition;
+import cz.vutbr.fit.xproko26.pivis.model.ProcessList;
+import cz.vutbr.fit.xproko26.pivis.model.Speculator;
+import cz.vutbr.fit.xproko26.pivis.model.expressions.Expression;
+import cz.vutbr.fit.xproko26.pivis.model.explorer.Explorer;
+import cz.vutbr.fit.xproko26.pivis.model.explorer.Property;
+import cz.vutbr.fit.xproko26.pivis.model.names.NRList;
+import cz.vutbr.fit.xproko26.pivis.model.redmanager.Reduction;
+import cz.vutbr.fit.xproko26.pivis.parser.TextParser;
+import cz.vutbr.fit.xproko26.pivis.parser.TextParserListener;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.util.ArrayList;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * BatchExporter is a singleton class which renders graphs of many inputs
+ * without any window, so that it can be used from scripts. Each input is
+ * either a .pvs file or an expression, its graph is built by graph manager
+ * into an off-screen graph, layouted and exported into the selected format.
+ * Formats aut and dot export the labelled transition system of reachable
+ * states instead of the graph, explored with the default bounds.
+ * All inputs are processed in one run, failure of one input is reported and
+ * the remaining inputs are processed anyway.
+ * @author Dagmar Prokopova
+ */
+public class BatchExporter {
+
+    //batch exporter instance
+    private static BatchExporter instance;
+
+    //model containing application data
+    private static Model model;
+
+    //graph manager building the graph
+    private static GraphManager gmanager;
+
+    //file manager service for loading files
+    private static FileManager filemgr;
+
+    //parser service for parsing expressions
+    private static TextParser parser;
+
+    //export format
+    private String format = "svg";
+
+    //output directory
+    private File outdir = new File(".");
+
+    //flag indicating whether the graph should be ordered hierarchically
+    private boolean hierarchic = true;
+
+    /**
+     * Private constructor which creates model, graph manager, file manager
+     * and parser as the components that batch exporter interacts with.
+     * Nobody chooses reductions in batch mode, so speculation is disabled.
+     */
+    private BatchExporter() {
+        Speculator.setMemoryBudget(0);
+        model = Model.getInstance();
+        gmanager = GraphManager.getInstance();
+        filemgr = FileManager.getInstance();
+        parser = TextParser.getInstance();
+    }
+
+    /**
+     * Method for accessing the singleton instance.
+     * @return instance of BatchExporter class
+     */
+    public static BatchExporter getInstance() {
+        if(instance == null) {
+            instance = new BatchExporter();
+        }
+        return instance;
+    }
+
+    /**
+     * Processes command line arguments and exports all specified inputs.
+     * Usage: [-f format] [-o directory] [-l] [-i listfile] [-e expression] [file.pvs]...
+     * @param args command line arguments
+     * @return number of inputs which could not be exported
+     */
+    public int run(String[] args) {
+
+        List<String> inputs = new ArrayList<>();
+        try {
+            for (int i = 0; i < args.length; i++) {
+                switch (args[i]) {
+                    case "-f":
+                        format = getArgument(args, ++i).toLowerCase();
+                        break;
+                    case "-o":
+                        outdir = new File(getArgument(args, ++i));
+                        break;
+                    case "-l":
+                        hierarchic = false;
+                        break;
+                    case "-e":
+                        inputs.add(getArgument(args, ++i));
+                        break;
+                    case "-i":
+                        for (String line : filemgr.getString(new File(getArgument(args, ++i))).split("\\r?\\n")) {
+                            if (!line.trim().isEmpty()) {
+                                inputs.add(line.trim());
+                            }
+                        }
+                        break;
+                    default:
+                        inputs.add(args[i]);
+                        break;
+                }
+            }
+            if (getLtsFormat() == null) {
+                getExportAction();
+            }
+        } catch (Exception ex) {
+            System.err.println(ex.getMessage());
+            return 1;
+        }
+
+        setParserListener();
+        setModelListener();
+        setGraphManagerListener();
+
+        int failed = 0;
+        for (int i = 0; i < inputs.size(); i++) {
+            String input = inputs.get(i);
+            try {
+                File out = export(input, i + 1);
+                System.out.println(input + " -> " + out.getPath());
+            } catch (Exception ex) {
+                System.err.println(input + ": " + ex.getMessage());
+                failed++;
+            }
+        }
+        return failed;
+    }
+
+    /**
+     * Loads specified input, draws its graph and exports it.
+     * @param input .pvs file or expression
+     * @param index position of the input, used to name exported expressions
+     * @return exported file
+     * @throws Exception if loading, parsing or export failed
+     */
+    private File export(String input, int index) throws Exception {
+
+        String name;
+        if (input.endsWith(".pvs")) {
+            File f = new File(input);
+            model.setData(filemgr.load(f));
+            name = f.getName().substring(0, f.getName().length() - 4);
+        } else {
+            model.init();
+            parser.parseCommand("show " + input);
+            name = "expr" + index;
+        }
+
+        if (model.getExpression() == null) {
+            throw new Exception("Error: No expression to export.");
+        }
+
+        File out = new File(outdir, name + "." + format);
+        Explorer.LtsFormat lts = getLtsFormat();
+        if (lts != null) {
+            Explorer.getInstance().exportLts(lts, out, Explorer.DEFAULT_DEPTH, Explorer.DEFAULT_STATES,
+                    EnumSet.noneOf(Explorer.Option.class));
+            return out;
+        }
+        gmanager.drawGraph(model.getExpression(), hierarchic, false);
+
+        try (FileOutputStream os = new FileOutputStream(out)) {
+            getExportAction().export(os);
+        }
+        return out;
+    }
+
+    /**
+     * Returns export action of the selected format.
+     * @return export action
+     * @throws Exception if the format is not supported
+     */
+    private ExportAction getExportAction() throws Exception {
+        for (ExportAction action : gmanager.getExportFormats()) {
+            if (action.getExtension().equals(format)) {
+                return action;
+            }
+        }
+        throw new Exception("Error: Unsupported export format '" + format + "'.");
+    }
+
+    /**
+     * Returns format of the labelled transition system if it was selected
+     * instead of a graph format.
+     * @return format or null
+     */
+    private Explorer.LtsFormat getLtsFormat() {
+        for (Explorer.LtsFormat lts : Explorer.LtsFormat.values()) {
+            if (lts.getExtension().equals(format)) {
+                return lts;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Returns value of the option at the specified position.
+     * @param args command line arguments
+     * @param i position of the value
+     * @return value of the option
+     * @throws Exception if the value is missing
+     */
+    private String getArgument(String[] args, int i) throws Exception {
+        if (i >= args.length) {
+            throw new Exception("Error: Missing value of option '" + args[i - 1] + "'.");
+        }
+        return args[i];
+    }
+
+    /**
+     * Creates and sets parser listener which only accepts expressions
+     * and process definitions.
+     */
+    private void setParserListener() {
+        parser.addListener(new TextParserListener() {
+
+            @Override
+            public void cmdExit() {
+            }
+
+            @Override
+            public void cmdClear() {
+            }
+
+            @Override
+            public void cmdReset() {
+            }
+
+            @Override
+            public void cmdHelp() {
+            }
+
+            @Override
+            public void cmdAgent(ProcessDefinition procdef) {
+                model.addProcDef(procdef);
+            }
+
+            @Override
+            public void cmdShow(Expression expr) {
+                model.setExpression(expr);
+            }
+
+            @Override
+            public void cmdList() {
+            }
+
+            @Override
+            public void cmdReduce() {
+            }
+
+            @Override
+            public void cmdSimplify() {
+            }
+
+            @Override
+            public void cmdEnv(String id) {
+            }
+
+            @Override
+            public void cmdStats() {
+            }
+
+            @Override
+            public void cmdStatsReset() {
+            }
+
+            @Override
+            public void cmdCheck(Property prop, int depth, int states, Set<Explorer.Option> opts) {
+            }
+
+            @Override
+            public void cmdCheckResume() {
+            }
+
+            @Override
+            public void cmdCheckCancel() {
+            }
+
+            @Override
+            public void cmdLts(Explorer.LtsFormat format, int depth, int states, Set<Explorer.Option> opts) {
+            }
+        });
+    }
+
+    /**
+     * Creates and sets model listener. The graph is drawn explicitly once
+     * per input, so model changes are not reported anywhere.
+     */
+    private void setModelListener() {
+        model.addListener(new ModelListener() {
+            @Override
+            public void expressionModified(Expression exp) {
+            }
+
+            @Override
+            public void redListModified(List<Reduction> list, int index) {
+            }
+
+            @Override
+            public void procListModified(ProcessList list) {
+            }
+
+            @Override
+            public void reductionModified(int index) {
+            }
+
+            @Override
+            public void initialized() {
+            }
+        });
+    }
+
+    /**
+     * Creates and sets graph manager listener which answers model queries
+     * needed to visualize the expression.
+     */
+    private void setGraphManagerListener() {
+        gmanager.addListener(new GraphManagerListener() {
+
+            @Override
+            public void selectionChanged() {
+            }
+
+            @Override
+            public void nodeSelectedForReduction(Expression exp) {
+            }
+
+            @Override
+            public void nodeDeselectedFromReduction(Expression exp) {
+            }
+
+            @Override
+            public Expression replicationRequested(Expression exp) {
+                return model.getReplicationHelper(exp);
+            }
+
+            @Override
+            public Expression instanceRequested(Expression exp) {
+                try {
+                    return model.getExpressionInstance(exp);
+                } catch (Exception ex) {
+                    return null;
+                }
+            }
+
+            @Override
+            public void instanceVisualized(Expression exp) {
+            }
+
+            @Override
+            public void helperVisualized(Expression exp) {
+                model.changeHelperToCopy(exp);
+            }
+
+            @Override
+            public void nodeExpanded() {
+            }
+
+            @Override
+            public void nodeCollapsed() {
+            }
+
+            @Override
+            public boolean isProcDefined(String id, NRList args) {
+                try {
+                    model.getProcDef(id, args);
+                    return true;
+                } catch (Exception e) {
+                    return false;
+                }
+            }
+
+            @Override
+            public boolean isSelectableForReduction(Expression exp) {
+                return false;
+            }
+        });
+    }
+}
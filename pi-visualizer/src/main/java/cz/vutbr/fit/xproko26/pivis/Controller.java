@@ -23,6 +23,9 @@ import cz.vutbr.fit.xproko26.pivis.model.ModelListener;
 import cz.vutbr.fit.xproko26.pivis.model.ProcessDefinition;
 import cz.vutbr.fit.xproko26.pivis.model.ProcessList;
 import cz.vutbr.fit.xproko26.pivis.model.expressions.Expression;
+import cz.vutbr.fit.xproko26.pivis.model.explorer.CheckResult;
+import cz.vutbr.fit.xproko26.pivis.model.explorer.Explorer;
+import cz.vutbr.fit.xproko26.pivis.model.explorer.Property;
 import cz.vutbr.fit.xproko26.pivis.model.redmanager.Reduction;
 
 import cz.vutbr.fit.xproko26.pivis.parser.TextParser;
@@ -30,8 +33,11 @@ import cz.vutbr.fit.xproko26.pivis.parser.TextParserListener;
 
 import cz.vutbr.fit.xproko26.pivis.filemanager.FileManager;
 import cz.vutbr.fit.xproko26.pivis.model.names.NRList;
+import cz.vutbr.fit.xproko26.pivis.stats.Statistics;
 import java.io.File;
 import java.util.List;
+import java.util.Set;
+import java.util.concurrent.Callable;
 
 /**
  * Controller is a singleton class which implements application logic,
@@ -54,16 +60,24 @@ public class Controller {
     
     //parser service for parsing text input from console or file
     private static TextParser parser;
+    
+    //dispatcher merging model events into one gui update per frame
+    private static ModelEventDispatcher dispatcher;
+
+    //worker running reachability checks in the background
+    private static ExplorerWorker explorer;
 
     /**
      * Private constructor which creates GUI, model, file manager and parser
-     * as the main components that controller interacts with.
+     * as the main components that controller interacts with, together with
+     * the worker running reachability checks.
      */
     private Controller() {
         gui = AppGUI.getInstance(); 
         model = Model.getInstance();   
         filemgr = FileManager.getInstance();
         parser = TextParser.getInstance();            
+        explorer = new ExplorerWorker(gui::writeConsole);
     }
     
     /**
@@ -148,6 +162,67 @@ public class Controller {
             public void cmdEnv(String id) {
                 gui.writeConsole(model.getProcList().getString(id));
             }
+
+            @Override
+            public void cmdStats() {
+                gui.writeConsole(Statistics.getInstance().getString());
+            }
+
+            @Override
+            public void cmdStatsReset() {
+                Statistics.getInstance().reset();
+                gui.writeConsole("Statistics were reset.");
+            }
+
+            @Override
+            public void cmdCheck(Property prop, int depth, int states, Set<Explorer.Option> opts) {
+                if (isExplorerBusy()) {
+                    return;
+                }
+                try {
+                    Callable<CheckResult> check = Explorer.getInstance().prepareCheck(prop, depth, states, opts);
+                    explorer.start(() -> check.call().getString());
+                    gui.writeConsole("Check was started, it can be cancelled by check cancel.");
+                } catch (Exception ex) {
+                    gui.writeConsole(ex.getMessage());
+                }
+            }
+
+            @Override
+            public void cmdCheckResume() {
+                if (isExplorerBusy()) {
+                    return;
+                }
+                explorer.start(() -> Explorer.getInstance().resume().getString());
+                gui.writeConsole("Check was resumed, it can be cancelled by check cancel.");
+            }
+
+            @Override
+            public void cmdCheckCancel() {
+                if (explorer.cancel()) {
+                    gui.writeConsole("Warning: Check was cancelled.");
+                } else {
+                    gui.writeConsole("Warning: No check is running.");
+                }
+            }
+
+            @Override
+            public void cmdLts(Explorer.LtsFormat format, int depth, int states, Set<Explorer.Option> opts) {
+                if (isExplorerBusy()) {
+                    return;
+                }
+                File file = gui.getSaveFile(format.getExtension().toUpperCase() + " files", format.getExtension());
+                if (file == null) {
+                    gui.writeConsole("Warning: No file was selected, export was not started.");
+                    return;
+                }
+                try {
+                    explorer.start(Explorer.getInstance().prepareLts(format, file, depth, states, opts));
+                    gui.writeConsole("Export was started, it can be cancelled by check cancel.");
+                } catch (Exception ex) {
+                    gui.writeConsole(ex.getMessage());
+                }
+            }
         });
     }
 
@@ -157,11 +232,13 @@ public class Controller {
     /***********************************************/
         
     /**
-     * Creates and sets model listener to respond to model changes
+     * Creates and sets model listener to respond to model changes. Changes
+     * are delivered through dispatcher, so that one model operation results
+     * in one gui update.
      */
     private void setModelListener() {
         
-        Model.getInstance().addListener(new ModelListener() {
+        dispatcher = new ModelEventDispatcher(new ModelListener() {
             @Override
             public void redListModified(List<Reduction> list, int index) {
                 gui.updateReductionList(list);
@@ -171,7 +248,10 @@ public class Controller {
             @Override
             public void procListModified(ProcessList list) {
                 //redraw graph without animation - to add missing +/- buttons
-                gui.drawGraph(model.getExpression(), false);
+                //unless it is redrawn for modified expression anyway
+                if (!dispatcher.isExpressionModified()) {
+                    gui.drawGraph(model.getExpression(), false);
+                }
                 //update environment editor
                 gui.setEnvironment(list);
             }
@@ -201,6 +281,7 @@ public class Controller {
                 gui.init();
             }
         });
+        model.addListener(dispatcher);
     }       
     
 
@@ -468,6 +549,19 @@ public class Controller {
         }
     }
     
+    /**
+     * Prints out warning to console if a check or an export is running,
+     * because only one of them may run at a time.
+     * @return true if a check or an export is running
+     */
+    private boolean isExplorerBusy() {
+        if (explorer.isRunning()) {
+            gui.writeConsole("Warning: Another check is running, it can be cancelled by check cancel.");
+            return true;
+        }
+        return false;
+    }
+    
     private void reset() {
         if (!model.isModified() || (gui.confirmNew() == 0)) {
             model.init();
@@ -0,0 +1,108 @@
+/*
+ * Copyright 2017 Dagmar Prokopova <xproko26@stud.fit.vutbr.cz>.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package cz.vutbr.fit.xproko26.pivis;
+
+import java.awt.EventQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.FutureTask;
+import java.util.function.Consumer;
+
+/**
+ * ExplorerWorker runs reachability checks and exports of the state space
+ * in a background thread, so that the gui stays responsive while the state
+ * space is explored. Only one task runs at a time. The message returned by
+ * the task, or the message of its exception, is delivered on the event
+ * dispatch thread. Cancelled task is interrupted and its result is dropped,
+ * a task started afterwards waits until the cancelled one stops.
+ * @author Dagmar Prokopova
+ */
+public class ExplorerWorker {
+
+    //background thread running the tasks
+    private final ExecutorService executor;
+
+    //receiver of the messages of finished tasks
+    private final Consumer<String> output;
+
+    //last started task, null if none was started
+    private FutureTask<String> task;
+
+    /**
+     * Constructor which creates background thread.
+     * @param out receiver of the messages of finished tasks
+     */
+    public ExplorerWorker(Consumer<String> out) {
+        output = out;
+        executor = Executors.newSingleThreadExecutor(r -> {
+            Thread t = new Thread(r, "explorer");
+            t.setDaemon(true);
+            return t;
+        });
+    }
+
+    /**
+     * Returns true if a task is running.
+     * @return true if a task is running
+     */
+    public boolean isRunning() {
+        return (task != null) && !task.isDone();
+    }
+
+    /**
+     * Starts the task in the background thread.
+     * @param job task returning message to be delivered
+     */
+    public void start(Callable<String> job) {
+        task = new FutureTask<String>(job) {
+            @Override
+            protected void done() {
+                if (!isCancelled()) {
+                    String msg = getMessage(this);
+                    EventQueue.invokeLater(() -> output.accept(msg));
+                }
+            }
+        };
+        executor.execute(task);
+    }
+
+    /**
+     * Cancels the running task.
+     * @return true if a task was cancelled
+     */
+    public boolean cancel() {
+        return isRunning() && task.cancel(true);
+    }
+
+    /**
+     * Returns message of the finished task.
+     * @param finished finished task
+     * @return message of the result or of the exception
+     */
+    private static String getMessage(FutureTask<String> finished) {
+        try {
+            return finished.get();
+        } catch (ExecutionException ex) {
+            Throwable cause = ex.getCause();
+            return (cause.getMessage() != null) ? cause.getMessage() : "Error: " + cause;
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            return null;
+        }
+    }
+}
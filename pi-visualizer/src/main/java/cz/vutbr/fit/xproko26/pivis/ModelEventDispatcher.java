@@ -0,0 +1,178 @@
+/*
+ * Copyright 2017 Dagmar Prokopova <xproko26@stud.fit.vutbr.cz>.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package cz.vutbr.fit.xproko26.pivis;
+
+import cz.vutbr.fit.xproko26.pivis.model.ModelListener;
+import cz.vutbr.fit.xproko26.pivis.model.ProcessList;
+import cz.vutbr.fit.xproko26.pivis.model.expressions.Expression;
+import cz.vutbr.fit.xproko26.pivis.model.redmanager.Reduction;
+import java.util.List;
+import javax.swing.Timer;
+
+/**
+ * ModelEventDispatcher is a model listener which gathers model events
+ * instead of reporting them immediately. Events fired during one frame
+ * (by one or more model operations, from any thread) are merged, so that
+ * only the latest state of each kind is kept, and delivered together
+ * to the target listener on the event dispatch thread. Initialization
+ * discards all events gathered before it.
+ * @author Dagmar Prokopova
+ */
+public class ModelEventDispatcher implements ModelListener {
+
+    //frame duration in milliseconds
+    private static final int FRAME = 16;
+
+    //listener the merged events are delivered to
+    private final ModelListener target;
+
+    //timer delivering gathered events at the end of the frame
+    private final Timer timer;
+
+    //gathered events, guarded by this
+    private boolean init;
+    private boolean exp;
+    private boolean proc;
+    private boolean redlist;
+    private boolean red;
+
+    //latest values of gathered events, guarded by this
+    private Expression expression;
+    private ProcessList proclist;
+    private List<Reduction> list;
+    private int listindex;
+    private int redindex;
+
+    //flag indicating that currently delivered update contains expression change
+    private boolean expdelivered;
+
+    /**
+     * Creates dispatcher delivering merged events to specified listener.
+     * @param l target listener
+     */
+    public ModelEventDispatcher(ModelListener l) {
+        target = l;
+        timer = new Timer(FRAME, e -> dispatch());
+        timer.setRepeats(false);
+    }
+
+    /**
+     * Returns true if the update which is being delivered contains also
+     * change of the expression, so that the target listener can skip work
+     * which will be done for the expression anyway.
+     * @return true if expression was modified in current update
+     */
+    public boolean isExpressionModified() {
+        return expdelivered;
+    }
+
+    @Override
+    public synchronized void expressionModified(Expression e) {
+        exp = true;
+        expression = e;
+        schedule();
+    }
+
+    @Override
+    public synchronized void redListModified(List<Reduction> l, int index) {
+        redlist = true;
+        list = l;
+        listindex = index;
+        schedule();
+    }
+
+    @Override
+    public synchronized void procListModified(ProcessList l) {
+        proc = true;
+        proclist = l;
+        schedule();
+    }
+
+    @Override
+    public synchronized void reductionModified(int index) {
+        red = true;
+        redindex = index;
+        schedule();
+    }
+
+    @Override
+    public synchronized void initialized() {
+        init = true;
+        exp = proc = redlist = red = false;
+        expression = null;
+        proclist = null;
+        list = null;
+        schedule();
+    }
+
+    /**
+     * Starts the frame timer unless it is already running.
+     */
+    private void schedule() {
+        if (!timer.isRunning()) {
+            timer.start();
+        }
+    }
+
+    /**
+     * Delivers gathered events to the target listener in the order in which
+     * model reports them for one complete change.
+     */
+    private void dispatch() {
+        boolean i, e, p, rl, r;
+        Expression ex;
+        ProcessList pl;
+        List<Reduction> l;
+        int li, ri;
+        synchronized (this) {
+            i = init;
+            e = exp;
+            p = proc;
+            rl = redlist;
+            r = red;
+            ex = expression;
+            pl = proclist;
+            l = list;
+            li = listindex;
+            ri = redindex;
+            init = exp = proc = redlist = red = false;
+            expression = null;
+            proclist = null;
+            list = null;
+        }
+
+        expdelivered = e;
+        try {
+            if (i) {
+                target.initialized();
+            }
+            if (rl) {
+                target.redListModified(l, li);
+            }
+            if (p) {
+                target.procListModified(pl);
+            }
+            if (e) {
+                target.expressionModified(ex);
+            }
+            if (r) {
+                target.reductionModified(ri);
+            }
+        } finally {
+            expdelivered = false;
+        }
+    }
+}
@@ -15,6 +15,8 @@
  */
 package cz.vutbr.fit.xproko26.pivis;
 
+import cz.vutbr.fit.xproko26.pivis.generator.ModelGenerator;
+import java.util.Arrays;
 import javax.swing.SwingUtilities;
 
 /**
@@ -24,11 +26,25 @@ import javax.swing.SwingUtilities;
 public class Pivis {
 
     /**
-     * Entry point of the application
+     * Entry point of the application. Without arguments the graphical user
+     * interface is started, with -g option a model is generated (see
+     * {@link ModelGenerator ModelGenerator}), otherwise the specified inputs
+     * are exported in headless mode (see {@link BatchExporter BatchExporter}).
      * @param args the command line arguments
      */
     public static void main(String[] args) {
         
+        //generate model without any window
+        if (args.length > 0 && args[0].equals("-g")) {
+            System.exit(ModelGenerator.getInstance().run(Arrays.copyOfRange(args, 1, args.length)));
+        }
+
+        //export inputs without any window
+        if (args.length > 0) {
+            System.setProperty("java.awt.headless", "true");
+            System.exit(BatchExporter.getInstance().run(args) == 0 ? 0 : 1);
+        }
+        
         //start application logic
         SwingUtilities.invokeLater(() -> {
             Controller.getInstance().run(); 
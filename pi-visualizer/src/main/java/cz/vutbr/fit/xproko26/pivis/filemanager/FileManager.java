@@ -27,6 +27,7 @@ import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
 import java.nio.file.Paths;
 import cz.vutbr.fit.xproko26.pivis.model.Data;
+import cz.vutbr.fit.xproko26.pivis.stats.Statistics;
 
 /**
  * FileManager is a singleton class which provides methods for saving
@@ -79,6 +80,7 @@ public class FileManager {
      */
     public void save(Data data, File file) throws Exception {
         
+        Statistics.Probe probe = Statistics.getInstance().start(Statistics.Stage.SAVE);
         FileOutputStream fileOut = null;
         ObjectOutputStream objectOut = null;
         try {
@@ -86,6 +88,7 @@ public class FileManager {
             objectOut = new ObjectOutputStream(fileOut);
             objectOut.writeObject(data);
             savefile = file;
+            probe.stop(0, 0, file.getPath());
         } catch (IOException ex) {
             throw new Exception("Error: Could not save data into the selected file.");
         } finally {
@@ -112,6 +115,7 @@ public class FileManager {
      */
     public Data load(File file) throws Exception {
 
+        Statistics.Probe probe = Statistics.getInstance().start(Statistics.Stage.LOAD);
         FileInputStream fileIn = null;
         ObjectInputStream objectIn = null;
         try {
@@ -119,6 +123,7 @@ public class FileManager {
             objectIn = new ObjectInputStream(fileIn);
             Data data = (Data) objectIn.readObject();
             savefile = file;
+            probe.stop(0, 0, file.getPath());
             return data;            
         } catch (IOException|ClassNotFoundException ex ) {
             throw new Exception("Error: Could not read data from the selected file.");
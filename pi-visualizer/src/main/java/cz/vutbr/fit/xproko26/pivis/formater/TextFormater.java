@@ -16,39 +16,73 @@
 package cz.vutbr.fit.xproko26.pivis.formater;
 
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Iterator;
 import java.util.List;
-import java.util.Stack;
+import cz.vutbr.fit.xproko26.pivis.gui.graph.NodeValue;
 import cz.vutbr.fit.xproko26.pivis.model.ProcessList;
-import cz.vutbr.fit.xproko26.pivis.model.expressions.ExpressionVisitor;
+import cz.vutbr.fit.xproko26.pivis.model.expressions.ExpressionTraversal;
 import cz.vutbr.fit.xproko26.pivis.model.expressions.AbstractionExpression;
 import cz.vutbr.fit.xproko26.pivis.model.expressions.ConcretizeExpression;
-import cz.vutbr.fit.xproko26.pivis.model.expressions.RootExpression;
 import cz.vutbr.fit.xproko26.pivis.model.expressions.Expression;
+import cz.vutbr.fit.xproko26.pivis.model.expressions.ExpressionList;
 import cz.vutbr.fit.xproko26.pivis.model.expressions.InPrefixExpression;
 import cz.vutbr.fit.xproko26.pivis.model.expressions.MatchExpression;
-import cz.vutbr.fit.xproko26.pivis.model.expressions.NilExpression;
 import cz.vutbr.fit.xproko26.pivis.model.expressions.OutPrefixExpression;
-import cz.vutbr.fit.xproko26.pivis.model.expressions.ParallelExpression;
 import cz.vutbr.fit.xproko26.pivis.model.expressions.ParallelReplicationExpression;
-import cz.vutbr.fit.xproko26.pivis.model.expressions.ReplicationExpression;
 import cz.vutbr.fit.xproko26.pivis.model.expressions.RestrictionExpression;
-import cz.vutbr.fit.xproko26.pivis.model.expressions.SumExpression;
-import cz.vutbr.fit.xproko26.pivis.model.expressions.TauPrefixExpression;
 import cz.vutbr.fit.xproko26.pivis.model.names.NRList;
 import cz.vutbr.fit.xproko26.pivis.model.names.NameRef;
+import cz.vutbr.fit.xproko26.pivis.model.names.NameValue;
 
 /**
  * TextFormater is a singleton class which provides methods for converting
  * expression into the list of TextBlobs which can be perceived as formated 
- * string.
+ * string. Formated successors of expression lists are cached in the lists
+ * without selection, so that only the branches on the path of a modification
+ * are formated again. Selection is recorded as marks of TextBlob ranges and
+ * applied on copies of the marked TextBlobs once the list is complete.
  * @author Dagmar Prokopova
  */
-public class TextFormater extends ExpressionVisitor<List<TextBlob>> {
+public class TextFormater extends ExpressionTraversal<Void> {
     
     //text formater instance
     private static TextFormater instance;
     
+    //maximal number of TextBlobs cached in one expression list
+    private static final int MAX_CACHED = 4096;
+
+    //kinds of marks
+    private static final byte SELECTED = 0;
+    private static final byte ACTION = 1;
+    private static final byte NAME = 2;
+
+    //list of TextBlobs which is being created, TextBlobs are shared with cache
+    private List<TextBlob> blobs;
+
+    //marks of TextBlob ranges selected according to visual state of their owners
+    private final Marks marks = new Marks();
+
+    //instances of process constants shown in the text and whether they were collapsed
+    private final List<ConcretizeExpression> concs = new ArrayList<>();
+    private final List<Boolean> collapsed = new ArrayList<>();
+
+    //stack of positions at which formated successors of entered lists start,
+    //three positions per list, the first is -1 if cached successors were used
+    private int[] frames = new int[48];
+
+    //number of lists on the stack
+    private int lists;
+
+    //number of entered lists whose successors are being cached
+    private int caching;
+    
+    //stack of positions of the first TextBlobs of traversed expressions
+    private int[] starts = new int[64];
+    
+    //number of positions on the stack
+    private int depth;
+    
     /**
      * Method for accessing the singleton instance.
      * @return instance of TextFormater class
@@ -67,6 +101,7 @@ public class TextFormater extends ExpressionVisitor<List<TextBlob>> {
      */
     public List<TextBlob> getString(ProcessList proclist) {
         List<TextBlob> list = new ArrayList<>();
+        begin(list);
         Iterator<String> iter = proclist.getProcessIterator();
         while (iter.hasNext()) {
             String id = iter.next();
@@ -77,16 +112,17 @@ public class TextFormater extends ExpressionVisitor<List<TextBlob>> {
             AbstractionExpression exp = (AbstractionExpression) proclist.get(id);
             if (!exp.getParams().isEmpty()) {
                 list.add(new TextBlob("("));
-                list.addAll(getNameListBlobs(exp.getParams()));
+                addNameListBlobs(exp.getParams(), list);
                 list.add(new TextBlob(")"));
             }        
             list.add(new TextBlob(" = "));
             
-            list.addAll(getString(exp));
+            traverse(exp);
             if (iter.hasNext()) {
                 list.add(new TextBlob("\n"));
             }
         }
+        finish();
         return list;
     }
     
@@ -100,362 +136,485 @@ public class TextFormater extends ExpressionVisitor<List<TextBlob>> {
             return new ArrayList<>();
         }
         
-        return visit(exp, new ArrayList<>());
-    }
-
-    
-    @Override
-    public List<TextBlob> visit(RootExpression node, List<TextBlob> o) {
-        return visit(node.getSuccExp(), o);
+        List<TextBlob> list = new ArrayList<>();
+        begin(list);
+        traverse(exp);
+        finish();
+        return list;
     }
-    
 
-    @Override
-    public List<TextBlob> visit(RestrictionExpression node, List<TextBlob> o) {
-        o.add(new TextBlob("(^"));
-        o.addAll(getNameListBlobs(node.getRestrictions()));
-        o.add(new TextBlob(")"));
-        return visit(node.getSuccExp(), o);
+    /**
+     * Starts creation of TextBlob list.
+     * @param list list to be filled
+     */
+    private void begin(List<TextBlob> list) {
+        blobs = list;
+        marks.clear();
+        concs.clear();
+        collapsed.clear();
     }
-    
 
-    @Override
-    public List<TextBlob> visit(SumExpression node, List<TextBlob> o) {
-        
-        boolean parentheses = false;
-        //check if parentheses are needed
-        List<Expression> parlist = node.getParentList();
-        for (Expression ex : parlist) {
-            if (ex.isStringVisible()) {
-                parentheses = true;
-                break;
-            }
-        }
-        
-        List<TextBlob> ret = new ArrayList<>();
-        
-        if (parentheses) {
-            ret.add(new TextBlob("("));
-        }
-        
-        boolean first = true;
-        for (Expression exp : node.getSuccExps()) {
-            if (!first) {
-                ret.add(new TextBlob(" + "));
+    /**
+     * Finishes creation of TextBlob list by applying the marks. Marked
+     * TextBlobs are replaced by their copies, since they may be cached.
+     */
+    private void finish() {
+        boolean[] copied = null;
+        for (int m = 0; m < marks.size(); m++) {
+            Object owner = marks.getOwner(m);
+            NodeValue visual = (owner instanceof NameValue) ? ((NameValue) owner).getVisual() : ((Expression) owner).getVisual();
+            if (visual == null) {
+                continue;
             }
-            ret.addAll(visit(exp, new ArrayList<>()));
-            first = false;                     
-        }  
-            
-        if (parentheses) {
-            ret.add(new TextBlob(")"));
-        }
-
-        if (node.getVisual() != null) {
-            if (node.getVisual().isSelected()) {
-                ret.forEach(e -> e.setSelected(true));
+            boolean sel = visual.isSelected();
+            boolean red = (marks.getKind(m) == ACTION) && visual.isReductionSelected();
+            if (sel || red) {
+                if (copied == null) {
+                    copied = new boolean[blobs.size()];
+                }
+                for (int i = marks.getStart(m); i < marks.getEnd(m); i++) {
+                    if (!copied[i]) {
+                        blobs.set(i, copy(blobs.get(i)));
+                        copied[i] = true;
+                    }
+                    if (sel) {
+                        blobs.get(i).setSelected(true);
+                    }
+                    if (red) {
+                        blobs.get(i).setReductionSelected(true);
+                    }
+                }
             }
         }
-        o.addAll(ret);
-        return new ArrayList<>(o);
+        blobs = null;
+        marks.clear();
+        concs.clear();
+        collapsed.clear();
     }
 
     
     @Override
-    public List<TextBlob> visit(ParallelExpression node, List<TextBlob> o) {
-        
-        
-        boolean parentheses = false;
-        //check if parentheses are needed
-        List<Expression> parlist = node.getParentList();
-        for (Expression ex : parlist) {
-            if (ex.isStringVisible()) {
-                if (!(ex instanceof SumExpression)) {
-                    parentheses = true;
+    protected List<Expression> enter(Expression node) {
+        if (caching > 0) {
+            node.setCached();
+        }
+        pushStart(blobs.size());
+        switch (node.getType()) {
+            case RESTRICTION:
+                blobs.add(new TextBlob("(^"));
+                addNameListBlobs(((RestrictionExpression) node).getRestrictions(), blobs);
+                blobs.add(new TextBlob(")"));
+                break;
+            case SUM:
+            case PARALLEL:
+                if (needsParentheses(node)) {
+                    blobs.add(new TextBlob("("));
+                }
+                return useCached((ExpressionList) node) ? null : node.getSuccessors();
+            case PARALLEL_REPLICATION:
+                if (needsParentheses(node)) {
+                    blobs.add(new TextBlob("("));
+                }
+                return useCached((ExpressionList) node) ? null : getOrderedSuccessors((ParallelReplicationExpression) node);
+            case REPLICATION:
+                if (node.isReplicationOriginal()) {
+                    blobs.add(new TextBlob("!"));
                 }
                 break;
-            }
-        }
-        
-        List<TextBlob> ret = new ArrayList<>();
-        
-        if (parentheses) {
-            ret.add(new TextBlob("("));
-        }
+            case IN_PREFIX:
+                InPrefixExpression in = (InPrefixExpression) node;
+                addNameBlob(in.getChannel());
+                if (in.getParams() != null && in.getParams().size() > 0) {
+                    blobs.add(new TextBlob("("));
+                    addNameListBlobs(in.getParams(), blobs);
+                    blobs.add(new TextBlob(")"));
+                }
+                marks.add(getStart(), blobs.size(), ACTION, node);
+                blobs.add(new TextBlob("."));
+                break;
+            case OUT_PREFIX:
+                OutPrefixExpression out = (OutPrefixExpression) node;
+                blobs.add(new TextBlob("'"));
+                addNameBlob(out.getChannel());
+                if (out.getParams() != null && out.getParams().size() > 0) {
+                    blobs.add(new TextBlob("<"));
+                    addNameListBlobs(out.getParams(), blobs);
+                    blobs.add(new TextBlob(">"));
+                }
+                marks.add(getStart(), blobs.size(), ACTION, node);
+                blobs.add(new TextBlob("."));
+                break;
+            case TAU_PREFIX:
+                blobs.add(new TextBlob("t"));
+                marks.add(getStart(), blobs.size(), ACTION, node);
+                blobs.add(new TextBlob("."));
+                break;
+            case MATCH:
+                MatchExpression match = (MatchExpression) node;
+                blobs.add(new TextBlob("["));
+                addNameBlob(match.getLeft());
+                blobs.add(new TextBlob("="));
+                addNameBlob(match.getRight());
+                blobs.add(new TextBlob("]"));
+                marks.add(getStart(), blobs.size(), SELECTED, node);
+                break;
+            case CONCRETIZE:
+                ConcretizeExpression conc = (ConcretizeExpression) node;
+                if (conc.getSuccExp() != null) {
+                    //shown text depends on the visual state of the instance
+                    concs.add(conc);
+                    collapsed.add(isCollapsed(conc));
+                }
+                if ((conc.getSuccExp() == null) || isCollapsed(conc)) {
+                    TextBlob idblob = new TextBlob(conc.getIDRef().toString());
+                    idblob.setProcId(true);
+                    blobs.add(idblob);
 
-        boolean first = true;
-        for (Expression exp : node.getSuccExps()) {
-            if (!first) {
-                ret.add(new TextBlob(" | "));
-            }
-            ret.addAll(visit(exp, new ArrayList<>()));
-            first = false;                     
-        }            
-        
-        if (parentheses) {
-            ret.add(new TextBlob(")"));
-        }
-        
-        if (node.getVisual() != null) {
-            if (node.getVisual().isSelected()) {
-                ret.forEach(e -> e.setSelected(true));
-            }
+                    if (conc.getArgs() != null && conc.getArgs().size() > 0) {
+                        blobs.add(new TextBlob("<"));
+                        addNameListBlobs(conc.getArgs(), blobs);
+                        blobs.add(new TextBlob(">"));
+                    }
+                    return null;
+                }
+                break;
+            case NIL:
+                blobs.add(new TextBlob(node.toString()));
+                break;
+            default:
+                //root and abstraction have no textual representation
+                break;
         }
-        o.addAll(ret);
-        return new ArrayList<>(o);
+        return node.getSuccessors();
     }
 
-    
     @Override
-    public List<TextBlob> visit(ParallelReplicationExpression node, List<TextBlob> o) {
-        
-        boolean parentheses = false;
-        if (node.isVisible()) {
-            //check if parentheses are needed
-            List<Expression> parlist = node.getParentList();
-            for (Expression ex : parlist) {
-                if (ex.isStringVisible()) {
-                    if (!(ex instanceof SumExpression)) {
-                        parentheses = true;
-                    }
-                    break;
+    protected void separate(Expression node) {
+        blobs.add(new TextBlob((node.getType() == Expression.Type.SUM) ? " + " : " | "));
+    }
+
+    @Override
+    protected Void leave(Expression node, Void last) {
+        int start = popStart();
+        switch (node.getType()) {
+            case SUM:
+            case PARALLEL:
+            case PARALLEL_REPLICATION:
+                storeCached((ExpressionList) node);
+                if (needsParentheses(node)) {
+                    blobs.add(new TextBlob(")"));
                 }
-            }
-        }
-        
-        List<TextBlob> ret = new ArrayList<>();;
-        
-        if (parentheses) {
-            ret.add(new TextBlob("("));
+                marks.add(start, blobs.size(), SELECTED, node);
+                break;
+            case REPLICATION:
+            case CONCRETIZE:
+            case NIL:
+                marks.add(start, blobs.size(), SELECTED, node);
+                break;
+            default:
+                break;
         }
-        
-        boolean first = true;
+        return null;
+    }
+
+    /**
+     * Returns successors of parallel replication in the order of their
+     * textual representation. Original replication branch is placed at
+     * the end, helpers are skipped.
+     * @param node parallel replication expression
+     * @return ordered successors
+     */
+    private List<Expression> getOrderedSuccessors(ParallelReplicationExpression node) {
+        List<Expression> succs = new ArrayList<>();
         Expression origexp = null;
         for (Expression exp : node.getSuccExps()) {
             if (exp.isReplicationOriginal()) {
                 origexp = exp;  //save original rep. to place it at the end
             }
             else if (!exp.isReplicationHelper()) {
-                if (!first) {
-                    ret.add(new TextBlob(" | "));
-                }
-
-                ret.addAll(visit(exp, new ArrayList<>()));
-                first = false;                   
+                succs.add(exp);
             }
         }
-        
-        //process orig rep. branch
-        if (!first) {
-            ret.add(new TextBlob(" | "));            
-        }
-        ret.addAll(visit(origexp, new ArrayList<>()));  
-                
-        if (parentheses) {
-            ret.add(new TextBlob(")"));
-        }
-        
-        if (node.getVisual() != null) {
-            if (node.getVisual().isSelected()) {
-                ret.forEach(e -> e.setSelected(true));
-            }
+        if (origexp != null) {
+            succs.add(origexp);
         }
-        o.addAll(ret);
-        return new ArrayList<>(o);
+        return succs;
     }
 
-    
-    @Override
-    public List<TextBlob> visit(ReplicationExpression node, List<TextBlob> o) {
-
-        List<TextBlob> ret = new ArrayList<>();        
-        if (node.isReplicationOriginal()) {            
-            ret.add(new TextBlob("!"));
-        }                
-        ret.addAll(visit(node.getSuccExp(), new ArrayList<>()));
-        
-        if (node.getVisual() != null) {
-            if (node.getVisual().isSelected()) {
-                ret.forEach(e -> e.setSelected(true));
-            }
+    /**
+     * Checks whether the summation or parallel composition needs to be
+     * enclosed in parentheses.
+     * @param node summation or parallel composition
+     * @return true if parentheses are needed
+     */
+    private boolean needsParentheses(Expression node) {
+        switch (node.getType()) {
+            case SUM:
+                //parentheses are needed under any visible ancestor
+                return (node.getStringParent() != null);
+            case PARALLEL_REPLICATION:
+                if (!((ParallelReplicationExpression) node).isVisible()) {
+                    return false;
+                }
+                break;
+            default:
+                break;
         }
-        
-        o.addAll(ret);
-        return new ArrayList<>(o);
+        //parentheses are needed unless the nearest visible ancestor is sum
+        Expression ex = node.getStringParent();
+        return (ex != null) && (ex.getType() != Expression.Type.SUM);
     }
 
-    
-    @Override
-    public List<TextBlob> visit(InPrefixExpression node, List<TextBlob> o) {
-        List<TextBlob> ret = new ArrayList<>();
-        ret.add(getNameBlob(node.getChannel()));
-        if (node.getParams() != null && node.getParams().size() > 0) {
-            ret.add(new TextBlob("("));
-            ret.addAll(getNameListBlobs(node.getParams()));
-            ret.add(new TextBlob(")"));
-        }
-               
-        if (node.getVisual() != null) {
-            if (node.getVisual().isSelected()) {
-                ret.forEach(e -> e.setSelected(true));
-            }
-            if (node.getVisual().isReductionSelected()) {
-                ret.forEach(e -> e.setReductionSelected(true));
-            }            
+    /**
+     * Pushes position of the first TextBlob of entered expression.
+     * @param start position
+     */
+    private void pushStart(int start) {
+        if (depth == starts.length) {
+            starts = Arrays.copyOf(starts, depth * 2);
         }
-
-        o.addAll(ret);
-        o.add(new TextBlob("."));
-        return visit(node.getSuccExp(), o);
+        starts[depth++] = start;
     }
 
-    
-    @Override
-    public List<TextBlob> visit(OutPrefixExpression node, List<TextBlob> o) {
-        List<TextBlob> ret = new ArrayList<>();
-        ret.add(new TextBlob("'"));
-        ret.add(getNameBlob(node.getChannel()));
-        if (node.getParams() != null && node.getParams().size() > 0) {
-            ret.add(new TextBlob("<"));
-            ret.addAll(getNameListBlobs(node.getParams()));
-            ret.add(new TextBlob(">"));
-        }
-        if (node.getVisual() != null) {
-            if (node.getVisual().isSelected()) {
-                ret.forEach(e -> e.setSelected(true));
-            }
-            if (node.getVisual().isReductionSelected()) {
-                ret.forEach(e -> e.setReductionSelected(true));
-            }            
-        }
-
-        o.addAll(ret);
-        o.add(new TextBlob("."));
-        return visit(node.getSuccExp(), o);
+    /**
+     * Returns position of the first TextBlob of current expression.
+     * @return position
+     */
+    private int getStart() {
+        return starts[depth - 1];
     }
 
-    
-    @Override
-    public List<TextBlob> visit(TauPrefixExpression node, List<TextBlob> o) {
-        TextBlob blob = new TextBlob("t");
-        if (node.getVisual() != null) {
-            if (node.getVisual().isSelected()) {
-                blob.setSelected(true);
-            }
-            if (node.getVisual().isReductionSelected()) {
-                blob.setReductionSelected(true);
-            }   
-        }
-        o.add(blob);
-        o.add(new TextBlob("."));
-        return visit(node.getSuccExp(), o);
+    /**
+     * Pops position of the first TextBlob of left expression.
+     * @return position
+     */
+    private int popStart() {
+        return starts[--depth];
     }
 
-    
-    @Override
-    public List<TextBlob> visit(MatchExpression node, List<TextBlob> o) {
-        List<TextBlob> ret = new ArrayList<>();
-        ret.add(new TextBlob("["));
-        ret.add(getNameBlob(node.getLeft()));
-        ret.add(new TextBlob("="));
-        ret.add(getNameBlob(node.getRight()));
-        ret.add(new TextBlob("]"));
-
-        if (node.getVisual() != null) {
-            if (node.getVisual().isSelected()) {
-                ret.forEach(e -> e.setSelected(true));
-            }          
+    /**
+     * Appends cached formated successors of the list if they are valid and
+     * starts caching of its successors otherwise.
+     * @param list expression list
+     * @return true if cached successors were appended
+     */
+    private boolean useCached(ExpressionList list) {
+        if (lists * 3 == frames.length) {
+            frames = Arrays.copyOf(frames, frames.length * 2);
         }
-
-        o.addAll(ret);
-        return visit(node.getSuccExp(), o);
+        int f = 3 * lists++;
+        Object cached = list.getFormatted();
+        if ((cached instanceof Fragment) && ((Fragment) cached).isValid()) {
+            ((Fragment) cached).appendTo(this);
+            frames[f] = -1;
+            return true;
+        }
+        frames[f] = blobs.size();
+        frames[f + 1] = marks.size();
+        frames[f + 2] = concs.size();
+        caching++;
+        return false;
     }
 
-    
-    @Override
-    public List<TextBlob> visit(ConcretizeExpression node, List<TextBlob> o) {
-        List<TextBlob> ret = new ArrayList<>();        
-        if ((node.getSuccExp() == null) || ((node.getVisual() != null) && (node.getVisual().isCollapsed()))) {
-            TextBlob idblob = new TextBlob(node.getIDRef().toString());
-            idblob.setProcId(true);
-            ret.add(idblob);
-            
-            if (node.getArgs() != null && node.getArgs().size() > 0) {
-                ret.add(new TextBlob("<"));
-                ret.addAll(getNameListBlobs(node.getArgs()));
-                ret.add(new TextBlob(">"));
-            }            
-            if (node.getVisual() != null) {
-                if (node.getVisual().isSelected()) {
-                    ret.forEach(e -> e.setSelected(true));
-                }
-            }            
-            o.addAll(ret);
-            return new ArrayList<>(o);
+    /**
+     * Stores formated successors of the left list into its cache unless
+     * the cached ones were used or there are too many of them.
+     * @param list expression list
+     */
+    private void storeCached(ExpressionList list) {
+        int f = 3 * --lists;
+        if (frames[f] < 0) {
+            return;
         }
-        else {
-            ret = visit(node.getSuccExp(), new ArrayList<>());
-            if (node.getVisual() != null) {
-                if (node.getVisual().isSelected()) {
-                    ret.forEach(e -> e.setSelected(true));
-                }
-            }
-            o.addAll(ret);
-            return new ArrayList<>(o);
+        caching--;
+        if (blobs.size() - frames[f] <= MAX_CACHED) {
+            list.setFormatted(new Fragment(this, frames[f], frames[f + 1], frames[f + 2]));
+            list.setCached();
         }
     }
 
-    
-    @Override
-    public List<TextBlob> visit(NilExpression node, List<TextBlob> o) {
-        TextBlob blob = new TextBlob(node.toString());
-        if ((node.getVisual() != null) && (node.getVisual().isSelected())) {
-            blob.setSelected(true);
-        }
-        o.add(blob);
-        return new ArrayList<>(o);
+    /**
+     * Checks whether the instance of process constant is shown collapsed.
+     * @param conc concretize expression with instance
+     * @return true if only the process constant is shown
+     */
+    private static boolean isCollapsed(ConcretizeExpression conc) {
+        return (conc.getVisual() != null) && conc.getVisual().isCollapsed();
     }
 
-    
-    @Override
-    public List<TextBlob> visit(AbstractionExpression node, List<TextBlob> o) {
-        return visit(node.getSuccExp(), o);
+    /**
+     * Creates unselected copy of TextBlob.
+     * @param blob TextBlob
+     * @return copy of TextBlob
+     */
+    private static TextBlob copy(TextBlob blob) {
+        TextBlob c = new TextBlob(blob.getText());
+        c.setProcId(blob.isProcId());
+        c.setName(blob.isName());
+        return c;
     }
-    
-    
+
     /**
-     * Creates TextBlob out of name reference.
+     * Appends TextBlob created out of name reference and marks it to be
+     * selected together with the name.
      * @param ref name reference
-     * @return TextBlob
      */
-    private TextBlob getNameBlob(NameRef ref) {
+    private void addNameBlob(NameRef ref) {
         TextBlob blob = new TextBlob(ref.toString());
         blob.setName(true);
-        if (ref.getNameValue().getVisual() != null) {
-            if (ref.getNameValue().getVisual().isSelected()) {
-                blob.setSelected(true);
-            }
-        }
-        return blob;
+        marks.add(blobs.size(), blobs.size() + 1, NAME, ref.getNameValue());
+        blobs.add(blob);
     }
     
     
     /**
-     * Creates list of TextBlobs out of list of name references.
+     * Appends TextBlobs created out of list of name references.
      * @param list list of name references
-     * @return list of TextBlobs
+     * @param o list of TextBlobs
      */
-    private List<TextBlob> getNameListBlobs(NRList list) {
-        List<TextBlob> ret = new ArrayList<>();
+    private void addNameListBlobs(NRList list, List<TextBlob> o) {
         boolean first = true;
         for (NameRef r : list) {
             if (!first) {
-                ret.add(new TextBlob(","));
+                o.add(new TextBlob(","));
             }
-            ret.add(getNameBlob(r));
+            addNameBlob(r);
             first = false;
         }
-        return ret;
     }
-    
+
+    /**
+     * Marks is a growing list of TextBlob ranges which are selected according
+     * to the visual state of their owners.
+     */
+    private static class Marks {
+
+        //first and behind last positions of the ranges
+        private int[] starts = new int[64];
+        private int[] ends = new int[64];
+
+        //kinds of the marks
+        private byte[] kinds = new byte[64];
+
+        //expressions or names owning the ranges
+        private Object[] owners = new Object[64];
+
+        //number of marks
+        private int size;
+
+        /**
+         * Appends the mark.
+         * @param start first position of the range
+         * @param end position behind the range
+         * @param kind kind of the mark
+         * @param owner expression or name value
+         */
+        void add(int start, int end, byte kind, Object owner) {
+            if (size == starts.length) {
+                starts = Arrays.copyOf(starts, size * 2);
+                ends = Arrays.copyOf(ends, size * 2);
+                kinds = Arrays.copyOf(kinds, size * 2);
+                owners = Arrays.copyOf(owners, size * 2);
+            }
+            starts[size] = start;
+            ends[size] = end;
+            kinds[size] = kind;
+            owners[size] = owner;
+            size++;
+        }
+
+        int size() {
+            return size;
+        }
+
+        int getStart(int m) {
+            return starts[m];
+        }
+
+        int getEnd(int m) {
+            return ends[m];
+        }
+
+        byte getKind(int m) {
+            return kinds[m];
+        }
+
+        Object getOwner(int m) {
+            return owners[m];
+        }
+
+        /**
+         * Removes all marks.
+         */
+        void clear() {
+            Arrays.fill(owners, 0, size, null);
+            size = 0;
+        }
+    }
+
+    /**
+     * Fragment holds formated successors of an expression list together with
+     * their marks relative to the first TextBlob. It is valid as long as the
+     * shown instances of process constants keep their collapsed state.
+     */
+    private static class Fragment {
+
+        //unselected TextBlobs
+        private final TextBlob[] blobs;
+
+        //marks of the TextBlobs
+        private final Marks marks = new Marks();
+
+        //shown instances of process constants and their collapsed state
+        private final ConcretizeExpression[] concs;
+        private final boolean[] collapsed;
+
+        /**
+         * Creates fragment out of the end of TextBlob list being created.
+         * @param f formater
+         * @param blobstart position of the first TextBlob
+         * @param markstart position of the first mark
+         * @param concstart position of the first instance
+         */
+        Fragment(TextFormater f, int blobstart, int markstart, int concstart) {
+            blobs = f.blobs.subList(blobstart, f.blobs.size()).toArray(new TextBlob[0]);
+            for (int m = markstart; m < f.marks.size(); m++) {
+                marks.add(f.marks.getStart(m) - blobstart, f.marks.getEnd(m) - blobstart, f.marks.getKind(m), f.marks.getOwner(m));
+            }
+            concs = f.concs.subList(concstart, f.concs.size()).toArray(new ConcretizeExpression[0]);
+            collapsed = new boolean[concs.length];
+            for (int i = 0; i < concs.length; i++) {
+                collapsed[i] = f.collapsed.get(concstart + i);
+            }
+        }
+
+        /**
+         * Checks whether the shown instances keep their collapsed state.
+         * @return true if the fragment is valid
+         */
+        boolean isValid() {
+            for (int i = 0; i < concs.length; i++) {
+                if (isCollapsed(concs[i]) != collapsed[i]) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        /**
+         * Appends the fragment to TextBlob list being created.
+         * @param f formater
+         */
+        void appendTo(TextFormater f) {
+            int offset = f.blobs.size();
+            f.blobs.addAll(Arrays.asList(blobs));
+            for (int m = 0; m < marks.size(); m++) {
+                f.marks.add(marks.getStart(m) + offset, marks.getEnd(m) + offset, marks.getKind(m), marks.getOwner(m));
+            }
+            for (int i = 0; i < concs.length; i++) {
+                f.concs.add(concs[i]);
+                f.collapsed.add(collapsed[i]);
+            }
+        }
+    }
 }
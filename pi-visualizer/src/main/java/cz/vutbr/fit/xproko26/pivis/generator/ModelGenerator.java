@@ -0,0 +1,311 @@
+/*
+ * Copyright 2017 Dagmar Prokopova <xproko26@stud.fit.vutbr.cz>.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package cz.vutbr.fit.xproko26.pivis.generator;
+
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * ModelGenerator is a singleton class which generates families of models
+ * scaled by size, so that the application can be stress tested on inputs
+ * much larger than the examples. Each model is generated as a sequence of
+ * process definitions, one per line, which can be parsed by
+ * {@link cz.vutbr.fit.xproko26.pivis.parser.TextParser#parseProcDefs(String) parseProcDefs}.
+ * The last definition is always agent System describing the whole model,
+ * the total number of nodes of all definitions grows linearly with the size.
+ * Family with deep expression (chain) needs a large thread stack to be parsed
+ * when generated with big sizes.
+ * @author Dagmar Prokopova
+ */
+public class ModelGenerator {
+
+    /**
+     * Families of generated models.
+     */
+    public enum Family {
+        //server serving given number of clients (client-server example)
+        CLIENT_SERVER("client-server"),
+        //buffer with given number of one-place stages (unbound-buffer example)
+        BUFFER("buffer"),
+        //given number of processes in one parallel composition
+        PARALLEL("parallel"),
+        //chain of silent prefixes of given length
+        CHAIN("chain"),
+        //nested replication serving given number of clients
+        REPLICATION("replication"),
+        //summation with given number of branches
+        SUM("sum");
+
+        //name of the family used on the command line
+        private final String name;
+
+        /**
+         * Constructor which sets the name of the family.
+         * @param n name of the family
+         */
+        Family(String n) {
+            name = n;
+        }
+
+        /**
+         * Returns name of the family.
+         * @return name
+         */
+        public String getName() {
+            return name;
+        }
+
+        /**
+         * Returns family with the specified name.
+         * @param name name of the family
+         * @return family
+         * @throws Exception if there is no such family
+         */
+        public static Family fromName(String name) throws Exception {
+            for (Family family : values()) {
+                if (family.name.equals(name)) {
+                    return family;
+                }
+            }
+            throw new Exception("Error: Unknown model family '" + name + "'.");
+        }
+    }
+
+    //model generator instance
+    private static ModelGenerator instance;
+
+    /**
+     * Method for accessing the singleton instance.
+     * @return instance of ModelGenerator class
+     */
+    public static ModelGenerator getInstance() {
+        if(instance == null) {
+            instance = new ModelGenerator();
+        }
+        return instance;
+    }
+
+    /**
+     * Processes command line arguments and generates the specified model.
+     * Usage: family size [-o file]
+     * @param args command line arguments
+     * @return 0 if the model was generated, 1 otherwise
+     */
+    public int run(String[] args) {
+        try {
+            if (args.length != 2 && !(args.length == 4 && args[2].equals("-o"))) {
+                throw new Exception("Error: Usage: -g family size [-o file], where family is one of "
+                        + getFamilyNames() + ".");
+            }
+            Family family = Family.fromName(args[0]);
+            int size = getSize(args[1]);
+            OutputStream os = args.length == 4 ? new FileOutputStream(new File(args[3])) : System.out;
+            try (Writer out = new BufferedWriter(new OutputStreamWriter(os, StandardCharsets.UTF_8))) {
+                generate(family, size, out);
+            }
+        } catch (Exception ex) {
+            System.err.println(ex.getMessage());
+            return 1;
+        }
+        return 0;
+    }
+
+    /**
+     * Generates model of the specified family and size.
+     * @param family family of the model
+     * @param size size of the model
+     * @return process definitions separated by newlines
+     * @throws Exception if the size is not positive
+     */
+    public String generate(Family family, int size) throws Exception {
+        StringBuilder sb = new StringBuilder();
+        generate(family, size, sb);
+        return sb.toString();
+    }
+
+    /**
+     * Generates model of the specified family and size into the output,
+     * so that big models do not have to be kept in memory.
+     * @param family family of the model
+     * @param size size of the model
+     * @param out output
+     * @throws Exception if the size is not positive or output failed
+     */
+    public void generate(Family family, int size, Appendable out) throws Exception {
+        if (size < 1) {
+            throw new Exception("Error: Size of the model must be positive.");
+        }
+        switch (family) {
+            case CLIENT_SERVER:
+                generateClientServer(size, out);
+                break;
+            case BUFFER:
+                generateBuffer(size, out);
+                break;
+            case PARALLEL:
+                generateParallel(size, out);
+                break;
+            case CHAIN:
+                generateChain(size, out);
+                break;
+            case REPLICATION:
+                generateReplication(size, out);
+                break;
+            case SUM:
+                generateSum(size, out);
+                break;
+        }
+    }
+
+    /**
+     * Generates server communicating with given number of clients, each
+     * client with its own private name playing ping-pong with the server
+     * after being served.
+     * @param size number of clients
+     * @param out output
+     * @throws IOException if output failed
+     */
+    private void generateClientServer(int size, Appendable out) throws IOException {
+        out.append("agent Server(in) = in(client).((^r)'client<r>.Pong<r,client> | Server<in>)\n");
+        out.append("agent Ping(send,rec) = 'send.Pong<rec,send>\n");
+        out.append("agent Client(in,server) = 'server<in>.in(opponent).Ping<opponent,in>\n");
+        out.append("agent Pong(rec,send) = rec.Ping<send,rec>\n");
+        out.append("agent System(serv) = Server<serv>");
+        for (int i = 1; i <= size; i++) {
+            out.append(" | (^c").append(String.valueOf(i)).append(")Client<c").append(String.valueOf(i)).append(",serv>");
+        }
+        out.append("\n");
+    }
+
+    /**
+     * Generates buffer composed of given number of one-place stages between
+     * input and output. Every stage is defined as a process which restricts
+     * private name connecting it with the rest of the buffer, like the
+     * unbound-buffer example does, so the definitions stay short and the
+     * buffer unfolds when the stages are instantiated.
+     * @param size number of stages
+     * @param out output
+     * @throws IOException if output failed
+     */
+    private void generateBuffer(int size, Appendable out) throws IOException {
+        out.append("agent B(i,o) = i(x).C<x,i,o>\n");
+        out.append("agent C(x,i,o) = 'o<x>.B<i,o>\n");
+        out.append("agent Input(i) = (^item)'i<item>.Input<i>\n");
+        out.append("agent Output(o) = o(item).Output<o>\n");
+        for (int i = 1; i < size; i++) {
+            out.append("agent S").append(String.valueOf(i)).append("(i,o) = (^m)(B<i,m> | S")
+                    .append(String.valueOf(i + 1)).append("<m,o>)\n");
+        }
+        out.append("agent S").append(String.valueOf(size)).append("(i,o) = B<i,o>\n");
+        out.append("agent System(in,out) = Input<in> | S1<in,out> | Output<out>\n");
+    }
+
+    /**
+     * Generates parallel composition of given number of processes, each
+     * of them a sender and a receiver communicating on a private name.
+     * @param size number of processes
+     * @param out output
+     * @throws IOException if output failed
+     */
+    private void generateParallel(int size, Appendable out) throws IOException {
+        out.append("agent System = ");
+        for (int i = 1; i <= size; i++) {
+            String name = "c" + i;
+            out.append(i > 1 ? " | " : "").append("(^").append(name).append(")('").append(name).append(".0 | ").append(name).append(".0)");
+        }
+        out.append("\n");
+    }
+
+    /**
+     * Generates chain of silent prefixes of given length. Silent prefixes
+     * are used, because every name of a prefix is looked up through all the
+     * prefixes above it, which would make parsing of long chains quadratic.
+     * @param size length of the chain
+     * @param out output
+     * @throws IOException if output failed
+     */
+    private void generateChain(int size, Appendable out) throws IOException {
+        out.append("agent System = ");
+        for (int i = 0; i < size; i++) {
+            out.append("t.");
+        }
+        out.append("0\n");
+    }
+
+    /**
+     * Generates replicated server which creates nested replication of
+     * a reply for each request, together with given number of clients.
+     * Nesting depth is fixed, because replication keeps a copy of its body
+     * and the expression would grow exponentially with the depth.
+     * @param size number of clients
+     * @param out output
+     * @throws IOException if output failed
+     */
+    private void generateReplication(int size, Appendable out) throws IOException {
+        out.append("agent System(a) = !a(x).!'x.0");
+        for (int i = 1; i <= size; i++) {
+            out.append(" | (^c").append(String.valueOf(i)).append(")'a<c").append(String.valueOf(i)).append(">.c").append(String.valueOf(i)).append(".0");
+        }
+        out.append("\n");
+    }
+
+    /**
+     * Generates summation of given number of branches together with
+     * receiver which can communicate with any of them.
+     * @param size number of branches
+     * @param out output
+     * @throws IOException if output failed
+     */
+    private void generateSum(int size, Appendable out) throws IOException {
+        out.append("agent System(a) = (");
+        for (int i = 0; i < size; i++) {
+            out.append(i > 0 ? " + " : "").append("'a.0");
+        }
+        out.append(") | a.0\n");
+    }
+
+    /**
+     * Returns size parsed from the command line argument.
+     * @param arg command line argument
+     * @return size
+     * @throws Exception if the argument is not a positive number
+     */
+    private int getSize(String arg) throws Exception {
+        try {
+            return Integer.parseInt(arg);
+        } catch (NumberFormatException ex) {
+            throw new Exception("Error: Invalid size '" + arg + "'.");
+        }
+    }
+
+    /**
+     * Returns names of all families separated by commas.
+     * @return names of families
+     */
+    private String getFamilyNames() {
+        StringBuilder sb = new StringBuilder();
+        for (Family family : Family.values()) {
+            sb.append(sb.length() > 0 ? ", " : "").append(family.getName());
+        }
+        return sb.toString();
+    }
+}
@@ -58,6 +58,20 @@ public class TextResource extends ResourceBundle {
                         + "simplify\t\t simplify visualized expression\n"
                         + "env <process>\t\t print process definition\n"
                         + "env\t\t\t print all process definitions\n"
+                        + "stats\t\t\t print timing and counters of stages\n"
+                        + "stats reset\t\t reset timing and counters\n"
+                        + "check deadlock [d [s]]\t search for reachable deadlock\n"
+                        + "check <name> [d [s]]\t search for reachable input on channel\n"
+                        + "check '<name> [d [s]]\t search for reachable output on channel\n"
+                        + "check in <name> [d [s]]\t input check also on keyword channels\n"
+                        + "check ... por\t\t check with partial-order reduction\n"
+                        + "check ... sym\t\t check with symmetry reduction\n"
+                        + "check ... disk\t\t check with visited states on disk\n"
+                        + "check ... bitstate\t check with bitstate hashing\n"
+                        + "check ... checkpoint\t check writing checkpoints\n"
+                        + "check resume\t\t resume check from the last checkpoint\n"
+                        + "check cancel\t\t cancel running check or export\n"
+                        + "lts aut|dot [d [s]] [sym]\t export reachable states as LTS\n"
                         + "reset\t\t\t reset application context\n"
                         + "quit|exit\t\t exit application\n"
                         + "help\t\t\t show this text\n";
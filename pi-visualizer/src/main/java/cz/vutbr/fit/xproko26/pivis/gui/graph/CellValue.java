@@ -18,6 +18,7 @@ package cz.vutbr.fit.xproko26.pivis.gui.graph;
 import java.io.IOException;
 import java.io.ObjectInputStream;
 import java.io.Serializable;
+import java.util.concurrent.atomic.AtomicInteger;
 
 /**
  * CellValue is an abstract class which stores visual information about
@@ -34,8 +35,8 @@ public abstract class CellValue implements Serializable {
     
     private static final long serialVersionUID = 1L;
     
-    //id counter as static class variable
-    private static int idcounter = 0;
+    //id counter as static class variable, model copies are restored also in background
+    private static final AtomicInteger idcounter = new AtomicInteger();
     
     //unique identifier
     private transient int id;
@@ -55,7 +56,7 @@ public abstract class CellValue implements Serializable {
      * @param l 
      */
     public CellValue(String l) {
-        id = idcounter++;
+        id = idcounter.getAndIncrement();
         label = l;
         visible = true;
         selected = false;
@@ -143,6 +144,6 @@ public abstract class CellValue implements Serializable {
      */
     private void readObject(ObjectInputStream stream) throws IOException, ClassNotFoundException {
         stream.defaultReadObject();
-        this.id = idcounter++;
+        this.id = idcounter.getAndIncrement();
     }
 }
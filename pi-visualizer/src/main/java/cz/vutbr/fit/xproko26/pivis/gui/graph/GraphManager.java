@@ -16,11 +16,16 @@
 package cz.vutbr.fit.xproko26.pivis.gui.graph;
 
 import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
 import java.util.Stack;
 import java.util.stream.Collectors;
 import javax.swing.JComponent;
 import javax.swing.JMenuItem;
+import javax.swing.Timer;
 import cz.vutbr.fit.xproko26.pivis.gui.AudioPlayer;
 import cz.vutbr.fit.xproko26.pivis.gui.graph.graphlib.ExportAction;
 import cz.vutbr.fit.xproko26.pivis.gui.graph.graphlib.jgraphx.GraphJGraphX;
@@ -72,6 +77,13 @@ public class GraphManager {
     //graphic table to map NodeValue to model object or graphic object
     private static GraphicTable graphictable;
     
+    //time in milliseconds after which the graphics of collapsed group are released,
+    //the delay is fixed, a group expanded again within it keeps its graphics
+    private static final int RELEASE_DELAY = 60000;
+    
+    //timers of collapsed groups waiting for release (group id --> timer)
+    private static Map<Integer, Timer> releasetimers = new HashMap<>();
+    
     
     /**
      * Constructor which creates graph library.
@@ -134,8 +146,9 @@ public class GraphManager {
             return;
         }
 
-        Lock.getInstance().set(0, () -> {
+        update(0, () -> {
             hierarchic = style;        
+            cancelReleases();
             glib.clear();
             expandNodes = new ArrayList<>();
             selection = null;
@@ -152,13 +165,15 @@ public class GraphManager {
      * @param exp root of the expression to be treaveresd
      */
     public void removeRedSelection(Expression exp) {
-        NodeValueModifier.getInstance().traverse(exp, (NodeValue nv) -> {
-            if (nv.isReductionSelected()) {                     
-                setReductionSelected(nv, false);
-            }
-            if (nv.isSuggested()) {
-                setSuggested(nv,false);
-            }
+        update(() -> {
+            NodeValueModifier.getInstance().traverse(exp, (NodeValue nv) -> {
+                if (nv.isReductionSelected()) {                     
+                    setReductionSelected(nv, false);
+                }
+                if (nv.isSuggested()) {
+                    setSuggested(nv,false);
+                }
+            });
         });
     }
     
@@ -167,11 +182,13 @@ public class GraphManager {
      * @param exps list of expressions to be marked
      */
     public void visualizeRedSelection(List<Expression> exps) {
-        for (Expression e : exps) {
-            if (e.getVisual() != null) {
-                setReductionSelected(e.getVisual(), true);
+        update(() -> {
+            for (Expression e : exps) {
+                if (e.getVisual() != null) {
+                    setReductionSelected(e.getVisual(), true);
+                }
             }
-        }
+        });
     }
     
     /**
@@ -179,11 +196,13 @@ public class GraphManager {
      * @param exps list of expressions to be marked
      */
     public void visualizeSuggestions(List<Expression> exps) {
-        for (Expression e : exps) {
-            if (e.getVisual() != null) {
-                setSuggested(e.getVisual(), true);
+        update(() -> {
+            for (Expression e : exps) {
+                if (e.getVisual() != null) {
+                    setSuggested(e.getVisual(), true);
+                }
             }
-        }
+        });
     }
     
     /**
@@ -194,7 +213,7 @@ public class GraphManager {
      */
     public void visualizeHelper(Expression helper) {
         
-        Lock.getInstance().set(0, () -> {
+        update(0, () -> {
             
             ParallelReplicationExpression par = (ParallelReplicationExpression) helper.getParent();
             //create parallel node if not visible
@@ -219,7 +238,7 @@ public class GraphManager {
      */
     public void prepareForRedSelection(List<Expression> elist) {
         
-        Lock.getInstance().set(1, () -> {
+        update(1, () -> {
             
             for (Expression exp : elist) {
                 Stack<Expression> stack = exp.getParentStack();
@@ -277,6 +296,7 @@ public class GraphManager {
     private void makeExpanded(NodeValue group) {
 
         group.setCollapsed(false);
+        cancelRelease(group);
         NodeValue.Type type = group.getType();
         
         if (type == NodeValue.Type.V_HGROUP) {
@@ -336,6 +356,10 @@ public class GraphManager {
         else if (type == NodeValue.Type.V_LGROUP) { 
             setSuccesorsVisible(group, false);
         }        
+        
+        if (isVisualized(group)) {
+            scheduleRelease(group);
+        }
     }    
             
     /**
@@ -517,6 +541,166 @@ public class GraphManager {
         return false;
     }
         
+    /**
+     * Starts timer which releases graphic objects of the specified collapsed
+     * group when it expires.
+     * @param group collapsed group node
+     */
+    private void scheduleRelease(NodeValue group) {
+        cancelRelease(group);
+        Timer timer = new Timer(RELEASE_DELAY, e -> {
+            releasetimers.remove(group.getID());
+            update(() -> release(group));
+        });
+        timer.setRepeats(false);
+        releasetimers.put(group.getID(), timer);
+        timer.start();
+    }
+    
+    /**
+     * Stops release timer of the specified group if there is any.
+     * @param group group node
+     */
+    private void cancelRelease(NodeValue group) {
+        Timer timer = releasetimers.remove(group.getID());
+        if (timer != null) {
+            timer.stop();
+        }
+    }
+    
+    /**
+     * Stops all release timers.
+     */
+    private void cancelReleases() {
+        releasetimers.values().forEach(Timer::stop);
+        releasetimers.clear();
+    }
+    
+    /**
+     * Removes graphic objects of the instance visualized for the specified
+     * group, so that only the collapsed group node remains. Names which are
+     * used also outside of the instance are kept. In hierarchic style such
+     * names are placed inside of the group, so the release is skipped.
+     * @param group collapsed group node
+     */
+    private void release(NodeValue group) {
+        
+        if (!group.isCollapsed() || getGraphic(group) == null || !isVisualized(group)) {
+            return;
+        }
+        
+        //collect nodes of the instance and names used by them
+        Set<Integer> nodes = new HashSet<>();
+        List<NodeValue> nlist = new ArrayList<>();
+        List<NodeValue> names = new ArrayList<>();
+        
+        if (group.getType() == NodeValue.Type.V_HGROUP) {
+            collectChildren(group, nodes, nlist, names);
+        } else {
+            collectSuccessors(group, nodes, nlist, names);
+        }
+        
+        //names shared with the rest of the graph stay untouched
+        List<NodeValue> removednames = new ArrayList<>();
+        for (NodeValue name : names) {
+            boolean shared = false;
+            for (EdgeValue edge : getEdges(name)) {
+                if (!nodes.contains(getSource(edge).getID())) {
+                    shared = true;
+                    break;
+                }
+            }
+            if (!shared) {
+                removednames.add(name);
+            } else if (group.getType() == NodeValue.Type.V_HGROUP) {
+                return;
+            }
+        }
+        nlist.addAll(removednames);
+        
+        if ((selection != null) && nlist.stream().anyMatch(nv -> nv.equals(selection))) {
+            clearSelection();
+        }
+        
+        //forget graphics of all removed nodes and their edges
+        for (NodeValue nv : nlist) {
+            getEdges(nv).forEach(edge -> graphictable.remove(edge.getID()));
+        }
+        
+        if (group.getType() == NodeValue.Type.V_HGROUP) {
+            //removal of the top children removes the whole content of the group
+            List<Object> children = glib.getChildren(getGraphic(group));
+            nlist.forEach(nv -> graphictable.remove(nv.getID()));
+            children.forEach(child -> glib.remove(child));
+        } else {
+            for (NodeValue nv : nlist) {
+                remove(nv);
+                graphictable.remove(nv.getID());
+            }
+        }
+    }
+    
+    /**
+     * Recursively collects all nodes placed inside of the specified group node.
+     * @param group group node
+     * @param nodes set of ids of collected nodes which are not names
+     * @param nlist collected nodes which are not names
+     * @param names collected names
+     */
+    private void collectChildren(NodeValue group, Set<Integer> nodes, List<NodeValue> nlist, List<NodeValue> names) {
+        for (NodeValue child : getChildren(group)) {
+            if (child.isName()) {
+                names.add(child);
+            } else {
+                nodes.add(child.getID());
+                nlist.add(child);
+                if (child.getType() == NodeValue.Type.V_HGROUP) {
+                    collectChildren(child, nodes, nlist, names);
+                }
+            }
+        }
+    }
+    
+    /**
+     * Collects all nodes which follow the specified group node in linear style.
+     * @param group group node
+     * @param nodes set of ids of collected nodes which are not names
+     * @param nlist collected nodes which are not names
+     * @param names collected names
+     */
+    private void collectSuccessors(NodeValue group, Set<Integer> nodes, List<NodeValue> nlist, List<NodeValue> names) {
+        Set<Integer> nameids = new HashSet<>();
+        Stack<NodeValue> stack = new Stack<>();
+        
+        for (EdgeValue edge : getEdges(group)) {
+            NodeValue target = getTarget(edge);
+            if (group.equals(getSource(edge)) && !target.isName()) {
+                stack.push(target);
+            }
+        }
+        
+        while (!stack.empty()) {
+            NodeValue node = stack.pop();
+            if (!nodes.add(node.getID())) {
+                continue;
+            }
+            nlist.add(node);
+            for (EdgeValue edge : getEdges(node)) {
+                NodeValue target = getTarget(edge);
+                if (!node.equals(getSource(edge))) {
+                    continue;
+                }
+                if (target.isName()) {
+                    if (nameids.add(target.getID())) {
+                        names.add(target);
+                    }
+                } else {
+                    stack.push(target);
+                }
+            }
+        }
+    }
+    
     /**
      * Requests instance and invokes visualizer method to visualize it.
      * @param nv node value which instance should be visualized
@@ -817,6 +1001,39 @@ public class GraphManager {
         glib.remove(getGraphic(cv));
     }
     
+    /**
+     * Executes specified action as a single update of the graph library.
+     * All graph modifications made by the action are applied at once
+     * when it finishes, so the canvas is refreshed only once.
+     * @param action action to be executed
+     */
+    private void update(Runnable action) {
+        glib.beginUpdate();
+        try {
+            action.run();
+        } finally {
+            glib.endUpdate();
+        }
+    }
+    
+    /**
+     * Accesses the lock inside of a single update of the graph library,
+     * so that all modifications made by the whole gesture including
+     * the final layout are applied at once.
+     * @param mintries minimal number of locked access tries required
+     * @param r1 runnable which is always executed
+     * @param r2 runnable which is executed only by the first lock owner
+     * @return true if lock was not locked, false otherwise
+     */
+    private boolean update(int mintries, Runnable r1, Runnable r2) {
+        glib.beginUpdate();
+        try {
+            return Lock.getInstance().set(mintries, r1, r2);
+        } finally {
+            glib.endUpdate();
+        }
+    }
+    
     /**
      * Requests graph library to execute graph layout.
      * @param effect true if the layout should be animated and with audio effect
@@ -877,13 +1094,15 @@ public class GraphManager {
             
             @Override
             public void nodeExpanded(Object o) {
-                boolean userclick = Lock.getInstance().set(0, () -> {
-                    makeExpanded((NodeValue) getValue(o));            
-                }, () -> layout(true));
-                if (userclick) {
-                    clearSelection();
-                    visualizeSelection((NodeValue)glib.getValue(o));
-                }
+                update(() -> {
+                    boolean userclick = Lock.getInstance().set(0, () -> {
+                        makeExpanded((NodeValue) getValue(o));            
+                    }, () -> layout(true));
+                    if (userclick) {
+                        clearSelection();
+                        visualizeSelection((NodeValue)glib.getValue(o));
+                    }
+                });
                 if (listener != null) {
                     listener.nodeExpanded();
                 }
@@ -891,13 +1110,15 @@ public class GraphManager {
             
             @Override
             public void nodeCollapsed(Object o) {
-                boolean userclick = Lock.getInstance().set(0, () -> {
-                    makeCollapsed((NodeValue) getValue(o));            
-                }, () -> layout(true));
-                if (userclick) {
-                    clearSelection();
-                    visualizeSelection((NodeValue)glib.getValue(o));
-                }
+                update(() -> {
+                    boolean userclick = Lock.getInstance().set(0, () -> {
+                        makeCollapsed((NodeValue) getValue(o));            
+                    }, () -> layout(true));
+                    if (userclick) {
+                        clearSelection();
+                        visualizeSelection((NodeValue)glib.getValue(o));
+                    }
+                });
                 if (listener != null) {
                     listener.nodeCollapsed();
                 }
@@ -918,13 +1139,15 @@ public class GraphManager {
             public void nodeClicked(Object o) {        
                 NodeValue nv = (NodeValue) getValue(o);               
                 if (listener != null) {
-                    if (nv.isSelected()) {
-                        clearSelection();
-                    }
-                    else {
-                        clearSelection();
-                        visualizeSelection(nv);
-                    }
+                    update(() -> {
+                        if (nv.isSelected()) {
+                            clearSelection();
+                        }
+                        else {
+                            clearSelection();
+                            visualizeSelection(nv);
+                        }
+                    });
                 }
 
                 if (listener != null) {
@@ -69,4 +69,13 @@ public class GraphicTable {
         objects.put(i, obj);
         graphics.put(i, gr);
     }
+    
+    /**
+     * Removes record from the GraphTable.
+     * @param i id of the NodeValue
+     */
+    public void remove(int i) {
+        objects.remove(i);
+        graphics.remove(i);
+    }
 }
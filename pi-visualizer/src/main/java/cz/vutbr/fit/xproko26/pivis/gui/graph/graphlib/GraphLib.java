@@ -56,6 +56,19 @@ public interface GraphLib {
      */
     public void executeLayout(boolean animation);
     
+    /**
+     * Starts a batch of graph modifications. All changes made until the
+     * matching {@link #endUpdate() endUpdate} call are applied as a single
+     * update, so the canvas is refreshed only once. Calls can be nested.
+     */
+    public void beginUpdate();
+    
+    /**
+     * Ends a batch of graph modifications started by {@link #beginUpdate() 
+     * beginUpdate}. Closing the outermost batch applies collected changes.
+     */
+    public void endUpdate();
+    
     /**
      * Clears all graphic object from the canvas.
      */
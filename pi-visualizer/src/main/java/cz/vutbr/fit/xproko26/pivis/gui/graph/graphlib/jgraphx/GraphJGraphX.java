@@ -31,6 +31,7 @@ import com.mxgraph.util.mxUtils;
 import com.mxgraph.view.mxCellState;
 import com.mxgraph.view.mxGraph;
 import java.awt.Color;
+import java.awt.GraphicsEnvironment;
 import java.awt.Point;
 import java.awt.event.MouseAdapter;
 import java.awt.event.MouseEvent;
@@ -54,6 +55,7 @@ import cz.vutbr.fit.xproko26.pivis.gui.graph.graphlib.ExportAction;
 import cz.vutbr.fit.xproko26.pivis.gui.graph.graphlib.GraphLib;
 import cz.vutbr.fit.xproko26.pivis.gui.graph.graphlib.GraphListener;
 import cz.vutbr.fit.xproko26.pivis.gui.graph.graphlib.jgraphx.layout.mxHierarchicalLayout;
+import cz.vutbr.fit.xproko26.pivis.stats.Statistics;
 
 /**
  * GraphJGraphX represents the class which connects JGraphX library to graph manager.
@@ -62,18 +64,28 @@ import cz.vutbr.fit.xproko26.pivis.gui.graph.graphlib.jgraphx.layout.mxHierarchi
  */
 public class GraphJGraphX implements GraphLib {
 
+    //number of cells of a group above which the linear placement is used
+    private static final int LINEAR_PLACEMENT_CELLS = 2000;
+
     //graph listener for reporting user interaction
     private GraphListener glist;
     
-    //graph canvas
+    //graph canvas, null in headless mode
     private final mxGraphComponent gcomp;
     
     //complete graph representation
     private mxGraph graph;  
     
+    //depth of nested update batches
+    private int updatelevel;
+    
+    //flag indicating that refresh was requested inside of update batch
+    private boolean refreshpending;
+    
     /**
      * Initializes graph and graph canvas, prepares visual styles and sets graph
-     * to uneditable viewer mode.
+     * to uneditable viewer mode. In headless mode no graph canvas is created
+     * and the graph can only be layouted and exported.
      */
     public GraphJGraphX() {
         
@@ -108,6 +120,14 @@ public class GraphJGraphX implements GraphLib {
         //configure graph
         configureGraph();
         
+        //set stylesheets
+        setStyles();
+
+        if (GraphicsEnvironment.isHeadless()) {
+            gcomp = null;
+            return;
+        }
+
         //create graph component containing the created graph
         gcomp = new mxGraphComponent(graph)
         {
@@ -119,13 +139,16 @@ public class GraphJGraphX implements GraphLib {
                 }
                 return true;
             }
+
+            @Override
+            protected mxGraphControl createGraphControl() {
+                //draw with level of detail and skip groups out of the view
+                return new JGraphXGraphControl(this);
+            }
         };
         //configure graph component               
         configureGraphComponent();
         
-        //set stylesheets
-        setStyles();
-        
         //set user interaction
         setUserInteraction();
     }
@@ -382,6 +405,13 @@ public class GraphJGraphX implements GraphLib {
      */
     @Override
     public void executeLayout(boolean animation) {
+        
+        Statistics.Probe probe = Statistics.getInstance().start(Statistics.Stage.LAYOUT);
+
+        //bring view up to date with changes collected in update batch
+        if (updatelevel > 0) {
+            graph.getView().revalidate();
+        }
                       
         graph.getModel().beginUpdate();
         try {
@@ -402,22 +432,26 @@ public class GraphJGraphX implements GraphLib {
         //execute layout for the whole graph
         graph.getModel().beginUpdate();
         try {
-            graphLayout(graph).execute(graph.getDefaultParent());
+            graphLayout(graph.getDefaultParent()).execute(graph.getDefaultParent());
         } finally {
             //center the graph in the graph canvas
             center();
             graph.getModel().endUpdate();
         }                
+        probe.stop(((mxGraphModel) graph.getModel()).getCells().size(), 0);
     }
     
     /**
-     * Configures hierarchical layout.
-     * @param graph graph to layout
+     * Configures hierarchical layout. Cells of large groups are placed by
+     * the linear placement stage, which is much faster there, small ones
+     * keep the iterative placement.
+     * @param parent parent of the cells to layout
      * @return hierarchical layout
      */
-    private mxHierarchicalLayout graphLayout(mxGraph graph) {
+    private mxHierarchicalLayout graphLayout(Object parent) {
         
         mxHierarchicalLayout layout = new mxHierarchicalLayout(graph);
+        layout.setLinearPlacement(graph.getModel().getChildCount(parent) > LINEAR_PLACEMENT_CELLS);
         layout.setOrientation(SwingConstants.WEST);
         layout.setResizeParent(true);
         layout.setMoveParent(true);
@@ -435,6 +469,7 @@ public class GraphJGraphX implements GraphLib {
      */
     private void layoutChildren(mxICell group) {
         
+        Statistics.Probe probe = Statistics.getInstance().start(Statistics.Stage.LAYOUT_GROUP);
         for (Object o : getChildren(group)) {
             mxICell child = (mxICell) o;
             if (child.isVertex() && graph.isCellFoldable(child, true) && !child.isCollapsed()) {
@@ -444,10 +479,18 @@ public class GraphJGraphX implements GraphLib {
         
         graph.getModel().beginUpdate();
         try {
-            graphLayout(graph).execute(group, getGroupRoot(group));
+            graphLayout(group).execute(group, getGroupRoot(group));
         } finally {
             graph.getModel().endUpdate();
         }
+        
+        //inside of update batch the view is not validated automatically,
+        //the enclosing layout needs actual bounds of the group
+        if (updatelevel > 0) {
+            graph.getView().invalidate(group);
+            graph.getView().validate();
+        }
+        probe.stop(group.getChildCount(), 0);
     }
     
     /**
@@ -494,8 +537,8 @@ public class GraphJGraphX implements GraphLib {
 
         graph.refresh();
 
-        double compwidth = gcomp.getSize().getWidth();
-        double compheight = gcomp.getSize().getHeight();
+        double compwidth = (gcomp != null) ? gcomp.getSize().getWidth() : 0;
+        double compheight = (gcomp != null) ? gcomp.getSize().getHeight() : 0;
 
         double graphwidth = graph.getGraphBounds().getWidth();
         double graphheight = graph.getGraphBounds().getHeight();
@@ -525,6 +568,51 @@ public class GraphJGraphX implements GraphLib {
         graph.setMinimumGraphSize(new mxRectangle(0,0,graphwidth+2*w,graphheight+2*h));                 
     }
     
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void beginUpdate() {
+        updatelevel++;
+        graph.getModel().beginUpdate();
+    }
+    
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void endUpdate() {
+        graph.getModel().endUpdate();
+        updatelevel--;
+        if (updatelevel == 0 && refreshpending) {
+            refreshpending = false;
+            refreshView();
+        }
+    }
+    
+    /**
+     * Refreshes the graph canvas. Inside of update batch the refresh is
+     * postponed until the batch is closed.
+     */
+    private void refresh() {
+        if (updatelevel > 0) {
+            refreshpending = true;
+        } else {
+            refreshView();
+        }
+    }
+    
+    /**
+     * Refreshes the graph canvas, or just the graph view in headless mode.
+     */
+    private void refreshView() {
+        if (gcomp != null) {
+            gcomp.refresh();
+        } else {
+            graph.refresh();
+        }
+    }
+    
     /**
      * {@inheritDoc}
      */
@@ -705,7 +793,7 @@ public class GraphJGraphX implements GraphLib {
             } else {
                 graph.setCellStyles(mxConstants.STYLE_FILLCOLOR, "#ffffff", new Object[]{o});
             }
-            graph.refresh();
+            refresh();
         }        
     }
     
@@ -721,7 +809,7 @@ public class GraphJGraphX implements GraphLib {
             } else {
                 graph.setCellStyles(mxConstants.STYLE_FILLCOLOR, "#ffffff", new Object[]{o});
             }
-            graph.refresh();
+            refresh();
         }        
     }         
     
@@ -754,7 +842,7 @@ public class GraphJGraphX implements GraphLib {
     private void selectNode(mxCell cell) {
         graph.setCellStyles(mxConstants.STYLE_STROKECOLOR, "#0000ff", new Object[]{cell});
         graph.setCellStyles(mxConstants.STYLE_STROKEWIDTH, "2", new Object[]{cell});
-        gcomp.refresh();
+        refresh();
     }
     
     /**
@@ -764,7 +852,7 @@ public class GraphJGraphX implements GraphLib {
     private void deselectNode(mxCell cell) {
         graph.setCellStyles(mxConstants.STYLE_STROKECOLOR, "#000000", new Object[]{cell});
         graph.setCellStyles(mxConstants.STYLE_STROKEWIDTH, "1", new Object[]{cell});
-        gcomp.refresh();
+        refresh();
     }
     
     /**
@@ -774,7 +862,7 @@ public class GraphJGraphX implements GraphLib {
     private void selectEdge(mxCell cell) {
         graph.setCellStyles(mxConstants.STYLE_STROKECOLOR, "#0000ff", new Object[]{cell});
         graph.setCellStyles(mxConstants.STYLE_STROKEWIDTH, "2", new Object[]{cell});
-        gcomp.refresh();
+        refresh();
     }
     
     /**
@@ -800,7 +888,7 @@ public class GraphJGraphX implements GraphLib {
         }
                         
         graph.setCellStyles(mxConstants.STYLE_STROKEWIDTH, "1", new Object[]{cell});
-        gcomp.refresh();
+        refresh();
     }
 
     /**
@@ -812,37 +900,43 @@ public class GraphJGraphX implements GraphLib {
         ret.add(new ExportAction("svg") {
             @Override
             public void export(FileOutputStream os)  throws Exception {
-                (new JGraphXFileExporter(gcomp)).export(os, this);
+                (new JGraphXFileExporter(graph)).export(os, this);
             }
         });
         ret.add(new ExportAction("emf", "emf", true) {
             @Override
             public void export(FileOutputStream os)  throws Exception {
-                (new JGraphXFileExporter(gcomp)).export(os, this);
+                (new JGraphXFileExporter(graph)).export(os, this);
             }
         });
         ret.add(new ExportAction("eps") {
             @Override
             public void export(FileOutputStream os)  throws Exception {
-                (new JGraphXFileExporter(gcomp)).export(os, this);
+                (new JGraphXFileExporter(graph)).export(os, this);
+            }
+        });
+        ret.add(new ExportAction("pdf") {
+            @Override
+            public void export(FileOutputStream os)  throws Exception {
+                (new JGraphXFileExporter(graph)).export(os, this);
             }
         });
         ret.add(new ExportAction("png", "png", true) {
             @Override
             public void export(FileOutputStream os)  throws Exception {
-                (new JGraphXFileExporter(gcomp)).export(os, this);
+                (new JGraphXFileExporter(graph)).export(os, this);
             }
         });        
         ret.add(new ExportAction("jpg") {
             @Override
             public void export(FileOutputStream os)  throws Exception {
-                (new JGraphXFileExporter(gcomp)).export(os, this);
+                (new JGraphXFileExporter(graph)).export(os, this);
             }
         });        
         ret.add(new ExportAction("bmp") {
             @Override
             public void export(FileOutputStream os)  throws Exception {
-                (new JGraphXFileExporter(gcomp)).export(os, this);
+                (new JGraphXFileExporter(graph)).export(os, this);
             }
         });
         return ret;
@@ -16,8 +16,10 @@
 package cz.vutbr.fit.xproko26.pivis.gui.graph.graphlib.jgraphx;
 
 import com.mxgraph.canvas.mxGraphics2DCanvas;
-import com.mxgraph.swing.mxGraphComponent;
+import com.mxgraph.canvas.mxICanvas;
+import com.mxgraph.model.mxGraphModel;
 import com.mxgraph.util.mxCellRenderer;
+import com.mxgraph.util.mxCellRenderer.CanvasFactory;
 import com.mxgraph.util.mxPoint;
 import com.mxgraph.view.mxGraph;
 import com.mxgraph.view.mxGraphView;
@@ -29,43 +31,38 @@ import java.awt.Paint;
 import java.awt.RenderingHints;
 import java.awt.geom.Rectangle2D;
 import java.awt.image.BufferedImage;
+import java.io.BufferedWriter;
 import java.io.FileOutputStream;
-import java.io.IOException;
 import java.io.OutputStreamWriter;
 import java.io.Writer;
 import java.util.Properties;
 import javax.imageio.ImageIO;
-import javax.xml.transform.OutputKeys;
-import javax.xml.transform.Result;
-import javax.xml.transform.Source;
-import javax.xml.transform.Transformer;
-import javax.xml.transform.TransformerException;
-import javax.xml.transform.TransformerFactory;
-import javax.xml.transform.dom.DOMSource;
-import javax.xml.transform.stream.StreamResult;
 import org.freehep.graphics2d.VectorGraphics;
 import org.freehep.graphicsbase.util.UserProperties;
 import org.freehep.graphicsio.emf.EMFGraphics2D;
+import org.freehep.graphicsio.pdf.PDFGraphics2D;
 import org.freehep.graphicsio.ps.EPSGraphics2D;
 
-import org.w3c.dom.Document;
 import cz.vutbr.fit.xproko26.pivis.gui.graph.graphlib.ExportAction;
+import cz.vutbr.fit.xproko26.pivis.stats.Statistics;
 
 /**
- * JGraphXFileExporter provides methods for JGraphX-graph export.
+ * JGraphXFileExporter provides methods for JGraphX-graph export. The export
+ * works with the graph only, so it does not need any graph component and
+ * can be used in headless mode as well.
  * @author Dagmar Prokopova
  */
 public class JGraphXFileExporter {
     
-    //graph canvas containging the graph representation
-    private final mxGraphComponent component;
+    //graph to be exported
+    private final mxGraph graph;
     
     /**
      * Initializes class attribute.
-     * @param comp graph canvas with graph to be exported
+     * @param g graph to be exported
      */
-    public JGraphXFileExporter(mxGraphComponent comp) {
-        component = comp;
+    public JGraphXFileExporter(mxGraph g) {
+        graph = g;
     }
     
     /**
@@ -76,6 +73,7 @@ public class JGraphXFileExporter {
      */
     public void export(FileOutputStream os, ExportAction action) throws Exception {
         String ext = action.getExtension();
+        Statistics.Probe probe = Statistics.getInstance().start(Statistics.Stage.EXPORT);
         
         switch (ext) {
             case "png":
@@ -88,10 +86,13 @@ public class JGraphXFileExporter {
                 break;
             case "emf":
             case "eps":
+            case "pdf":
                 exportVector(os, ext, action.isTransparent());
+                break;
             default:
                 break;                
         }
+        probe.stop(((mxGraphModel) graph.getModel()).getCells().size(), 0, ext);
     } 
     
     /**
@@ -103,50 +104,33 @@ public class JGraphXFileExporter {
      */
     public void exportBitmap(FileOutputStream os, String extension, boolean transparent) throws Exception {
         
-        mxGraph graph = component.getGraph(); 
         BufferedImage image = mxCellRenderer.createBufferedImage(graph, null, graph.getView().getScale(), (transparent) ? null : Color.WHITE, true, null);
         ImageIO.write(image, extension, os);
     }
     
     /**
-     * Transfers graph into svg document with the usage of mxCellRenderer.
+     * Streams graph into svg file with the usage of mxCellRenderer. The svg
+     * elements are written as the cells are drawn, so no complete document
+     * is built in the memory.
      * @param os output sream
+     * @param extension extension specifying the format of the file
      * @throws Exception 
      */
     public void exportSvg(FileOutputStream os, String extension) throws Exception {
         
-        mxGraph graph = component.getGraph();        
-        Document doc = mxCellRenderer.createSvgDocument(graph, null, graph.getView().getScale(), null, null);
+        Writer writer = new BufferedWriter(new OutputStreamWriter(os, "UTF-8"));
+        JGraphXSvgCanvas canvas = (JGraphXSvgCanvas) mxCellRenderer.drawCells(graph, null, graph.getView().getScale(), null, new CanvasFactory() {
+            @Override
+            public mxICanvas createCanvas(int width, int height) {
+                return new JGraphXSvgCanvas(writer, width, height);
+            }
+        });
         
-        //write the SVG Document into the specified file
-        OutputStreamWriter writer = new OutputStreamWriter(os, "UTF-8");
-        writeDocument(doc, writer);       
-    }
-    
-    /**
-     * Writes created svg document into the file.
-     * @param svgDocument created svg document
-     * @param writer output stream writer
-     * @throws Exception 
-     */
-    private void writeDocument(Document doc, Writer writer) throws Exception {
-        try {
-            //prepare the DOM document for writing
-            Source source = new DOMSource(doc);
-            Result result = new StreamResult(writer);
-
-            //write the DOM document to the file
-            TransformerFactory tf = TransformerFactory.newInstance();
-            try {
-                tf.setAttribute("indent-number", 2);
-            } catch (IllegalArgumentException iaex) {}
-            
-            Transformer xformer = tf.newTransformer();
-            xformer.setOutputProperty(OutputKeys.INDENT, "yes");
-            xformer.transform(source, result);
-        } catch (TransformerException e) {
-            throw new IOException(e.getMessage());
+        //nothing to draw, write empty document
+        if (canvas == null) {
+            canvas = new JGraphXSvgCanvas(writer, 0, 0);
         }
+        canvas.close();
     }
     
     /**
@@ -157,7 +141,6 @@ public class JGraphXFileExporter {
      */    
     public void exportVector(FileOutputStream os, String extension, boolean transparent) throws Exception {
 
-        mxGraph graph = component.getGraph(); 
         Object[] cells = new Object[] { graph.getModel().getRoot() }; 
         java.awt.Rectangle rect = graph.getPaintBounds(cells).getRectangle();
         Dimension size = new Dimension((int)rect.getWidth()+2, (int)rect.getHeight()+2);
@@ -168,6 +151,9 @@ public class JGraphXFileExporter {
             case "eps":
                 gfx = createEpsGraphics(os, size);
                 break;
+            case "pdf":
+                gfx = createPdfGraphics(os, size);
+                break;
             default:
                 gfx = createEmfGraphics(os, size);
                 break;
@@ -243,5 +229,24 @@ public class JGraphXFileExporter {
         gfx.setProperties(properties);
         return gfx;
     }
+
+    /**
+     * Prepares pdf graphic.
+     * @param os output stream
+     * @param size size of the exported graphic
+     * @return created pdf graphic
+     */
+    private PDFGraphics2D createPdfGraphics(FileOutputStream os, Dimension size) {
+        Properties properties = new Properties();
+        properties.putAll(PDFGraphics2D.getDefaultProperties());
+        properties.setProperty(PDFGraphics2D.PAGE_SIZE, PDFGraphics2D.CUSTOM_PAGE_SIZE);
+        properties.setProperty(PDFGraphics2D.CUSTOM_PAGE_SIZE, size.width + ", " + size.height);
+        UserProperties.setProperty(properties, PDFGraphics2D.PAGE_MARGINS, new Insets(0, 0, 0, 0));
+        UserProperties.setProperty(properties, PDFGraphics2D.FIT_TO_PAGE, false);
+
+        PDFGraphics2D gfx = new PDFGraphics2D(os, size);
+        gfx.setProperties(properties);
+        return gfx;
+    }
     
 }
@@ -0,0 +1,419 @@
+/*
+ * Copyright 2017 Dagmar Prokopova <xproko26@stud.fit.vutbr.cz>.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package cz.vutbr.fit.xproko26.pivis.gui.graph.graphlib.jgraphx;
+
+import com.mxgraph.canvas.mxGraphics2DCanvas;
+import com.mxgraph.canvas.mxICanvas;
+import com.mxgraph.model.mxIGraphModel;
+import com.mxgraph.swing.mxGraphComponent;
+import com.mxgraph.util.mxConstants;
+import com.mxgraph.util.mxEvent;
+import com.mxgraph.util.mxEventObject;
+import com.mxgraph.util.mxEventSource.mxIEventListener;
+import com.mxgraph.util.mxPoint;
+import com.mxgraph.util.mxRectangle;
+import com.mxgraph.util.mxUtils;
+import com.mxgraph.view.mxCellState;
+import com.mxgraph.view.mxGraph;
+import java.awt.Color;
+import java.awt.Graphics2D;
+import java.awt.Rectangle;
+import java.awt.image.BufferedImage;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import javax.swing.Timer;
+import cz.vutbr.fit.xproko26.pivis.gui.graph.EdgeValue;
+
+/**
+ * JGraphXGraphControl is a graph control (drawing surface of the graph
+ * component) with level-of-detail rendering and viewport culling. Group
+ * nodes outside of the repainted area are skipped together with their whole
+ * content, so the cost of a repaint depends on the visible part of the graph
+ * only. Depending on the current zoom, labels are left out, collapsed groups
+ * are drawn as plain boxes and edges connecting names are omitted.
+ * Rendered graph is cached in offscreen tiles of the current scale. Scrolling
+ * only copies cached tiles, tiles touched by a repaint of the graph are
+ * invalidated. After zooming, the tiles of the previous scale are shown
+ * scaled while the tiles of the new scale are rendered in idle time.
+ * Export is not affected since it does not paint through the graph control.
+ * @author Dagmar Prokopova
+ */
+public class JGraphXGraphControl extends mxGraphComponent.mxGraphControl {
+
+    //scale below which no labels are drawn
+    private static double labelscale = 0.5;
+
+    //scale below which collapsed groups are drawn as plain boxes
+    private static double groupscale = 0.7;
+
+    //scale below which edges connecting names are not drawn
+    private static double nameedgescale = 0.7;
+
+    //size of the tile in pixels
+    private static final int TILE = 256;
+
+    //maximal number of cached tiles, zero disables the cache
+    private static int maxtiles = 128;
+
+    //number of tiles rendered in one idle time slice
+    private static final int TILES_PER_SLICE = 4;
+
+    //graph component the control belongs to
+    private final mxGraphComponent gcomp;
+
+    //graph the invalidation listeners are registered at
+    private mxGraph listened;
+
+    //tiles of the current scale in order of their use
+    private final LinkedHashMap<Long, BufferedImage> tiles = new LinkedHashMap<Long, BufferedImage>(16, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<Long, BufferedImage> eldest) {
+            return size() > maxtiles;
+        }
+    };
+
+    //tiles of the previous scale shown until the current ones are rendered
+    private Map<Long, BufferedImage> oldtiles;
+
+    //scale and translation the previous tiles were rendered with
+    private double oldscale;
+    private mxPoint oldtranslate;
+
+    //scale and translation the current tiles are rendered with
+    private double scale;
+    private mxPoint translate;
+
+    //tiles waiting to be rendered in idle time
+    private final Deque<Long> pending = new ArrayDeque<>();
+
+    //timer rendering pending tiles
+    private final Timer idle;
+
+    /**
+     * Creates graph control of the specified graph component.
+     * @param gcomp graph component
+     */
+    public JGraphXGraphControl(mxGraphComponent gcomp) {
+        gcomp.super();
+        this.gcomp = gcomp;
+        idle = new Timer(10, e -> renderPending());
+    }
+
+    /**
+     * Sets maximal number of cached tiles. Zero disables the tile cache.
+     * @param max maximal number of tiles
+     */
+    public static void setTileCacheSize(int max) {
+        maxtiles = Math.max(0, max);
+    }
+
+    /**
+     * Sets zoom thresholds of the level-of-detail rendering.
+     * @param label scale below which no labels are drawn
+     * @param group scale below which collapsed groups are drawn as plain boxes
+     * @param nameedge scale below which edges connecting names are not drawn
+     */
+    public static void setThresholds(double label, double group, double nameedge) {
+        labelscale = label;
+        groupscale = group;
+        nameedgescale = nameedge;
+    }
+
+    /**
+     * Draws the graph from the cached tiles. Missing tiles are rendered
+     * immediately unless they can be substituted by scaled tiles of the
+     * previous scale, in which case they are rendered in idle time.
+     * @param g graphics to be drawn onto
+     * @param drawLabels true if labels should be drawn
+     */
+    @Override
+    public void drawGraph(Graphics2D g, boolean drawLabels) {
+        if (maxtiles == 0 || !drawLabels) {
+            super.drawGraph(g, drawLabels);
+            return;
+        }
+        listen();
+
+        Rectangle clip = g.getClipBounds();
+        if (clip == null) {
+            clip = new Rectangle(0, 0, getWidth(), getHeight());
+        }
+
+        for (int ty = Math.floorDiv(clip.y, TILE); ty * TILE < clip.y + clip.height; ty++) {
+            for (int tx = Math.floorDiv(clip.x, TILE); tx * TILE < clip.x + clip.width; tx++) {
+                long key = key(tx, ty);
+                BufferedImage img = tiles.get(key);
+                if (img == null && oldtiles != null) {
+                    drawScaled(g, tx, ty);
+                    if (!pending.contains(key)) {
+                        pending.add(key);
+                    }
+                    idle.start();
+                    continue;
+                }
+                if (img == null) {
+                    img = render(tx, ty);
+                }
+                g.drawImage(img, tx * TILE, ty * TILE, null);
+            }
+        }
+    }
+
+    /**
+     * Registers listeners invalidating the tiles at the graph of the
+     * component if not done yet.
+     */
+    private void listen() {
+        mxGraph graph = gcomp.getGraph();
+        if (graph == listened) {
+            return;
+        }
+        listened = graph;
+        scale = graph.getView().getScale();
+        translate = graph.getView().getTranslate();
+        invalidate(null);
+
+        //drop tiles touched by the repainted region
+        graph.addListener(mxEvent.REPAINT, new mxIEventListener() {
+            @Override
+            public void invoke(Object sender, mxEventObject evt) {
+                invalidate((mxRectangle) evt.getProperty("region"));
+            }
+        });
+
+        //keep tiles of the previous view until the new ones are rendered
+        mxIEventListener viewchange = new mxIEventListener() {
+            @Override
+            public void invoke(Object sender, mxEventObject evt) {
+                viewChanged();
+            }
+        };
+        graph.getView().addListener(mxEvent.SCALE, viewchange);
+        graph.getView().addListener(mxEvent.TRANSLATE, viewchange);
+        graph.getView().addListener(mxEvent.SCALE_AND_TRANSLATE, viewchange);
+    }
+
+    /**
+     * Keeps current tiles as the previous ones after change of scale or
+     * translation of the view.
+     */
+    private void viewChanged() {
+        if (!tiles.isEmpty()) {
+            oldtiles = new LinkedHashMap<>(tiles);
+            oldscale = scale;
+            oldtranslate = translate;
+        }
+        tiles.clear();
+        pending.clear();
+        scale = listened.getView().getScale();
+        translate = listened.getView().getTranslate();
+    }
+
+    /**
+     * Removes tiles intersecting specified region. Previous tiles are
+     * removed completely since they no longer reflect the graph. The view
+     * repaints the whole graph before it reports the change of scale or
+     * translation, so such repaint keeps the current tiles as the previous
+     * ones instead.
+     * @param region region in view coordinates, null for whole graph
+     */
+    private void invalidate(mxRectangle region) {
+        if (region == null && listened != null && (listened.getView().getScale() != scale
+                || !listened.getView().getTranslate().equals(translate))) {
+            viewChanged();
+            return;
+        }
+        oldtiles = null;
+        if (region == null) {
+            tiles.clear();
+        } else {
+            Rectangle r = region.getRectangle();
+            r.grow(1, 1);
+            Iterator<Long> it = tiles.keySet().iterator();
+            while (it.hasNext()) {
+                long key = it.next();
+                if (r.intersects(new Rectangle((int) (key >> 32) * TILE, (int) key * TILE, TILE, TILE))) {
+                    it.remove();
+                }
+            }
+        }
+    }
+
+    /**
+     * Renders some of the pending tiles and repaints them. Stops the timer
+     * and drops the previous tiles once all are done.
+     */
+    private void renderPending() {
+        for (int i = 0; i < TILES_PER_SLICE && !pending.isEmpty(); i++) {
+            long key = pending.poll();
+            int tx = (int) (key >> 32);
+            int ty = (int) key;
+            if (!tiles.containsKey(key)) {
+                render(tx, ty);
+            }
+            repaint(tx * TILE, ty * TILE, TILE, TILE);
+        }
+        if (pending.isEmpty()) {
+            idle.stop();
+            oldtiles = null;
+        }
+    }
+
+    /**
+     * Renders specified tile and stores it in the cache.
+     * @param tx horizontal tile index
+     * @param ty vertical tile index
+     * @return rendered tile
+     */
+    private BufferedImage render(int tx, int ty) {
+        BufferedImage img = new BufferedImage(TILE, TILE, BufferedImage.TYPE_INT_ARGB);
+        Graphics2D tg = img.createGraphics();
+        try {
+            tg.translate(-tx * TILE, -ty * TILE);
+            tg.setClip(tx * TILE, ty * TILE, TILE, TILE);
+            mxUtils.setAntiAlias(tg, gcomp.isAntiAlias(), gcomp.isTextAntiAlias());
+            super.drawGraph(tg, true);
+        } finally {
+            tg.dispose();
+        }
+        tiles.put(key(tx, ty), img);
+        return img;
+    }
+
+    /**
+     * Draws specified tile area using scaled tiles of the previous scale.
+     * @param g graphics to be drawn onto
+     * @param tx horizontal tile index
+     * @param ty vertical tile index
+     */
+    private void drawScaled(Graphics2D g, int tx, int ty) {
+        Graphics2D sg = (Graphics2D) g.create();
+        try {
+            sg.clipRect(tx * TILE, ty * TILE, TILE, TILE);
+            //maps the previous view coordinates to the current ones
+            double factor = scale / oldscale;
+            sg.translate((translate.getX() - oldtranslate.getX()) * scale,
+                    (translate.getY() - oldtranslate.getY()) * scale);
+            sg.scale(factor, factor);
+            Rectangle area = sg.getClipBounds();
+            for (Map.Entry<Long, BufferedImage> e : oldtiles.entrySet()) {
+                int ox = (int) (e.getKey() >> 32) * TILE;
+                int oy = (int) (long) e.getKey() * TILE;
+                if (area.intersects(ox, oy, TILE, TILE)) {
+                    sg.drawImage(e.getValue(), ox, oy, null);
+                }
+            }
+        } finally {
+            sg.dispose();
+        }
+    }
+
+    /**
+     * Returns cache key of the tile.
+     * @param tx horizontal tile index
+     * @param ty vertical tile index
+     * @return cache key
+     */
+    private static long key(int tx, int ty) {
+        return ((long) tx << 32) | (ty & 0xffffffffL);
+    }
+
+    /**
+     * Draws specified cell and its children with the level of detail given
+     * by the current scale of the view.
+     * @param canvas canvas to be drawn onto
+     * @param cell cell to be drawn
+     */
+    @Override
+    public void drawCell(mxICanvas canvas, Object cell) {
+
+        if (!(canvas instanceof mxGraphics2DCanvas)) {
+            super.drawCell(canvas, cell);
+            return;
+        }
+
+        mxGraph graph = gcomp.getGraph();
+        mxIGraphModel model = graph.getModel();
+        mxCellState state = graph.getView().getState(cell);
+        double viewscale = graph.getView().getScale();
+        boolean visible = (state != null) && isCellDisplayable(cell) && hitClip((mxGraphics2DCanvas) canvas, state);
+
+        if (model.isVertex(cell) && (state != null) && !visible) {
+            //content of the group lies inside of its bounds, skip it as a whole
+            return;
+        }
+
+        if (model.isEdge(cell) && (viewscale < nameedgescale) && isNameEdge(cell)) {
+            return;
+        }
+
+        boolean collapsed = graph.isCellCollapsed(cell) && (model.getChildCount(cell) > 0 || graph.isCellFoldable(cell, false));
+
+        if (visible) {
+            if (collapsed && model.isVertex(cell) && viewscale < groupscale) {
+                drawBox((mxGraphics2DCanvas) canvas, state);
+                return;
+            }
+            graph.drawState(canvas, state, viewscale >= labelscale);
+        }
+
+        if (!collapsed) {
+            boolean edgesfirst = graph.isKeepEdgesInBackground();
+            boolean edgeslast = graph.isKeepEdgesInForeground();
+
+            if (edgesfirst) {
+                drawChildren(cell, true, false);
+            }
+            drawChildren(cell, !edgesfirst && !edgeslast, true);
+            if (edgeslast) {
+                drawChildren(cell, true, false);
+            }
+        }
+
+        if (state != null) {
+            cellDrawn(canvas, state);
+        }
+    }
+
+    /**
+     * Draws collapsed group as a plain box without label and folding icon.
+     * @param canvas canvas to be drawn onto
+     * @param state state of the group
+     */
+    private void drawBox(mxGraphics2DCanvas canvas, mxCellState state) {
+        Graphics2D g = canvas.getGraphics();
+        Rectangle r = state.getRectangle();
+        Color fill = mxUtils.getColor(state.getStyle(), mxConstants.STYLE_FILLCOLOR, Color.WHITE);
+        Color stroke = mxUtils.getColor(state.getStyle(), mxConstants.STYLE_STROKECOLOR, Color.BLACK);
+        g.setColor(fill);
+        g.fillRect(r.x, r.y, r.width, r.height);
+        g.setColor(stroke);
+        g.drawRect(r.x, r.y, r.width, r.height);
+    }
+
+    /**
+     * Returns true if the specified edge connects a node with a name.
+     * @param cell edge
+     * @return true for channel and parameter edges
+     */
+    private boolean isNameEdge(Object cell) {
+        Object value = gcomp.getGraph().getModel().getValue(cell);
+        return (value instanceof EdgeValue) && (((EdgeValue) value).getType() != EdgeValue.Type.E_FLOW);
+    }
+}
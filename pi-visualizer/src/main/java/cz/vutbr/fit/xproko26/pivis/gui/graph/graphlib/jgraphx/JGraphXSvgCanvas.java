@@ -0,0 +1,223 @@
+/*
+ * Copyright 2017 Dagmar Prokopova <xproko26@stud.fit.vutbr.cz>.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package cz.vutbr.fit.xproko26.pivis.gui.graph.graphlib.jgraphx;
+
+import com.mxgraph.canvas.mxSvgCanvas;
+import com.mxgraph.util.mxDomUtils;
+import java.io.IOException;
+import java.io.Writer;
+import org.w3c.dom.Element;
+import org.w3c.dom.NamedNodeMap;
+import org.w3c.dom.Node;
+
+/**
+ * JGraphXSvgCanvas is a svg canvas which does not keep the drawn elements
+ * in the document, but writes them into the output as soon as they are
+ * complete. JGraphX may still modify the most recently appended element
+ * (opacity, text lines), so each element is written when the next one is
+ * appended or when the canvas is closed. Definitions (gradients) created
+ * since the last written element are written in their own defs element
+ * right before it, so that each gradient precedes its first use.
+ * @author Dagmar Prokopova
+ */
+public class JGraphXSvgCanvas extends mxSvgCanvas {
+
+    //output the elements are written into
+    private final Writer writer;
+
+    //element appended most recently, not written yet
+    private Element pending;
+
+    //first write error, reported when the canvas is closed
+    private IOException error;
+
+    /**
+     * Creates canvas of the specified size and writes the svg start tag.
+     * @param writer output writer
+     * @param width width of the drawing
+     * @param height height of the drawing
+     */
+    public JGraphXSvgCanvas(Writer writer, int width, int height) {
+        super(mxDomUtils.createSvgDocument(width, height));
+        this.writer = writer;
+
+        try {
+            Element root = document.getDocumentElement();
+            writer.write("<?xml version=\"1.0\" encoding=\"UTF-8\" standalone=\"no\"?>\n");
+            writer.write("<" + root.getNodeName());
+            writeAttributes(root);
+            writer.write(">\n");
+        } catch (IOException ex) {
+            error = ex;
+        }
+    }
+
+    /**
+     * Writes the previously appended element and keeps the specified one
+     * until it is complete.
+     * @param node appended element
+     */
+    @Override
+    public void appendSvgElement(Element node) {
+        flush();
+        document.getDocumentElement().appendChild(node);
+        pending = node;
+    }
+
+    /**
+     * Writes the pending element and the svg end tag.
+     * @throws IOException if writing into the output failed
+     */
+    public void close() throws IOException {
+        flush();
+        if (error == null) {
+            try {
+                writer.write("</" + document.getDocumentElement().getNodeName() + ">\n");
+                writer.flush();
+            } catch (IOException ex) {
+                error = ex;
+            }
+        }
+        if (error != null) {
+            throw error;
+        }
+    }
+
+    /**
+     * Writes new definitions and the pending element and removes them from
+     * the document.
+     */
+    private void flush() {
+        if (defs != null && defs.hasChildNodes()) {
+            write(defs, 1);
+            while (defs.hasChildNodes()) {
+                defs.removeChild(defs.getFirstChild());
+            }
+        }
+        if (pending != null) {
+            write(pending, 1);
+            document.getDocumentElement().removeChild(pending);
+            pending = null;
+        }
+    }
+
+    /**
+     * Writes specified node with its subtree unless writing already failed.
+     * @param node node to be written
+     * @param depth depth of the node used for indentation
+     */
+    private void write(Node node, int depth) {
+        if (error != null) {
+            return;
+        }
+        try {
+            writeNode(node, depth);
+        } catch (IOException ex) {
+            error = ex;
+        }
+    }
+
+    /**
+     * Writes specified node with its subtree.
+     * @param node node to be written
+     * @param depth depth of the node used for indentation
+     * @throws IOException if writing failed
+     */
+    private void writeNode(Node node, int depth) throws IOException {
+        if (node.getNodeType() == Node.TEXT_NODE) {
+            writer.write(escape(node.getNodeValue(), false));
+            return;
+        }
+        if (node.getNodeType() != Node.ELEMENT_NODE) {
+            return;
+        }
+
+        indent(depth);
+        writer.write("<" + node.getNodeName());
+        writeAttributes(node);
+
+        if (!node.hasChildNodes()) {
+            writer.write("/>\n");
+            return;
+        }
+
+        //text content is written inline to keep the whitespace untouched
+        boolean text = node.getFirstChild().getNodeType() == Node.TEXT_NODE;
+        writer.write(text ? ">" : ">\n");
+        for (Node child = node.getFirstChild(); child != null; child = child.getNextSibling()) {
+            writeNode(child, depth + 1);
+        }
+        if (!text) {
+            indent(depth);
+        }
+        writer.write("</" + node.getNodeName() + ">\n");
+    }
+
+    /**
+     * Writes attributes of the specified node.
+     * @param node node which attributes are written
+     * @throws IOException if writing failed
+     */
+    private void writeAttributes(Node node) throws IOException {
+        NamedNodeMap attrs = node.getAttributes();
+        for (int i = 0; i < attrs.getLength(); i++) {
+            Node attr = attrs.item(i);
+            writer.write(" " + attr.getNodeName() + "=\"" + escape(attr.getNodeValue(), true) + "\"");
+        }
+    }
+
+    /**
+     * Writes indentation of the specified depth.
+     * @param depth depth of the node
+     * @throws IOException if writing failed
+     */
+    private void indent(int depth) throws IOException {
+        for (int i = 0; i < depth; i++) {
+            writer.write("  ");
+        }
+    }
+
+    /**
+     * Escapes xml special characters.
+     * @param s string to be escaped
+     * @param attr true if the string is an attribute value
+     * @return escaped string
+     */
+    private static String escape(String s, boolean attr) {
+        StringBuilder sb = new StringBuilder(s.length());
+        for (int i = 0; i < s.length(); i++) {
+            char c = s.charAt(i);
+            switch (c) {
+                case '&':
+                    sb.append("&amp;");
+                    break;
+                case '<':
+                    sb.append("&lt;");
+                    break;
+                case '>':
+                    sb.append("&gt;");
+                    break;
+                case '"':
+                    sb.append(attr ? "&quot;" : "\"");
+                    break;
+                default:
+                    sb.append(c);
+                    break;
+            }
+        }
+        return sb.toString();
+    }
+}
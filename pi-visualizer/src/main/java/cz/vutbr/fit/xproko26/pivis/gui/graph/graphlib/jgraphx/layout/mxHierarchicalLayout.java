@@ -27,6 +27,7 @@ import com.mxgraph.layout.mxGraphLayout;
 import cz.vutbr.fit.xproko26.pivis.gui.graph.graphlib.jgraphx.layout.model.mxGraphHierarchyModel;
 import cz.vutbr.fit.xproko26.pivis.gui.graph.graphlib.jgraphx.layout.stage.mxCoordinateAssignment;
 import cz.vutbr.fit.xproko26.pivis.gui.graph.graphlib.jgraphx.layout.stage.mxHierarchicalLayoutStage;
+import cz.vutbr.fit.xproko26.pivis.gui.graph.graphlib.jgraphx.layout.stage.mxLinearCoordinateAssignment;
 import cz.vutbr.fit.xproko26.pivis.gui.graph.graphlib.jgraphx.layout.stage.mxMedianHybridCrossingReduction;
 import cz.vutbr.fit.xproko26.pivis.gui.graph.graphlib.jgraphx.layout.stage.mxMinimumCycleRemover;
 import com.mxgraph.model.mxIGraphModel;
@@ -98,6 +99,15 @@ public class mxHierarchicalLayout extends mxGraphLayout/*,
 	 */
 	protected boolean fineTuning = true;
 
+	/**
+	 * Whether or not the linear time coordinate assignment
+	 * (mxLinearCoordinateAssignment) is used instead of the iterative
+	 * mxCoordinateAssignment. Both produce layouts of the same width, the
+	 * linear placement is faster on large graphs, but cells within the
+	 * ranks are placed differently. Default is false.
+	 */
+	protected boolean linearPlacement = false;
+
 	/**
 	 * Whether or not cells are ordered according to the order in the graph
 	 * model. Defaults to false since sorting usually produces quadratic
@@ -373,13 +383,18 @@ public class mxHierarchicalLayout extends mxGraphLayout/*,
 	}
 
 	/**
-	 * Executes the placement stage using mxCoordinateAssignment.
+	 * Executes the placement stage using mxLinearCoordinateAssignment or
+	 * mxCoordinateAssignment depending on the linearPlacement flag.
 	 */
 	public double placementStage(double initialX, Object parent)
 	{
-		mxCoordinateAssignment placementStage = new mxCoordinateAssignment(
-				this, intraCellSpacing, interRankCellSpacing, orientation,
-				initialX, parallelEdgeSpacing);
+		mxCoordinateAssignment placementStage = (linearPlacement)
+				? new mxLinearCoordinateAssignment(this, intraCellSpacing,
+						interRankCellSpacing, orientation, initialX,
+						parallelEdgeSpacing)
+				: new mxCoordinateAssignment(this, intraCellSpacing,
+						interRankCellSpacing, orientation, initialX,
+						parallelEdgeSpacing);
 		placementStage.setFineTuning(fineTuning);
 		placementStage.execute(parent);
 
@@ -529,6 +544,23 @@ public class mxHierarchicalLayout extends mxGraphLayout/*,
 		this.fineTuning = fineTuning;
 	}
 
+	/**
+	 * @return Returns the linearPlacement.
+	 */
+	public boolean isLinearPlacement()
+	{
+		return linearPlacement;
+	}
+
+	/**
+	 * @param linearPlacement
+	 *            The linearPlacement to set.
+	 */
+	public void setLinearPlacement(boolean linearPlacement)
+	{
+		this.linearPlacement = linearPlacement;
+	}
+
 	/**
 	 *
 	 */
@@ -978,10 +978,10 @@ public class mxCoordinateAssignment implements mxHierarchicalLayoutStage
 	 * @param model
 	 *            an internal model of the hierarchical layout
 	 */
-	private void setCellLocations(mxGraph graph, mxGraphHierarchyModel model)
+	protected void setCellLocations(mxGraph graph, mxGraphHierarchyModel model)
 	{
-                List<Object> rankNodes = new ArrayList<>();
-                List<Object> prevRankNodes = null;
+                Set<Object> rankNodes = new HashSet<>();
+                Set<Object> prevRankNodes = null;
                 
 		for (int i = 0; i < model.ranks.size(); i++)
 		{
@@ -1110,7 +1110,10 @@ public class mxCoordinateAssignment implements mxHierarchicalLayoutStage
 					}
 				}
 			}
-                        prevRankNodes = new ArrayList<>(rankNodes);
+                        // Swap the sets instead of copying the rank
+                        Set<Object> swap = (prevRankNodes != null) ? prevRankNodes : new HashSet<>();
+                        prevRankNodes = rankNodes;
+                        rankNodes = swap;
                         rankNodes.clear();
 		}
 	}
@@ -1195,14 +1198,20 @@ public class mxCoordinateAssignment implements mxHierarchicalLayoutStage
 				}
 				else
 				{
-					if (nudge)
+					// Equal weights keep their order (sort is stable), only
+					// nudged cells are flipped
+					if (nudge && !((WeightedCellSorter) arg0).nudge)
 					{
 						return -1;
 					}
-					else
+					else if (!nudge && ((WeightedCellSorter) arg0).nudge)
 					{
 						return 1;
 					}
+					else
+					{
+						return 0;
+					}
 				}
 			}
 			else
@@ -1331,7 +1340,7 @@ public class mxCoordinateAssignment implements mxHierarchicalLayoutStage
          * @param node
          * @param prevRankNodes 
          */
-        private void fixParallelEdges(Object node, List<Object> prevRankNodes) {
+        private void fixParallelEdges(Object node, Set<Object> prevRankNodes) {
             Map<String, List<Object>> lookup = new Hashtable<>();
             mxIGraphModel m = layout.getGraph().getModel();            
             
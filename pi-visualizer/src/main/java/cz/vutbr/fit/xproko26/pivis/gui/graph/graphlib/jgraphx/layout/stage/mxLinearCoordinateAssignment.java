@@ -0,0 +1,556 @@
+/*
+ * Copyright 2017 Dagmar Prokopova <xproko26@stud.fit.vutbr.cz>.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package cz.vutbr.fit.xproko26.pivis.gui.graph.graphlib.jgraphx.layout.stage;
+
+import cz.vutbr.fit.xproko26.pivis.gui.graph.graphlib.jgraphx.layout.mxHierarchicalLayout;
+import cz.vutbr.fit.xproko26.pivis.gui.graph.graphlib.jgraphx.layout.model.mxGraphAbstractHierarchyCell;
+import cz.vutbr.fit.xproko26.pivis.gui.graph.graphlib.jgraphx.layout.model.mxGraphHierarchyModel;
+import cz.vutbr.fit.xproko26.pivis.gui.graph.graphlib.jgraphx.layout.model.mxGraphHierarchyRank;
+import java.util.Arrays;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Horizontal coordinate assignment working in linear time. Every occurrence
+ * of a cell on a rank (a vertex or one dummy segment of a long edge) gets
+ * an integer slot id, slots of one rank being numbered consecutively in the
+ * rank order. Widths, ranks and connections to neighbour ranks are then kept
+ * in flat primitive arrays indexed by the slot id. Placement follows the
+ * Brandes-Köpf scheme: four vertical alignments (top/bottom, left/right)
+ * are compacted into blocks and the final coordinate is the balanced median
+ * of the four candidates. Straight blocks make the candidates wider than the
+ * widest rank, so every rank is finally fitted into the extent of the widest
+ * rank, which keeps the layout as narrow as the iterative one. Vertical
+ * coordinates, edge points and final cell locations are computed the same
+ * way as in {@link mxCoordinateAssignment mxCoordinateAssignment}, so the
+ * result can be used as its replacement. Without fine tuning, the iterative
+ * heuristic only places the cells once, so the parent class is used then.
+ * @author Dagmar Prokopova
+ */
+public class mxLinearCoordinateAssignment extends mxCoordinateAssignment {
+
+    //number of slots
+    protected int size;
+
+    //index of the first slot of each rank (with sentinel at the end)
+    protected int[] rankStart;
+
+    //rank of each slot
+    protected int[] rankOf;
+
+    //width of each slot
+    protected double[] width;
+
+    //flag indicating that the slot is a dummy segment of a long edge
+    protected boolean[] dummy;
+
+    //hierarchy cell occupying each slot
+    protected mxGraphAbstractHierarchyCell[] cellOf;
+
+    //connections to the rank above, upAdj[upStart[v] .. upStart[v+1]-1]
+    protected int[] upStart;
+    protected int[] upAdj;
+
+    //connections to the rank below, downAdj[downStart[v] .. downStart[v+1]-1]
+    protected int[] downStart;
+    protected int[] downAdj;
+
+    //flags marking type 1 conflicts of the connections stored above
+    protected boolean[] upConflict;
+    protected boolean[] downConflict;
+
+    /**
+     * Creates a coordinate assignment with the same parameters as
+     * {@link mxCoordinateAssignment mxCoordinateAssignment}.
+     * @param layout enclosing layout
+     * @param intraCellSpacing minimum buffer between cells on the same rank
+     * @param interRankCellSpacing minimum distance between adjacent ranks
+     * @param orientation position of the root node(s) relative to the graph
+     * @param initialX leftmost coordinate node placement starts at
+     * @param parallelEdgeSpacing distance between parallel edges
+     */
+    public mxLinearCoordinateAssignment(mxHierarchicalLayout layout,
+            double intraCellSpacing, double interRankCellSpacing,
+            int orientation, double initialX, double parallelEdgeSpacing) {
+        super(layout, intraCellSpacing, interRankCellSpacing, orientation,
+                initialX, parallelEdgeSpacing);
+    }
+
+    /**
+     * Assigns coordinates to all cells of the hierarchy model. Falls back
+     * to the heuristic of the parent class if fine tuning is switched off
+     * or if the computed alignment turns out to be inconsistent.
+     * @param parent parent cell of the laid out cells
+     */
+    @Override
+    public void execute(Object parent) {
+        if (!fineTuning) {
+            super.execute(parent);
+            return;
+        }
+        mxGraphHierarchyModel model = layout.getModel();
+
+        //widths of the cells and y coordinates of the ranks
+        calculateWidestRank(layout.getGraph(), model);
+
+        build(model);
+        markConflicts();
+
+        double[][] candidates = new double[4][];
+        for (int i = 0; i < 4; i++) {
+            candidates[i] = place(i < 2, i % 2 == 0);
+            if (candidates[i] == null) {
+                super.execute(parent);
+                return;
+            }
+        }
+
+        double[] x = balance(candidates);
+        for (int v = 0; v < size; v++) {
+            cellOf[v].setX(rankOf[v], x[v]);
+        }
+
+        setCellLocations(layout.getGraph(), model);
+    }
+
+    /**
+     * Fills the slot arrays from the ranks of the hierarchy model.
+     * @param model hierarchy model
+     */
+    protected void build(mxGraphHierarchyModel model) {
+        int maxRank = model.maxRank;
+        rankStart = new int[maxRank + 2];
+
+        int n = 0;
+        for (int r = 0; r <= maxRank; r++) {
+            rankStart[r] = n;
+            n += model.ranks.get(r).size();
+        }
+        rankStart[maxRank + 1] = n;
+        size = n;
+
+        rankOf = new int[n];
+        width = new double[n];
+        dummy = new boolean[n];
+        cellOf = new mxGraphAbstractHierarchyCell[n];
+
+        //slots of each cell, one per rank the cell occupies
+        Map<mxGraphAbstractHierarchyCell, int[]> slots = new IdentityHashMap<>(n);
+
+        for (int r = 0; r <= maxRank; r++) {
+            mxGraphHierarchyRank rank = model.ranks.get(r);
+            int v = rankStart[r];
+            for (mxGraphAbstractHierarchyCell cell : rank) {
+                rankOf[v] = r;
+                width[v] = cell.width;
+                dummy[v] = cell.isEdge();
+                cellOf[v] = cell;
+
+                int[] s = slots.get(cell);
+                if (s == null) {
+                    s = new int[cell.isEdge() ? cell.x.length : 1];
+                    slots.put(cell, s);
+                }
+                s[cell.isEdge() ? r - cell.minRank - 1 : 0] = v;
+                v++;
+            }
+        }
+
+        upStart = new int[n + 1];
+        downStart = new int[n + 1];
+        for (int v = 0; v < n; v++) {
+            int r = rankOf[v];
+            upStart[v + 1] = upStart[v] + (r < maxRank
+                    ? cellOf[v].getNextLayerConnectedCells(r).size() : 0);
+            downStart[v + 1] = downStart[v] + (r > 0
+                    ? cellOf[v].getPreviousLayerConnectedCells(r).size() : 0);
+        }
+
+        upAdj = new int[upStart[n]];
+        downAdj = new int[downStart[n]];
+        upConflict = new boolean[upStart[n]];
+        downConflict = new boolean[downStart[n]];
+
+        for (int v = 0; v < n; v++) {
+            int r = rankOf[v];
+            if (r < maxRank) {
+                fill(cellOf[v].getNextLayerConnectedCells(r), r + 1, slots,
+                        upAdj, upStart, v);
+            }
+            if (r > 0) {
+                fill(cellOf[v].getPreviousLayerConnectedCells(r), r - 1, slots,
+                        downAdj, downStart, v);
+            }
+        }
+    }
+
+    /**
+     * Stores slots of the connected cells into adjacency array sorted by
+     * their position in the rank. Cells missing in the ranks are dropped
+     * and the remaining entries are padded by the last valid one.
+     */
+    private void fill(List<mxGraphAbstractHierarchyCell> cells, int r,
+            Map<mxGraphAbstractHierarchyCell, int[]> slots,
+            int[] adj, int[] start, int v) {
+        int a = start[v];
+        int k = a;
+        for (mxGraphAbstractHierarchyCell c : cells) {
+            int[] s = slots.get(c);
+            if (s == null) {
+                continue;
+            }
+            int u = s[c.isEdge() ? r - c.minRank - 1 : 0];
+
+            //insertion keeping the segment sorted
+            int i = k++;
+            while (i > a && adj[i - 1] > u) {
+                adj[i] = adj[i - 1];
+                i--;
+            }
+            adj[i] = u;
+        }
+        for (int i = k; i < start[v + 1]; i++) {
+            adj[i] = (k > a) ? adj[k - 1] : -1;
+        }
+    }
+
+    /**
+     * Marks type 1 conflicts, i.e. non-inner segments crossing inner
+     * segments (segments between two dummies). Conflicting segments are
+     * never used for vertical alignment, so long edges remain straight.
+     */
+    protected void markConflicts() {
+        int maxRank = rankStart.length - 2;
+
+        for (int r = 0; r < maxRank; r++) {
+            int lowerEnd = rankStart[r + 1];
+            int upperStart = rankStart[r + 1];
+            int upperSize = rankStart[r + 2] - upperStart;
+
+            int k0 = 0;
+            int l = rankStart[r];
+            for (int l1 = rankStart[r]; l1 < lowerEnd; l1++) {
+                int inner = innerNeighbour(l1);
+                if (l1 == lowerEnd - 1 || inner >= 0) {
+                    int k1 = (inner >= 0) ? inner - upperStart : upperSize - 1;
+                    for (; l <= l1; l++) {
+                        for (int e = upStart[l]; e < upStart[l + 1]; e++) {
+                            int u = upAdj[e];
+                            if (u < 0 || (dummy[u] && dummy[l])) {
+                                continue;
+                            }
+                            int k = u - upperStart;
+                            if (k < k0 || k > k1) {
+                                upConflict[e] = true;
+                                for (int f = downStart[u]; f < downStart[u + 1]; f++) {
+                                    if (downAdj[f] == l) {
+                                        downConflict[f] = true;
+                                    }
+                                }
+                            }
+                        }
+                    }
+                    k0 = k1;
+                }
+            }
+        }
+    }
+
+    /**
+     * Returns upper neighbour of the slot if they together form an inner
+     * segment, -1 otherwise.
+     */
+    private int innerNeighbour(int v) {
+        if (dummy[v]) {
+            for (int e = upStart[v]; e < upStart[v + 1]; e++) {
+                if (upAdj[e] >= 0 && dummy[upAdj[e]]) {
+                    return upAdj[e];
+                }
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Computes one of the four candidate placements.
+     * @param fromTop true for alignment to upper neighbours
+     * @param fromLeft true for alignment sweeping from left to right
+     * @return x coordinates of all slots or null if the blocks cannot be
+     * ordered (which never happens for a valid alignment)
+     */
+    protected double[] place(boolean fromTop, boolean fromLeft) {
+        int n = size;
+        int maxRank = rankStart.length - 2;
+        int[] root = new int[n];
+        int[] align = new int[n];
+        for (int v = 0; v < n; v++) {
+            root[v] = v;
+            align[v] = v;
+        }
+
+        int[] adj = fromTop ? upAdj : downAdj;
+        int[] start = fromTop ? upStart : downStart;
+        boolean[] conflict = fromTop ? upConflict : downConflict;
+
+        //vertical alignment
+        for (int i = 0; i <= maxRank; i++) {
+            int r = fromTop ? maxRank - i : i;
+            int rs = rankStart[r];
+            int re = rankStart[r + 1];
+            int prev = fromLeft ? -1 : Integer.MAX_VALUE;
+
+            for (int j = 0; j < re - rs; j++) {
+                int v = fromLeft ? rs + j : re - 1 - j;
+                int a = start[v];
+                int d = start[v + 1] - a;
+                if (d == 0) {
+                    continue;
+                }
+
+                int m1 = fromLeft ? (d - 1) / 2 : d / 2;
+                int m2 = fromLeft ? d / 2 : (d - 1) / 2;
+                for (int m = m1; ; m = m2) {
+                    int u = adj[a + m];
+                    if (align[v] == v && u >= 0 && !conflict[a + m]
+                            && (fromLeft ? prev < u : prev > u)) {
+                        align[u] = v;
+                        root[v] = root[u];
+                        align[v] = root[v];
+                        prev = u;
+                    }
+                    if (m == m2) {
+                        break;
+                    }
+                }
+            }
+        }
+
+        //horizontal compaction as the longest path in the graph of blocks,
+        //block of the left neighbour precedes the block of the slot
+        int[] outStart = new int[n + 1];
+        int[] indeg = new int[n];
+        for (int v = 0; v < n; v++) {
+            int w = neighbour(v, fromLeft);
+            if (w >= 0) {
+                outStart[root[w] + 1]++;
+                indeg[root[v]]++;
+            }
+        }
+        for (int v = 0; v < n; v++) {
+            outStart[v + 1] += outStart[v];
+        }
+        int[] out = new int[outStart[n]];
+        int[] fillPos = new int[n];
+        for (int v = 0; v < n; v++) {
+            int w = neighbour(v, fromLeft);
+            if (w >= 0) {
+                int b = root[w];
+                out[outStart[b] + fillPos[b]++] = v;
+            }
+        }
+
+        double[] bx = new double[n];
+        int[] queue = new int[n];
+        int head = 0;
+        int tail = 0;
+        int blocks = 0;
+        for (int v = 0; v < n; v++) {
+            if (root[v] == v) {
+                blocks++;
+                if (indeg[v] == 0) {
+                    queue[tail++] = v;
+                }
+            }
+        }
+
+        while (head < tail) {
+            int b = queue[head++];
+            for (int e = outStart[b]; e < outStart[b + 1]; e++) {
+                int v = out[e];
+                int w = neighbour(v, fromLeft);
+                int c = root[v];
+                bx[c] = Math.max(bx[c], bx[b] + separation(w, v));
+                if (--indeg[c] == 0) {
+                    queue[tail++] = c;
+                }
+            }
+        }
+
+        if (tail != blocks) {
+            return null;
+        }
+
+        double[] x = new double[n];
+        for (int v = 0; v < n; v++) {
+            x[v] = fromLeft ? bx[root[v]] : -bx[root[v]];
+        }
+        return x;
+    }
+
+    /**
+     * Returns the preceding slot on the same rank in the sweep direction
+     * or -1 for the first slot.
+     */
+    private int neighbour(int v, boolean fromLeft) {
+        int r = rankOf[v];
+        if (fromLeft) {
+            return (v > rankStart[r]) ? v - 1 : -1;
+        } else {
+            return (v < rankStart[r + 1] - 1) ? v + 1 : -1;
+        }
+    }
+
+    /**
+     * Returns minimal distance between centers of two neighbouring slots.
+     */
+    private double separation(int w, int v) {
+        return (width[w] + width[v]) / 2.0 + intraCellSpacing;
+    }
+
+    /**
+     * Aligns the candidates to the narrowest one and takes the average
+     * median of the four values for each slot. The result is fitted into
+     * the extent of the widest rank and shifted to start at initialX.
+     * @param candidates four candidate placements
+     * @return final x coordinates
+     */
+    protected double[] balance(double[][] candidates) {
+        int n = size;
+        double[] min = new double[4];
+        double[] max = new double[4];
+        int best = 0;
+
+        for (int i = 0; i < 4; i++) {
+            min[i] = Double.MAX_VALUE;
+            max[i] = -Double.MAX_VALUE;
+            for (int v = 0; v < n; v++) {
+                min[i] = Math.min(min[i], candidates[i][v] - width[v] / 2.0);
+                max[i] = Math.max(max[i], candidates[i][v] + width[v] / 2.0);
+            }
+            if (max[i] - min[i] < max[best] - min[best]) {
+                best = i;
+            }
+        }
+
+        for (int i = 0; i < 4; i++) {
+            double shift = (i % 2 == 0) ? min[best] - min[i] : max[best] - max[i];
+            for (int v = 0; v < n; v++) {
+                candidates[i][v] += shift;
+            }
+        }
+
+        double[] x = new double[n];
+        double[] values = new double[4];
+        for (int v = 0; v < n; v++) {
+            for (int i = 0; i < 4; i++) {
+                double c = candidates[i][v];
+                int j = i;
+                while (j > 0 && values[j - 1] > c) {
+                    values[j] = values[j - 1];
+                    j--;
+                }
+                values[j] = c;
+            }
+            x[v] = (values[1] + values[2]) / 2.0;
+        }
+
+        double left = fit(x);
+
+        if (n > 0) {
+            double shift = initialX - left;
+            for (int v = 0; v < n; v++) {
+                x[v] += shift;
+            }
+        }
+        return x;
+    }
+
+    /**
+     * Moves the slots as little as possible so that neighbours keep minimal
+     * separation and every rank lies within the extent of the widest rank.
+     * Each slot is first clamped to the range it can take when the rank is
+     * packed against either border of the extent. The rank is then swept
+     * from the left pushing slots to the right and from the right pushing
+     * them to the left, and the slot takes the average of both sweeps. Both
+     * sweeps satisfy the separation and the extent, so does their average.
+     * @param x balanced coordinates, replaced by the fitted ones
+     * @return left border of the extent
+     */
+    protected double fit(double[] x) {
+        int n = size;
+        int maxRank = rankStart.length - 2;
+
+        //distance of the center from the left border of the packed rank
+        double[] low = new double[n];
+        double[] extent = new double[maxRank + 1];
+        int widest = 0;
+        for (int r = 0; r <= maxRank; r++) {
+            int rs = rankStart[r];
+            int re = rankStart[r + 1];
+            for (int v = rs; v < re; v++) {
+                low[v] = (v == rs) ? width[v] / 2.0
+                        : low[v - 1] + separation(v - 1, v);
+            }
+            extent[r] = (re > rs) ? low[re - 1] + width[re - 1] / 2.0 : 0.0;
+            if (extent[r] > extent[widest]) {
+                widest = r;
+            }
+        }
+
+        //left border moving the slots of the widest rank the least
+        int ws = rankStart[widest];
+        int wn = rankStart[widest + 1] - ws;
+        if (wn == 0) {
+            return 0.0;
+        }
+        double[] offsets = new double[wn];
+        for (int i = 0; i < wn; i++) {
+            offsets[i] = x[ws + i] - low[ws + i];
+        }
+        Arrays.sort(offsets);
+        double left = offsets[wn / 2];
+        double right = left + extent[widest];
+
+        double[] pushed = new double[n];
+        for (int r = 0; r <= maxRank; r++) {
+            int rs = rankStart[r];
+            int re = rankStart[r + 1];
+            for (int v = rs; v < re; v++) {
+                double t = clamp(x[v], left + low[v],
+                        right - (extent[r] - low[v]));
+                pushed[v] = (v == rs) ? t
+                        : Math.max(t, pushed[v - 1] + separation(v - 1, v));
+            }
+            double next = 0.0;
+            for (int v = re - 1; v >= rs; v--) {
+                double t = clamp(x[v], left + low[v],
+                        right - (extent[r] - low[v]));
+                next = (v == re - 1) ? t
+                        : Math.min(t, next - separation(v, v + 1));
+                x[v] = (pushed[v] + next) / 2.0;
+            }
+        }
+        return left;
+    }
+
+    /**
+     * Returns the value limited to the given range.
+     */
+    private static double clamp(double value, double lower, double upper) {
+        return Math.max(lower, Math.min(upper, value));
+    }
+}
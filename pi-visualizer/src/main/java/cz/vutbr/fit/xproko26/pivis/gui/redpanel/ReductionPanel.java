@@ -20,17 +20,24 @@ import java.awt.Dimension;
 import java.awt.GridBagConstraints;
 import java.awt.GridBagLayout;
 import java.awt.event.ActionEvent;
+import java.awt.event.MouseAdapter;
+import java.awt.event.MouseEvent;
 import java.util.ArrayList;
 import javax.swing.BorderFactory;
 import javax.swing.Icon;
 import javax.swing.JButton;
+import javax.swing.JCheckBox;
 import javax.swing.JLabel;
 import javax.swing.JPanel;
 import javax.swing.JScrollPane;
 import javax.swing.JTable;
+import javax.swing.JTextField;
 import javax.swing.ListSelectionModel;
 import javax.swing.SwingConstants;
+import javax.swing.Timer;
 import javax.swing.UIManager;
+import javax.swing.event.DocumentEvent;
+import javax.swing.event.DocumentListener;
 import javax.swing.event.ListSelectionEvent;
 import javax.swing.table.DefaultTableCellRenderer;
 import javax.swing.table.TableCellRenderer;
@@ -38,7 +45,9 @@ import javax.swing.table.TableCellRenderer;
 /**
  * ReductionPanel represents gui conponet aimed for viewing and selecting available
  * reductions. It contains table of reductions and two control buttons - one for
- * deselecting reduction and the second for executing reduction.
+ * deselecting reduction and the second for executing reduction. The table
+ * can be filtered by channel, agent or reduction type, symmetric reductions
+ * can be grouped and the table can be sorted by clicking the column header.
  * @author Dagmar Prokopova
  */
 public class ReductionPanel extends JPanel {
@@ -49,6 +58,27 @@ public class ReductionPanel extends JPanel {
     //reduction table
     private JTable table;
     
+    //filter text field
+    private JTextField filter;
+    
+    //check box for grouping symmetric reductions
+    private JCheckBox group;
+    
+    //timer postponing filtering until typing is finished
+    private Timer filtertimer;
+    
+    //worker computing the displayed view of the table
+    private ReductionTableWorker worker;
+    
+    //column the table is sorted by, negative if unsorted
+    private int sortcol = -1;
+    
+    //flag indicating ascending sort order
+    private boolean ascending = true;
+    
+    //position of selected reduction in reduction list
+    private int selected = -1;
+    
     /**
      * Constructor of reduction panel which positions elements and sets 
      * default look of both, the reduction table and control buttons.
@@ -57,7 +87,10 @@ public class ReductionPanel extends JPanel {
         setMinimumSize(new Dimension(200, 360));
         setPreferredSize(new Dimension(200,360));
         setLayout(new BorderLayout());
-        add(createTitlePanel(), BorderLayout.NORTH);
+        JPanel toppanel = new JPanel(new BorderLayout());
+        toppanel.add(createTitlePanel(), BorderLayout.NORTH);
+        toppanel.add(createFilterPanel(), BorderLayout.SOUTH);
+        add(toppanel, BorderLayout.NORTH);
         add(new JScrollPane(createTable()));
         add(createButtonPanel(), BorderLayout.SOUTH);
         
@@ -92,6 +125,45 @@ public class ReductionPanel extends JPanel {
         return panel;
     }
     
+    /**
+     * Creates panel containing filter text field and check box for grouping
+     * equal reductions.
+     * @return created panel
+     */
+    private JPanel createFilterPanel() {
+        
+        filtertimer = new Timer(200, e -> refresh());
+        filtertimer.setRepeats(false);
+        
+        filter = new JTextField();
+        filter.setToolTipText("Filter by channel, agent or type (io, tau)");
+        filter.getDocument().addDocumentListener(new DocumentListener() {
+            @Override
+            public void insertUpdate(DocumentEvent e) {
+                filtertimer.restart();
+            }
+
+            @Override
+            public void removeUpdate(DocumentEvent e) {
+                filtertimer.restart();
+            }
+
+            @Override
+            public void changedUpdate(DocumentEvent e) {
+                filtertimer.restart();
+            }
+        });
+        
+        group = new JCheckBox("Group", false);
+        group.setToolTipText("Group symmetric reductions of replicated branches and agent instances");
+        group.addActionListener((ActionEvent ae) -> refresh());
+        
+        JPanel panel = new JPanel(new BorderLayout());
+        panel.add(filter);
+        panel.add(group, BorderLayout.EAST);
+        return panel;
+    }
+    
     /**
      * Creates reduction table and sets its selection listener.
      * @return created reduction table
@@ -123,8 +195,24 @@ public class ReductionPanel extends JPanel {
                 return;
             
             if (table.getSelectedRow() >= 0) {
+                ReductionTableModel model = (ReductionTableModel) table.getModel();
+                selected = model.getPosition(table.getSelectedRow());
                 if (listener != null)
-                    listener.reductionSelected(((ReductionTableModel)table.getModel()).getReductionAt(table.getSelectedRow()));
+                    listener.reductionSelected(model.getReductionAt(table.getSelectedRow()));
+            }
+        });
+        
+        //sort by clicked column, repeated click reverses the order
+        table.getTableHeader().addMouseListener(new MouseAdapter() {
+            @Override
+            public void mouseClicked(MouseEvent e) {
+                int col = table.convertColumnIndexToModel(table.columnAtPoint(e.getPoint()));
+                if (col < 0) {
+                    return;
+                }
+                ascending = (col == sortcol) ? !ascending : true;
+                sortcol = col;
+                refresh();
             }
         });
         
@@ -143,6 +231,7 @@ public class ReductionPanel extends JPanel {
         clearButton.addActionListener((ActionEvent ae) -> {
             if (listener != null) {
                 listener.clearButtonClicked();
+                selected = -1;
                 if (table != null) {
                     table.getSelectionModel().clearSelection();
                 }
@@ -179,6 +268,8 @@ public class ReductionPanel extends JPanel {
     
     /**
      * Fills the reduction table with data contained in reduction table model.
+     * The rows are displayed in list order until the view matching current
+     * filter, grouping and sorting is computed.
      * @param model model containing list of reductions
      */
     public void fill(ReductionTableModel model) {
@@ -187,18 +278,50 @@ public class ReductionPanel extends JPanel {
         for (int i=0; i < table.getColumnCount(); i++) {
             table.getColumnModel().getColumn(i).setCellRenderer(renderer);
         }
+        table.getColumnModel().getColumn(ReductionTableModel.COUNT).setMaxWidth(40);
+        selected = -1;
+        refresh();
     }    
 
+    /**
+     * Starts computation of the view matching current filter, grouping and
+     * sorting in the background. Computation in progress is cancelled.
+     */
+    private void refresh() {
+        if (worker != null) {
+            worker.cancel(false);
+            worker = null;
+        }
+        ReductionTableModel model = (ReductionTableModel) table.getModel();
+        if (filter.getText().trim().isEmpty() && !group.isSelected() && sortcol < 0) {
+            model.setView(null, null, null);
+            showSelection();
+            return;
+        }
+        worker = new ReductionTableWorker(model, filter.getText(), group.isSelected(), sortcol, ascending, this::showSelection);
+        worker.execute();
+    }
+
     /**
      * Sets selected row of the table specified by an argument.
-     * @param i indes into the table
+     * @param i index into reduction list
      */
     public void setSelection(int i) {
+        selected = i;
+        showSelection();
+    }
+    
+    /**
+     * Selects the table row which displays selected reduction.
+     */
+    private void showSelection() {
         if (table != null) {
-            if (i >= 0) {
+            int row = ((ReductionTableModel) table.getModel()).getRowIndex(selected);
+            if (row >= 0) {
                 //this is just a hack not to invoke listener methods
                 table.getSelectionModel().setValueIsAdjusting(true);
-                table.setRowSelectionInterval(i, i);
+                table.setRowSelectionInterval(row, row);
+                table.scrollRectToVisible(table.getCellRect(row, 0, true));
             }
             else {
                 table.getSelectionModel().clearSelection();
@@ -15,42 +15,81 @@
  */
 package cz.vutbr.fit.xproko26.pivis.gui.redpanel;
 
+import cz.vutbr.fit.xproko26.pivis.model.expressions.ConcretizeExpression;
+import cz.vutbr.fit.xproko26.pivis.model.expressions.Expression;
+import cz.vutbr.fit.xproko26.pivis.model.explorer.Symmetry;
 import cz.vutbr.fit.xproko26.pivis.model.redmanager.Reduction;
 import cz.vutbr.fit.xproko26.pivis.model.redmanager.IOReduction;
 import cz.vutbr.fit.xproko26.pivis.model.redmanager.TReduction;
 
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
 import javax.swing.table.AbstractTableModel;
 
 /**
  * ReductionTableModel represents internal model of reduction table used in
- * {@link ReductionPanel ReductionPanel}. It stores list of {@link Reduction 
- * Reductionss} and provides method to obtain elements from this list. The 
- * reduction table comprises of 3 columns - the first for channel name, the second 
- * for input parameters and the last one for output parameters. In case of 
- * unobservable tau reduction, there is a '?' sign in all fields.
+ * {@link ReductionPanel ReductionPanel}. It stores list of {@link Reduction
+ * Reductionss} and provides method to obtain elements from this list. The
+ * reduction table comprises of 4 columns - the first for channel name, the second
+ * for input parameters, the third for output parameters and the last one for
+ * number of symmetric reductions grouped into the row. In case of unobservable
+ * tau reduction, there is a '?' sign in the first three fields.
+ * Texts of the rows are created only when the row is displayed for the first
+ * time and cached afterwards. The rows can be filtered, grouped and sorted
+ * by a {@link ReductionTableWorker ReductionTableWorker}, which computes
+ * the displayed view in the background. Texts of all rows and signatures
+ * the worker needs are created by the worker from a copy of the model data
+ * and cached in the table model for following views.
  * @author Dagmar Prokopova
  */
 public class ReductionTableModel extends AbstractTableModel {
-    
+
+    //indexes of row texts
+    public static final int CHANNEL = 0;
+    public static final int INPUT = 1;
+    public static final int OUTPUT = 2;
+    public static final int COUNT = 3;
+    public static final int TYPE = 4;
+    public static final int AGENT = 5;
+
     //internal list of reductions
     private final List<Reduction> redlist;
 
+    //cached row texts indexed by position in reduction list
+    private final String[][] rows;
+
+    //flag indicating that texts of all rows are cached
+    private boolean complete;
+
+    //cached symmetry signatures indexed by position in reduction list
+    private String[] signatures;
+
+    //positions of displayed rows in reduction list, null if all are displayed in list order
+    private int[] view;
+
+    //numbers of reductions grouped into displayed rows, null if rows are not grouped
+    private int[] counts;
+
+    //displayed rows indexed by position in reduction list, -1 if filtered out
+    private int[] rowindex;
+
     /**
-     * Initializes internal list of reductions with specified argument.
+     * Initializes internal list of reductions with the copy of specified argument.
      * @param reds list of reductions
      */
     public ReductionTableModel(List<Reduction> reds) {
-        this.redlist = reds;
+        this.redlist = new ArrayList<>(reds);
+        this.rows = new String[redlist.size()][];
     }
-    
+
     /**
      * Returns number of table rows.
      * @return row count
      */
     @Override
     public int getRowCount() {
-        return redlist.size();
+        return (view == null) ? redlist.size() : view.length;
     }
 
     /**
@@ -59,7 +98,7 @@ public class ReductionTableModel extends AbstractTableModel {
      */
     @Override
     public int getColumnCount() {
-        return 3;
+        return 4;
     }
 
     /**
@@ -69,32 +108,13 @@ public class ReductionTableModel extends AbstractTableModel {
      * @return text value
      */
     @Override
-    public Object getValueAt(int row, int column) {        
-
-        Reduction red = redlist.get(row);
-
-        if (red instanceof TReduction) {
-            return "?";
-        } else {
-            
-            Object value = "";
-            switch (column) {
-                case 0:
-                    value = ((IOReduction) red).getIn().getChannel().toString();
-                    break;
-                case 1:
-                    value = ((IOReduction) red).getIn().getParams().toString();
-                    break;
-                case 2:
-                    value = ((IOReduction) red).getOut().getParams().toString();
-                    ;
-                    break;
-            }
-
-            return value;
+    public Object getValueAt(int row, int column) {
+        if (column == COUNT) {
+            return (counts == null) ? "1" : String.valueOf(counts[row]);
         }
+        return getRow(getPosition(row))[column];
     }
-    
+
     /**
      * Returns title of the table column specified by index.
      * @param index index of the column
@@ -103,23 +123,198 @@ public class ReductionTableModel extends AbstractTableModel {
     @Override
     public String getColumnName(int index) {
         switch (index) {
-            case 0:
+            case CHANNEL:
                 return "Channel";
-            case 1:
+            case INPUT:
                 return "Input";
-            case 2:
+            case OUTPUT:
                 return "Output";
+            case COUNT:
+                return "#";
             default:
                 return "";
         }
     }
-    
+
     /**
-     * Returns reduction placed at specified index of reduction list.
-     * @param row index into the list
+     * Returns reduction displayed in specified row of the table. In case of
+     * grouped row, the first reduction of the group is returned.
+     * @param row index of the table row
      * @return reduction
      */
     public Reduction getReductionAt(int row) {
-        return redlist.get(row);
+        return redlist.get(getPosition(row));
+    }
+
+    /**
+     * Returns position in reduction list of the reduction displayed
+     * in specified row.
+     * @param row index of the table row
+     * @return index into reduction list
+     */
+    public int getPosition(int row) {
+        return (view == null) ? row : view[row];
+    }
+
+    /**
+     * Returns table row displaying the reduction at specified position
+     * in reduction list.
+     * @param pos index into reduction list
+     * @return index of the table row or -1 if the reduction is not displayed
+     */
+    public int getRowIndex(int pos) {
+        if (pos < 0 || pos >= redlist.size()) {
+            return -1;
+        }
+        return (view == null) ? pos : rowindex[pos];
+    }
+
+    /**
+     * Returns list of all reductions regardless of the displayed view.
+     * @return list of reductions
+     */
+    public List<Reduction> getReductions() {
+        return redlist;
+    }
+
+    /**
+     * Returns texts of all rows, which are created if not cached yet.
+     * Must be called on the event dispatch thread.
+     * @return row texts indexed by position in reduction list
+     */
+    String[][] getRows() {
+        for (int pos = 0; pos < rows.length; pos++) {
+            getRow(pos);
+        }
+        complete = true;
+        return rows.clone();
+    }
+
+    /**
+     * Returns symmetry signatures of all reductions, which are computed
+     * when requested for the first time. Must be called on the event
+     * dispatch thread.
+     * @return signatures indexed by position in reduction list
+     */
+    String[] getSignatures() {
+        if (signatures == null) {
+            signatures = new Symmetry().getSignatures(redlist);
+        }
+        return signatures;
+    }
+
+    /**
+     * Returns cached texts of all rows.
+     * @return row texts indexed by position in reduction list or null
+     */
+    String[][] getCachedRows() {
+        return complete ? rows.clone() : null;
+    }
+
+    /**
+     * Returns cached symmetry signatures of all reductions.
+     * @return signatures indexed by position in reduction list or null
+     */
+    String[] getCachedSignatures() {
+        return signatures;
+    }
+
+    /**
+     * Stores texts and signatures created by the worker. Rows created
+     * meanwhile keep their texts.
+     * @param texts row texts indexed by position in reduction list
+     * @param sigs signatures indexed by position in reduction list or null
+     */
+    void setCache(String[][] texts, String[] sigs) {
+        for (int pos = 0; pos < rows.length; pos++) {
+            if (rows[pos] == null) {
+                rows[pos] = texts[pos];
+            }
+        }
+        complete = true;
+        if (sigs != null) {
+            signatures = sigs;
+        }
+    }
+
+    /**
+     * Creates texts of all reductions of the list. It may be called in
+     * the background for reductions of a copy of the model data, which is
+     * used as local data of the thread.
+     * @param reds list of reductions
+     * @return row texts indexed by position in the list
+     */
+    static String[][] createRows(List<Reduction> reds) {
+        String[][] texts = new String[reds.size()][];
+        for (int pos = 0; pos < texts.length; pos++) {
+            texts[pos] = createRow(reds.get(pos));
+        }
+        return texts;
+    }
+
+    /**
+     * Sets displayed view and reports the change to the table.
+     * @param v positions of displayed rows in reduction list
+     * @param c numbers of reductions grouped into displayed rows or null
+     * @param members table rows indexed by position in reduction list
+     */
+    void setView(int[] v, int[] c, int[] members) {
+        view = v;
+        counts = c;
+        rowindex = members;
+        fireTableDataChanged();
+    }
+
+    /**
+     * Returns texts of the reduction at specified position in reduction list,
+     * which are created when requested for the first time.
+     * @param pos index into reduction list
+     * @return row texts
+     */
+    private String[] getRow(int pos) {
+        if (rows[pos] == null) {
+            rows[pos] = createRow(redlist.get(pos));
+        }
+        return rows[pos];
+    }
+
+    /**
+     * Creates texts describing specified reduction - channel, input parameters,
+     * output parameters, empty count placeholder, reduction type and names
+     * of agents the participating expressions belong to.
+     * @param red reduction
+     * @return row texts
+     */
+    private static String[] createRow(Reduction red) {
+        String[] row = new String[6];
+        if (red instanceof TReduction) {
+            Arrays.fill(row, 0, COUNT, "?");
+            row[TYPE] = "tau";
+            row[AGENT] = getAgent(((TReduction) red).getTau());
+        } else {
+            IOReduction iored = (IOReduction) red;
+            row[CHANNEL] = iored.getIn().getChannel().toString();
+            row[INPUT] = iored.getIn().getParams().toString();
+            row[OUTPUT] = iored.getOut().getParams().toString();
+            row[TYPE] = "io";
+            row[AGENT] = getAgent(iored.getIn()) + " " + getAgent(iored.getOut());
+        }
+        row[COUNT] = "";
+        return row;
+    }
+
+    /**
+     * Returns identifier of the nearest process instance containing
+     * specified expression.
+     * @param exp expression
+     * @return process identifier or empty string
+     */
+    private static String getAgent(Expression exp) {
+        while ((exp = exp.getParent()) != null) {
+            if (exp instanceof ConcretizeExpression) {
+                return ((ConcretizeExpression) exp).getIDRef().toString();
+            }
+        }
+        return "";
     }
 }
@@ -0,0 +1,218 @@
+/*
+ * Copyright 2017 Dagmar Prokopova <xproko26@stud.fit.vutbr.cz>.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package cz.vutbr.fit.xproko26.pivis.gui.redpanel;
+
+import cz.vutbr.fit.xproko26.pivis.model.Model;
+import cz.vutbr.fit.xproko26.pivis.model.Speculator;
+import cz.vutbr.fit.xproko26.pivis.model.explorer.Symmetry;
+import java.awt.EventQueue;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import javax.swing.SwingWorker;
+
+/**
+ * ReductionTableWorker computes view of {@link ReductionTableModel
+ * ReductionTableModel} in the background. It keeps only rows matching
+ * the filter (by channel, agent or reduction type), groups symmetric
+ * reductions, which typically come from replicated branches or instances
+ * of the same agent (see {@link Symmetry Symmetry}), and sorts the result
+ * by selected column. Row texts and signatures which are not cached by
+ * the table model are created in the background from a copy of the model
+ * data restored from the snapshot of {@link Speculator Speculator}, so the
+ * background computation never reads the expression tree, which may be
+ * modified by the model meanwhile. Only if there is no snapshot, they are
+ * created on the event dispatch thread. The view and created texts are
+ * passed to the table model on the event dispatch thread unless the worker
+ * was cancelled.
+ * @author Dagmar Prokopova
+ */
+public class ReductionTableWorker extends SwingWorker<Void, Void> {
+
+    //table model the view is computed for
+    private final ReductionTableModel model;
+
+    //lower case filter text, empty if rows are not filtered
+    private final String filter;
+
+    //flag indicating that equal rows should be grouped
+    private final boolean group;
+
+    //column the rows are sorted by, negative if rows keep list order
+    private final int sortcol;
+
+    //flag indicating ascending sort order
+    private final boolean ascending;
+
+    //action executed once the view is set
+    private final Runnable finished;
+
+    //row texts and symmetry signatures indexed by position in reduction list
+    private String[][] texts;
+    private String[] sigs;
+
+    //computed positions, group counts and rows of positions
+    private int[] view;
+    private int[] counts;
+    private int[] members;
+
+    /**
+     * Creates worker computing view of specified table model. Must be
+     * called on the event dispatch thread.
+     * @param m table model
+     * @param f filter text
+     * @param g true if equal rows should be grouped
+     * @param col column to sort by or negative value
+     * @param asc true for ascending sort order
+     * @param fin action executed after the view is set
+     */
+    public ReductionTableWorker(ReductionTableModel m, String f, boolean g, int col, boolean asc, Runnable fin) {
+        model = m;
+        texts = m.getCachedRows();
+        sigs = g ? m.getCachedSignatures() : null;
+        filter = f.trim().toLowerCase();
+        group = g;
+        sortcol = col;
+        ascending = asc;
+        finished = fin;
+    }
+
+    @Override
+    protected Void doInBackground() throws Exception {
+
+        if (texts == null || (group && sigs == null)) {
+            createTexts();
+        }
+
+        int n = texts.length;
+        List<Integer> positions = new ArrayList<>();
+        for (int i = 0; i < n; i++) {
+            if (isCancelled()) {
+                return null;
+            }
+            if (matches(texts[i])) {
+                positions.add(i);
+            }
+        }
+
+        //group symmetric reductions under the first one
+        members = new int[n];
+        Arrays.fill(members, -1);
+        List<int[]> rows = new ArrayList<>();
+        if (group) {
+            Map<String, int[]> groups = new LinkedHashMap<>();
+            for (int pos : positions) {
+                String key = texts[pos][ReductionTableModel.TYPE] + '\u0000' + sigs[pos];
+                int[] row = groups.get(key);
+                if (row == null) {
+                    row = new int[] {pos, 0};
+                    groups.put(key, row);
+                    rows.add(row);
+                }
+                row[1]++;
+                members[pos] = row[0];
+            }
+        } else {
+            for (int pos : positions) {
+                rows.add(new int[] {pos, 1});
+                members[pos] = pos;
+            }
+        }
+        if (isCancelled()) {
+            return null;
+        }
+
+        //sort rows, ties keep list order
+        if (sortcol >= 0) {
+            Comparator<int[]> cmp = (sortcol == ReductionTableModel.COUNT)
+                    ? Comparator.comparingInt(r -> r[1])
+                    : Comparator.comparing(r -> texts[r[0]][sortcol]);
+            rows.sort(ascending ? cmp : cmp.reversed());
+        }
+
+        //convert first positions of groups into table rows
+        view = new int[rows.size()];
+        counts = group ? new int[rows.size()] : null;
+        int[] rowof = new int[n];
+        for (int i = 0; i < view.length; i++) {
+            view[i] = rows.get(i)[0];
+            rowof[view[i]] = i;
+            if (counts != null) {
+                counts[i] = rows.get(i)[1];
+            }
+        }
+        for (int pos = 0; pos < n; pos++) {
+            if (members[pos] >= 0) {
+                members[pos] = rowof[members[pos]];
+            }
+        }
+        return null;
+    }
+
+    @Override
+    protected void done() {
+        if (!isCancelled() && view != null) {
+            model.setCache(texts, sigs);
+            model.setView(view, counts, members);
+            finished.run();
+        }
+    }
+
+    /**
+     * Creates row texts and signatures from a copy of the model data, or on
+     * the event dispatch thread if the copy is not available.
+     * @throws Exception if the copy could not be restored
+     */
+    private void createTexts() throws Exception {
+        Speculator.Copy copy = Speculator.getInstance().restore(model.getReductions());
+        if (copy == null) {
+            EventQueue.invokeAndWait(() -> {
+                texts = model.getRows();
+                sigs = group ? model.getSignatures() : null;
+            });
+            return;
+        }
+
+        //redirect model queries of this thread to the copy
+        Model.setLocalData(copy.getData());
+        try {
+            texts = ReductionTableModel.createRows(copy.getReductionList());
+            if (group) {
+                sigs = new Symmetry().getSignatures(copy.getReductionList());
+            }
+        } finally {
+            Model.setLocalData(null);
+        }
+    }
+
+    /**
+     * Checks whether the row matches filter text in channel, reduction
+     * type or any agent name.
+     * @param t row texts
+     * @return true if row should be displayed
+     */
+    private boolean matches(String[] t) {
+        if (filter.isEmpty()) {
+            return true;
+        }
+        return t[ReductionTableModel.CHANNEL].toLowerCase().contains(filter)
+                || t[ReductionTableModel.TYPE].equals(filter)
+                || t[ReductionTableModel.AGENT].toLowerCase().contains(filter);
+    }
+}
@@ -37,6 +37,8 @@ public class Data implements Serializable {
     private Expression expression;
     //selected reduction
     private Reduction reduction;    
+    //revision of names, changed whenever text of any name may change
+    private transient int namerevision;
     
     /**
      * Data constructor creates empty process list and empty name table
@@ -44,8 +46,29 @@ public class Data implements Serializable {
     public Data() {
         proclist = new ProcessList();
         nametable = new NameTable();
-    }    
-    
+    }
+
+    /**
+     * Constructor which shares name table, process list and expression
+     * of specified data.
+     * @param d shared data
+     */
+    private Data(Data d) {
+        proclist = d.proclist;
+        nametable = d.nametable;
+        expression = d.expression;
+    }
+
+    /**
+     * Returns data sharing name table, process list and expression, but
+     * without selected reduction, so that the selection can change while
+     * the returned data are serialized.
+     * @return data without selected reduction
+     */
+    Data withoutReduction() {
+        return new Data(this);
+    }
+
     /**
      * Sets new visualized expression
      * @param e visualized expression
@@ -78,6 +101,22 @@ public class Data implements Serializable {
         return reduction;
     }
     
+    /**
+     * Sets revision of names after names were changed.
+     * @param r new revision of names
+     */
+    public void setNameRevision(int r) {
+        namerevision = r;
+    }
+    
+    /**
+     * Returns revision of names.
+     * @return revision of names
+     */
+    public int getNameRevision() {
+        return namerevision;
+    }
+    
     /**
      * Removes all process definitions from process list
      */
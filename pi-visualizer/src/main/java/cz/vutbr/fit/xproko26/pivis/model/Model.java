@@ -36,6 +36,7 @@ import cz.vutbr.fit.xproko26.pivis.model.simplifier.Simplifier;
 import cz.vutbr.fit.xproko26.pivis.model.redmanager.ReductionManager;
 import cz.vutbr.fit.xproko26.pivis.model.redmanager.ReductionManagerListener;
 import cz.vutbr.fit.xproko26.pivis.model.simplifier.SimplifierListener;
+import cz.vutbr.fit.xproko26.pivis.stats.Statistics;
 
 /**
  * Model is a singleton class which possesses application data and provides
@@ -62,13 +63,23 @@ public class Model {
     //modification flag
     private static boolean modified;
     
+    //speculator precomputing successors of listed reductions
+    private static Speculator speculator;
+    
+    //copy of application data used instead of data by the current thread
+    private static final ThreadLocal<Data> local = new ThreadLocal<>();
+    
+    //revision of names used while there are no data
+    private static int namerevision;
+    
     /**
-     * Private constructor which creates reduction manager and simplifier
-     * as specialized extensions of the model class.
+     * Private constructor which creates reduction manager, simplifier and
+     * speculator as specialized extensions of the model class.
      */
     private Model() {        
         redmanager = ReductionManager.getInstance();
         simplifier = Simplifier.getInstance();                        
+        speculator = Speculator.getInstance();
     }
     
     /**
@@ -95,7 +106,9 @@ public class Model {
     }
     
     /**
-     * Creates and sets reduction manager listener
+     * Creates and sets reduction manager listener. It is also called by
+     * threads reducing local copies of data, so it works only with the passed
+     * expression and the data of the calling thread.
      */
     private void setRedManagerListener() {
         redmanager.addListener(new ReductionManagerListener() {
@@ -114,7 +127,9 @@ public class Model {
     }
     
     /**
-     * Creates and sets simplifier listener.
+     * Creates and sets simplifier listener. It is also called by threads
+     * simplifying local copies of data, so it works only with the passed
+     * expression and the data of the calling thread.
      */
     private void setSimplifierListener() {
         simplifier.addListener(new SimplifierListener() {
@@ -132,6 +147,9 @@ public class Model {
      * @return replication helper
      */
     private ReplicationExpression replicate(ReplicationExpression exp) {
+        Statistics.Probe probe = Statistics.getInstance().start(Statistics.Stage.REPLICATE, hasLocalData());
+        long visited = NameMapper.getInstance().getVisited();
+        beforeChange();
         //get parent
         ParallelReplicationExpression parallel = (ParallelReplicationExpression) exp.getParent();
         //copy the expression
@@ -145,6 +163,7 @@ public class Model {
         //set modified flag
         setModified(true);
         
+        probe.stop(NameMapper.getInstance().getVisited() - visited, 0);
         return helper;
     }
     
@@ -155,6 +174,9 @@ public class Model {
      */
     private AbstractionExpression instantiate(ConcretizeExpression cexp) throws Exception {
 
+        Statistics.Probe probe = Statistics.getInstance().start(Statistics.Stage.INSTANTIATE, hasLocalData());
+        long visited = NameMapper.getInstance().getVisited();
+        beforeChange();
         //get process definition
         AbstractionExpression procdef = getProcDef(cexp.getIDRef().toString(), cexp.getArgs());        
         //create copy
@@ -170,14 +192,88 @@ public class Model {
         //set modified flag
         setModified(true);
         
+        probe.stop(NameMapper.getInstance().getVisited() - visited, 0,
+                probe.isRecorded() ? cexp.getIDRef().toString() : null);
         return inst;
     }
     
+    /**
+     * Sets copy of application data which is used instead of model data
+     * by the calling thread, so that reductions can be executed on the copy
+     * in the background or during state space exploration. Null value
+     * removes the copy.
+     * @param d copy of application data or null
+     */
+    public static void setLocalData(Data d) {
+        if (d == null) {
+            local.remove();
+        } else {
+            local.set(d);
+        }
+    }
+    
+    /**
+     * Returns true if the calling thread uses a copy of application data.
+     * @return true if local data are set
+     */
+    public static boolean hasLocalData() {
+        return local.get() != null;
+    }
+    
+    /**
+     * Sets revision of names of the data used by the calling thread.
+     * @param r new revision of names
+     */
+    public void setNameRevision(int r) {
+        Data d = current();
+        if (d != null) {
+            d.setNameRevision(r);
+        } else {
+            namerevision = r;
+        }
+    }
+    
+    /**
+     * Returns revision of names of the data used by the calling thread.
+     * @return revision of names
+     */
+    public int getNameRevision() {
+        Data d = current();
+        return (d != null) ? d.getNameRevision() : namerevision;
+    }
+    
+    /**
+     * Returns application data used by the calling thread.
+     * @return local copy of application data or model data
+     */
+    private Data current() {
+        Data d = local.get();
+        return (d != null) ? d : data;
+    }
+    
+    /**
+     * Cancels speculation before the model data are modified, unless the
+     * calling thread modifies its own copy of the data.
+     */
+    private void beforeChange() {
+        if (!hasLocalData()) {
+            speculator.cancel();
+        }
+    }
+    
     /**
      * Asks reduction manager to regenerate reduction list and reports changes.
      */
     private void generateRedList() {
         redmanager.generateReductionList(data.getExpression());
+        redListChanged();
+    }
+    
+    /**
+     * Schedules speculation over new reduction list and reports changes.
+     */
+    private void redListChanged() {
+        speculator.schedule();
         if (listener != null) {
             listener.redListModified(redmanager.getReductionList(), getRedSelectionIndex());
         }
@@ -192,12 +288,7 @@ public class Model {
     private int getRedSelectionIndex() {
         Reduction red = data.getReduction();
         if ((red != null) && (red.isComplete())) {
-            List<Reduction> redlist = redmanager.getReductionList();
-            for (int i=0; i < redlist.size(); i++) {
-                if (redlist.get(i).equals(red)) {
-                    return i;
-                }
-            }
+            return redmanager.indexOf(red);
         }
         return -1;
     }
@@ -207,7 +298,10 @@ public class Model {
      * @param b boolean value to be set
      */
     public void setModified(boolean b) {
-        modified = b;
+        //changes of data copies do not modify the model
+        if (local.get() == null) {
+            modified = b;
+        }
     }
     
     /**
@@ -223,7 +317,9 @@ public class Model {
      * and reports initialization by calling the listener method.
      */
     public void init() {        
+        speculator.cancel();
         data = new Data();
+        Expression.namesChanged();
         setModified(false);
         
         if (listener != null) {
@@ -239,6 +335,7 @@ public class Model {
     public void setData(Data d) {
         init();
         data = d;
+        Expression.namesChanged();
 
         //generate reduction list
         generateRedList();            
@@ -265,7 +362,7 @@ public class Model {
      * @return name table
      */
     public NameTable getNameTable() {
-        return data.getNameTable();
+        return current().getNameTable();
     }
     
     /**
@@ -273,6 +370,7 @@ public class Model {
      * @param expr expression to be set
      */
     public void setExpression(Expression expr) {
+        beforeChange();
         data.setExpression(expr);
         setReduction(null);
         generateRedList();
@@ -296,8 +394,10 @@ public class Model {
      * @param proc new process definition
      */
     public void addProcDef(ProcessDefinition proc) {
+        beforeChange();
         data.addProcDef(proc);
         setModified(true);
+        speculator.schedule();
         
         if (listener != null) {
             listener.procListModified(data.getProcList());
@@ -309,9 +409,11 @@ public class Model {
      * @param procdefs list of process definitions
      */
     public void setProcDefs(List<ProcessDefinition> procdefs) {
+        beforeChange();
         data.clearProcList();
         procdefs.forEach(pd -> data.addProcDef(pd));
         setModified(true);
+        speculator.schedule();
         
         if (listener != null) {
             listener.procListModified(data.getProcList());
@@ -335,7 +437,7 @@ public class Model {
      * does not match.
      */
     public AbstractionExpression getProcDef(String id, NRList args) throws Exception {        
-        AbstractionExpression expr = (AbstractionExpression) data.getProcess(id);
+        AbstractionExpression expr = (AbstractionExpression) current().getProcess(id);
         
         //check if process is defined
         if (expr == null) {
@@ -401,6 +503,8 @@ public class Model {
             ReplicationExpression helper = parallel.getHelper();
             if (helper == null) {
                 helper = replicate((ReplicationExpression)exp);
+                //precomputed successors do not contain the helper
+                speculator.schedule();
             }            
             return helper;  
         }        
@@ -412,6 +516,7 @@ public class Model {
      * @param exp replication helper which type should be changed
      */
     public void changeHelperToCopy(Expression exp) {
+        beforeChange();
         ((ReplicationExpression) exp).setCopyType(true);
         generateRedList();
     }
@@ -608,7 +713,8 @@ public class Model {
     /**
      * In case there is complete reduction selected, executes reduction
      * regenerates reduction list and reports changes, otherwise throws
-     * an exception containing warning message.
+     * an exception containing warning message. If the successor of selected
+     * reduction was already precomputed by speculator, it is used instead.
      * @throws Exception when incomplete reduction is selected 
      */
     public void reduce() throws Exception {
@@ -619,12 +725,33 @@ public class Model {
         } else if (!red.isComplete()) {
             throw new Exception("Warning: Incomplete action selected for reduction.");
         } else {  
-            redmanager.reduce(red);           
+            Speculator.Successor succ = speculator.take(getRedSelectionIndex());
+            beforeChange();
+            if (succ != null) {
+                //swap in precomputed expression, names and reduction list
+                succ.attachVisuals();
+                boolean renamed = data.getNameTable().isRenamedIn(succ.getNameTable());
+                data.setExpression(succ.getExpression());
+                data.getNameTable().clear();
+                data.getNameTable().addAll(succ.getNameTable());
+                if (renamed) {
+                    //the new tree has no cached texts, texts of process definitions need to be dropped
+                    Expression.namesChanged();
+                }
+                redmanager.setReductionList(succ.getReductionList());
+            } else {
+                redmanager.reduce(red);           
+            }
             if (listener != null) {
                 listener.expressionModified(data.getExpression());
             }
             setReduction(null);
-            generateRedList(); 
+            if (succ != null) {
+                redListChanged();
+                speculator.adopt(succ);
+            } else {
+                generateRedList(); 
+            }
             
             //set modified flag
             setModified(true);
@@ -642,6 +769,7 @@ public class Model {
         if (exp == null) {
             throw new Exception("Warning: No expression to simplify.");
         } else {
+            beforeChange();
             simplifier.makeSimple(exp);
             if (listener != null) {
                 listener.expressionModified(data.getExpression());
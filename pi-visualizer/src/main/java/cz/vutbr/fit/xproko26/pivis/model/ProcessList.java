@@ -61,7 +61,7 @@ public class ProcessList extends HashMap<String, Expression> implements Serializ
      * @return textual representation of specified process or all process definitions
      */
     public String getString(String procId) {
-        String ret = "";
+        StringBuilder ret = new StringBuilder();
         
         //create set of process identifiers
         Set set;
@@ -77,21 +77,22 @@ public class ProcessList extends HashMap<String, Expression> implements Serializ
             String id = ids.next();
             AbstractionExpression exp = (AbstractionExpression) get(id);
             if (exp == null) {
-                ret = "Process " + id + " is not defined.";
-                return ret;
+                return "Process " + id + " is not defined.";
             }
             
-            ret += "agent " + id;
+            ret.append("agent ").append(id);
             if (!exp.getParams().isEmpty()) {
-                ret += "(" + exp.getParams().toString() + ")";
+                ret.append('(');
+                exp.getParams().appendTo(ret);
+                ret.append(')');
             }
-            ret += " = ";
-            ret += exp.toString();
+            ret.append(" = ");
+            exp.appendTo(ret);
 
             if (ids.hasNext()) {
-                ret += System.lineSeparator();
+                ret.append(System.lineSeparator());
             }
         }
-        return ret;
+        return ret.toString();
     }
 }
@@ -0,0 +1,111 @@
+/* 
+ * Copyright 2017 Dagmar Prokopova <xproko26@stud.fit.vutbr.cz>.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package cz.vutbr.fit.xproko26.pivis.model;
+
+import cz.vutbr.fit.xproko26.pivis.gui.graph.CellValue;
+import cz.vutbr.fit.xproko26.pivis.model.redmanager.Reduction;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.BooleanSupplier;
+
+/**
+ * Snapshots serialize model data together with its reduction list, so that
+ * background computations can restore their own copies of the model. Visual
+ * information is not needed by them, so cell values are left out.
+ * @author Dagmar Prokopova
+ */
+public final class Snapshots {
+
+    private Snapshots() {
+    }
+
+    /**
+     * Serializes data and reduction list into a snapshot.
+     * @param data data
+     * @param redlist reduction list
+     * @return snapshot
+     * @throws IOException if the data could not be serialized
+     */
+    public static byte[] write(Data data, List<Reduction> redlist) throws IOException {
+        return write(data, redlist, () -> false);
+    }
+
+    /**
+     * Serializes data and reduction list into a snapshot, unless the
+     * serialization is cancelled. Cancellation is checked for each written
+     * object, so the serialization stops soon after it is requested.
+     * @param data data
+     * @param redlist reduction list
+     * @param cancelled returns true if the serialization should stop
+     * @return snapshot
+     * @throws InterruptedIOException if the serialization was cancelled
+     * @throws IOException if the data could not be serialized
+     */
+    public static byte[] write(Data data, List<Reduction> redlist, BooleanSupplier cancelled) throws IOException {
+        ByteArrayOutputStream bos = new ByteArrayOutputStream();
+        try (ObjectOutputStream out = new SnapshotOutputStream(bos, cancelled)) {
+            out.writeObject(data);
+            out.writeObject(new ArrayList<>(redlist));
+        }
+        return bos.toByteArray();
+    }
+
+    /**
+     * Restores copy of the data and reduction list from snapshot.
+     * @param snapshot snapshot
+     * @return copy
+     * @throws Exception if the copy could not be restored
+     */
+    @SuppressWarnings("unchecked")
+    public static Speculator.Copy restore(byte[] snapshot) throws Exception {
+        try (ObjectInputStream in = new ObjectInputStream(new ByteArrayInputStream(snapshot))) {
+            Data data = (Data) in.readObject();
+            return new Speculator.Copy(data, (List<Reduction>) in.readObject());
+        }
+    }
+
+    /**
+     * Object output stream which leaves out cell values, so that copies
+     * restored from the snapshot do not contain visual information, and
+     * which stops once the serialization is cancelled.
+     */
+    private static class SnapshotOutputStream extends ObjectOutputStream {
+
+        //returns true if the serialization should stop
+        private final BooleanSupplier cancelled;
+
+        SnapshotOutputStream(OutputStream os, BooleanSupplier c) throws IOException {
+            super(os);
+            cancelled = c;
+            enableReplaceObject(true);
+        }
+
+        @Override
+        protected Object replaceObject(Object obj) throws IOException {
+            if (cancelled.getAsBoolean()) {
+                throw new InterruptedIOException("Snapshot cancelled.");
+            }
+            return (obj instanceof CellValue) ? null : obj;
+        }
+    }
+}
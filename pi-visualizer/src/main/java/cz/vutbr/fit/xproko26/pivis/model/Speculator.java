@@ -0,0 +1,554 @@
+/*
+ * Copyright 2017 Dagmar Prokopova <xproko26@stud.fit.vutbr.cz>.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package cz.vutbr.fit.xproko26.pivis.model;
+
+import cz.vutbr.fit.xproko26.pivis.gui.graph.NodeValue;
+import cz.vutbr.fit.xproko26.pivis.model.expressions.Expression;
+import cz.vutbr.fit.xproko26.pivis.model.expressions.ExpressionTraversal;
+import cz.vutbr.fit.xproko26.pivis.model.names.NameTable;
+import cz.vutbr.fit.xproko26.pivis.model.names.NameValue;
+import cz.vutbr.fit.xproko26.pivis.model.redmanager.Reduction;
+import cz.vutbr.fit.xproko26.pivis.model.redmanager.ReductionManager;
+import cz.vutbr.fit.xproko26.pivis.stats.Statistics;
+import java.awt.EventQueue;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.BooleanSupplier;
+
+/**
+ * Speculator is a singleton class which precomputes successors of the
+ * reductions offered in reduction list while the user is choosing one of them.
+ * The model data are serialized into a snapshot in the background thread and
+ * each reduction is then executed on its own deserialized copy, together
+ * with generation of the successor reduction list and of the snapshot of the
+ * successor. Once a precomputed successor is taken by the model, its snapshot
+ * is used by the next speculation, so that only the changes not done by
+ * speculated reductions need to be serialized. The model has to cancel
+ * speculation before it modifies its data, which stops the serialization
+ * in progress, so that the data are never modified while they are written.
+ * Selected reduction is left out of snapshots, so it can change anytime.
+ * Visual information (cell values) is not part of snapshots, copies never
+ * refer to visual objects of the model. Visual objects of expressions and
+ * names are collected on the event dispatch thread in the order of traversal
+ * and attached to the corresponding expressions and names of the successor
+ * when it is taken. The number of precomputed successors is limited by
+ * memory budget and all of them are dropped as soon as the model changes.
+ * Snapshot of current model state is also available to other background
+ * computations, which restore their own copies from it.
+ * @author Dagmar Prokopova
+ */
+public class Speculator {
+
+    //estimated ratio between the size of deserialized copy and its snapshot
+    private static final int EXPANSION = 4;
+
+    //singleton instance of Speculator class
+    private static Speculator instance;
+
+    //memory budget for precomputed successors in bytes, zero disables speculation
+    private static long budget = 64L << 20;
+
+    //background thread executing the reductions
+    private final ExecutorService executor;
+
+    //precomputed successors indexed by position in reduction list
+    private final Map<Integer, Successor> results;
+
+    //generation of the model state, increased whenever the state changes
+    private volatile int generation;
+
+    //lock held by the background thread while it serializes model data
+    private final ReentrantLock writing = new ReentrantLock();
+
+    //flag indicating that the snapshot is already scheduled
+    private boolean scheduled;
+
+    //successor taken by the model, its snapshot is used by the next speculation
+    private Successor adopted;
+
+    //snapshot of current model state, completed with null if it is not taken
+    private volatile CompletableFuture<Snapshot> current = CompletableFuture.completedFuture(null);
+
+    /**
+     * Private constructor which creates background thread and result storage.
+     */
+    private Speculator() {
+        executor = Executors.newSingleThreadExecutor(r -> {
+            Thread t = new Thread(r, "speculator");
+            t.setDaemon(true);
+            t.setPriority(Thread.MIN_PRIORITY);
+            return t;
+        });
+        results = new ConcurrentHashMap<>();
+    }
+
+    /**
+     * Method for accessing the singleton instance.
+     * @return instance of Speculator class
+     */
+    public static Speculator getInstance() {
+        if(instance == null) {
+            instance = new Speculator();
+        }
+        return instance;
+    }
+
+    /**
+     * Sets memory budget for precomputed successors.
+     * @param bytes budget in bytes, zero disables speculation
+     */
+    public static void setMemoryBudget(long bytes) {
+        budget = Math.max(0, bytes);
+    }
+
+    /**
+     * Drops all precomputed successors and pending speculation. It needs to
+     * be called before the model data are modified, since it also waits until
+     * serialization of the data in progress stops.
+     */
+    public void cancel() {
+        generation++;
+        results.clear();
+        adopted = null;
+
+        //serialization checks the generation for each object, so it stops soon
+        writing.lock();
+        writing.unlock();
+    }
+
+    /**
+     * Drops precomputed successors and schedules new speculation over current
+     * model state. The snapshot is taken once all pending events are processed,
+     * so that several changes during one user action are handled together.
+     */
+    public void schedule() {
+        cancel();
+        if (budget == 0) {
+            current = CompletableFuture.completedFuture(null);
+        } else if (!scheduled) {
+            scheduled = true;
+            current = new CompletableFuture<>();
+            EventQueue.invokeLater(this::snapshot);
+        }
+    }
+
+    /**
+     * Returns precomputed successor of the reduction at specified position
+     * in reduction list, if it is available for current model state.
+     * @param index position of the reduction in reduction list
+     * @return successor or null
+     */
+    public Successor take(int index) {
+        Successor succ = results.get(index);
+        if (succ != null && succ.generation == generation) {
+            return succ;
+        }
+        return null;
+    }
+
+    /**
+     * Reports that the successor was swapped into the model and speculation
+     * was scheduled, so that the scheduled speculation uses snapshot of the
+     * successor instead of serializing the model data again.
+     * @param succ successor taken by the model
+     */
+    public void adopt(Successor succ) {
+        adopted = succ;
+    }
+
+    /**
+     * Returns copy of model data and reduction list restored from the snapshot
+     * of current model state. Scheduled snapshot is taken in the background
+     * thread once pending events are processed, so the method waits for it
+     * and must not be called on the event dispatch thread.
+     * @param reds reduction list the copy should correspond to
+     * @return copy or null if there is no snapshot of the reduction list
+     * @throws Exception if the copy could not be restored
+     */
+    public Copy restore(List<Reduction> reds) throws Exception {
+        Snapshot snap = current.get();
+        if (snap == null || !snap.isTakenWith(reds)) {
+            return null;
+        }
+        return snap.restore();
+    }
+
+    /**
+     * Takes snapshot of current model data and reduction list, or uses the
+     * snapshot of adopted successor, collects visual objects and submits
+     * serialization of the snapshot and computation of successors into
+     * the background thread.
+     */
+    private void snapshot() {
+        scheduled = false;
+        CompletableFuture<Snapshot> future = current;
+        Snapshot snap = takeSnapshot();
+        if (snap == null) {
+            future.complete(null);
+            return;
+        }
+        NodeValue[] visuals = snap.getVisuals();
+        int gen = generation;
+        executor.submit(() -> {
+            if (!write(snap, gen)) {
+                future.complete(null);
+                return;
+            }
+            future.complete(snap);
+
+            //limit number of successors by memory budget, successors keep their snapshots
+            int count = (int) Math.min(snap.reductions.size(), budget / ((long) snap.bytes.length * (EXPANSION + 1)));
+            for (int i = 0; i < count && gen == generation; i++) {
+                try {
+                    Successor succ = compute(snap, visuals, i, gen);
+                    if (gen == generation) {
+                        results.put(i, succ);
+                    }
+                } catch (Exception | StackOverflowError ex) {
+                    //reduction could not be precomputed, it will be executed on demand
+                }
+            }
+        });
+    }
+
+    /**
+     * Returns snapshot of adopted successor or snapshot of current model data
+     * and reduction list, which is not serialized yet.
+     * @return snapshot or null if there is nothing to speculate about
+     */
+    private Snapshot takeSnapshot() {
+        Snapshot snap = (adopted != null) ? adopted.next : null;
+        adopted = null;
+
+        Data data = Model.getInstance().getData();
+        List<Reduction> redlist = ReductionManager.getInstance().getReductionList();
+        if (data == null || data.getExpression() == null || redlist.isEmpty()) {
+            return null;
+        }
+        if (snap != null) {
+            return snap;
+        }
+        return new Snapshot(data.withoutReduction(), redlist);
+    }
+
+    /**
+     * Serializes model data of the snapshot, unless the snapshot is already
+     * serialized. Serialization stops as soon as the generation changes,
+     * the model data may be modified afterwards.
+     * @param snap snapshot
+     * @param gen generation of the snapshot
+     * @return true if the snapshot is serialized
+     */
+    private boolean write(Snapshot snap, int gen) {
+        if (snap.bytes != null) {
+            return true;
+        }
+        writing.lock();
+        try {
+            return gen == generation && snap.write(() -> gen != generation);
+        } finally {
+            writing.unlock();
+        }
+    }
+
+    /**
+     * Executes reduction at specified position on a copy restored from
+     * snapshot and generates reduction list and snapshot of the result.
+     * @param snap snapshot
+     * @param visuals visual objects of expressions and names of the snapshot
+     * @param index position of the reduction in reduction list
+     * @param gen generation of the snapshot
+     * @return successor
+     * @throws Exception if the copy could not be restored
+     */
+    private Successor compute(Snapshot snap, NodeValue[] visuals, int index, int gen) throws Exception {
+        Copy restored = snap.restore();
+        Data copy = restored.getData();
+        List<Reduction> redlist = restored.getReductionList();
+
+        //expressions and names of the copy in the same order as visual objects
+        List<Object> owners = collect(copy);
+
+        //stages executed on the copy are recorded as speculation only
+        Statistics.Probe probe = Statistics.getInstance().start(Statistics.Stage.SPECULATE);
+
+        //redirect model queries of this thread to the copy
+        Model.setLocalData(copy);
+        try {
+            ReductionManager rm = new ReductionManager();
+            rm.reduce(redlist.get(index));
+            rm.generateReductionList(copy.getExpression());
+            probe.stop(0, rm.getReductionList().size());
+
+            //snapshot of the successor is used if the successor is taken
+            Snapshot next = new Snapshot(copy, rm.getReductionList());
+            if (!next.write(() -> gen != generation)) {
+                //next speculation serializes model data
+                next = null;
+            }
+            return new Successor(gen, copy.getExpression(), copy.getNameTable(), rm.getReductionList(),
+                    owners, visuals, next);
+        } finally {
+            Model.setLocalData(null);
+        }
+    }
+
+    /**
+     * Returns expressions of the expression tree followed by names of the
+     * name table. Data restored from the same snapshot give the same order.
+     * @param data data
+     * @return expressions and names
+     */
+    private static List<Object> collect(Data data) {
+        List<Object> owners = new ArrayList<>();
+        new ExpressionTraversal<Void>() {
+            @Override
+            protected List<Expression> enter(Expression node) {
+                owners.add(node);
+                return node.getSuccessors();
+            }
+        }.traverse(data.getExpression());
+        owners.addAll(data.getNameTable());
+        return owners;
+    }
+
+    /**
+     * Snapshot contains serialized data and reduction list without visual
+     * information, together with expressions and names of the serialized
+     * data, which hold the visual objects. Snapshot is created on the thread
+     * owning the data and serialized later in the background thread.
+     */
+    private static class Snapshot {
+
+        //data to be serialized, dropped once they are written
+        private Data data;
+
+        //reductions of the serialized reduction list
+        private final List<Reduction> reductions;
+
+        //serialized data and reduction list, null until they are written
+        private byte[] bytes;
+
+        //expressions and names of the serialized data in the order of traversal
+        private final List<Object> owners;
+
+        /**
+         * Creates snapshot of data and reduction list, which are serialized
+         * later.
+         * @param d data
+         * @param redlist reduction list
+         */
+        private Snapshot(Data d, List<Reduction> redlist) {
+            data = d;
+            reductions = new ArrayList<>(redlist);
+            owners = collect(d);
+        }
+
+        /**
+         * Serializes data and reduction list, unless the serialization is
+         * cancelled.
+         * @param cancelled returns true if the serialization should stop
+         * @return true if the data were serialized
+         */
+        private boolean write(BooleanSupplier cancelled) {
+            try {
+                bytes = Snapshots.write(data, reductions, cancelled);
+                data = null;
+                return true;
+            } catch (IOException | StackOverflowError ex) {
+                //serialization recurses, so expressions too deep are not speculated
+                return false;
+            }
+        }
+
+        /**
+         * Returns true if the snapshot was taken with the same reductions
+         * as the reduction list.
+         * @param reds reduction list
+         * @return true if reductions of the lists are the same
+         */
+        private boolean isTakenWith(List<Reduction> reds) {
+            if (reds.size() != reductions.size()) {
+                return false;
+            }
+            for (int i = 0; i < reds.size(); i++) {
+                if (reds.get(i) != reductions.get(i)) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        /**
+         * Restores copy of the data and reduction list.
+         * @return copy
+         * @throws Exception if the copy could not be restored
+         */
+        private Copy restore() throws Exception {
+            return Snapshots.restore(bytes);
+        }
+
+        /**
+         * Returns current visual objects of the expressions and names. It has
+         * to be called on the event dispatch thread, once the data are part
+         * of the model.
+         * @return visual objects in the order of traversal
+         */
+        private NodeValue[] getVisuals() {
+            NodeValue[] visuals = new NodeValue[owners.size()];
+            for (int i = 0; i < visuals.length; i++) {
+                Object owner = owners.get(i);
+                visuals[i] = (owner instanceof Expression) ? ((Expression) owner).getVisual() : ((NameValue) owner).getVisual();
+            }
+            return visuals;
+        }
+    }
+
+    /**
+     * Copy contains model data and reduction list restored from a snapshot,
+     * which can be used in the background as local data of the thread.
+     */
+    public static class Copy {
+
+        //copy of model data
+        private final Data data;
+
+        //copy of reduction list
+        private final List<Reduction> redlist;
+
+        /**
+         * Creates copy.
+         * @param d copy of model data
+         * @param rl copy of reduction list
+         */
+        Copy(Data d, List<Reduction> rl) {
+            data = d;
+            redlist = rl;
+        }
+
+        /**
+         * Returns copy of model data.
+         * @return data
+         */
+        public Data getData() {
+            return data;
+        }
+
+        /**
+         * Returns copy of reduction list, which refers to the copy of data.
+         * @return reduction list
+         */
+        public List<Reduction> getReductionList() {
+            return redlist;
+        }
+    }
+
+    /**
+     * Successor contains expression, name table and reduction list obtained
+     * by executing one reduction on a copy of model data.
+     */
+    public static class Successor {
+
+        //generation of the snapshot the successor was computed from
+        private final int generation;
+
+        //reduced expression
+        private final Expression expression;
+
+        //name table of the reduced expression
+        private final NameTable nametable;
+
+        //reduction list of the reduced expression
+        private final List<Reduction> redlist;
+
+        //expressions and names of the copy before the reduction
+        private final List<Object> owners;
+
+        //visual objects of the model corresponding to the owners
+        private final NodeValue[] visuals;
+
+        //snapshot of the successor, null if it could not be taken
+        private final Snapshot next;
+
+        /**
+         * Creates successor.
+         * @param gen generation of the snapshot
+         * @param exp reduced expression
+         * @param nt name table
+         * @param rl reduction list
+         * @param own expressions and names of the copy before the reduction
+         * @param vis visual objects corresponding to the owners
+         * @param nx snapshot of the successor
+         */
+        private Successor(int gen, Expression exp, NameTable nt, List<Reduction> rl,
+                List<Object> own, NodeValue[] vis, Snapshot nx) {
+            generation = gen;
+            expression = exp;
+            nametable = nt;
+            redlist = rl;
+            owners = own;
+            visuals = vis;
+            next = nx;
+        }
+
+        /**
+         * Attaches visual objects of the model to the expressions and names
+         * of the successor. It has to be called on the event dispatch thread
+         * before the successor is swapped into the model.
+         */
+        public void attachVisuals() {
+            for (int i = 0; i < visuals.length; i++) {
+                Object owner = owners.get(i);
+                if (owner instanceof Expression) {
+                    ((Expression) owner).setVisual(visuals[i]);
+                } else {
+                    ((NameValue) owner).setVisual(visuals[i]);
+                }
+            }
+        }
+
+        /**
+         * Returns reduced expression.
+         * @return expression
+         */
+        public Expression getExpression() {
+            return expression;
+        }
+
+        /**
+         * Returns name table of the reduced expression.
+         * @return name table
+         */
+        public NameTable getNameTable() {
+            return nametable;
+        }
+
+        /**
+         * Returns reduction list of the reduced expression.
+         * @return reduction list
+         */
+        public List<Reduction> getReductionList() {
+            return redlist;
+        }
+    }
+}
@@ -0,0 +1,170 @@
+/*
+ * Copyright 2017 Dagmar Prokopova <xproko26@stud.fit.vutbr.cz>.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package cz.vutbr.fit.xproko26.pivis.model.explorer;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.nio.file.Files;
+import java.util.Arrays;
+
+/**
+ * BitstateVisitedSet is a Bloom filter which keeps only a few bits per
+ * visited state. A state is considered visited if all bits selected by its
+ * fingerprint are set, so two different states may collide and part of
+ * the state space may be skipped. The minimal depth of a state is kept in
+ * a separate table with one byte per expected state, indexed by another
+ * hash of the fingerprint, so a state is expanded again when it is reached
+ * in fewer reductions, the same as with the other stores. Depths of states
+ * sharing an entry overwrite each other, which only changes which states
+ * are expanded again. The depth does not take part in hashing, so the
+ * probability of collisions does not grow with the depth bound. Both
+ * arrays are indexed by long positions and the depth table is split into
+ * chunks, so the number of states is limited only by available memory.
+ * @author Dagmar Prokopova
+ */
+class BitstateVisitedSet implements VisitedSet {
+
+    //maximal depth which can be stored
+    static final int MAX_DEPTH = 255;
+
+    //number of bits per expected state
+    private static final int BITS_PER_STATE = 8;
+
+    //number of bits set for each state
+    private static final int HASHES = 3;
+
+    //binary logarithm of the number of entries per chunk of the depth table
+    private static final int CHUNK_BITS = 30;
+
+    //bit array
+    private final long[] bits;
+
+    //number of bits of the array
+    private final long size;
+
+    //chunks of the table of minimal depths of states
+    private final byte[][] depths;
+
+    //number of entries of the depth table
+    private final long slots;
+
+    /**
+     * Creates filter for specified number of states.
+     * @param states expected number of states
+     */
+    BitstateVisitedSet(int states) {
+        slots = Math.max(1, states);
+        bits = new long[(int) ((slots * BITS_PER_STATE + 63) / 64)];
+        size = (long) bits.length * 64;
+        depths = new byte[(int) (((slots - 1) >>> CHUNK_BITS) + 1)][];
+        for (int i = 0; i < depths.length; i++) {
+            depths[i] = new byte[(int) Math.min(1L << CHUNK_BITS, slots - ((long) i << CHUNK_BITS))];
+        }
+    }
+
+    @Override
+    public int get(Fingerprint fp) {
+        for (int i = 0; i < HASHES; i++) {
+            long bit = getBit(fp, i);
+            if ((bits[(int) (bit >>> 6)] & (1L << bit)) == 0) {
+                return UNVISITED;
+            }
+        }
+        long slot = getSlot(fp);
+        return depths[(int) (slot >>> CHUNK_BITS)][(int) (slot & ((1 << CHUNK_BITS) - 1))] & 0xff;
+    }
+
+    @Override
+    public void put(Fingerprint fp, int depth) {
+        for (int i = 0; i < HASHES; i++) {
+            long bit = getBit(fp, i);
+            bits[(int) (bit >>> 6)] |= 1L << bit;
+        }
+        long slot = getSlot(fp);
+        depths[(int) (slot >>> CHUNK_BITS)][(int) (slot & ((1 << CHUNK_BITS) - 1))] = (byte) depth;
+    }
+
+    /**
+     * Returns position of the bit selected by specified hash function, the
+     * functions are combined from both halves of the fingerprint.
+     * @param fp fingerprint of the state
+     * @param i number of the hash function
+     * @return position of the bit
+     */
+    private long getBit(Fingerprint fp, int i) {
+        return Long.remainderUnsigned(fp.getHigh() + i * (fp.getLow() | 1), size);
+    }
+
+    /**
+     * Returns entry of the depth table for the state, which is selected by
+     * the other half of the fingerprint than the bits.
+     * @param fp fingerprint of the state
+     * @return position in the depth table
+     */
+    private long getSlot(Fingerprint fp) {
+        return Long.remainderUnsigned(fp.getLow(), slots);
+    }
+
+    @Override
+    public boolean isPartial() {
+        return true;
+    }
+
+    @Override
+    public void clear() {
+        Arrays.fill(bits, 0L);
+        for (byte[] chunk : depths) {
+            Arrays.fill(chunk, (byte) 0);
+        }
+    }
+
+    @Override
+    public void save(ObjectOutputStream out, CheckpointSegments segs) throws IOException {
+        //bits of new states are spread over the whole filter, so it is written whole
+        String name = segs.create();
+        try (DataOutputStream seg = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(segs.get(name))))) {
+            for (long word : bits) {
+                seg.writeLong(word);
+            }
+            for (byte[] chunk : depths) {
+                seg.write(chunk);
+            }
+        }
+        out.writeUTF(name);
+    }
+
+    @Override
+    public void load(ObjectInputStream in, CheckpointSegments segs) throws IOException {
+        try (DataInputStream seg = new DataInputStream(new BufferedInputStream(Files.newInputStream(segs.get(in.readUTF()))))) {
+            for (int i = 0; i < bits.length; i++) {
+                bits[i] = seg.readLong();
+            }
+            for (byte[] chunk : depths) {
+                seg.readFully(chunk);
+            }
+        }
+    }
+
+    @Override
+    public void close() {
+        clear();
+    }
+}
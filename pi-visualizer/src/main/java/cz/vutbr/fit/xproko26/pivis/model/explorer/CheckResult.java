@@ -0,0 +1,233 @@
+/*
+ * Copyright 2017 Dagmar Prokopova <xproko26@stud.fit.vutbr.cz>.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package cz.vutbr.fit.xproko26.pivis.model.explorer;
+
+import java.util.List;
+
+/**
+ * CheckResult holds outcome of the reachability check of a property. If the
+ * property is reachable, it contains the shortest witness trace, i.e. the
+ * sequence of reductions leading from the checked expression to a state
+ * satisfying the property. Otherwise it tells whether all reachable states
+ * were explored or which bound stopped the search.
+ * @author Dagmar Prokopova
+ */
+public class CheckResult {
+
+    /**
+     * Outcomes of the check.
+     */
+    public enum Outcome {
+        //property is reachable, witness trace is available
+        REACHABLE,
+        //property is not reachable from the expression at all
+        UNREACHABLE,
+        //property is not reachable within the depth bound
+        DEPTH_BOUND,
+        //search was stopped by the state bound
+        STATE_BOUND
+    }
+
+    //checked property
+    private final Property property;
+
+    //outcome of the check
+    private final Outcome outcome;
+
+    //witness trace, null if the property was not reached
+    private final List<Step> trace;
+
+    //depth explored by the last iteration
+    private final int depth;
+
+    //number of distinct states of the last iteration
+    private final long states;
+
+    //flag indicating that part of the state space may have been skipped
+    private final boolean partial;
+
+    /**
+     * Constructor which initializes values of the result of a check with
+     * full coverage.
+     * @param p checked property
+     * @param o outcome
+     * @param t witness trace or null
+     * @param d explored depth
+     * @param s number of explored states
+     */
+    CheckResult(Property p, Outcome o, List<Step> t, int d, long s) {
+        this(p, o, t, d, s, false);
+    }
+
+    /**
+     * Constructor which initializes all values of the result.
+     * @param p checked property
+     * @param o outcome
+     * @param t witness trace or null
+     * @param d explored depth
+     * @param s number of explored states
+     * @param pc true if the coverage may be partial
+     */
+    CheckResult(Property p, Outcome o, List<Step> t, int d, long s, boolean pc) {
+        property = p;
+        outcome = o;
+        trace = t;
+        depth = d;
+        states = s;
+        partial = pc;
+    }
+
+    /**
+     * Returns checked property.
+     * @return property
+     */
+    public Property getProperty() {
+        return property;
+    }
+
+    /**
+     * Returns outcome of the check.
+     * @return outcome
+     */
+    public Outcome getOutcome() {
+        return outcome;
+    }
+
+    /**
+     * Returns witness trace.
+     * @return steps leading to the property or null if it was not reached
+     */
+    public List<Step> getTrace() {
+        return trace;
+    }
+
+    /**
+     * Returns depth explored by the last iteration of the search.
+     * @return explored depth
+     */
+    public int getDepth() {
+        return depth;
+    }
+
+    /**
+     * Returns number of distinct states explored by the last iteration.
+     * @return number of states
+     */
+    public long getStates() {
+        return states;
+    }
+
+    /**
+     * Returns true if part of the state space may have been skipped, so that
+     * the property may be reachable although it was not reached.
+     * @return true if the coverage may be partial
+     */
+    public boolean isPartial() {
+        return partial;
+    }
+
+    /**
+     * Returns textual description of the result including the witness trace.
+     * @return description
+     */
+    public String getString() {
+        StringBuilder sb = new StringBuilder();
+        switch (outcome) {
+            case REACHABLE:
+                if (trace.isEmpty()) {
+                    sb.append(property).append(" holds in the current expression.");
+                } else {
+                    sb.append(property).append(" is reachable in ").append(trace.size())
+                            .append(trace.size() == 1 ? " step" : " steps")
+                            .append(" (").append(states).append(" states explored):");
+                    for (int i = 0; i < trace.size(); i++) {
+                        Step step = trace.get(i);
+                        sb.append('\n').append(i + 1).append(". ").append(step.getLabel())
+                                .append(" -> ").append(step.getExpression());
+                    }
+                }
+                break;
+            case UNREACHABLE:
+                sb.append(property).append(" is not reachable, all ").append(states)
+                        .append(" states were explored.");
+                break;
+            case DEPTH_BOUND:
+                sb.append(property).append(" is not reachable within ").append(depth)
+                        .append(" steps (").append(states).append(" states explored).");
+                break;
+            default:
+                sb.append(property).append(" was not reached before exploring ").append(states)
+                        .append(" states (depth ").append(depth).append(").");
+                break;
+        }
+        if (partial && outcome != Outcome.REACHABLE) {
+            sb.append("\nBitstate hashing may have skipped some states, coverage is partial.");
+        }
+        return sb.toString();
+    }
+
+    /**
+     * Step is one reduction of the witness trace.
+     */
+    public static class Step {
+
+        //position of the reduction in reduction list of the previous state
+        private final int index;
+
+        //label of the reduction, tau or the channel
+        private final String label;
+
+        //simplified expression after the reduction
+        private final String expression;
+
+        /**
+         * Creates step of the trace.
+         * @param i position of the reduction in reduction list
+         * @param l label of the reduction
+         * @param e expression after the reduction
+         */
+        Step(int i, String l, String e) {
+            index = i;
+            label = l;
+            expression = e;
+        }
+
+        /**
+         * Returns position of the reduction in reduction list of the
+         * previous state.
+         * @return index into reduction list
+         */
+        public int getIndex() {
+            return index;
+        }
+
+        /**
+         * Returns label of the reduction.
+         * @return tau or channel of the communication
+         */
+        public String getLabel() {
+            return label;
+        }
+
+        /**
+         * Returns simplified expression after the reduction.
+         * @return expression text
+         */
+        public String getExpression() {
+            return expression;
+        }
+    }
+}
@@ -0,0 +1,201 @@
+/*
+ * Copyright 2017 Dagmar Prokopova <xproko26@stud.fit.vutbr.cz>.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package cz.vutbr.fit.xproko26.pivis.model.explorer;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.stream.Stream;
+
+/**
+ * CheckpointSegments is a directory of files holding visited states of
+ * checkpoints. Segments are never changed once written, so a checkpoint
+ * references segments of the previous one and writes only new states into
+ * new segments. Segments which are not referenced by the last written
+ * checkpoint are deleted once it is complete, so the previous checkpoint
+ * survives a crash while writing. New segments are forced to the storage
+ * device before the checkpoint referencing them replaces the previous one.
+ * @author Dagmar Prokopova
+ */
+class CheckpointSegments {
+
+    //directory of the segments
+    private final Path dir;
+
+    //segments referenced by the checkpoint being written
+    private final Set<String> referenced = new HashSet<>();
+
+    //segments created by the checkpoint being written
+    private final Set<String> created = new HashSet<>();
+
+    /**
+     * Creates segments in specified directory.
+     * @param d directory of the segments
+     */
+    CheckpointSegments(File d) {
+        dir = d.toPath();
+    }
+
+    /**
+     * Starts writing of a new checkpoint, no segment is referenced by it.
+     * @throws IOException if the directory could not be created
+     */
+    void begin() throws IOException {
+        Files.createDirectories(dir);
+        referenced.clear();
+        created.clear();
+    }
+
+    /**
+     * Creates new empty segment referenced by the checkpoint being written.
+     * @return name of the segment
+     * @throws IOException if the segment could not be created
+     */
+    String create() throws IOException {
+        String name = Files.createTempFile(dir, "segment", ".bin").getFileName().toString();
+        referenced.add(name);
+        created.add(name);
+        return name;
+    }
+
+    /**
+     * Creates new segment with the content of an immutable file, which is
+     * linked if possible and copied otherwise.
+     * @param file immutable file
+     * @return name of the segment
+     * @throws IOException if the segment could not be created
+     */
+    String add(Path file) throws IOException {
+        String name = create();
+        link(file, get(name));
+        return name;
+    }
+
+    /**
+     * Marks segment of the previous checkpoint referenced by the checkpoint
+     * being written.
+     * @param name name of the segment
+     */
+    void keep(String name) {
+        referenced.add(name);
+    }
+
+    /**
+     * Returns path of the segment.
+     * @param name name of the segment
+     * @return path of the segment
+     */
+    Path get(String name) {
+        return dir.resolve(name);
+    }
+
+    /**
+     * Creates file with the content of the segment, which is linked if
+     * possible and copied otherwise.
+     * @param name name of the segment
+     * @param file created file
+     * @throws IOException if the file could not be created
+     */
+    void restore(String name, Path file) throws IOException {
+        link(get(name), file);
+    }
+
+    /**
+     * Forces content of the segments created by the checkpoint being written
+     * and entries of the directory to the storage device.
+     * @throws IOException if the segments could not be forced
+     */
+    void force() throws IOException {
+        for (String name : created) {
+            try (FileChannel ch = FileChannel.open(get(name), StandardOpenOption.WRITE)) {
+                ch.force(true);
+            }
+        }
+        forceDirectory(dir);
+    }
+
+    /**
+     * Finishes writing of the checkpoint by deleting segments it does not
+     * reference. The checkpoint needs to be forced to the storage device
+     * beforehand.
+     */
+    void commit() {
+        try (Stream<Path> list = Files.list(dir)) {
+            list.filter(f -> !referenced.contains(f.getFileName().toString())).forEach(CheckpointSegments::delete);
+        } catch (IOException ex) {
+            //segments are deleted by the next checkpoint
+        }
+    }
+
+    /**
+     * Deletes all segments together with the directory.
+     */
+    void delete() {
+        referenced.clear();
+        created.clear();
+        if (Files.isDirectory(dir)) {
+            commit();
+            delete(dir);
+        }
+    }
+
+    /**
+     * Forces entries of the directory to the storage device, so that created
+     * and moved files survive a crash.
+     * @param d directory
+     */
+    static void forceDirectory(Path d) {
+        try (FileChannel ch = FileChannel.open(d, StandardOpenOption.READ)) {
+            ch.force(true);
+        } catch (IOException ex) {
+            //directories cannot be opened on some platforms
+        }
+    }
+
+    /**
+     * Replaces the target by a hard link of the source or by its copy if
+     * the link cannot be created, e.g. on another file system.
+     * @param source source file
+     * @param target target file
+     * @throws IOException if the file could not be copied
+     */
+    private static void link(Path source, Path target) throws IOException {
+        Files.deleteIfExists(target);
+        try {
+            Files.createLink(target, source);
+        } catch (IOException | UnsupportedOperationException ex) {
+            Files.copy(source, target, StandardCopyOption.REPLACE_EXISTING);
+        }
+    }
+
+    /**
+     * Deletes the file.
+     * @param file file
+     */
+    private static void delete(Path file) {
+        try {
+            Files.deleteIfExists(file);
+        } catch (IOException ex) {
+            file.toFile().deleteOnExit();
+        }
+    }
+}
@@ -0,0 +1,541 @@
+/*
+ * Copyright 2017 Dagmar Prokopova <xproko26@stud.fit.vutbr.cz>.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package cz.vutbr.fit.xproko26.pivis.model.explorer;
+
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Stream;
+
+/**
+ * DiskVisitedSet keeps visited states in memory-mapped files, so that their
+ * number is not limited by the heap. Recently visited states are collected
+ * in a small buffer. When the buffer is full, its entries are sorted and
+ * written as runs of fixed-width entries, one run per partition given by the
+ * prefix of the fingerprint. A state is looked up by binary search in the
+ * runs of its partition. Runs of a partition are merged in the background
+ * whenever there are several runs of the same level, keeping the minimal
+ * depth of each state, so that each state is rewritten only a logarithmic
+ * number of times and the number of runs stays small.
+ * The files are stored in a temporary directory deleted when the set is
+ * closed. Runs are never changed once written, so checkpoints reference
+ * them as segments, which are linked or copied only once.
+ * @author Dagmar Prokopova
+ */
+class DiskVisitedSet implements VisitedSet {
+
+    //number of bits of the fingerprint selecting the partition
+    private static final int PARTITION_BITS = 4;
+
+    //number of entries buffered before they are written
+    private static final int BUFFER_SIZE = 1 << 18;
+
+    //number of runs of the same level which are merged
+    private static final int MERGE_RUNS = 4;
+
+    //level of runs which are too large to be merged
+    private static final int FINAL_LEVEL = Integer.MAX_VALUE;
+
+    //size of an entry in bytes, i.e. both halves of the fingerprint and depth
+    private static final int ENTRY_SIZE = 20;
+
+    //order of entries in the runs
+    private static final Comparator<Fingerprint> ORDER = (fp1, fp2) -> {
+        int cmp = Long.compareUnsigned(fp1.getHigh(), fp2.getHigh());
+        return (cmp != 0) ? cmp : Long.compareUnsigned(fp1.getLow(), fp2.getLow());
+    };
+
+    //directory of the run files
+    private final Path dir;
+
+    //partitions of the set
+    private final Partition[] partitions;
+
+    //entries which were not written yet
+    private final Map<Fingerprint, Integer> buffer = new HashMap<>();
+
+    //executor merging runs in the background
+    private final ExecutorService merger;
+
+    //merges which were not finished yet
+    private final Queue<Future<?>> merges = new ConcurrentLinkedQueue<>();
+
+    //number of created run files
+    private final AtomicInteger files = new AtomicInteger();
+
+    //failure of the background merge
+    private volatile IOException failure;
+
+    //segments of the checkpoints holding the runs indexed by run files
+    private final Map<Path, String> segments = new HashMap<>();
+
+    /**
+     * Creates empty set in a new temporary directory.
+     * @throws IOException if the directory could not be created
+     */
+    DiskVisitedSet() throws IOException {
+        dir = Files.createTempDirectory("pivis-visited");
+        partitions = new Partition[1 << PARTITION_BITS];
+        for (int i = 0; i < partitions.length; i++) {
+            partitions[i] = new Partition();
+        }
+        merger = Executors.newSingleThreadExecutor(r -> {
+            Thread t = new Thread(r, "pivis-visited-merger");
+            t.setDaemon(true);
+            return t;
+        });
+    }
+
+    @Override
+    public int get(Fingerprint fp) throws IOException {
+        checkFailure();
+        Integer depth = buffer.get(fp);
+        if (depth != null) {
+            //depths only decrease, so the buffered one is minimal
+            return depth;
+        }
+        int min = UNVISITED;
+        for (Run run : getPartition(fp).runs) {
+            int d = run.find(fp);
+            if (d != UNVISITED && (min == UNVISITED || d < min)) {
+                min = d;
+            }
+        }
+        return min;
+    }
+
+    @Override
+    public void put(Fingerprint fp, int depth) throws IOException {
+        buffer.put(fp, depth);
+        if (buffer.size() >= BUFFER_SIZE) {
+            flush();
+        }
+    }
+
+    @Override
+    public boolean isPartial() {
+        return false;
+    }
+
+    @Override
+    public void clear() throws IOException {
+        await();
+        buffer.clear();
+        segments.clear();
+        for (Partition p : partitions) {
+            for (Run run : p.runs) {
+                delete(run.file);
+            }
+            p.runs = Collections.emptyList();
+        }
+    }
+
+    @Override
+    public void save(ObjectOutputStream out, CheckpointSegments segs) throws IOException {
+        flush();
+        await();
+        Map<Path, String> saved = new HashMap<>();
+        for (Partition p : partitions) {
+            List<Run> runs = p.runs;
+            out.writeInt(runs.size());
+            for (Run run : runs) {
+                String name = segments.get(run.file);
+                if (name == null) {
+                    //mapped run is written to the file before it is linked
+                    run.buf.force();
+                    name = segs.add(run.file);
+                } else {
+                    segs.keep(name);
+                }
+                saved.put(run.file, name);
+                out.writeInt(run.level);
+                out.writeInt(run.count);
+                out.writeUTF(name);
+            }
+        }
+        //segments of merged runs are not referenced any more
+        segments.clear();
+        segments.putAll(saved);
+    }
+
+    @Override
+    public void load(ObjectInputStream in, CheckpointSegments segs) throws IOException {
+        for (Partition p : partitions) {
+            int size = in.readInt();
+            List<Run> runs = new ArrayList<>(size);
+            for (int i = 0; i < size; i++) {
+                int level = in.readInt();
+                int count = in.readInt();
+                String name = in.readUTF();
+                Path file = createFile();
+                segs.restore(name, file);
+                Run run = mapRun(file, count, level);
+                segments.put(run.file, name);
+                runs.add(run);
+            }
+            synchronized (p) {
+                p.runs = Collections.unmodifiableList(runs);
+                scheduleMerge(p);
+            }
+        }
+    }
+
+    @Override
+    public void close() {
+        try {
+            clear();
+        } catch (IOException ex) {
+            //files are deleted regardless
+        }
+        merger.shutdownNow();
+        try (Stream<Path> list = Files.list(dir)) {
+            list.forEach(DiskVisitedSet::delete);
+        } catch (IOException ex) {
+            //directory is already gone
+        }
+        delete(dir);
+    }
+
+    /**
+     * Writes buffered entries as sorted runs of their partitions and starts
+     * merging of partitions with too many runs.
+     * @throws IOException if a run could not be written
+     */
+    void flush() throws IOException {
+        checkFailure();
+        List<Fingerprint> entries = new ArrayList<>(buffer.keySet());
+        entries.sort(ORDER);
+        int from = 0;
+        while (from < entries.size()) {
+            Partition p = getPartition(entries.get(from));
+            int to = from;
+            while (to < entries.size() && getPartition(entries.get(to)) == p) {
+                to++;
+            }
+            Run run = createRun(to - from, 0);
+            for (int i = from; i < to; i++) {
+                run.write(i - from, entries.get(i), buffer.get(entries.get(i)));
+            }
+            synchronized (p) {
+                List<Run> runs = new ArrayList<>(p.runs);
+                runs.add(run);
+                p.runs = Collections.unmodifiableList(runs);
+                scheduleMerge(p);
+            }
+            from = to;
+        }
+        buffer.clear();
+    }
+
+    /**
+     * Waits until all background merges are finished.
+     * @throws IOException if a merge failed
+     */
+    void await() throws IOException {
+        Future<?> f;
+        while ((f = merges.poll()) != null) {
+            try {
+                f.get();
+            } catch (InterruptedException ex) {
+                Thread.currentThread().interrupt();
+                throw new IOException("Error: Exploration was interrupted.", ex);
+            } catch (ExecutionException ex) {
+                throw new IOException("Error: Visited states could not be merged on disk.", ex.getCause());
+            }
+        }
+        checkFailure();
+    }
+
+    /**
+     * Starts merging of the partition if it has enough runs of the same level
+     * and it is not being merged already. Must be called with the partition
+     * locked.
+     * @param p partition
+     */
+    private void scheduleMerge(Partition p) {
+        if (!p.merging && getMergeLevel(p.runs) >= 0) {
+            p.merging = true;
+            merges.add(merger.submit(() -> merge(p)));
+        }
+    }
+
+    /**
+     * Returns the lowest level with enough runs to be merged.
+     * @param runs runs of a partition
+     * @return level or -1 if no runs should be merged
+     */
+    private static int getMergeLevel(List<Run> runs) {
+        Map<Integer, Integer> counts = new HashMap<>();
+        int level = -1;
+        for (Run run : runs) {
+            int c = counts.merge(run.level, 1, Integer::sum);
+            if (c >= MERGE_RUNS && run.level != FINAL_LEVEL && (level < 0 || run.level < level)) {
+                level = run.level;
+            }
+        }
+        return level;
+    }
+
+    /**
+     * Merges runs of the lowest level with enough runs into one run of the
+     * next level. Runs added while merging are kept.
+     * @param p partition
+     */
+    private void merge(Partition p) {
+        List<Run> inputs = new ArrayList<>();
+        try {
+            long total = 0;
+            synchronized (p) {
+                int level = getMergeLevel(p.runs);
+                for (Run run : p.runs) {
+                    if (run.level == level) {
+                        inputs.add(run);
+                        total += run.count;
+                    }
+                }
+                if (total * ENTRY_SIZE > Integer.MAX_VALUE) {
+                    //merged run could not be mapped, the runs are kept
+                    inputs.forEach(run -> run.level = FINAL_LEVEL);
+                    return;
+                }
+            }
+            Run merged = createRun(mergeRuns(inputs, null), inputs.get(0).level + 1);
+            mergeRuns(inputs, merged);
+            synchronized (p) {
+                List<Run> runs = new ArrayList<>(p.runs);
+                runs.removeAll(inputs);
+                runs.add(merged);
+                p.runs = Collections.unmodifiableList(runs);
+            }
+            for (Run run : inputs) {
+                delete(run.file);
+            }
+        } catch (IOException ex) {
+            failure = new IOException("Error: Visited states could not be merged on disk.", ex);
+        } finally {
+            synchronized (p) {
+                p.merging = false;
+                if (failure == null) {
+                    scheduleMerge(p);
+                }
+            }
+        }
+    }
+
+    /**
+     * Merges sorted runs keeping the minimal depth of each state. If the
+     * output run is null, entries are only counted.
+     * @param inputs merged runs
+     * @param out output run or null
+     * @return number of merged entries
+     */
+    private static int mergeRuns(List<Run> inputs, Run out) {
+        int[] heads = new int[inputs.size()];
+        int count = 0;
+        while (true) {
+            //find the least entry among heads of the runs
+            Fingerprint min = null;
+            for (int i = 0; i < heads.length; i++) {
+                Run run = inputs.get(i);
+                if (heads[i] < run.count) {
+                    Fingerprint fp = run.getFingerprint(heads[i]);
+                    if (min == null || ORDER.compare(fp, min) < 0) {
+                        min = fp;
+                    }
+                }
+            }
+            if (min == null) {
+                return count;
+            }
+            int depth = Integer.MAX_VALUE;
+            for (int i = 0; i < heads.length; i++) {
+                Run run = inputs.get(i);
+                if (heads[i] < run.count && run.getFingerprint(heads[i]).equals(min)) {
+                    depth = Math.min(depth, run.getDepth(heads[i]));
+                    heads[i]++;
+                }
+            }
+            if (out != null) {
+                out.write(count, min, depth);
+            }
+            count++;
+        }
+    }
+
+    /**
+     * Creates new run file mapped into memory.
+     * @param count number of entries of the run
+     * @param level number of merges the entries went through
+     * @return run
+     * @throws IOException if the file could not be created
+     */
+    private Run createRun(int count, int level) throws IOException {
+        Path file = createFile();
+        try {
+            Files.createFile(file);
+        } catch (IOException ex) {
+            throw new IOException("Error: Visited states could not be stored on disk.", ex);
+        }
+        return mapRun(file, count, level);
+    }
+
+    /**
+     * Returns path of a new run file.
+     * @return path of the file
+     */
+    private Path createFile() {
+        return dir.resolve("run" + files.incrementAndGet() + ".bin");
+    }
+
+    /**
+     * Maps run file into memory.
+     * @param file run file
+     * @param count number of entries of the run
+     * @param level number of merges the entries went through
+     * @return run
+     * @throws IOException if the file could not be mapped
+     */
+    private static Run mapRun(Path file, int count, int level) throws IOException {
+        try (FileChannel ch = FileChannel.open(file, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            return new Run(file, ch.map(FileChannel.MapMode.READ_WRITE, 0, (long) count * ENTRY_SIZE), count, level);
+        } catch (IOException ex) {
+            throw new IOException("Error: Visited states could not be stored on disk.", ex);
+        }
+    }
+
+    /**
+     * Returns partition of the state given by prefix of its fingerprint.
+     * @param fp fingerprint of the state
+     * @return partition
+     */
+    private Partition getPartition(Fingerprint fp) {
+        return partitions[(int) (fp.getHigh() >>> (64 - PARTITION_BITS))];
+    }
+
+    /**
+     * Throws failure of the background merge if there was any.
+     * @throws IOException failure of the merge
+     */
+    private void checkFailure() throws IOException {
+        if (failure != null) {
+            throw failure;
+        }
+    }
+
+    /**
+     * Deletes the file. Mapped files which cannot be deleted yet are deleted
+     * when the application exits.
+     * @param file file
+     */
+    private static void delete(Path file) {
+        try {
+            Files.deleteIfExists(file);
+        } catch (IOException ex) {
+            file.toFile().deleteOnExit();
+        }
+    }
+
+    /**
+     * Partition holds runs of states with the same prefix of fingerprint.
+     */
+    private static class Partition {
+
+        //runs of the partition
+        private volatile List<Run> runs = Collections.emptyList();
+
+        //flag indicating that the partition is being merged
+        private boolean merging;
+    }
+
+    /**
+     * Run is a file of entries sorted by fingerprints mapped into memory.
+     */
+    private static class Run {
+
+        //run file
+        private final Path file;
+
+        //mapped content of the file
+        private final MappedByteBuffer buf;
+
+        //number of entries
+        private final int count;
+
+        //number of merges the entries went through, guarded by the partition
+        private int level;
+
+        Run(Path f, MappedByteBuffer b, int c, int l) {
+            file = f;
+            buf = b;
+            count = c;
+            level = l;
+        }
+
+        /**
+         * Returns depth of the state or UNVISITED if it is not in the run.
+         * @param fp fingerprint of the state
+         * @return depth or UNVISITED
+         */
+        int find(Fingerprint fp) {
+            int low = 0;
+            int high = count - 1;
+            while (low <= high) {
+                int mid = (low + high) >>> 1;
+                int cmp = ORDER.compare(getFingerprint(mid), fp);
+                if (cmp < 0) {
+                    low = mid + 1;
+                } else if (cmp > 0) {
+                    high = mid - 1;
+                } else {
+                    return getDepth(mid);
+                }
+            }
+            return UNVISITED;
+        }
+
+        Fingerprint getFingerprint(int i) {
+            return new Fingerprint(buf.getLong(i * ENTRY_SIZE), buf.getLong(i * ENTRY_SIZE + 8));
+        }
+
+        int getDepth(int i) {
+            return buf.getInt(i * ENTRY_SIZE + 16);
+        }
+
+        void write(int i, Fingerprint fp, int depth) {
+            buf.putLong(i * ENTRY_SIZE, fp.getHigh());
+            buf.putLong(i * ENTRY_SIZE + 8, fp.getLow());
+            buf.putInt(i * ENTRY_SIZE + 16, depth);
+        }
+    }
+}
@@ -0,0 +1,775 @@
+/*
+ * Copyright 2017 Dagmar Prokopova <xproko26@stud.fit.vutbr.cz>.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package cz.vutbr.fit.xproko26.pivis.model.explorer;
+
+import cz.vutbr.fit.xproko26.pivis.model.Data;
+import cz.vutbr.fit.xproko26.pivis.model.Model;
+import cz.vutbr.fit.xproko26.pivis.model.Snapshots;
+import cz.vutbr.fit.xproko26.pivis.model.Speculator;
+import cz.vutbr.fit.xproko26.pivis.model.redmanager.IOReduction;
+import cz.vutbr.fit.xproko26.pivis.model.redmanager.Reduction;
+import cz.vutbr.fit.xproko26.pivis.model.redmanager.ReductionManager;
+import cz.vutbr.fit.xproko26.pivis.model.redmanager.TReduction;
+import cz.vutbr.fit.xproko26.pivis.model.simplifier.Simplifier;
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.Serializable;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.EnumSet;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Callable;
+
+/**
+ * Explorer is a singleton class which checks whether a state satisfying
+ * given property is reachable from the visualized expression. The state space
+ * is searched by iterative deepening, so that the witness trace found is the
+ * shortest one. Each reduction is executed on its own copy of model data
+ * restored from the snapshot of the previous state and the result is
+ * simplified, the same way as the user would do it. Visited states are
+ * recognized by fingerprints of their structural encoding, which does not
+ * depend on the identifiers of names created during the exploration.
+ * With partial-order reduction, only ample sets of independent reductions
+ * are explored in states where such a set exists (see {@link PartialOrder
+ * PartialOrder}). Deadlocks and barbs reachable in the full state space stay
+ * reachable, but the witness of a barb may be longer, so the depth bound
+ * may have to be increased. Visited states are kept on the heap, on disk for
+ * state spaces which do not fit in memory, or in a bitstate filter, which
+ * needs only a few bytes per state but may skip part of the state space (see
+ * {@link VisitedSet VisitedSet}). With symmetry reduction, states which
+ * differ only in the order of parallel processes, e.g. replication copies or
+ * instances of the same agent, are identified, so only one of them is
+ * explored. Long checks can write checkpoints and be resumed after a crash.
+ * The reachable part of the state space can also be exported as a labelled
+ * transition system for external verification tools.
+ * Checks and exports can be prepared as tasks run by another thread, which
+ * can be interrupted to cancel them. Only one of them may run at a time.
+ * The visualized expression itself is never changed.
+ * @author Dagmar Prokopova
+ */
+public class Explorer {
+
+    //default maximal length of the witness trace
+    public static final int DEFAULT_DEPTH = 20;
+
+    //default maximal number of distinct states
+    public static final int DEFAULT_STATES = 100000;
+
+    //file the checkpoint of the running check is written to
+    public static final File CHECKPOINT_FILE = new File("pivis-check.ckpt");
+
+    //directory the visited states of the checkpoint are written to
+    private static final File SEGMENT_DIR = new File("pivis-check.segments");
+
+    //time between checkpoints in milliseconds
+    private static final long CHECKPOINT_PERIOD = 60000;
+
+    /**
+     * Options of the exploration.
+     */
+    public enum Option {
+        //explore ample sets of independent reductions only
+        PARTIAL_ORDER,
+        //identify states equal up to the order of parallel processes
+        SYMMETRY,
+        //store visited states on disk instead of the heap
+        DISK,
+        //store only a few bytes per visited state, coverage may be partial
+        BITSTATE,
+        //write checkpoints the check can be resumed from
+        CHECKPOINT
+    }
+
+    /**
+     * Formats of the exported labelled transition system.
+     */
+    public enum LtsFormat {
+        //Aldebaran format of CADP and mCRL2
+        AUT("aut"),
+        //DOT format of Graphviz
+        DOT("dot");
+
+        //extension of the file
+        private final String extension;
+
+        LtsFormat(String ext) {
+            extension = ext;
+        }
+
+        /**
+         * Returns extension of the file in this format.
+         * @return extension
+         */
+        public String getExtension() {
+            return extension;
+        }
+    }
+
+    //singleton instance of Explorer class
+    private static Explorer instance;
+
+    //encoder of the explored states
+    private final StateEncoder encoder;
+
+    //selector of ample sets
+    private final PartialOrder partialorder;
+
+    //simplifier of the successors, not shared with the event dispatch thread
+    private final Simplifier simplifier;
+
+    //options of the running check
+    private Set<Option> options;
+
+    //segments of the checkpoint
+    private final CheckpointSegments segments = new CheckpointSegments(SEGMENT_DIR);
+
+    /**
+     * Private constructor which creates state encoder, ample set selector and
+     * simplifier of the successors.
+     */
+    private Explorer() {
+        encoder = new StateEncoder();
+        partialorder = new PartialOrder();
+        simplifier = new Simplifier();
+    }
+
+    /**
+     * Method for accessing the singleton instance.
+     * @return instance of Explorer class
+     */
+    public static Explorer getInstance() {
+        if(instance == null) {
+            instance = new Explorer();
+        }
+        return instance;
+    }
+
+    /**
+     * Checks whether a state satisfying the property is reachable from
+     * the visualized expression in at most specified number of reductions.
+     * @param prop checked property
+     * @param depth maximal number of reductions
+     * @param states maximal number of distinct states
+     * @return result of the check
+     * @throws Exception if there is no expression or it is too deep
+     */
+    public CheckResult check(Property prop, int depth, int states) throws Exception {
+        return check(prop, depth, states, EnumSet.noneOf(Option.class));
+    }
+
+    /**
+     * Checks whether a state satisfying the property is reachable from
+     * the visualized expression in at most specified number of reductions
+     * using specified options of the exploration.
+     * @param prop checked property
+     * @param depth maximal number of reductions
+     * @param states maximal number of distinct states
+     * @param opts options of the exploration
+     * @return result of the check
+     * @throws Exception if there is no expression or it is too deep
+     */
+    public CheckResult check(Property prop, int depth, int states, Set<Option> opts) throws Exception {
+        return prepareCheck(prop, depth, states, opts).call();
+    }
+
+    /**
+     * Prepares the check of the property, so that it can be run in another
+     * thread. The visualized expression is taken into a snapshot by the
+     * calling thread, the returned task does not access the model any more.
+     * The task stops with an exception if its thread is interrupted.
+     * @param prop checked property
+     * @param depth maximal number of reductions
+     * @param states maximal number of distinct states
+     * @param opts options of the exploration
+     * @return task performing the check
+     * @throws Exception if there is no expression or it is too deep
+     */
+    public Callable<CheckResult> prepareCheck(Property prop, int depth, int states, Set<Option> opts) throws Exception {
+        byte[] snapshot = takeSnapshot("Warning: No expression to check.");
+        if (opts.contains(Option.DISK) && opts.contains(Option.BITSTATE)) {
+            throw new Exception("Error: Options disk and bitstate cannot be combined.");
+        }
+        if (opts.contains(Option.BITSTATE) && depth > BitstateVisitedSet.MAX_DEPTH) {
+            throw new Exception("Error: Depth of bitstate check cannot exceed " + BitstateVisitedSet.MAX_DEPTH + ".");
+        }
+        Progress progress = new Progress(prop, depth, states, opts);
+        return () -> {
+            setOptions(progress.options);
+            VisitedSet visited = createVisitedSet(progress);
+            try {
+                progress.root = createState(Snapshots.restore(snapshot).getData(), prop);
+                if (progress.root.isSatisfied()) {
+                    return new CheckResult(prop, CheckResult.Outcome.REACHABLE, new ArrayList<>(), 0, 1);
+                }
+                return search(progress, visited);
+            } catch (StackOverflowError ex) {
+                //serialization and traversals recurse, so expressions too deep cannot be checked
+                throw new Exception("Error: Expression is too deep to be checked.");
+            } finally {
+                visited.close();
+            }
+        };
+    }
+
+    /**
+     * Resumes the check interrupted after the last checkpoint was written.
+     * The search continues from the saved state of the depth-first search
+     * with saved visited states, so completed iterations are not explored
+     * again and the result is the same as if the check was not interrupted.
+     * @return result of the check
+     * @throws Exception if there is no checkpoint or it cannot be read
+     */
+    public CheckResult resume() throws Exception {
+        if (!CHECKPOINT_FILE.exists()) {
+            throw new Exception("Warning: No checkpoint to resume.");
+        }
+        Progress progress;
+        VisitedSet visited;
+        try (ObjectInputStream in = new ObjectInputStream(new BufferedInputStream(new FileInputStream(CHECKPOINT_FILE)))) {
+            progress = (Progress) in.readObject();
+            setOptions(progress.options);
+            visited = createVisitedSet(progress);
+            try {
+                visited.load(in, segments);
+            } catch (IOException ex) {
+                visited.close();
+                throw ex;
+            }
+        } catch (IOException | ClassNotFoundException ex) {
+            throw new Exception("Error: Checkpoint " + CHECKPOINT_FILE + " could not be read.");
+        }
+        try {
+            return search(progress, visited);
+        } catch (StackOverflowError ex) {
+            //serialization and traversals recurse, so expressions too deep cannot be checked
+            throw new Exception("Error: Expression is too deep to be checked.");
+        } finally {
+            visited.close();
+        }
+    }
+
+    /**
+     * Exports states reachable from the visualized expression as a labelled
+     * transition system. States are explored by breadth-first search and
+     * each is expanded once, transitions are labelled by tau or the channel
+     * of the communication and equal transitions are written only once. The
+     * file is written while exploring, so only the fingerprints of visited
+     * states and the snapshots of the current and next layer are kept in
+     * memory. States in specified depth are not expanded and no state is
+     * added after the bound of states is reached. Of the options, only
+     * symmetry reduction is used.
+     * @param format format of the file
+     * @param file output file
+     * @param depth maximal number of reductions
+     * @param states maximal number of distinct states
+     * @param opts options of the exploration
+     * @return summary of the export
+     * @throws Exception if there is no expression or the file could not be written
+     */
+    public String exportLts(LtsFormat format, File file, int depth, int states, Set<Option> opts) throws Exception {
+        return prepareLts(format, file, depth, states, opts).call();
+    }
+
+    /**
+     * Prepares the export of the labelled transition system, so that it can
+     * be run in another thread. The visualized expression is taken into
+     * a snapshot by the calling thread, the returned task does not access
+     * the model any more. The task stops with an exception if its thread is
+     * interrupted, an earlier file is kept then.
+     * @param format format of the file
+     * @param file output file
+     * @param depth maximal number of reductions
+     * @param states maximal number of distinct states
+     * @param opts options of the exploration
+     * @return task performing the export and returning its summary
+     * @throws Exception if there is no expression or it is too deep
+     */
+    public Callable<String> prepareLts(LtsFormat format, File file, int depth, int states, Set<Option> opts) throws Exception {
+        byte[] snapshot = takeSnapshot("Warning: No expression to export.");
+        Set<Option> used = opts.contains(Option.SYMMETRY) ? EnumSet.of(Option.SYMMETRY) : EnumSet.noneOf(Option.class);
+        return () -> {
+            setOptions(used);
+            try (LtsWriter lts = new LtsWriter(format, file)) {
+                boolean complete = explore(snapshot, lts, depth, states);
+                lts.finish();
+                return "LTS with " + lts.getStates() + " states and " + lts.getTransitions()
+                        + " transitions was exported to " + file + "."
+                        + (complete ? "" : " Exploration was stopped by the bounds, the LTS is not complete.");
+            } catch (IOException ex) {
+                throw new Exception("Error: LTS could not be written to " + file + ".");
+            } catch (StackOverflowError ex) {
+                //serialization and traversals recurse, so expressions too deep cannot be exported
+                throw new Exception("Error: Expression is too deep to be exported.");
+            }
+        };
+    }
+
+    /**
+     * Takes snapshot of the visualized expression.
+     * @param missing message of the exception thrown if there is no expression
+     * @return snapshot
+     * @throws Exception if there is no expression or it is too deep
+     */
+    private byte[] takeSnapshot(String missing) throws Exception {
+        Data data = Model.getInstance().getData();
+        if (data == null || data.getExpression() == null) {
+            throw new Exception(missing);
+        }
+        try {
+            return Snapshots.write(data, Collections.emptyList());
+        } catch (StackOverflowError ex) {
+            //serialization recurses, so expressions too deep cannot be explored
+            throw new Exception("Error: Expression is too deep to be checked.");
+        }
+    }
+
+    /**
+     * Throws exception if the thread running the exploration was interrupted,
+     * so that cancelled exploration stops as soon as possible.
+     * @throws Exception if the thread was interrupted
+     */
+    private void checkInterrupted() throws Exception {
+        if (Thread.currentThread().isInterrupted()) {
+            throw new Exception("Warning: Exploration was cancelled.");
+        }
+    }
+
+    /**
+     * Explores states by breadth-first search and writes them with their
+     * transitions. States are numbered in the order they are discovered.
+     * @param snapshot snapshot of the initial state
+     * @param lts writer of the transition system
+     * @param depth maximal number of reductions
+     * @param states maximal number of distinct states
+     * @return true if no state or transition was left out due to the bounds
+     * @throws Exception if a copy could not be created or the thread was interrupted
+     */
+    private boolean explore(byte[] snapshot, LtsWriter lts, int depth, int states) throws Exception {
+        State root = createState(Snapshots.restore(snapshot).getData(), null);
+        Map<Fingerprint, Integer> ids = new HashMap<>();
+        ids.put(root.getFingerprint(), 0);
+        lts.addState(root.getFingerprint());
+        boolean complete = true;
+        List<State> layer = Collections.singletonList(root);
+        for (int d = 0; !layer.isEmpty(); d++) {
+            if (d == depth) {
+                for (State state : layer) {
+                    complete &= state.getReductions() == 0;
+                }
+                break;
+            }
+            List<State> next = new ArrayList<>();
+            for (State state : layer) {
+                checkInterrupted();
+                int from = ids.get(state.getFingerprint());
+                //reductions of different processes may lead to the same transition
+                Set<String> written = new HashSet<>();
+                for (int index = 0; index < state.getReductions(); index++) {
+                    List<String> label = new ArrayList<>();
+                    State succ = createSuccessor(state, index, null, label);
+                    Integer to = ids.get(succ.getFingerprint());
+                    if (to == null) {
+                        if (ids.size() >= states) {
+                            complete = false;
+                            continue;
+                        }
+                        to = ids.size();
+                        ids.put(succ.getFingerprint(), to);
+                        lts.addState(succ.getFingerprint());
+                        next.add(succ);
+                    }
+                    if (written.add(label.get(0) + "\0" + to)) {
+                        lts.addTransition(from, state.getFingerprint(), label.get(0), to, succ.getFingerprint());
+                    }
+                }
+            }
+            layer = next;
+        }
+        return complete;
+    }
+
+    /**
+     * Sets options of the running check.
+     * @param opts options of the exploration
+     */
+    private void setOptions(Set<Option> opts) {
+        options = opts;
+        encoder.setSymmetric(opts.contains(Option.SYMMETRY));
+    }
+
+    /**
+     * Creates store of visited states selected by the options.
+     * @param progress progress of the check
+     * @return empty store of visited states
+     * @throws IOException if the store could not be created
+     */
+    private VisitedSet createVisitedSet(Progress progress) throws IOException {
+        if (options.contains(Option.DISK)) {
+            return new DiskVisitedSet();
+        } else if (options.contains(Option.BITSTATE)) {
+            return new BitstateVisitedSet(progress.maxstates);
+        }
+        return new MemoryVisitedSet();
+    }
+
+    /**
+     * Searches the state space by depth-first search with increasing depth
+     * bound. A state is expanded again only if it is reached in fewer
+     * reductions than before within the same iteration. If no state was cut
+     * off by the bound, the whole state space was explored. When a barb is
+     * checked and a reduction of the ample set leads to a visited state,
+     * all reductions of the state are explored, so that no reduction is
+     * postponed forever along a cycle. With checkpoints enabled, the progress
+     * is saved at the start of each iteration and periodically during it.
+     * @param progress progress of the check, either new or resumed
+     * @param visited store of visited states of the current iteration
+     * @return result of the check
+     * @throws Exception if a copy or a checkpoint could not be created or
+     * the thread was interrupted
+     */
+    private CheckResult search(Progress progress, VisitedSet visited) throws Exception {
+        Property prop = progress.prop;
+        boolean partial = visited.isPartial();
+        boolean checkpoints = options.contains(Option.CHECKPOINT);
+        long saved = System.currentTimeMillis();
+        for (; progress.bound <= progress.maxdepth; progress.bound++) {
+            if (progress.stack == null) {
+                visited.clear();
+                visited.put(progress.root.getFingerprint(), 0);
+                progress.count = 1;
+                progress.cut = false;
+                progress.stack = new ArrayDeque<>();
+                progress.stack.push(new Frame(progress.root, null, -1, null));
+                if (checkpoints) {
+                    saved = writeCheckpoint(progress, visited);
+                }
+            }
+
+            int bound = progress.bound;
+            Deque<Frame> stack = progress.stack;
+            while (!stack.isEmpty()) {
+                checkInterrupted();
+                if (checkpoints && System.currentTimeMillis() - saved >= CHECKPOINT_PERIOD) {
+                    saved = writeCheckpoint(progress, visited);
+                }
+                Frame frame = stack.peek();
+                if (frame.depth == bound || frame.next == frame.limit) {
+                    if (frame.depth == bound && frame.limit > 0) {
+                        progress.cut = true;
+                    }
+                    stack.pop();
+                    continue;
+                }
+
+                int index = frame.order[frame.next++];
+                List<String> label = new ArrayList<>(1);
+                State succ = createSuccessor(frame.state, index, prop, label);
+                int seen = visited.get(succ.getFingerprint());
+                if (seen != VisitedSet.UNVISITED && prop.getKind() != Property.Kind.DEADLOCK) {
+                    //expand the state fully
+                    frame.limit = frame.order.length;
+                }
+                if (seen != VisitedSet.UNVISITED && seen <= frame.depth + 1) {
+                    continue;
+                }
+                if (seen == VisitedSet.UNVISITED) {
+                    if (progress.count >= progress.maxstates) {
+                        return finish(new CheckResult(prop, CheckResult.Outcome.STATE_BOUND, null,
+                                bound, progress.count, partial));
+                    }
+                    progress.count++;
+                }
+                visited.put(succ.getFingerprint(), frame.depth + 1);
+
+                Frame child = new Frame(succ, frame, index, label.get(0));
+                if (succ.isSatisfied()) {
+                    return finish(new CheckResult(prop, CheckResult.Outcome.REACHABLE, getTrace(child),
+                            bound, progress.count, partial));
+                }
+                stack.push(child);
+            }
+
+            if (!progress.cut) {
+                return finish(new CheckResult(prop, CheckResult.Outcome.UNREACHABLE, null,
+                        bound, progress.count, partial));
+            }
+            progress.stack = null;
+        }
+        return finish(new CheckResult(prop, CheckResult.Outcome.DEPTH_BOUND, null,
+                progress.maxdepth, progress.count, partial));
+    }
+
+    /**
+     * Deletes the checkpoint of the finished check, so that it is not
+     * resumed again.
+     * @param result result of the check
+     * @return the same result
+     */
+    private CheckResult finish(CheckResult result) {
+        if (options.contains(Option.CHECKPOINT)) {
+            CHECKPOINT_FILE.delete();
+            segments.delete();
+        }
+        return result;
+    }
+
+    /**
+     * Writes progress of the check into the checkpoint file and visited
+     * states added since the previous checkpoint into its segments. The file
+     * is replaced only after the new checkpoint and its segments are forced to
+     * the storage device and segments of the previous one are deleted
+     * afterwards, so the previous one survives a crash while writing.
+     * @param progress progress of the check
+     * @param visited store of visited states
+     * @return time the checkpoint was written at
+     * @throws Exception if the checkpoint could not be written
+     */
+    private long writeCheckpoint(Progress progress, VisitedSet visited) throws Exception {
+        File tmp = new File(CHECKPOINT_FILE.getPath() + ".tmp");
+        try {
+            segments.begin();
+            try (FileOutputStream file = new FileOutputStream(tmp);
+                    ObjectOutputStream out = new ObjectOutputStream(new BufferedOutputStream(file))) {
+                out.writeObject(progress);
+                visited.save(out, segments);
+                out.flush();
+                segments.force();
+                file.getFD().sync();
+            }
+            Path target = CHECKPOINT_FILE.toPath().toAbsolutePath();
+            try {
+                Files.move(tmp.toPath(), target, StandardCopyOption.ATOMIC_MOVE);
+            } catch (AtomicMoveNotSupportedException ex) {
+                Files.move(tmp.toPath(), target, StandardCopyOption.REPLACE_EXISTING);
+            }
+            CheckpointSegments.forceDirectory(target.getParent());
+            segments.commit();
+        } catch (IOException ex) {
+            throw new Exception("Error: Checkpoint " + CHECKPOINT_FILE + " could not be written.");
+        }
+        return System.currentTimeMillis();
+    }
+
+    /**
+     * Executes reduction of the state on a copy restored from its snapshot
+     * and creates the successor state out of the simplified result.
+     * @param state reduced state
+     * @param index position of the reduction in reduction list of the state
+     * @param prop checked property or null
+     * @param label list the label of the reduction is added to
+     * @return successor state
+     * @throws Exception if the copy could not be created
+     */
+    private State createSuccessor(State state, int index, Property prop, List<String> label) throws Exception {
+        Speculator.Copy restored = Snapshots.restore(state.getSnapshot());
+        Data copy = restored.getData();
+        List<Reduction> redlist = restored.getReductionList();
+
+        //redirect model queries of this thread to the copy
+        Model.setLocalData(copy);
+        try {
+            Reduction red = redlist.get(index);
+            label.add(getLabel(red));
+            new ReductionManager().reduce(red);
+            simplifier.makeSimple(copy.getExpression());
+        } finally {
+            Model.setLocalData(null);
+        }
+        return createState(copy, prop);
+    }
+
+    /**
+     * Generates reduction list of the copy, evaluates the property and
+     * takes snapshot of the copy together with its reduction list.
+     * @param copy copy of model data
+     * @param prop checked property or null
+     * @return state
+     * @throws Exception if the snapshot could not be taken
+     */
+    private State createState(Data copy, Property prop) throws Exception {
+        Model.setLocalData(copy);
+        try {
+            ReductionManager rm = new ReductionManager();
+            rm.generateReductionList(copy.getExpression());
+            List<Reduction> redlist = rm.getReductionList();
+            Fingerprint fp = Fingerprint.of(encoder.encode(copy.getExpression()));
+            boolean satisfied = prop != null && prop.holds(redlist, rm.getActionList(), encoder.getLive());
+            int[] ample = null;
+            if (prop != null && !satisfied && options.contains(Option.PARTIAL_ORDER)) {
+                ample = partialorder.getAmpleSet(copy.getExpression(), redlist, rm.getActionList(), prop);
+            }
+            return new State(Snapshots.write(copy, redlist), fp, redlist.size(), satisfied, ample);
+        } finally {
+            Model.setLocalData(null);
+        }
+    }
+
+    /**
+     * Returns label of the reduction, i.e. tau or channel of the communication.
+     * Names are resolved in the local data of the model.
+     * @param red reduction
+     * @return label
+     */
+    private String getLabel(Reduction red) {
+        if (red instanceof TReduction) {
+            return "tau";
+        }
+        return ((IOReduction) red).getOut().getChannel().toString();
+    }
+
+    /**
+     * Returns witness trace leading to the state of specified frame.
+     * @param frame last frame of the trace
+     * @return steps of the trace
+     * @throws Exception if a copy could not be restored
+     */
+    private List<CheckResult.Step> getTrace(Frame frame) throws Exception {
+        List<CheckResult.Step> trace = new ArrayList<>();
+        for (Frame f = frame; f.parent != null; f = f.parent) {
+            Data copy = Snapshots.restore(f.state.getSnapshot()).getData();
+            Model.setLocalData(copy);
+            try {
+                trace.add(new CheckResult.Step(f.index, f.label, copy.getExpression().toString()));
+            } finally {
+                Model.setLocalData(null);
+            }
+        }
+        Collections.reverse(trace);
+        return trace;
+    }
+
+    /**
+     * Progress of the check, i.e. its parameters and the state of the
+     * depth-first search of the current iteration. It is written into
+     * checkpoints, the states on the path include their name tables.
+     */
+    private static class Progress implements Serializable {
+
+        private static final long serialVersionUID = 1L;
+
+        //checked property
+        private final Property prop;
+
+        //maximal number of reductions
+        private final int maxdepth;
+
+        //maximal number of distinct states
+        private final int maxstates;
+
+        //options of the exploration
+        private final Set<Option> options;
+
+        //initial state
+        private State root;
+
+        //depth bound of the current iteration
+        private int bound = 1;
+
+        //number of distinct states of the current iteration
+        private int count;
+
+        //flag indicating that a state was cut off by the bound
+        private boolean cut;
+
+        //path of the depth-first search, null before the iteration starts
+        private Deque<Frame> stack;
+
+        Progress(Property p, int d, int s, Set<Option> o) {
+            prop = p;
+            maxdepth = d;
+            maxstates = s;
+            options = EnumSet.noneOf(Option.class);
+            options.addAll(o);
+        }
+    }
+
+    /**
+     * Frame of the depth-first search, i.e. the state on the current path
+     * together with the reduction it was reached by.
+     */
+    private static class Frame implements Serializable {
+
+        private static final long serialVersionUID = 1L;
+
+        //state of the frame
+        private final State state;
+
+        //frame of the previous state on the path
+        private final Frame parent;
+
+        //position of the reduction in reduction list of the previous state
+        private final int index;
+
+        //label of the reduction
+        private final String label;
+
+        //number of reductions from the initial state
+        private final int depth;
+
+        //positions of reductions in the order of execution, ample set first
+        private final int[] order;
+
+        //number of reductions to be executed
+        private int limit;
+
+        //position of the next reduction in the order
+        private int next;
+
+        Frame(State s, Frame p, int i, String l) {
+            state = s;
+            parent = p;
+            index = i;
+            label = l;
+            depth = (p == null) ? 0 : p.depth + 1;
+
+            int[] ample = s.getAmpleSet();
+            order = new int[s.getReductions()];
+            limit = (ample == null) ? order.length : ample.length;
+            if (ample == null) {
+                for (int k = 0; k < order.length; k++) {
+                    order[k] = k;
+                }
+            } else {
+                //ample set is followed by the rest of reductions
+                System.arraycopy(ample, 0, order, 0, ample.length);
+                int pos = ample.length;
+                for (int k = 0, a = 0; k < order.length; k++) {
+                    if (a < ample.length && ample[a] == k) {
+                        a++;
+                    } else {
+                        order[pos++] = k;
+                    }
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,112 @@
+/*
+ * Copyright 2017 Dagmar Prokopova <xproko26@stud.fit.vutbr.cz>.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package cz.vutbr.fit.xproko26.pivis.model.explorer;
+
+import java.io.Serializable;
+
+/**
+ * Fingerprint is a 128-bit hash of the structural encoding of a state (see
+ * {@link StateEncoder StateEncoder}). Visited states are identified only by
+ * their fingerprints, so that the encodings do not have to be kept in memory.
+ * The probability that two different states share the fingerprint is
+ * negligible even for billions of states.
+ * @author Dagmar Prokopova
+ */
+public final class Fingerprint implements Serializable {
+
+    private static final long serialVersionUID = 1L;
+
+    //upper and lower half of the hash
+    private final long high;
+    private final long low;
+
+    /**
+     * Creates fingerprint of given halves.
+     * @param h upper half
+     * @param l lower half
+     */
+    public Fingerprint(long h, long l) {
+        high = h;
+        low = l;
+    }
+
+    /**
+     * Computes fingerprint of the encoding. Each half is computed by
+     * a different hash function and finalized by a bit mixer.
+     * @param s encoding
+     * @return fingerprint
+     */
+    public static Fingerprint of(CharSequence s) {
+        long h = 0xcbf29ce484222325L;
+        long l = 0x9e3779b97f4a7c15L;
+        for (int i = 0; i < s.length(); i++) {
+            char c = s.charAt(i);
+            h = (h ^ c) * 0x100000001b3L;
+            l = (l + c) * 0xc6a4a7935bd1e995L;
+            l ^= l >>> 47;
+        }
+        return new Fingerprint(mix(h ^ s.length()), mix(l + s.length()));
+    }
+
+    /**
+     * Mixes bits of the value, so that similar values have unrelated results.
+     * @param v value
+     * @return mixed value
+     */
+    private static long mix(long v) {
+        v ^= v >>> 33;
+        v *= 0xff51afd7ed558ccdL;
+        v ^= v >>> 33;
+        v *= 0xc4ceb9fe1a85ec53L;
+        v ^= v >>> 33;
+        return v;
+    }
+
+    /**
+     * Returns upper half of the hash.
+     * @return upper half
+     */
+    public long getHigh() {
+        return high;
+    }
+
+    /**
+     * Returns lower half of the hash.
+     * @return lower half
+     */
+    public long getLow() {
+        return low;
+    }
+
+    @Override
+    public boolean equals(Object obj) {
+        if (!(obj instanceof Fingerprint)) {
+            return false;
+        }
+        Fingerprint fp = (Fingerprint) obj;
+        return high == fp.high && low == fp.low;
+    }
+
+    @Override
+    public int hashCode() {
+        return (int) (low ^ (low >>> 32));
+    }
+
+    @Override
+    public String toString() {
+        return String.format("%016x%016x", high, low);
+    }
+}
@@ -0,0 +1,214 @@
+/*
+ * Copyright 2017 Dagmar Prokopova <xproko26@stud.fit.vutbr.cz>.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package cz.vutbr.fit.xproko26.pivis.model.explorer;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.Closeable;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.PrintWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+
+/**
+ * LtsWriter writes labelled transition system into a file while the state
+ * space is explored, so that the whole graph is never kept in memory.
+ * In DOT format, states are identified by fingerprints of their canonical
+ * encoding and labelled by their numbers. Aldebaran format starts with the
+ * numbers of transitions and states, so the transitions are copied after
+ * the header once all are known. Both formats are written into a temporary
+ * file next to the output file, which is moved into its place only if the
+ * export was finished. An interrupted or failed export therefore deletes
+ * only the temporary files and leaves an earlier export untouched.
+ * @author Dagmar Prokopova
+ */
+class LtsWriter implements Closeable {
+
+    //format of the file
+    private final Explorer.LtsFormat format;
+
+    //output file
+    private final File file;
+
+    //temporary file of the DOT graph or of Aldebaran transitions
+    private final File body;
+
+    //writer of the output or temporary file
+    private final PrintWriter out;
+
+    //number of written states and transitions
+    private int states;
+    private long transitions;
+
+    //true if all states and transitions were written
+    private boolean finished;
+
+    /**
+     * Creates writer of the file in specified format.
+     * @param f format
+     * @param fl output file
+     * @throws IOException if the file could not be created
+     */
+    LtsWriter(Explorer.LtsFormat f, File fl) throws IOException {
+        format = f;
+        file = fl;
+        body = createTempFile();
+        out = createWriter(body);
+        if (format == Explorer.LtsFormat.DOT) {
+            out.println("digraph lts {");
+        }
+    }
+
+    /**
+     * Writes state of the system. States are numbered in the order they are
+     * added, the first one is the initial state.
+     * @param fp fingerprint of the state
+     */
+    void addState(Fingerprint fp) {
+        if (format == Explorer.LtsFormat.DOT) {
+            out.println("  \"" + fp + "\" [label=\"" + states + "\"" + (states == 0 ? ", peripheries=2" : "") + "];");
+        }
+        states++;
+    }
+
+    /**
+     * Writes transition between two states.
+     * @param from number of the source state
+     * @param fromfp fingerprint of the source state
+     * @param label label of the transition
+     * @param to number of the target state
+     * @param tofp fingerprint of the target state
+     */
+    void addTransition(int from, Fingerprint fromfp, String label, int to, Fingerprint tofp) {
+        String quoted = "\"" + label.replace("\\", "\\\\").replace("\"", "\\\"") + "\"";
+        if (format == Explorer.LtsFormat.AUT) {
+            out.println("(" + from + ", " + quoted + ", " + to + ")");
+        } else {
+            out.println("  \"" + fromfp + "\" -> \"" + tofp + "\" [label=" + quoted + "];");
+        }
+        transitions++;
+    }
+
+    /**
+     * Marks the export as finished, so that the file is completed on close.
+     */
+    void finish() {
+        finished = true;
+    }
+
+    /**
+     * Returns number of written states.
+     * @return number of states
+     */
+    int getStates() {
+        return states;
+    }
+
+    /**
+     * Returns number of written transitions.
+     * @return number of transitions
+     */
+    long getTransitions() {
+        return transitions;
+    }
+
+    /**
+     * Finishes the file and moves it into place of the output file. In
+     * Aldebaran format, the header is written and followed by the
+     * transitions from the temporary file. If the export was not finished,
+     * only the temporary file is deleted.
+     * @throws IOException if the file could not be written
+     */
+    @Override
+    public void close() throws IOException {
+        if (!finished) {
+            out.close();
+            body.delete();
+            return;
+        }
+        File complete = body;
+        try {
+            if (format == Explorer.LtsFormat.DOT) {
+                out.println("}");
+            }
+            out.close();
+            checkError();
+            if (format == Explorer.LtsFormat.AUT) {
+                complete = createTempFile();
+                try (PrintWriter aut = createWriter(complete);
+                        BufferedReader in = new BufferedReader(new InputStreamReader(new FileInputStream(body), StandardCharsets.UTF_8))) {
+                    aut.println("des (0, " + transitions + ", " + states + ")");
+                    String line;
+                    while ((line = in.readLine()) != null) {
+                        aut.println(line);
+                    }
+                    if (aut.checkError()) {
+                        throw new IOException("Error: LTS could not be written to " + file + ".");
+                    }
+                }
+            }
+            Path target = file.toPath().toAbsolutePath();
+            try {
+                Files.move(complete.toPath(), target, StandardCopyOption.ATOMIC_MOVE);
+            } catch (AtomicMoveNotSupportedException ex) {
+                Files.move(complete.toPath(), target, StandardCopyOption.REPLACE_EXISTING);
+            }
+        } finally {
+            body.delete();
+            complete.delete();
+        }
+    }
+
+    /**
+     * Throws exception if writing of the output failed.
+     * @throws IOException if writing failed
+     */
+    private void checkError() throws IOException {
+        if (out.checkError()) {
+            throw new IOException("Error: LTS could not be written to " + file + ".");
+        }
+    }
+
+    /**
+     * Creates temporary file in the directory of the output file, so that
+     * it can be moved into its place.
+     * @return temporary file
+     * @throws IOException if the file could not be created
+     */
+    private File createTempFile() throws IOException {
+        return File.createTempFile("pivis-lts", ".tmp", file.getAbsoluteFile().getParentFile());
+    }
+
+    /**
+     * Creates buffered writer of the file.
+     * @param f file
+     * @return writer
+     * @throws IOException if the file could not be created
+     */
+    private static PrintWriter createWriter(File f) throws IOException {
+        Writer w = new OutputStreamWriter(new FileOutputStream(f), StandardCharsets.UTF_8);
+        return new PrintWriter(new BufferedWriter(w));
+    }
+}
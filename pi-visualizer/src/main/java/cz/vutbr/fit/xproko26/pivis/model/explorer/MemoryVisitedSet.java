@@ -0,0 +1,125 @@
+/*
+ * Copyright 2017 Dagmar Prokopova <xproko26@stud.fit.vutbr.cz>.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package cz.vutbr.fit.xproko26.pivis.model.explorer;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * MemoryVisitedSet keeps visited states in a hash map on the heap. It is the
+ * fastest store, used unless the exploration asks for another one. Once
+ * the set is saved into a checkpoint, states changed since then are
+ * collected, so that each checkpoint writes only them into a new segment.
+ * @author Dagmar Prokopova
+ */
+class MemoryVisitedSet implements VisitedSet {
+
+    //minimal depths of visited states
+    private final Map<Fingerprint, Integer> visited = new HashMap<>();
+
+    //states changed since the last checkpoint, null before the first one
+    private Map<Fingerprint, Integer> changed;
+
+    //segments of the checkpoints holding the saved states
+    private final List<String> segments = new ArrayList<>();
+
+    @Override
+    public int get(Fingerprint fp) {
+        Integer depth = visited.get(fp);
+        return (depth == null) ? UNVISITED : depth;
+    }
+
+    @Override
+    public void put(Fingerprint fp, int depth) {
+        visited.put(fp, depth);
+        if (changed != null) {
+            changed.put(fp, depth);
+        }
+    }
+
+    @Override
+    public boolean isPartial() {
+        return false;
+    }
+
+    @Override
+    public void clear() {
+        visited.clear();
+        segments.clear();
+        if (changed != null) {
+            changed.clear();
+        }
+    }
+
+    @Override
+    public void save(ObjectOutputStream out, CheckpointSegments segs) throws IOException {
+        Map<Fingerprint, Integer> states = (changed == null) ? visited : changed;
+        for (String name : segments) {
+            segs.keep(name);
+        }
+        if (!states.isEmpty()) {
+            String name = segs.create();
+            try (DataOutputStream seg = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(segs.get(name))))) {
+                seg.writeInt(states.size());
+                for (Map.Entry<Fingerprint, Integer> e : states.entrySet()) {
+                    seg.writeLong(e.getKey().getHigh());
+                    seg.writeLong(e.getKey().getLow());
+                    seg.writeInt(e.getValue());
+                }
+            }
+            segments.add(name);
+        }
+        changed = new HashMap<>();
+        out.writeObject(new ArrayList<>(segments));
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public void load(ObjectInputStream in, CheckpointSegments segs) throws IOException {
+        List<String> names;
+        try {
+            names = (List<String>) in.readObject();
+        } catch (ClassNotFoundException ex) {
+            throw new IOException(ex);
+        }
+        //later segments hold lower depths of the same states
+        for (String name : names) {
+            try (DataInputStream seg = new DataInputStream(new BufferedInputStream(Files.newInputStream(segs.get(name))))) {
+                int size = seg.readInt();
+                for (int i = 0; i < size; i++) {
+                    visited.put(new Fingerprint(seg.readLong(), seg.readLong()), seg.readInt());
+                }
+            }
+        }
+        segments.addAll(names);
+        changed = new HashMap<>();
+    }
+
+    @Override
+    public void close() {
+        visited.clear();
+    }
+}
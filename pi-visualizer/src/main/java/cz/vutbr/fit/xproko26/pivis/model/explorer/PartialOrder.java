@@ -0,0 +1,390 @@
+/*
+ * Copyright 2017 Dagmar Prokopova <xproko26@stud.fit.vutbr.cz>.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package cz.vutbr.fit.xproko26.pivis.model.explorer;
+
+import cz.vutbr.fit.xproko26.pivis.model.expressions.ConcretizeExpression;
+import cz.vutbr.fit.xproko26.pivis.model.expressions.Expression;
+import cz.vutbr.fit.xproko26.pivis.model.expressions.ExpressionTraversal;
+import cz.vutbr.fit.xproko26.pivis.model.expressions.InOutPrefixExpression;
+import cz.vutbr.fit.xproko26.pivis.model.expressions.MatchExpression;
+import cz.vutbr.fit.xproko26.pivis.model.names.NRList;
+import cz.vutbr.fit.xproko26.pivis.model.redmanager.ActionList;
+import cz.vutbr.fit.xproko26.pivis.model.redmanager.IOReduction;
+import cz.vutbr.fit.xproko26.pivis.model.redmanager.Reduction;
+import cz.vutbr.fit.xproko26.pivis.model.redmanager.TReduction;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * PartialOrder selects ample sets of reductions for partial-order reduction
+ * of the explored state space. Two reductions are dependent if they share
+ * a prefix or a summation or replication ancestor of their prefixes, since
+ * then one of them disables the other. Reductions connected by dependency
+ * form a component and each component is a candidate for the ample set.
+ * The component is accepted only if no reduction outside of it can become
+ * dependent on it later, i.e. all prefixes it competes for are guarded
+ * by summations whose alternatives are all enabled already, every prefix
+ * complementary to them is enabled as well and the channels cannot be
+ * passed to other processes. Reductions under replications are never part
+ * of the ample set. When a barb is checked, the component also must not
+ * change the barbs of the state, so it may not touch the checked channel.
+ * The smallest accepted component is explored instead of all reductions.
+ * @author Dagmar Prokopova
+ */
+class PartialOrder {
+
+    //scanner of prefixes and transferable names of the state
+    private final Scanner scanner = new Scanner();
+
+    /**
+     * Returns positions of reductions forming the ample set of the state.
+     * Names of the state are resolved in the name table of the model, so
+     * the copy of the state has to be set as local data of the model.
+     * @param root root of the expression tree of the state
+     * @param redlist reduction list of the state
+     * @param actions enabled actions of the state
+     * @param prop checked property
+     * @return sorted positions of reductions in reduction list or null if
+     * all reductions have to be explored
+     */
+    int[] getAmpleSet(Expression root, List<Reduction> redlist, ActionList actions, Property prop) {
+        int n = redlist.size();
+        if (n < 2) {
+            return null;
+        }
+
+        //connect dependent reductions into components
+        int[] comp = new int[n];
+        boolean[] replicated = new boolean[n];
+        List<List<Expression>> sums = new ArrayList<>(n);
+        Map<Expression, Integer> owners = new IdentityHashMap<>();
+        for (int i = 0; i < n; i++) {
+            comp[i] = i;
+            List<Expression> anc = new ArrayList<>();
+            for (Expression p : getPrefixes(redlist.get(i))) {
+                replicated[i] |= collectAncestors(p, anc);
+                join(comp, owners, p, i);
+            }
+            for (Expression s : anc) {
+                join(comp, owners, s, i);
+            }
+            sums.add(anc);
+        }
+        Map<Integer, List<Integer>> groups = new HashMap<>();
+        List<List<Integer>> candidates = new ArrayList<>();
+        for (int i = 0; i < n; i++) {
+            List<Integer> group = groups.get(find(comp, i));
+            if (group == null) {
+                group = new ArrayList<>();
+                groups.put(find(comp, i), group);
+                candidates.add(group);
+            }
+            group.add(i);
+        }
+        if (candidates.size() < 2) {
+            return null;
+        }
+        Collections.sort(candidates, (a, b) -> a.size() - b.size());
+
+        //enabled prefixes of the state
+        Set<Expression> enabled = Collections.newSetFromMap(new IdentityHashMap<>());
+        enabled.addAll(actions.getInList());
+        enabled.addAll(actions.getOutList());
+        redlist.stream().filter(r -> r instanceof TReduction).forEach(r -> enabled.add(((TReduction) r).getTau()));
+
+        scanner.scan(root);
+        for (List<Integer> group : candidates) {
+            if (isAmple(group, redlist, replicated, sums, enabled, prop)) {
+                return group.stream().mapToInt(Integer::intValue).sorted().toArray();
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Returns true if the component of reductions can be used as ample set.
+     * @param group positions of reductions of the component
+     * @param redlist reduction list
+     * @param replicated flags of reductions under replication
+     * @param sums summation ancestors of reductions
+     * @param enabled enabled prefixes
+     * @param prop checked property
+     * @return true if the component is accepted
+     */
+    private boolean isAmple(List<Integer> group, List<Reduction> redlist, boolean[] replicated,
+            List<List<Expression>> sums, Set<Expression> enabled, Property prop) {
+
+        //prefixes of the reductions and alternatives they compete with
+        Set<Expression> competing = Collections.newSetFromMap(new IdentityHashMap<>());
+        for (int i : group) {
+            if (replicated[i]) {
+                return false;
+            }
+            competing.addAll(getPrefixes(redlist.get(i)));
+            for (Expression s : sums.get(i)) {
+                if (!collectAlternatives(s, competing)) {
+                    return false;
+                }
+            }
+        }
+
+        //no reduction outside of the component may use the competing prefixes later
+        for (Expression p : competing) {
+            if (p.getType() == Expression.Type.TAU_PREFIX) {
+                continue;
+            }
+            int ch = ((InOutPrefixExpression) p).getChannel().getRef();
+            if (scanner.mobile.contains(ch)) {
+                return false;
+            }
+            Map<Integer, List<Expression>> complements = (p.getType() == Expression.Type.IN_PREFIX) ? scanner.outs : scanner.ins;
+            for (Expression q : complements.getOrDefault(ch, Collections.emptyList())) {
+                if (!enabled.contains(q)) {
+                    return false;
+                }
+            }
+        }
+
+        return (prop.getKind() == Property.Kind.DEADLOCK) || isInvisible(group, redlist, competing, prop.getChannel());
+    }
+
+    /**
+     * Returns true if the reductions of the component cannot change the barbs
+     * on the channel, i.e. neither the competing prefixes nor the
+     * continuations of reduced prefixes use the channel and it is not
+     * transferred by the reductions.
+     * @param group positions of reductions of the component
+     * @param redlist reduction list
+     * @param competing competing prefixes
+     * @param channel label of the checked channel
+     * @return true if the component is invisible
+     */
+    private boolean isInvisible(List<Integer> group, List<Reduction> redlist, Set<Expression> competing, String channel) {
+        for (Expression p : competing) {
+            if (usesChannel(p, channel)) {
+                return false;
+            }
+        }
+        for (int i : group) {
+            Reduction red = redlist.get(i);
+            NRList params = (red instanceof IOReduction) ? ((IOReduction) red).getOut().getParams() : null;
+            if (params != null && params.stream().anyMatch(n -> n.toString().equals(channel))) {
+                return false;
+            }
+            for (Expression p : getPrefixes(red)) {
+                Deque<Expression> stack = new ArrayDeque<>(p.getSuccessors());
+                while (!stack.isEmpty()) {
+                    Expression e = stack.pop();
+                    if (usesChannel(e, channel)) {
+                        return false;
+                    }
+                    if (e.getType() == Expression.Type.CONCRETIZE && ((ConcretizeExpression) e).getSuccExp() == null) {
+                        return false;
+                    }
+                    stack.addAll(e.getSuccessors());
+                }
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Returns true if the expression is input or output prefix on the channel.
+     * @param e expression
+     * @param channel label of the channel
+     * @return true if the prefix uses the channel
+     */
+    private boolean usesChannel(Expression e, String channel) {
+        return (e instanceof InOutPrefixExpression) && ((InOutPrefixExpression) e).getChannel().toString().equals(channel);
+    }
+
+    /**
+     * Collects prefixes which are the first ones in the branches of the
+     * summation and are not blocked by invalid match.
+     * @param sum summation
+     * @param prefixes set the prefixes are added to
+     * @return false if the branches contain a replication or a concretization
+     * without instance, whose prefixes are not known yet
+     */
+    private boolean collectAlternatives(Expression sum, Set<Expression> prefixes) {
+        Deque<Expression> stack = new ArrayDeque<>(sum.getSuccessors());
+        while (!stack.isEmpty()) {
+            Expression e = stack.pop();
+            switch (e.getType()) {
+                case IN_PREFIX:
+                case OUT_PREFIX:
+                case TAU_PREFIX:
+                    prefixes.add(e);
+                    break;
+                case MATCH:
+                    if (((MatchExpression) e).isValid()) {
+                        stack.addAll(e.getSuccessors());
+                    }
+                    break;
+                case CONCRETIZE:
+                    if (((ConcretizeExpression) e).getSuccExp() == null) {
+                        return false;
+                    }
+                    stack.addAll(e.getSuccessors());
+                    break;
+                case REPLICATION:
+                case PARALLEL_REPLICATION:
+                    return false;
+                default:
+                    stack.addAll(e.getSuccessors());
+                    break;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Returns prefixes of the reduction.
+     * @param red reduction
+     * @return tau prefix or input and output prefix
+     */
+    private static List<Expression> getPrefixes(Reduction red) {
+        if (red instanceof TReduction) {
+            return Collections.singletonList(((TReduction) red).getTau());
+        }
+        return Arrays.asList(((IOReduction) red).getIn(), ((IOReduction) red).getOut());
+    }
+
+    /**
+     * Adds summation and replication ancestors of the prefix into the list.
+     * @param prefix prefix
+     * @param anc list of ancestors
+     * @return true if the prefix is under replication
+     */
+    private static boolean collectAncestors(Expression prefix, List<Expression> anc) {
+        boolean replicated = false;
+        for (Expression e = prefix.getParent(); e != null; e = e.getParent()) {
+            switch (e.getType()) {
+                case SUM:
+                    anc.add(e);
+                    break;
+                case REPLICATION:
+                    anc.add(e);
+                    replicated = true;
+                    break;
+                case PARALLEL_REPLICATION:
+                    replicated = true;
+                    break;
+                default:
+                    break;
+            }
+        }
+        return replicated;
+    }
+
+    /**
+     * Joins component of the reduction with component of the reduction
+     * which used the expression before.
+     * @param comp component links
+     * @param owners first reduction using the expression
+     * @param e prefix or ancestor
+     * @param i position of the reduction
+     */
+    private void join(int[] comp, Map<Expression, Integer> owners, Expression e, int i) {
+        Integer owner = owners.putIfAbsent(e, i);
+        if (owner != null) {
+            comp[find(comp, i)] = find(comp, owner);
+        }
+    }
+
+    /**
+     * Returns representative of the component.
+     * @param comp component links
+     * @param i position of the reduction
+     * @return position of the representative
+     */
+    private int find(int[] comp, int i) {
+        while (comp[i] != i) {
+            comp[i] = comp[comp[i]];
+            i = comp[i];
+        }
+        return i;
+    }
+
+    /**
+     * Scanner collects all input and output prefixes of the expression tree
+     * indexed by their channels, and names which can be passed to other
+     * processes, i.e. output parameters and arguments of concretizations
+     * without instance.
+     */
+    private static class Scanner extends ExpressionTraversal<Void> {
+
+        //input prefixes indexed by identifier of the channel
+        private final Map<Integer, List<Expression>> ins = new HashMap<>();
+
+        //output prefixes indexed by identifier of the channel
+        private final Map<Integer, List<Expression>> outs = new HashMap<>();
+
+        //identifiers of names which can be passed
+        private final Set<Integer> mobile = new HashSet<>();
+
+        /**
+         * Scans the expression tree.
+         * @param root root of the expression tree
+         */
+        void scan(Expression root) {
+            ins.clear();
+            outs.clear();
+            mobile.clear();
+            traverse(root);
+        }
+
+        @Override
+        protected List<Expression> enter(Expression node) {
+            switch (node.getType()) {
+                case IN_PREFIX:
+                    ins.computeIfAbsent(((InOutPrefixExpression) node).getChannel().getRef(), k -> new ArrayList<>()).add(node);
+                    break;
+                case OUT_PREFIX:
+                    outs.computeIfAbsent(((InOutPrefixExpression) node).getChannel().getRef(), k -> new ArrayList<>()).add(node);
+                    addAll(((InOutPrefixExpression) node).getParams());
+                    break;
+                case CONCRETIZE:
+                    if (((ConcretizeExpression) node).getSuccExp() == null) {
+                        addAll(((ConcretizeExpression) node).getArgs());
+                    }
+                    break;
+                default:
+                    break;
+            }
+            return node.getSuccessors();
+        }
+
+        /**
+         * Adds identifiers of the names which can be passed.
+         * @param names name references
+         */
+        private void addAll(NRList names) {
+            if (names != null) {
+                names.forEach(n -> mobile.add(n.getRef()));
+            }
+        }
+    }
+}
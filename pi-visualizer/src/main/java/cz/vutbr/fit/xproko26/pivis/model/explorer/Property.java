@@ -0,0 +1,163 @@
+/*
+ * Copyright 2017 Dagmar Prokopova <xproko26@stud.fit.vutbr.cz>.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package cz.vutbr.fit.xproko26.pivis.model.explorer;
+
+import java.io.Serializable;
+import java.util.List;
+import cz.vutbr.fit.xproko26.pivis.model.expressions.Expression;
+import cz.vutbr.fit.xproko26.pivis.model.expressions.InOutPrefixExpression;
+import cz.vutbr.fit.xproko26.pivis.model.expressions.RestrictionExpression;
+import cz.vutbr.fit.xproko26.pivis.model.names.NameRef;
+import cz.vutbr.fit.xproko26.pivis.model.redmanager.ActionList;
+import cz.vutbr.fit.xproko26.pivis.model.redmanager.Reduction;
+
+/**
+ * Property is a state property whose reachability is checked by
+ * {@link Explorer Explorer}. It is either a deadlock, i.e. state with
+ * unfinished processes but no reduction, or a barb, i.e. state in which input
+ * or output on the specified free channel is enabled.
+ * @author Dagmar Prokopova
+ */
+public class Property implements Serializable {
+
+    private static final long serialVersionUID = 1L;
+
+    /**
+     * Kinds of properties.
+     */
+    public enum Kind {
+        DEADLOCK,
+        INPUT,
+        OUTPUT
+    }
+
+    //kind of the property
+    private final Kind kind;
+
+    //label of the channel of the barb, null for deadlock
+    private final String channel;
+
+    /**
+     * Constructor which initializes kind of the property and channel.
+     * @param k kind of the property
+     * @param ch label of the channel or null
+     */
+    private Property(Kind k, String ch) {
+        kind = k;
+        channel = ch;
+    }
+
+    /**
+     * Returns property satisfied by deadlocked states.
+     * @return deadlock property
+     */
+    public static Property deadlock() {
+        return new Property(Kind.DEADLOCK, null);
+    }
+
+    /**
+     * Returns property satisfied by states with enabled input on the channel.
+     * @param ch label of the free channel
+     * @return input barb property
+     */
+    public static Property input(String ch) {
+        return new Property(Kind.INPUT, ch);
+    }
+
+    /**
+     * Returns property satisfied by states with enabled output on the channel.
+     * @param ch label of the free channel
+     * @return output barb property
+     */
+    public static Property output(String ch) {
+        return new Property(Kind.OUTPUT, ch);
+    }
+
+    /**
+     * Returns kind of the property.
+     * @return kind
+     */
+    public Kind getKind() {
+        return kind;
+    }
+
+    /**
+     * Returns label of the channel of the barb.
+     * @return channel label or null for deadlock
+     */
+    public String getChannel() {
+        return channel;
+    }
+
+    /**
+     * Returns true if the property holds in the state. Names of the state
+     * are resolved in the name table of the model, so the copy of the state
+     * has to be set as local data of the model.
+     * @param redlist reduction list of the state
+     * @param actions enabled actions of the state
+     * @param live number of unfinished processes of the state
+     * @return true if the property holds
+     */
+    boolean holds(List<Reduction> redlist, ActionList actions, int live) {
+        switch (kind) {
+            case DEADLOCK:
+                return redlist.isEmpty() && live > 0;
+            case INPUT:
+                return actions.getInList().stream().anyMatch(in -> isBarb(in));
+            default:
+                return actions.getOutList().stream().anyMatch(out -> isBarb(out));
+        }
+    }
+
+    /**
+     * Returns true if the prefix uses the channel of the property and the
+     * channel is not restricted by any of its ancestors.
+     * @param prefix enabled input or output prefix
+     * @return true if the prefix is a barb on the channel
+     */
+    private boolean isBarb(InOutPrefixExpression prefix) {
+        NameRef ch = prefix.getChannel();
+        if (!ch.toString().equals(channel)) {
+            return false;
+        }
+        for (Expression e = prefix.getParent(); e != null; e = e.getParent()) {
+            if (e instanceof RestrictionExpression) {
+                for (NameRef n : ((RestrictionExpression) e).getRestrictions()) {
+                    if (n.equals(ch)) {
+                        return false;
+                    }
+                }
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Returns description of the property.
+     * @return description
+     */
+    @Override
+    public String toString() {
+        switch (kind) {
+            case DEADLOCK:
+                return "Deadlock";
+            case INPUT:
+                return "Input on channel '" + channel + "'";
+            default:
+                return "Output on channel '" + channel + "'";
+        }
+    }
+}
@@ -0,0 +1,102 @@
+/*
+ * Copyright 2017 Dagmar Prokopova <xproko26@stud.fit.vutbr.cz>.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package cz.vutbr.fit.xproko26.pivis.model.explorer;
+
+import java.io.Serializable;
+
+/**
+ * State represents one state of the explored state space. It keeps only
+ * the serialized snapshot of the expression, its name table and reduction
+ * list, which is restored whenever a successor of the state is computed.
+ * @author Dagmar Prokopova
+ */
+class State implements Serializable {
+
+    private static final long serialVersionUID = 1L;
+
+    //serialized data and reduction list
+    private final byte[] snapshot;
+
+    //fingerprint of the structural encoding
+    private final Fingerprint fingerprint;
+
+    //number of reductions in reduction list
+    private final int reductions;
+
+    //flag indicating that the checked property holds in the state
+    private final boolean satisfied;
+
+    //positions of reductions of the ample set, null if all have to be explored
+    private final int[] ample;
+
+    /**
+     * Constructor which initializes all values of the state.
+     * @param sn snapshot
+     * @param fp fingerprint
+     * @param r number of reductions
+     * @param s true if the property holds
+     * @param a ample set or null
+     */
+    State(byte[] sn, Fingerprint fp, int r, boolean s, int[] a) {
+        snapshot = sn;
+        fingerprint = fp;
+        reductions = r;
+        satisfied = s;
+        ample = a;
+    }
+
+    /**
+     * Returns serialized data and reduction list.
+     * @return snapshot
+     */
+    byte[] getSnapshot() {
+        return snapshot;
+    }
+
+    /**
+     * Returns fingerprint of the state.
+     * @return fingerprint
+     */
+    Fingerprint getFingerprint() {
+        return fingerprint;
+    }
+
+    /**
+     * Returns number of reductions enabled in the state.
+     * @return number of reductions
+     */
+    int getReductions() {
+        return reductions;
+    }
+
+    /**
+     * Returns true if the checked property holds in the state.
+     * @return true if the property holds
+     */
+    boolean isSatisfied() {
+        return satisfied;
+    }
+
+    /**
+     * Returns positions of reductions which form the ample set of the state
+     * when partial-order reduction is used.
+     * @return sorted positions in reduction list or null if all reductions
+     * have to be explored
+     */
+    int[] getAmpleSet() {
+        return ample;
+    }
+}
@@ -0,0 +1,450 @@
+/*
+ * Copyright 2017 Dagmar Prokopova <xproko26@stud.fit.vutbr.cz>.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package cz.vutbr.fit.xproko26.pivis.model.explorer;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.Collectors;
+import cz.vutbr.fit.xproko26.pivis.model.expressions.ConcretizeExpression;
+import cz.vutbr.fit.xproko26.pivis.model.expressions.Expression;
+import cz.vutbr.fit.xproko26.pivis.model.expressions.ExpressionTraversal;
+import cz.vutbr.fit.xproko26.pivis.model.expressions.InOutPrefixExpression;
+import cz.vutbr.fit.xproko26.pivis.model.expressions.MatchExpression;
+import cz.vutbr.fit.xproko26.pivis.model.expressions.RestrictionExpression;
+import cz.vutbr.fit.xproko26.pivis.model.names.NRList;
+import cz.vutbr.fit.xproko26.pivis.model.names.NameRef;
+
+/**
+ * StateEncoder writes structural encoding of the expression tree, which is
+ * used to recognize states reached repeatedly during exploration. Unlike
+ * textual representation, the encoding does not depend on identifiers of
+ * names created by reductions and instantiations. Names bound by restrictions
+ * and input prefixes are numbered by the number of bound names in scope of
+ * their binders, only free names are written with their identifiers. Two
+ * expressions which differ only in the choice of bound names therefore have
+ * the same encoding, and encoding of a subtree does not depend on its
+ * siblings. Restricted names which are not used anymore are omitted, the same
+ * as restrictions with no used names left. Replication helpers are not
+ * encoded, since they are only prepared copies of their originals, and
+ * instantiated concretizations are represented only by their instances.
+ * In symmetric mode, encodings of successors of parallel compositions are
+ * sorted, so that states differing only in the order of parallel processes,
+ * e.g. replication copies or instances of the same agent, have the same
+ * encoding. While encoding, the number of processes which are not finished
+ * yet (prefixes and concretizations without instance) is counted.
+ * @author Dagmar Prokopova
+ */
+class StateEncoder extends ExpressionTraversal<Void> {
+
+    //output string builder
+    private StringBuilder sb;
+
+    //collector of used names
+    private final NameCollector collector = new NameCollector();
+
+    //identifiers of names used by the encoded expression
+    private final Set<Integer> used = new HashSet<>();
+
+    //numbers of bound names in scope indexed by name identifiers
+    private final Map<Integer, Integer> bound = new HashMap<>();
+
+    //undo log of bindings, pairs of name identifier and previous number (-1 if none)
+    private int[] undo = new int[64];
+
+    //number of integers in the undo log
+    private int undosize;
+
+    //undo log sizes at the entry of traversed expressions
+    private int[] marks = new int[64];
+
+    //numbers of bound names in scope at the entry of traversed expressions
+    private int[] levels = new int[64];
+
+    //encoding lengths at the entry of traversed expressions
+    private int[] starts = new int[64];
+
+    //number of traversed expressions
+    private int depth;
+
+    //number of bound names in scope
+    private int binders;
+
+    //number of unfinished processes
+    private int live;
+
+    //flag indicating that successors of parallel compositions are sorted
+    private boolean symmetric;
+
+    //flag indicating that replication helpers are encoded as well
+    private boolean helpers;
+
+    //start of successors and positions of separators of sorted compositions
+    private final Deque<List<Integer>> groups = new ArrayDeque<>();
+
+    //expressions whose encodings are captured, null if none
+    private Set<Expression> wanted;
+
+    //fingerprints of encodings of captured expressions
+    private Map<Expression, Fingerprint> captured;
+
+    /**
+     * Sets symmetric mode, in which parallel processes are not ordered.
+     * @param b true for symmetric mode
+     */
+    void setSymmetric(boolean b) {
+        symmetric = b;
+    }
+
+    /**
+     * Returns structural encoding of the expression.
+     * @param exp root of the expression tree
+     * @return encoding
+     */
+    String encode(Expression exp) {
+        sb = new StringBuilder();
+        bound.clear();
+        groups.clear();
+        undosize = 0;
+        depth = 0;
+        binders = 0;
+        live = 0;
+        used.clear();
+        collector.traverse(exp);
+        traverse(exp);
+        return sb.toString();
+    }
+
+    /**
+     * Encodes the whole expression tree in symmetric mode including
+     * replication helpers and returns fingerprints of encodings of specified
+     * subtrees. Replication helpers are encoded the same as their originals.
+     * Since numbers of bound names depend only on the ancestors,
+     * subtrees with the same fingerprint and equally encoded ancestors can
+     * be swapped without changing the expression.
+     * @param root root of the expression tree
+     * @param nodes expressions whose encodings are captured
+     * @return fingerprints indexed by the expressions
+     */
+    Map<Expression, Fingerprint> capture(Expression root, Set<Expression> nodes) {
+        boolean sym = symmetric;
+        symmetric = true;
+        helpers = true;
+        wanted = nodes;
+        captured = new IdentityHashMap<>();
+        try {
+            encode(root);
+            return captured;
+        } finally {
+            symmetric = sym;
+            helpers = false;
+            wanted = null;
+        }
+    }
+
+    /**
+     * Returns number of prefixes and concretizations without instance
+     * found by the last encoding.
+     * @return number of unfinished processes
+     */
+    int getLive() {
+        return live;
+    }
+
+    @Override
+    protected List<Expression> enter(Expression node) {
+        if (depth == marks.length) {
+            marks = Arrays.copyOf(marks, depth * 2);
+            levels = Arrays.copyOf(levels, depth * 2);
+            starts = Arrays.copyOf(starts, depth * 2);
+        }
+        marks[depth] = undosize;
+        levels[depth] = binders;
+        starts[depth++] = sb.length();
+
+        List<Expression> succs = node.getSuccessors();
+        if (isTransparent(node)) {
+            return succs;
+        }
+        switch (node.getType()) {
+            case ROOT:
+                sb.append('R');
+                break;
+            case RESTRICTION:
+                sb.append('v');
+                bind(getUsed(((RestrictionExpression) node).getRestrictions()));
+                break;
+            case SUM:
+                sb.append('+');
+                break;
+            case PARALLEL:
+                sb.append('|');
+                break;
+            case PARALLEL_REPLICATION:
+                sb.append('p');
+                if (!helpers) {
+                    succs = succs.stream().filter(e -> !e.isReplicationHelper()).collect(Collectors.toList());
+                }
+                break;
+            case REPLICATION:
+                //helpers are prepared copies of the original, so they are encoded the same
+                sb.append(node.isReplicationOriginal() || node.isReplicationHelper() ? '!' : 'c');
+                break;
+            case IN_PREFIX:
+                live++;
+                sb.append('i');
+                appendName(((InOutPrefixExpression) node).getChannel());
+                bind(((InOutPrefixExpression) node).getParams());
+                break;
+            case OUT_PREFIX:
+                live++;
+                sb.append('o');
+                appendName(((InOutPrefixExpression) node).getChannel());
+                appendNames(((InOutPrefixExpression) node).getParams());
+                break;
+            case TAU_PREFIX:
+                live++;
+                sb.append('t');
+                break;
+            case MATCH:
+                sb.append('m');
+                appendName(((MatchExpression) node).getLeft());
+                appendName(((MatchExpression) node).getRight());
+                break;
+            case CONCRETIZE:
+                ConcretizeExpression cexp = (ConcretizeExpression) node;
+                live++;
+                sb.append('k');
+                appendName(cexp.getIDRef());
+                appendNames(cexp.getArgs());
+                break;
+            case NIL:
+                sb.append('0');
+                break;
+            default:
+                sb.append('a');
+                break;
+        }
+        sb.append('(');
+        if (isSorted(node)) {
+            groups.push(new ArrayList<>(Collections.singletonList(sb.length())));
+        }
+        return succs;
+    }
+
+    @Override
+    protected void separate(Expression node) {
+        if (isSorted(node)) {
+            groups.peek().add(sb.length());
+        }
+        sb.append(',');
+    }
+
+    @Override
+    protected Void leave(Expression node, Void last) {
+        if (!isTransparent(node)) {
+            if (isSorted(node)) {
+                sortSuccessors(groups.pop());
+            }
+            sb.append(')');
+        }
+        depth--;
+        if (wanted != null && wanted.contains(node)) {
+            captured.put(node, Fingerprint.of(sb.subSequence(starts[depth], sb.length())));
+        }
+        binders = levels[depth];
+        //restore bindings of names bound by this expression
+        int mark = marks[depth];
+        while (undosize > mark) {
+            int prev = undo[--undosize];
+            int ref = undo[--undosize];
+            if (prev < 0) {
+                bound.remove(ref);
+            } else {
+                bound.put(ref, prev);
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Returns true if encodings of successors of the expression are sorted.
+     * @param node expression
+     * @return true if the successors are sorted
+     */
+    private boolean isSorted(Expression node) {
+        return symmetric && (node.getType() == Expression.Type.PARALLEL
+                || node.getType() == Expression.Type.PARALLEL_REPLICATION);
+    }
+
+    /**
+     * Sorts encodings of successors written since the start of the group.
+     * @param group start of the first successor and positions of separators
+     */
+    private void sortSuccessors(List<Integer> group) {
+        int start = group.get(0);
+        List<String> succs = new ArrayList<>(group.size());
+        for (int i = 0; i < group.size(); i++) {
+            int from = (i == 0) ? start : group.get(i) + 1;
+            int to = (i + 1 < group.size()) ? group.get(i + 1) : sb.length();
+            succs.add(sb.substring(from, to));
+        }
+        Collections.sort(succs);
+        sb.setLength(start);
+        sb.append(String.join(",", succs));
+    }
+
+    /**
+     * Returns true if the expression is not encoded itself, only its
+     * successors are. These are instantiated concretizations and process
+     * instances, which are not shown in textual representation either,
+     * and restrictions of unused names.
+     * @param node expression
+     * @return true if the expression is transparent
+     */
+    private boolean isTransparent(Expression node) {
+        switch (node.getType()) {
+            case CONCRETIZE:
+                return ((ConcretizeExpression) node).getSuccExp() != null;
+            case ABSTRACTION:
+                return true;
+            case RESTRICTION:
+                return getUsed(((RestrictionExpression) node).getRestrictions()).isEmpty();
+            default:
+                return false;
+        }
+    }
+
+    /**
+     * Returns names from the list which are used by the encoded expression.
+     * @param names restricted names
+     * @return used names
+     */
+    private NRList getUsed(NRList names) {
+        return new NRList(names.stream().filter(n -> used.contains(n.getRef())).collect(Collectors.toList()));
+    }
+
+    /**
+     * Binds names and appends their numbers.
+     * @param names names bound by the expression
+     */
+    private void bind(NRList names) {
+        if (names == null) {
+            return;
+        }
+        for (NameRef n : names) {
+            if (undosize + 2 > undo.length) {
+                int[] grown = new int[undo.length * 2];
+                System.arraycopy(undo, 0, grown, 0, undosize);
+                undo = grown;
+            }
+            Integer prev = bound.put(n.getRef(), binders++);
+            undo[undosize++] = n.getRef();
+            undo[undosize++] = (prev == null) ? -1 : prev;
+            appendName(n);
+        }
+    }
+
+    /**
+     * Appends list of names.
+     * @param names names
+     */
+    private void appendNames(NRList names) {
+        if (names != null) {
+            for (NameRef n : names) {
+                appendName(n);
+            }
+        }
+    }
+
+    /**
+     * Appends number of the bound name or identifier of the free name.
+     * @param n name reference
+     */
+    private void appendName(NameRef n) {
+        Integer num = bound.get(n.getRef());
+        if (num != null) {
+            sb.append('$').append(num.intValue());
+        } else {
+            sb.append('#').append(n.getRef());
+        }
+    }
+
+    /**
+     * NameCollector collects identifiers of names used by the expression,
+     * i.e. names which occur at other than binding positions. Names created
+     * by the copying of expressions are unique, so a restricted name which
+     * is not collected does not occur in the scope of the restriction.
+     */
+    private class NameCollector extends ExpressionTraversal<Void> {
+
+        @Override
+        protected List<Expression> enter(Expression node) {
+            switch (node.getType()) {
+                case PARALLEL_REPLICATION:
+                    if (!helpers) {
+                        return node.getSuccessors().stream().filter(e -> !e.isReplicationHelper()).collect(Collectors.toList());
+                    }
+                    break;
+                case IN_PREFIX:
+                    add(((InOutPrefixExpression) node).getChannel());
+                    break;
+                case OUT_PREFIX:
+                    add(((InOutPrefixExpression) node).getChannel());
+                    addAll(((InOutPrefixExpression) node).getParams());
+                    break;
+                case MATCH:
+                    add(((MatchExpression) node).getLeft());
+                    add(((MatchExpression) node).getRight());
+                    break;
+                case CONCRETIZE:
+                    if (((ConcretizeExpression) node).getSuccExp() == null) {
+                        addAll(((ConcretizeExpression) node).getArgs());
+                    }
+                    break;
+                default:
+                    break;
+            }
+            return node.getSuccessors();
+        }
+
+        /**
+         * Adds identifier of the name.
+         * @param n name reference
+         */
+        private void add(NameRef n) {
+            used.add(n.getRef());
+        }
+
+        /**
+         * Adds identifiers of the names.
+         * @param names name references
+         */
+        private void addAll(NRList names) {
+            if (names != null) {
+                names.forEach(n -> add(n));
+            }
+        }
+    }
+}
@@ -0,0 +1,134 @@
+/*
+ * Copyright 2017 Dagmar Prokopova <xproko26@stud.fit.vutbr.cz>.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package cz.vutbr.fit.xproko26.pivis.model.explorer;
+
+import cz.vutbr.fit.xproko26.pivis.model.expressions.Expression;
+import cz.vutbr.fit.xproko26.pivis.model.redmanager.Reduction;
+import java.util.ArrayDeque;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Symmetry computes signatures of reductions, which are equal for reductions
+ * that differ only in the choice among identical parallel processes, such as
+ * replication copies or instances of the same agent. Executing reductions
+ * with the same signature leads to the same state up to the order of parallel
+ * processes and renaming of bound names, so such reductions can be grouped.
+ * Unlike {@link Explorer Explorer}, symmetry is not a singleton, so that
+ * signatures can be computed in the background.
+ * @author Dagmar Prokopova
+ */
+public class Symmetry {
+
+    //encoder capturing fingerprints of subtrees
+    private final StateEncoder encoder = new StateEncoder();
+
+    //fingerprints of captured subtrees
+    private Map<Expression, Fingerprint> captured;
+
+    //signatures of paths from the root indexed by the last expression
+    private final Map<Expression, String> paths = new IdentityHashMap<>();
+
+    /**
+     * Returns signatures of the reductions. Signature of a reduction consists
+     * of fingerprints of its prefixes and all their ancestors, so reductions
+     * whose prefixes can be swapped by permuting identical parallel processes
+     * have the same signature. For a communication, the path to the closest
+     * common ancestor of both prefixes is distinguished, so that
+     * a communication within one copy is not grouped with a communication
+     * between two different copies.
+     * @param reds reduction list of the expression
+     * @return signatures in the order of the reduction list
+     */
+    public String[] getSignatures(List<Reduction> reds) {
+        String[] sigs = new String[reds.size()];
+        if (reds.isEmpty()) {
+            return sigs;
+        }
+
+        //capture fingerprints of prefixes and their ancestors
+        Set<Expression> wanted = Collections.newSetFromMap(new IdentityHashMap<>());
+        Expression root = null;
+        for (Reduction red : reds) {
+            for (Expression exp : red.getExpressions()) {
+                for (Expression e = exp; e != null && wanted.add(e); e = e.getParent()) {
+                    root = e;
+                }
+            }
+        }
+        while (root.getParent() != null) {
+            root = root.getParent();
+        }
+        captured = encoder.capture(root, wanted);
+        paths.clear();
+
+        for (int i = 0; i < sigs.length; i++) {
+            List<Expression> exps = reds.get(i).getExpressions();
+            if (exps.size() == 1) {
+                sigs[i] = getPath(exps.get(0));
+            } else {
+                sigs[i] = getPath(getCommonAncestor(exps.get(0), exps.get(1)))
+                        + '|' + getPath(exps.get(0)) + '|' + getPath(exps.get(1));
+            }
+        }
+        return sigs;
+    }
+
+    /**
+     * Returns signature of the path from the root to the expression, which
+     * is fingerprint of fingerprints of all expressions on the path.
+     * @param exp expression
+     * @return signature of the path
+     */
+    private String getPath(Expression exp) {
+        //find the closest ancestor with known path
+        Deque<Expression> unknown = new ArrayDeque<>();
+        Expression e = exp;
+        while (e != null && !paths.containsKey(e)) {
+            unknown.push(e);
+            e = e.getParent();
+        }
+        String path = (e == null) ? "" : paths.get(e);
+        while (!unknown.isEmpty()) {
+            e = unknown.pop();
+            path = Fingerprint.of(path + captured.get(e)).toString();
+            paths.put(e, path);
+        }
+        return path;
+    }
+
+    /**
+     * Returns the closest common ancestor of two expressions.
+     * @param e1 first expression
+     * @param e2 second expression
+     * @return common ancestor
+     */
+    private Expression getCommonAncestor(Expression e1, Expression e2) {
+        Set<Expression> ancestors = Collections.newSetFromMap(new IdentityHashMap<>());
+        for (Expression e = e1; e != null; e = e.getParent()) {
+            ancestors.add(e);
+        }
+        Expression e = e2;
+        while (!ancestors.contains(e)) {
+            e = e.getParent();
+        }
+        return e;
+    }
+}
@@ -0,0 +1,86 @@
+/*
+ * Copyright 2017 Dagmar Prokopova <xproko26@stud.fit.vutbr.cz>.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package cz.vutbr.fit.xproko26.pivis.model.explorer;
+
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+
+/**
+ * VisitedSet stores fingerprints of states visited by {@link Explorer
+ * Explorer} together with the minimal number of reductions they were
+ * reached in.
+ * @author Dagmar Prokopova
+ */
+interface VisitedSet {
+
+    //depth returned for states which were not visited
+    int UNVISITED = -1;
+
+    /**
+     * Returns minimal depth the state was visited in.
+     * @param fp fingerprint of the state
+     * @return depth or UNVISITED
+     * @throws IOException if the set could not be read
+     */
+    int get(Fingerprint fp) throws IOException;
+
+    /**
+     * Marks the state visited in specified depth. The depth is never greater
+     * than the depth the state was visited in before.
+     * @param fp fingerprint of the state
+     * @param depth number of reductions from the initial state
+     * @throws IOException if the set could not be written
+     */
+    void put(Fingerprint fp, int depth) throws IOException;
+
+    /**
+     * Returns true if states may be reported visited although they were not,
+     * so that part of the state space may be skipped.
+     * @return true if the coverage may be partial
+     */
+    boolean isPartial();
+
+    /**
+     * Removes all states from the set.
+     * @throws IOException if the set could not be cleared
+     */
+    void clear() throws IOException;
+
+    /**
+     * Writes states of the set into the checkpoint. States are kept in
+     * segments, the checkpoint stream only references them. Segments written
+     * by the previous checkpoint are referenced again, so that only states
+     * added since then are written.
+     * @param out checkpoint stream
+     * @param segs segments of the checkpoint
+     * @throws IOException if the states could not be written
+     */
+    void save(ObjectOutputStream out, CheckpointSegments segs) throws IOException;
+
+    /**
+     * Adds states written by {@link #save save} into the empty set.
+     * @param in checkpoint stream
+     * @param segs segments of the checkpoint
+     * @throws IOException if the states could not be read
+     */
+    void load(ObjectInputStream in, CheckpointSegments segs) throws IOException;
+
+    /**
+     * Releases resources held by the set.
+     */
+    void close();
+}
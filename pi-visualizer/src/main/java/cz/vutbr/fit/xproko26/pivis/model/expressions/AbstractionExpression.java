@@ -97,8 +97,8 @@ public class AbstractionExpression extends SimpleExpression {
      * {@inheritDoc}
      */
     @Override
-    public String toString() {
-        return getSuccExp().toString();
+    public Type getType() {
+        return Type.ABSTRACTION;
     }
     
     /**
@@ -114,8 +114,15 @@ public class AbstractionExpression extends SimpleExpression {
      */    
     @Override
     public AbstractionExpression copy(Expression par) {
+        return (AbstractionExpression) super.copy(par);
+    }
+    
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    protected AbstractionExpression copyNode(Expression par) {
         AbstractionExpression copy = new AbstractionExpression(par);        
-        copy.setSuccExp(getSuccExp().copy(copy));        
         copy.params = params.copy();
         return copy;
     }
@@ -17,6 +17,8 @@ package cz.vutbr.fit.xproko26.pivis.model.expressions;
 
 import cz.vutbr.fit.xproko26.pivis.model.names.NRList;
 import cz.vutbr.fit.xproko26.pivis.model.names.NameRef;
+import java.util.Collections;
+import java.util.List;
 
 /**
  * Class representing pi-calculus concretion of process definition.
@@ -59,6 +61,7 @@ public class ConcretizeExpression extends SimpleExpression {
      */
     public void setIDRef(NameRef ref) {
         id = ref;
+        invalidate();
     }
     
     /**
@@ -75,6 +78,7 @@ public class ConcretizeExpression extends SimpleExpression {
      */
     public void setArgs(NRList a) {
         args = a;
+        invalidate();
     }
     
     /**
@@ -99,21 +103,25 @@ public class ConcretizeExpression extends SimpleExpression {
      * {@inheritDoc}
      */ 
     @Override
-    public String toString() {
+    protected void appendHead(StringBuilder sb) {
         if (getSuccExp() == null) {
-            String ret = id.toString();
+            sb.append(id.toString());
             if (args != null && args.size() > 0) {
-                ret += "<";
-                ret += args.toString();
-                ret += ">";
+                sb.append('<');
+                args.appendTo(sb);
+                sb.append('>');
             }
-            return ret;
-        }
-        else {
-            return getSuccExp().toString();
         }
     }
     
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public Type getType() {
+        return Type.CONCRETIZE;
+    }
+    
     /**
      * {@inheritDoc}
      */     
@@ -138,14 +146,22 @@ public class ConcretizeExpression extends SimpleExpression {
      * {@inheritDoc}
      */     
     @Override
-    public ConcretizeExpression copy(Expression par) {
+    protected ConcretizeExpression copyNode(Expression par) {
         ConcretizeExpression copy = new ConcretizeExpression(par);
         copy.id = id.copy();
         copy.args = args.copy();
-        copy.setSuccExp(null);
         return copy;
     }
     
+    /**
+     * Returns empty list, since the instance of the process is not copied.
+     * @return empty list
+     */
+    @Override
+    protected List<Expression> getCopySuccessors() {
+        return Collections.emptyList();
+    }
+    
     /**
      * {@inheritDoc}
      */     
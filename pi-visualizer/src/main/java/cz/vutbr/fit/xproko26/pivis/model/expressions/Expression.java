@@ -17,27 +17,63 @@ package cz.vutbr.fit.xproko26.pivis.model.expressions;
 
 import java.io.Serializable;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
 import java.util.Stack;
+import java.util.concurrent.atomic.AtomicInteger;
 import cz.vutbr.fit.xproko26.pivis.gui.graph.NodeValue;
+import cz.vutbr.fit.xproko26.pivis.model.Model;
 import cz.vutbr.fit.xproko26.pivis.model.names.NameRef;
 import cz.vutbr.fit.xproko26.pivis.model.names.NameValue;
 
 /**
  * Abstract class which represents any pi-calculus expression as a node of
- * the expression tree.
+ * the expression tree. Textual representation is written into a string
+ * builder. Expressions which cache their text (see {@link ExpressionList
+ * ExpressionList}) are invalidated on the path from the modified expression
+ * to the root, which includes expressions with remapped names. Substitution
+ * of names and replacement of the name table invalidate all cached texts
+ * at once.
+ * Writing and copying of the tree do not recurse (see {@link ExpressionTraversal
+ * ExpressionTraversal}), so they are not limited by the depth of the tree.
  * @author Dagmar Prokopova
  */
 public abstract class Expression implements Serializable {
 
     private static final long serialVersionUID = 1L;
     
+    /**
+     * All expression type options, used to dispatch processing of expressions
+     * with a single switch instead of a chain of type checks.
+     */
+    public enum Type {
+        ROOT,
+        RESTRICTION,
+        SUM,
+        PARALLEL,
+        PARALLEL_REPLICATION,
+        REPLICATION,
+        IN_PREFIX,
+        OUT_PREFIX,
+        TAU_PREFIX,
+        MATCH,
+        CONCRETIZE,
+        NIL,
+        ABSTRACTION
+    }
+    
+    //source of revisions of names, each change of names gets a new value
+    private static final AtomicInteger revisions = new AtomicInteger();
+    
     //reference to previous expression
     private Expression parent;
     
     //reference to object aggregating visual information about expression
     private NodeValue visual;
     
+    //flag indicating that the text of expression may be part of some cached text
+    private transient boolean cached;
+    
     /**
      * Constructor which sets parent expression.
      * @param p parent expression
@@ -52,6 +88,7 @@ public abstract class Expression implements Serializable {
      */
     public void setParent(Expression p) {
         parent = p;
+        invalidate();
     }
     
     /**
@@ -105,6 +142,58 @@ public abstract class Expression implements Serializable {
         return this;
     }    
     
+    /**
+     * Returns the nearest ancestor which textual representation is visible.
+     * @return ancestor with visible text or null
+     */
+    public Expression getStringParent() {
+        Expression prev = this.parent;
+        while (prev != null && !prev.isStringVisible()) {
+            prev = prev.getParent();
+        }
+        return prev;
+    }
+    
+    /**
+     * Drops cached text of this expression and all its ancestors. It needs
+     * to be called whenever the expression is modified. Ancestors are visited
+     * only while the text may be cached, so that building of a new tree
+     * does not walk up to its root.
+     */
+    public void invalidate() {
+        for (Expression e = this; e != null && e.cached; e = e.getParent()) {
+            e.cached = false;
+            e.dropText();
+        }
+    }
+    
+    /**
+     * Marks the expression as a part of cached text, so that its modification
+     * drops the cached texts of its ancestors.
+     */
+    public void setCached() {
+        cached = true;
+    }
+    
+    /**
+     * Reports change of names, which invalidates cached texts of all
+     * expressions of the data used by the calling thread. It is meant for
+     * substitution of names and replacement of the name table, expressions
+     * with remapped names are invalidated on their own. Changes made on
+     * a copy in the background keep cached texts of model data valid.
+     */
+    public static void namesChanged() {
+        Model.getInstance().setNameRevision(revisions.incrementAndGet());
+    }
+    
+    /**
+     * Returns current revision of names of the data used by the calling thread.
+     * @return revision of names
+     */
+    protected static int getNameRevision() {
+        return Model.getInstance().getNameRevision();
+    }
+    
     /**
      * Returns list of all ancestors with root placed at the end of the list.
      * List does not contain expression for which the method was called.
@@ -123,6 +212,45 @@ public abstract class Expression implements Serializable {
     
     /* --------- methods which can be redefined ---------- */
     
+    /**
+     * Returns list of direct descendants.
+     * @return list of successors, empty if there are none
+     */
+    public List<Expression> getSuccessors() {
+        return Collections.emptyList();
+    }
+    
+    /**
+     * Returns direct descendants which are part of textual representation.
+     * @return list of successors
+     */
+    protected List<Expression> getTextSuccessors() {
+        return getSuccessors();
+    }
+    
+    /**
+     * Appends textual representation of the expression itself, which
+     * precedes the text of its successors.
+     * @param sb string builder
+     */
+    protected void appendHead(StringBuilder sb) {
+    }
+    
+    /**
+     * Returns direct descendants which are copied together with the expression.
+     * @return list of successors
+     */
+    protected List<Expression> getCopySuccessors() {
+        return getSuccessors();
+    }
+    
+    /**
+     * Finishes copy of the expression after its successors are copied.
+     * @param copy copy of the expression
+     */
+    protected void completeCopy(Expression copy) {
+    }
+    
     /**
      * Returns name reference (index in name table) for specified name value.
      * In case that expression does not contain local name table, 
@@ -138,6 +266,12 @@ public abstract class Expression implements Serializable {
             return null;
     }    
     
+    /**
+     * Drops cached text of the expression, if there is any.
+     */
+    protected void dropText() {
+    }
+    
     /**
      * Returns true if textual representation of the expression is visible.
      * @return visibility flag of textual representation
@@ -187,7 +321,26 @@ public abstract class Expression implements Serializable {
      * @return string
      */
     @Override
-    public abstract String toString();
+    public String toString() {
+        StringBuilder sb = new StringBuilder();
+        appendTo(sb);
+        return sb.toString();
+    }
+    
+    /**
+     * Appends simple unformated textual representation of expression
+     * to the string builder.
+     * @param sb string builder
+     */
+    public void appendTo(StringBuilder sb) {
+        new ExpressionWriter(sb).traverse(this);
+    }
+    
+    /**
+     * Returns type of the expression.
+     * @return expression type
+     */
+    public abstract Type getType();
     
     /**
      * Returns simple unformated string for debugging purposes.
@@ -207,7 +360,17 @@ public abstract class Expression implements Serializable {
      * @param parent parent of the copy
      * @return copied expression
      */
-    public abstract Expression copy(Expression parent);
+    public Expression copy(Expression parent) {
+        return new ExpressionCopier(parent).traverse(this);
+    }
+    
+    /**
+     * Returns copy of the expression itself with specified parent,
+     * without any successors.
+     * @param parent parent of the copy
+     * @return copied expression
+     */
+    protected abstract Expression copyNode(Expression parent);
     
     
     
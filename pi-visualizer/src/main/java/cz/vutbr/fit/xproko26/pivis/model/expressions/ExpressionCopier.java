@@ -0,0 +1,68 @@
+/* 
+ * Copyright 2017 Dagmar Prokopova <xproko26@stud.fit.vutbr.cz>.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package cz.vutbr.fit.xproko26.pivis.model.expressions;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * ExpressionCopier creates copy of the expression tree. Expressions are
+ * copied one by one and each copy is connected to the copy of its parent
+ * as soon as it is created.
+ * @author Dagmar Prokopova
+ */
+class ExpressionCopier extends ExpressionTraversal<Expression> {
+
+    //parent of the copied tree
+    private final Expression parent;
+
+    //copies of the traversed expressions
+    private final List<Expression> copies;
+
+    /**
+     * Creates copier with specified parent of the copied tree.
+     * @param parent parent of the copy
+     */
+    ExpressionCopier(Expression parent) {
+        this.parent = parent;
+        this.copies = new ArrayList<>();
+    }
+
+    @Override
+    protected List<Expression> enter(Expression node) {
+        if (copies.isEmpty()) {
+            copies.add(node.copyNode(parent));
+        } else {
+            //connect copy to the copy of its parent
+            Expression par = copies.get(copies.size() - 1);
+            Expression copy = node.copyNode(par);
+            if (par instanceof SimpleExpression) {
+                ((SimpleExpression) par).setSuccExp(copy);
+            } else {
+                ((ExpressionList) par).addExp(copy);
+            }
+            copies.add(copy);
+        }
+        return node.getCopySuccessors();
+    }
+
+    @Override
+    protected Expression leave(Expression node, Expression last) {
+        Expression copy = copies.remove(copies.size() - 1);
+        node.completeCopy(copy);
+        return copy;
+    }
+}
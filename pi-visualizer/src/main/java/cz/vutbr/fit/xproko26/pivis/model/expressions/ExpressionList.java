@@ -16,11 +16,16 @@
 package cz.vutbr.fit.xproko26.pivis.model.expressions;
 
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
 
 /**
  * Abstract class which represents pi-calculus expression containing more
- * than one succesor.
+ * than one succesor. It caches the text of its successors, so that only
+ * the branches on the path of a modification are written again. Cached text
+ * does not contain enclosing parentheses, which depend on the ancestors.
+ * The formated text of successors created by a formater is cached and
+ * dropped the same way.
  * @author Dagmar Prokopova
  */
 public abstract class ExpressionList extends Expression {
@@ -29,6 +34,18 @@ public abstract class ExpressionList extends Expression {
     
     //list of successors
     private List<Expression> exps;
+    
+    //cached text of successors, null if it has to be written again
+    private transient String text;
+    
+    //revision of names the cached text was written with
+    private transient int textrevision;
+
+    //cached formated text of successors owned by a formater, null if it has to be created again
+    private transient Object formatted;
+
+    //revision of names the cached formated text was created with
+    private transient int formattedrevision;
 
     /**
      * Constructor which sets parent expression.
@@ -52,6 +69,7 @@ public abstract class ExpressionList extends Expression {
      */
     public void setSuccExps(List<Expression> elist) {
         exps = elist;
+        invalidate();
     }
     
     /**
@@ -64,6 +82,7 @@ public abstract class ExpressionList extends Expression {
             exps = new ArrayList<>();
         }
         exps.add(e);
+        invalidate();
     }
     
     /**
@@ -73,6 +92,7 @@ public abstract class ExpressionList extends Expression {
     public void removeExp(Expression e) {
         if (exps != null) {
             exps.remove(e);
+            invalidate();
         }
     }
     
@@ -99,9 +119,75 @@ public abstract class ExpressionList extends Expression {
             if (exps.get(i) == oldsucc) {
                 //replace with new one
                 exps.set(i, newsucc);
+                invalidate();
                 break;
             }
         }
     }
+    
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public List<Expression> getSuccessors() {
+        return (exps != null) ? exps : Collections.emptyList();
+    }
+    
+    /**
+     * Returns cached text of successors if it is still valid.
+     * @return cached text or null
+     */
+    String getText() {
+        return (textrevision == getNameRevision()) ? text : null;
+    }
+    
+    /**
+     * Stores text of successors into cache.
+     * @param t text of successors
+     */
+    void setText(String t) {
+        text = t;
+        textrevision = getNameRevision();
+    }
+    
+    /**
+     * Returns cached formated text of successors if it is still valid.
+     * @return formated text or null
+     */
+    public Object getFormatted() {
+        return (formattedrevision == getNameRevision()) ? formatted : null;
+    }
+
+    /**
+     * Stores formated text of successors into cache. All expressions of
+     * the formated successors need to be marked as a part of cached text.
+     * @param f formated text of successors
+     */
+    public void setFormatted(Object f) {
+        formatted = f;
+        formattedrevision = getNameRevision();
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    protected void dropText() {
+        text = null;
+        formatted = null;
+    }
+    
+    /**
+     * Returns separator placed between texts of successors.
+     * @return separator
+     */
+    protected abstract String getSeparator();
+    
+    /**
+     * Returns true if the text of the expression needs to be enclosed
+     * in parentheses in the context of its ancestors.
+     * @return true if parentheses are needed
+     */
+    protected abstract boolean needsParentheses();
 
 }
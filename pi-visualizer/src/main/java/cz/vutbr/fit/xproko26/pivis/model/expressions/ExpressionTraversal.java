@@ -0,0 +1,223 @@
+/*
+ * Copyright 2017 Dagmar Prokopova <xproko26@stud.fit.vutbr.cz>.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package cz.vutbr.fit.xproko26.pivis.model.expressions;
+
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Abstract class which traverses the expression tree in depth-first order
+ * without recursion. Expressions which are being traversed are kept on an
+ * explicit stack instead of the call stack, so that the depth of the tree
+ * is limited only by available memory. Subclasses process the expressions
+ * in callbacks which are invoked when the expression is entered (pre-order),
+ * between its successors, after each of its successors is finished and when
+ * the expression is left (post-order). Result of each expression is passed
+ * to its parent. The traversal can be started again from inside of the
+ * callbacks. Expressions without successors are left right after they are
+ * entered and never get on the stack, expressions with a single successor
+ * descend into it without walking the list of successors.
+ * @author Dagmar Prokopova
+ * @param <R> type of the result of traversed subtree
+ */
+public abstract class ExpressionTraversal<R> {
+
+    //initial capacity of the stack
+    private static final int CAPACITY = 64;
+
+    //stack of traversed expressions, reused between traversals
+    private Expression[] nodes = new Expression[CAPACITY];
+
+    //successors of traversed expressions, null if the only successor was entered
+    private List<?>[] succs = new List<?>[CAPACITY];
+
+    //positions of the next successors
+    private int[] nexts = new int[CAPACITY];
+
+    //results of the last successors
+    private Object[] lasts = new Object[CAPACITY];
+
+    //number of expressions on the stack
+    private int depth;
+
+    //number of expressions entered by all traversals
+    private long visited;
+
+    /**
+     * Traverses subtree of specified expression.
+     * @param exp root of the subtree
+     * @return result of the root or null if no expression is passed
+     */
+    public R traverse(Expression exp) {
+
+        //if no expression is passed, no processing is done
+        if (exp == null) {
+            return null;
+        }
+
+        //traversal started from callback continues above current expressions
+        int base = depth;
+        try {
+            //expression to be entered, null when the top expression is to be left
+            Expression node = exp;
+            while (true) {
+                Expression left;
+                R res;
+                if (node != null) {
+                    List<Expression> list = enter(node);
+                    visited++;
+                    int count = (list != null) ? list.size() : 0;
+                    if (count > 0) {
+                        node = push(node, list, count);
+                        continue;
+                    }
+                    //expression without successors is left at once
+                    left = node;
+                    res = leave(node, null);
+                } else {
+                    int top = depth - 1;
+                    left = nodes[top];
+                    res = leave(left, getLast(top));
+                    pop();
+                }
+                if (depth == base) {
+                    return res;
+                }
+                int top = depth - 1;
+                lasts[top] = res;
+                returned(nodes[top], left, res);
+                node = next(top);
+            }
+        } finally {
+            //drops expressions left on the stack by a failed callback
+            while (depth > base) {
+                pop();
+            }
+        }
+    }
+
+    /**
+     * Returns number of expressions entered by all traversals so far.
+     * @return number of visited expressions
+     */
+    public long getVisited() {
+        return visited;
+    }
+
+    /**
+     * Pushes entered expression on the stack and returns its first
+     * successor to be entered.
+     * @param node expression
+     * @param list successors of the expression
+     * @param count number of successors
+     * @return first successor or null if the expression is to be left
+     */
+    private Expression push(Expression node, List<Expression> list, int count) {
+        if (depth == nodes.length) {
+            int size = depth * 2;
+            nodes = Arrays.copyOf(nodes, size);
+            succs = Arrays.copyOf(succs, size);
+            nexts = Arrays.copyOf(nexts, size);
+            lasts = Arrays.copyOf(lasts, size);
+        }
+        int top = depth++;
+        nodes[top] = node;
+        if (count == 1) {
+            return list.get(0);
+        }
+        succs[top] = list;
+        nexts[top] = 0;
+        return next(top);
+    }
+
+    /**
+     * Removes the top expression from the stack.
+     */
+    private void pop() {
+        int top = --depth;
+        nodes[top] = null;
+        succs[top] = null;
+        lasts[top] = null;
+    }
+
+    /**
+     * Returns next successor of the expression on the stack to be entered.
+     * Missing successors are skipped.
+     * @param top position of the expression on the stack
+     * @return successor or null if all successors were traversed
+     */
+    private Expression next(int top) {
+        List<?> list = succs[top];
+        if (list == null) {
+            return null;
+        }
+        while (nexts[top] < list.size()) {
+            if (nexts[top] > 0) {
+                separate(nodes[top]);
+            }
+            Expression succ = (Expression) list.get(nexts[top]++);
+            if (succ != null) {
+                return succ;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Returns result of the last successor of the expression on the stack.
+     * @param top position of the expression on the stack
+     * @return result or null if no successor was traversed
+     */
+    @SuppressWarnings("unchecked")
+    private R getLast(int top) {
+        return (R) lasts[top];
+    }
+
+    /**
+     * Processes expression before its successors (pre-order) and returns
+     * successors which should be traversed.
+     * @param node expression
+     * @return successors in the order of traversal, or null if there are none
+     */
+    protected abstract List<Expression> enter(Expression node);
+
+    /**
+     * Processes expression between two of its successors.
+     * @param node expression
+     */
+    protected void separate(Expression node) {
+    }
+
+    /**
+     * Processes result of successor which was just finished.
+     * @param node expression
+     * @param succ successor
+     * @param result result of the successor
+     */
+    protected void returned(Expression node, Expression succ, R result) {
+    }
+
+    /**
+     * Processes expression after its successors (post-order) and returns
+     * its result. By default the result of the last successor is returned.
+     * @param node expression
+     * @param last result of the last successor or null if no successor was traversed
+     * @return result of the expression
+     */
+    protected R leave(Expression node, R last) {
+        return last;
+    }
+}
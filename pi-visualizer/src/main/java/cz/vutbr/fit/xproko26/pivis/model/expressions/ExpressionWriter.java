@@ -0,0 +1,105 @@
+/* 
+ * Copyright 2017 Dagmar Prokopova <xproko26@stud.fit.vutbr.cz>.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package cz.vutbr.fit.xproko26.pivis.model.expressions;
+
+import java.util.List;
+
+/**
+ * ExpressionWriter writes simple unformated textual representation of the
+ * expression tree into a string builder. Texts of successors of expression
+ * lists are cached in the lists and reused as long as they are valid.
+ * Only texts of limited length are cached, since nested lists of a deep
+ * tree would otherwise hold copies of the same text.
+ * @author Dagmar Prokopova
+ */
+class ExpressionWriter extends ExpressionTraversal<Void> {
+
+    //maximal length of cached text
+    private static final int MAX_CACHED = 16384;
+
+    //output string builder
+    private final StringBuilder sb;
+
+    //start positions of texts of the traversed expression lists, -1 if cached text is used
+    private int[] starts = new int[16];
+
+    //number of traversed expression lists
+    private int lists;
+
+    //number of traversed expression lists which write their text into cache
+    private int caching;
+
+    /**
+     * Creates writer appending to specified string builder.
+     * @param sb string builder
+     */
+    ExpressionWriter(StringBuilder sb) {
+        this.sb = sb;
+    }
+
+    @Override
+    protected List<Expression> enter(Expression node) {
+        if (caching > 0) {
+            node.setCached();
+        }
+        if (node instanceof ExpressionList) {
+            ExpressionList list = (ExpressionList) node;
+            if (list.needsParentheses()) {
+                sb.append('(');
+            }
+            if (lists == starts.length) {
+                int[] grown = new int[starts.length * 2];
+                System.arraycopy(starts, 0, grown, 0, lists);
+                starts = grown;
+            }
+            String text = list.getText();
+            if (text != null) {
+                starts[lists++] = -1;
+                sb.append(text);
+                return null;
+            }
+            starts[lists++] = sb.length();
+            caching++;
+            return list.getTextSuccessors();
+        }
+        node.appendHead(sb);
+        return node.getTextSuccessors();
+    }
+
+    @Override
+    protected void separate(Expression node) {
+        sb.append(((ExpressionList) node).getSeparator());
+    }
+
+    @Override
+    protected Void leave(Expression node, Void last) {
+        if (node instanceof ExpressionList) {
+            ExpressionList list = (ExpressionList) node;
+            int start = starts[--lists];
+            if (start >= 0) {
+                caching--;
+                if (sb.length() - start <= MAX_CACHED) {
+                    list.setText(sb.substring(start));
+                    list.setCached();
+                }
+            }
+            if (list.needsParentheses()) {
+                sb.append(')');
+            }
+        }
+        return null;
+    }
+}
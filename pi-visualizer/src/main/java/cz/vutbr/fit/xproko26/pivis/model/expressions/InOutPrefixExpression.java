@@ -55,6 +55,7 @@ public abstract class InOutPrefixExpression extends SimpleExpression {
      */
     public void setChannel(NameRef c) {
         channel = c;
+        invalidate();
     }
     
     /**
@@ -71,6 +72,7 @@ public abstract class InOutPrefixExpression extends SimpleExpression {
      */
     public void setParams(NRList p) {
         params = p;
+        invalidate();
     }
     
     /**
@@ -72,18 +72,22 @@ public class InPrefixExpression extends InOutPrefixExpression {
      * {@inheritDoc}
      */    
     @Override
-    public String toString() {                
-        
-        String ret = getChannel().toString();
+    protected void appendHead(StringBuilder sb) {
+        sb.append(getChannel().toString());
         if (getParams() != null && getParams().size() > 0) {
-            ret += "(";
-            ret += getParams().toString();
-            ret += ")";
+            sb.append('(');
+            getParams().appendTo(sb);
+            sb.append(')');
         }
-        ret += ".";
-        ret += getSuccExp().toString();
-        
-        return ret;
+        sb.append('.');
+    }
+    
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public Type getType() {
+        return Type.IN_PREFIX;
     }
     
     /**
@@ -108,11 +112,10 @@ public class InPrefixExpression extends InOutPrefixExpression {
      * {@inheritDoc}
      */    
     @Override
-    public InPrefixExpression copy(Expression par) {
+    protected InPrefixExpression copyNode(Expression par) {
         InPrefixExpression copy = new InPrefixExpression(par);      
         copy.setChannel(getChannel().copy());
         copy.setParams(getParams().copy());
-        copy.setSuccExp(getSuccExp().copy(copy)); 
         return copy;
     }
 }
@@ -54,6 +54,7 @@ public class MatchExpression extends SimpleExpression {
      */
     public void setLeft(NameRef nr) {
         left = nr;
+        invalidate();
     }
     
     /**
@@ -70,6 +71,7 @@ public class MatchExpression extends SimpleExpression {
      */
     public void setRight(NameRef nr) {
         right = nr;
+        invalidate();
     }
     
     /**
@@ -85,12 +87,16 @@ public class MatchExpression extends SimpleExpression {
      * {@inheritDoc}
      */
     @Override
-    public String toString() {
-        
-        String ret = "[" + left.toString() + "=" + right.toString() + "]";
-        ret += getSuccExp().toString();
-        
-        return ret;
+    protected void appendHead(StringBuilder sb) {
+        sb.append('[').append(left.toString()).append('=').append(right.toString()).append(']');
+    }
+    
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public Type getType() {
+        return Type.MATCH;
     }
     
     /**
@@ -109,11 +115,10 @@ public class MatchExpression extends SimpleExpression {
      * {@inheritDoc}
      */
     @Override
-    public MatchExpression copy(Expression par) {
+    protected MatchExpression copyNode(Expression par) {
         MatchExpression copy = new MatchExpression(par);
         copy.left = left.copy();
         copy.right = right.copy();        
-        copy.setSuccExp(getSuccExp().copy(copy)); 
         return copy;
     }
     
@@ -36,8 +36,16 @@ public class NilExpression extends Expression {
      * {@inheritDoc}
      */
     @Override
-    public String toString() {
-        return "0";
+    protected void appendHead(StringBuilder sb) {
+        sb.append('0');
+    }
+    
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public Type getType() {
+        return Type.NIL;
     }
     
     /**
@@ -52,7 +60,7 @@ public class NilExpression extends Expression {
      * {@inheritDoc}
      */
     @Override
-    public NilExpression copy(Expression par) {
+    protected NilExpression copyNode(Expression par) {
         return new NilExpression(par);
     }
     
@@ -37,19 +37,23 @@ public class OutPrefixExpression extends InOutPrefixExpression {
      * {@inheritDoc}
      */
     @Override
-    public String toString() {               
-        
-        String ret = "'" + getChannel().toString();
+    protected void appendHead(StringBuilder sb) {
+        sb.append('\'').append(getChannel().toString());
         if (getParams() != null && getParams().size() > 0) {
-            ret += "<";
-            ret += getParams().toString();
-            ret += ">";
+            sb.append('<');
+            getParams().appendTo(sb);
+            sb.append('>');
         }
-        ret += ".";
-        ret += getSuccExp().toString();
-        
-        return ret;
-    }            
+        sb.append('.');
+    }
+    
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public Type getType() {
+        return Type.OUT_PREFIX;
+    }
     
     /**
      * {@inheritDoc}
@@ -73,11 +77,10 @@ public class OutPrefixExpression extends InOutPrefixExpression {
      * {@inheritDoc}
      */    
     @Override
-    public OutPrefixExpression copy(Expression par) {
+    protected OutPrefixExpression copyNode(Expression par) {
         OutPrefixExpression copy = new OutPrefixExpression(par);
         copy.setChannel(getChannel().copy());
         copy.setParams(getParams().copy());
-        copy.setSuccExp(getSuccExp().copy(copy));
         return copy;
     }
 
@@ -39,19 +39,25 @@ public class ParallelExpression extends ExpressionList {
      * {@inheritDoc}
      */          
     @Override
-    public String toString() {
-        String par = getSuccExps().stream().map(e -> e.toString()).collect(Collectors.joining(" | "));
-        
-        List<Expression> parlist = getParentList();
-        for (Expression ex : parlist) {
-            if (ex.isStringVisible()) {
-                if (ex instanceof SumExpression) {
-                    return par;
-                }
-                return "(" + par + ")";
-            }
-        }
-        return par; 
+    protected String getSeparator() {
+        return " | ";
+    }
+    
+    /**
+     * {@inheritDoc}
+     */          
+    @Override
+    protected boolean needsParentheses() {
+        Expression ex = getStringParent();
+        return (ex != null) && !(ex instanceof SumExpression);
+    }
+    
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public Type getType() {
+        return Type.PARALLEL;
     }
     
     /**
@@ -76,9 +82,7 @@ public class ParallelExpression extends ExpressionList {
      * {@inheritDoc}
      */      
     @Override
-    public ParallelExpression copy(Expression par) {
-        ParallelExpression copy = new ParallelExpression(par);
-        copy.setSuccExps(getSuccExps().stream().map(e -> e.copy(copy)).collect(Collectors.toList()));
-        return copy;
+    protected ParallelExpression copyNode(Expression par) {
+        return new ParallelExpression(par);
     }
 }
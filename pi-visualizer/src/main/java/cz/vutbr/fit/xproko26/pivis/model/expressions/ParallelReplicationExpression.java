@@ -15,6 +15,8 @@
  */
 package cz.vutbr.fit.xproko26.pivis.model.expressions;
 
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
 import java.util.Stack;
 import java.util.stream.Collectors;
@@ -113,24 +115,44 @@ public class ParallelReplicationExpression extends ParallelExpression {
         return (i > 1);
     }
     
+    /**
+     * Returns all successors except the replication helper, which is
+     * neither shown nor searched through for reductions at first.
+     * @return successors without the helper
+     */
+    public List<Expression> getVisibleSuccExps() {
+        List<Expression> exps = getSuccExps();
+        List<Expression> visible = new ArrayList<>(exps.size());
+        for (Expression ex : exps) {
+            if (!ex.isReplicationHelper()) {
+                visible.add(ex);
+            }
+        }
+        return visible;
+    }
+    
     /**
      * {@inheritDoc}
      */    
     @Override
-    public String toString() {
-        String par = getSuccExps().stream().filter(e -> !e.isReplicationHelper()).map(e -> e.toString()).collect(Collectors.joining(" | "));
-        if (isVisible()) {
-            List<Expression> parlist = getParentList();
-            for (Expression ex : parlist) {
-                if (ex.isStringVisible()) {
-                    if (ex instanceof SumExpression) {
-                        return par;
-                    }
-                    return "(" + par + ")";
-                }
-            }
-        }
-        return par; 
+    protected List<Expression> getTextSuccessors() {
+        return getVisibleSuccExps();
+    }
+    
+    /**
+     * {@inheritDoc}
+     */    
+    @Override
+    protected boolean needsParentheses() {
+        return isVisible() && super.needsParentheses();
+    }
+    
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public Type getType() {
+        return Type.PARALLEL_REPLICATION;
     }
     
     /**
@@ -157,17 +179,27 @@ public class ParallelReplicationExpression extends ParallelExpression {
      * {@inheritDoc}
      */    
     @Override
-    public ParallelReplicationExpression copy(Expression par) {
-        ParallelReplicationExpression copy = new ParallelReplicationExpression(par);
-
-        ReplicationExpression orig = getRepOriginal().copy(copy);
-        copy.addExp(orig);
-        
-        ReplicationExpression helper = orig.copy(copy);
-        helper.setCopyType(false);
-        copy.addExp(helper);
-
-        return copy;
+    protected ParallelReplicationExpression copyNode(Expression par) {
+        return new ParallelReplicationExpression(par);
+    }
+    
+    /**
+     * Returns original replication branch twice, the first copy becomes
+     * the original and the second one becomes the helper.
+     * @return list of successors to be copied
+     */
+    @Override
+    protected List<Expression> getCopySuccessors() {
+        ReplicationExpression orig = getRepOriginal();
+        return Arrays.asList(orig, orig);
+    }
+    
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    protected void completeCopy(Expression copy) {
+        ((ReplicationExpression) ((ParallelReplicationExpression) copy).getSuccExps().get(1)).setCopyType(false);
     }
     
 }
\ No newline at end of file
@@ -61,6 +61,7 @@ public class ReplicationExpression extends SimpleExpression {
      */
     public void setCopyType(boolean visible) {
         type = visible ? Type.COPY : Type.HELPER;
+        invalidate();
     }  
 
     /**
@@ -91,15 +92,20 @@ public class ReplicationExpression extends SimpleExpression {
      * {@inheritDoc}
      */        
     @Override
-    public String toString() {
-        if (isReplicationCopy()) {
-            return getSuccExp().toString(); 
-        }
-        else {
-            return "!" + getSuccExp().toString();           
+    protected void appendHead(StringBuilder sb) {
+        if (!isReplicationCopy()) {
+            sb.append('!');
         }
     }
     
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public Expression.Type getType() {
+        return Expression.Type.REPLICATION;
+    }
+    
     /**
      * {@inheritDoc}
      */        
@@ -113,8 +119,15 @@ public class ReplicationExpression extends SimpleExpression {
      */        
     @Override
     public ReplicationExpression copy(Expression par) {
+        return (ReplicationExpression) super.copy(par);
+    }
+    
+    /**
+     * {@inheritDoc}
+     */        
+    @Override
+    protected ReplicationExpression copyNode(Expression par) {
         ReplicationExpression copy = new ReplicationExpression(par);
-        copy.setSuccExp(getSuccExp().copy(copy));
         copy.type = type;
         return copy;
     }
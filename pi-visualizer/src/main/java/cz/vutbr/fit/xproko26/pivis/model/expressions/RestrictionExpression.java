@@ -55,6 +55,7 @@ public class RestrictionExpression extends SimpleExpression {
      */
     public void setRestrictions(NRList rlist) {
         res = rlist;
+        invalidate();
     }
 
     /**
@@ -70,6 +71,7 @@ public class RestrictionExpression extends SimpleExpression {
             //send request to global table to create name of value n
             res.add(Model.getInstance().getNameTable().createName(n));
         });
+        invalidate();
     }
 
     /**
@@ -91,10 +93,18 @@ public class RestrictionExpression extends SimpleExpression {
      * {@inheritDoc}
      */
     @Override
-    public String toString() {        
-        String ret = "(^" + res.toString() + ")";
-        ret += getSuccExp().toString();        
-        return ret;
+    protected void appendHead(StringBuilder sb) {
+        sb.append("(^");
+        res.appendTo(sb);
+        sb.append(')');
+    }
+    
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public Type getType() {
+        return Type.RESTRICTION;
     }
     
     /**
@@ -111,10 +121,9 @@ public class RestrictionExpression extends SimpleExpression {
      * {@inheritDoc}
      */    
     @Override
-    public RestrictionExpression copy(Expression par) {
+    protected RestrictionExpression copyNode(Expression par) {
         RestrictionExpression copy = new RestrictionExpression(par);
         copy.res = res.copy();
-        copy.setSuccExp(getSuccExp().copy(copy));
         return copy;
     }
 
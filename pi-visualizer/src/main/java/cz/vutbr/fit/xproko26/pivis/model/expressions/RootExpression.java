@@ -67,10 +67,10 @@ public class RootExpression extends SimpleExpression {
     
     /**
      * {@inheritDoc}
-     */        
+     */
     @Override
-    public String toString() {
-        return getSuccExp().toString();
+    public Type getType() {
+        return Type.ROOT;
     }
     
     /**
@@ -85,9 +85,8 @@ public class RootExpression extends SimpleExpression {
      * {@inheritDoc}
      */    
     @Override
-    public RootExpression copy(Expression par) {
+    protected RootExpression copyNode(Expression par) {
         RootExpression copy = new RootExpression();
-        copy.setSuccExp(getSuccExp().copy(copy)); 
         copy.nametable = nametable.copy();
         return copy;
     }
@@ -15,6 +15,9 @@
  */
 package cz.vutbr.fit.xproko26.pivis.model.expressions;
 
+import java.util.Collections;
+import java.util.List;
+
 /**
  * Abstract class which represents pi-calculus expression containing exactly
  * one succesor.
@@ -49,6 +52,15 @@ public abstract class SimpleExpression extends Expression {
      */
     public void setSuccExp(Expression e) {
         exp = e;
+        invalidate();
+    }
+    
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public List<Expression> getSuccessors() {
+        return (exp != null) ? Collections.singletonList(exp) : Collections.emptyList();
     }
     
     /**
@@ -70,6 +82,7 @@ public abstract class SimpleExpression extends Expression {
     public void replaceSucc(Expression oldsucc, Expression newsucc) {
         if (exp == oldsucc) {
             exp = newsucc;
+            invalidate();
         }
     }
 
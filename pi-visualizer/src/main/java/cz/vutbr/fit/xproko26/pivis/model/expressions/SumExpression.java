@@ -40,16 +40,24 @@ public class SumExpression extends ExpressionList {
      * {@inheritDoc}
      */      
     @Override
-    public String toString() {
-        String sum = getSuccExps().stream().map(e -> e.toString()).collect(Collectors.joining(" + "));
-        
-        List<Expression> parlist = getParentList();
-        for (Expression ex : parlist) {
-            if (ex.isStringVisible()) {
-                return "(" + sum + ")";
-            }
-        }
-        return sum;              
+    protected String getSeparator() {
+        return " + ";
+    }
+    
+    /**
+     * {@inheritDoc}
+     */      
+    @Override
+    protected boolean needsParentheses() {
+        return getStringParent() != null;
+    }
+    
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public Type getType() {
+        return Type.SUM;
     }
     
     /**
@@ -71,10 +79,8 @@ public class SumExpression extends ExpressionList {
      * {@inheritDoc}
      */      
     @Override
-    public SumExpression copy(Expression par) {
-        SumExpression copy = new SumExpression(par);
-        copy.setSuccExps(getSuccExps().stream().map(e -> e.copy(copy)).collect(Collectors.toList()));        
-        return copy;
+    protected SumExpression copyNode(Expression par) {
+        return new SumExpression(par);
     }
 
 }
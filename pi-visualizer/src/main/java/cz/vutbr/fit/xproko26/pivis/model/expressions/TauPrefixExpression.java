@@ -36,8 +36,16 @@ public class TauPrefixExpression extends SimpleExpression {
      * {@inheritDoc}
      */    
     @Override
-    public String toString() {       
-        return "t."+getSuccExp().toString();
+    protected void appendHead(StringBuilder sb) {
+        sb.append("t.");
+    }
+    
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public Type getType() {
+        return Type.TAU_PREFIX;
     }
     
     /**
@@ -52,10 +60,8 @@ public class TauPrefixExpression extends SimpleExpression {
      * {@inheritDoc}
      */    
     @Override
-    public TauPrefixExpression copy(Expression par) {        
-        TauPrefixExpression copy = new TauPrefixExpression(par);
-        copy.setSuccExp(getSuccExp().copy(copy));
-        return copy;
+    protected TauPrefixExpression copyNode(Expression par) {        
+        return new TauPrefixExpression(par);
     }
     
     /**
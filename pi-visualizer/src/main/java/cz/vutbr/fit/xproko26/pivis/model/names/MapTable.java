@@ -58,10 +58,12 @@ public class MapTable extends HashMap<Integer, NameRef> {
     /**
      * Applies remapping process on the specified name reference. If there is
      * a record for the passed reference in the table, the name reference is
-     * remapped, otherwise nothing changes.
+     * remapped, otherwise nothing changes. The expression containing the
+     * reference needs to be invalidated if its identifier was changed.
      * @param ref name reference designated for remapping
+     * @return true if the identifier of the reference was changed
      */
-    public void remap(NameRef ref) {
+    public boolean remap(NameRef ref) {
         
         NameRef newref;
         
@@ -72,26 +74,34 @@ public class MapTable extends HashMap<Integer, NameRef> {
             newref = get(ref.getRef());
         }
 
-        if (newref != null) {
-            ref.setRef(newref.getRef());
-            ref.setSource(newref.getSource());
-            if (newref.isPrivate()) {
-                ref.setPrivate();
-            }
-            if (newref.isProcess()) {
-                ref.setProcess();
-            }
-            ref.setDefProcess(newref.isDefProcess());            
+        if (newref == null) {
+            return false;
         }
+        boolean changed = (ref.getRef() != newref.getRef());
+        ref.setRef(newref.getRef());
+        ref.setSource(newref.getSource());
+        if (newref.isPrivate()) {
+            ref.setPrivate();
+        }
+        if (newref.isProcess()) {
+            ref.setProcess();
+        }
+        ref.setDefProcess(newref.isDefProcess());
+        return changed;
     }
     
     /**
      * Applies remapping process for each name reference in the list passed 
      * as an argument.
      * @param list list of name references designated for remapping
+     * @return true if the identifier of any reference was changed
      */
-    public void remap(NRList list) {
-        list.forEach((ref) -> remap(ref));
+    public boolean remap(NRList list) {
+        boolean changed = false;
+        for (NameRef ref : list) {
+            changed |= remap(ref);
+        }
+        return changed;
     }
     
     /**
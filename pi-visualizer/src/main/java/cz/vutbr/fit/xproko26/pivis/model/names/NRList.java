@@ -50,6 +50,19 @@ public class NRList extends ArrayList<NameRef> {
     public String toString() {
         return this.stream().map(n -> n.toString()).collect(Collectors.joining(","));
     }
+
+    /**
+     * Appends names separated with commas to specified string builder.
+     * @param sb string builder
+     */
+    public void appendTo(StringBuilder sb) {
+        for (int i = 0; i < size(); i++) {
+            if (i > 0) {
+                sb.append(',');
+            }
+            sb.append(get(i).toString());
+        }
+    }
         
     /**
      * Returns simple unformated string as textual representation of the name list
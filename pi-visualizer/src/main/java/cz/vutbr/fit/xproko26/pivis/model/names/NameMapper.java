@@ -16,21 +16,15 @@
 package cz.vutbr.fit.xproko26.pivis.model.names;
 
 import cz.vutbr.fit.xproko26.pivis.model.Model;
-import cz.vutbr.fit.xproko26.pivis.model.expressions.ExpressionVisitor;
+import cz.vutbr.fit.xproko26.pivis.model.expressions.ExpressionTraversal;
 import cz.vutbr.fit.xproko26.pivis.model.expressions.ConcretizeExpression;
-import cz.vutbr.fit.xproko26.pivis.model.expressions.ParallelExpression;
 import cz.vutbr.fit.xproko26.pivis.model.expressions.OutPrefixExpression;
-import cz.vutbr.fit.xproko26.pivis.model.expressions.SumExpression;
-import cz.vutbr.fit.xproko26.pivis.model.expressions.TauPrefixExpression;
-import cz.vutbr.fit.xproko26.pivis.model.expressions.NilExpression;
 import cz.vutbr.fit.xproko26.pivis.model.expressions.MatchExpression;
 import cz.vutbr.fit.xproko26.pivis.model.expressions.InPrefixExpression;
-import cz.vutbr.fit.xproko26.pivis.model.expressions.ReplicationExpression;
 import cz.vutbr.fit.xproko26.pivis.model.expressions.RestrictionExpression;
-import cz.vutbr.fit.xproko26.pivis.model.expressions.RootExpression;
 import cz.vutbr.fit.xproko26.pivis.model.expressions.AbstractionExpression;
 import cz.vutbr.fit.xproko26.pivis.model.expressions.Expression;
-import cz.vutbr.fit.xproko26.pivis.model.expressions.ParallelReplicationExpression;
+import java.util.List;
 
 /**
  * NameMapper can be used in combination with {@link MapTable MapTable}
@@ -38,26 +32,26 @@ import cz.vutbr.fit.xproko26.pivis.model.expressions.ParallelReplicationExpressi
  * replicate restricted and input prefix names if needed.
  * @author Dagmar Prokopova
  */
-public class NameMapper extends ExpressionVisitor<MapTable> {
+public class NameMapper extends ExpressionTraversal<Void> {
 
-    //singleton instance of NameMapper class
-    private static NameMapper instance;
+    //instance of NameMapper class, one per thread since traversal keeps its state
+    private static final ThreadLocal<NameMapper> instance = ThreadLocal.withInitial(NameMapper::new);
     
     //replication flag indicating that the restriction and input names should be replicated
     private boolean replicate;
     
     //list of new name references which will be checked for name label conflicts
     private NRList newnames;
+    
+    //map table used during traversal
+    private MapTable mt;
 
     /**
      * Method for accessing the singleton instance.
      * @return instance of NameMapper class
      */
     public static NameMapper getInstance() {
-        if(instance == null) {
-            instance = new NameMapper();
-        }
-        return instance;
+        return instance.get();
     }
     
     /**
@@ -69,116 +63,63 @@ public class NameMapper extends ExpressionVisitor<MapTable> {
     public void traverse(Expression exp, MapTable mt, boolean rep) {
         replicate = rep;
         newnames = mt.getValues();
-        visit(exp, mt);
+        this.mt = mt;
+        traverse(exp);
+        this.mt = null;
     }
     
     @Override
-    public MapTable visit(RootExpression node, MapTable mt) {
-        visit(node.getSuccExp(), mt);
-        return null;
-    }
-
-    @Override
-    public MapTable visit(RestrictionExpression node, MapTable mt) {
-        if (replicate) {
-            node.getRestrictions().forEach((ref) -> {
-                //replicate the old name
-                NameRef newref = Model.getInstance().getNameTable().replicateName(ref);
-                //save pair of old name and new name into map table
-                mt.add(ref,newref);
-                //remap old name reference
-                mt.remap(ref);
-            }); 
+    protected List<Expression> enter(Expression node) {
+        boolean changed = false;
+        switch (node.getType()) {
+            case RESTRICTION:
+                changed = addNames(((RestrictionExpression) node).getRestrictions());
+                break;
+            case MATCH:
+                //remap left and right name if in map table
+                changed = mt.remap(((MatchExpression) node).getLeft());
+                changed |= mt.remap(((MatchExpression) node).getRight());
+                break;
+            case CONCRETIZE:
+                //remap process identifier and arguments if in map table
+                changed = mt.remap(((ConcretizeExpression) node).getIDRef());
+                changed |= mt.remap(((ConcretizeExpression) node).getArgs());
+                break;
+            case ABSTRACTION:
+                //remap parameters if in map table
+                changed = mt.remap(((AbstractionExpression) node).getParams());
+                break;
+            case IN_PREFIX:
+                //remap channel if in map table
+                changed = mt.remap(((InPrefixExpression) node).getChannel());
+                changed |= addNames(((InPrefixExpression) node).getParams());
+                break;
+            case OUT_PREFIX:
+                //remap channel and params if in map table
+                changed = mt.remap(((OutPrefixExpression) node).getChannel());
+                changed |= mt.remap(((OutPrefixExpression) node).getParams());
+                break;
+            default:
+                break;
         }
-        node.getRestrictions().forEach((ref)-> {
-            newnames.forEach((newname) -> {
-                //check for label conflict
-                if (ref.labelEquals(newname)) {
-                    ref.substitute();
-                }
-            });
-        });
-        visit(node.getSuccExp(), mt);
-        return null;
-    }
-
-    @Override
-    public MapTable visit(SumExpression node, MapTable mt) {
-        node.getSuccExps().forEach((e) -> {
-            visit(e, mt);
-        });
-        return null;
-    }
-
-    @Override
-    public MapTable visit(ParallelExpression node, MapTable mt) {
-        node.getSuccExps().forEach((e) -> {
-            visit(e, mt);
-        });
-        return null;
-    }
-    
-    
-    @Override
-    public MapTable visit(ParallelReplicationExpression node, MapTable mt) {
-        node.getSuccExps().forEach((e) -> {
-            visit(e, mt);
-        });
-        return null;
-    }
-
-    @Override
-    public MapTable visit(ReplicationExpression node, MapTable mt) {
-        visit(node.getSuccExp(), mt);
-        return null;
-    }
-
-    @Override
-    public MapTable visit(MatchExpression node, MapTable mt) {
-        //remap left name if in map table
-        mt.remap(node.getLeft());
-        //remap right name if in map table
-        mt.remap(node.getRight());
-        visit(node.getSuccExp(), mt);        
-        return null;
-    }
-
-    @Override
-    public MapTable visit(ConcretizeExpression node, MapTable mt) {
-
-        //remap process identifier
-        mt.remap(node.getIDRef());
-        
-        //remap arguments if in map table
-        mt.remap(node.getArgs());
-        
-        if (node.getSuccExp() != null) {
-            visit(node.getSuccExp(), mt);
+        if (changed) {
+            //only texts containing the remapped names are dropped
+            node.invalidate();
         }
-        return null;
-    }
-
-    @Override
-    public MapTable visit(NilExpression node, MapTable mt) {
-        return null;
+        return node.getSuccessors();
     }
-
-    @Override
-    public MapTable visit(AbstractionExpression node, MapTable mt) {
-        //remap parameters if in map table
-        mt.remap(node.getParams());
-        
-        visit(node.getSuccExp(), mt);
-        return null;
-    }
-
-    @Override
-    public MapTable visit(InPrefixExpression node, MapTable mt) {
-        //remap channel if in map table
-        mt.remap(node.getChannel());
-        
+    
+    /**
+     * Processes names defined by restriction or input prefix. The names are
+     * replicated if requested and substituted in case of label conflict
+     * with new names.
+     * @param names defined names
+     * @return true if any name was replicated
+     */
+    private boolean addNames(NRList names) {
+        boolean changed = false;
         if (replicate) {
-            node.getParams().forEach((ref) -> {
+            names.forEach((ref) -> {
                 //replicate the old name
                 NameRef newref = Model.getInstance().getNameTable().replicateName(ref);
                 //save pair of old name and new name into map table
@@ -186,8 +127,9 @@ public class NameMapper extends ExpressionVisitor<MapTable> {
                 //remap old name reference
                 mt.remap(ref);
             });
+            changed = !names.isEmpty();
         }
-        node.getParams().forEach((ref)-> {
+        names.forEach((ref)-> {
             newnames.forEach((newname) -> {
                 //check for label conflict
                 if (ref.labelEquals(newname)) {
@@ -195,25 +137,7 @@ public class NameMapper extends ExpressionVisitor<MapTable> {
                 }
             });
         });
-        visit(node.getSuccExp(), mt);
-        return null;
-    }
-
-    @Override
-    public MapTable visit(OutPrefixExpression node, MapTable mt) {
-        //remap channel if in map table
-        mt.remap(node.getChannel());
-        //remap params if in map table
-        mt.remap(node.getParams());
-        
-        visit(node.getSuccExp(), mt);
-        return null;
-    }
-
-    @Override
-    public MapTable visit(TauPrefixExpression node, MapTable mt) {
-        visit(node.getSuccExp(), mt);
-        return null;
+        return changed;
     }
     
 }
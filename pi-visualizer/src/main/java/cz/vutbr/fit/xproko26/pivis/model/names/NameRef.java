@@ -52,7 +52,8 @@ public class NameRef extends Name {
     }
     
     /**
-     * Sets the unique identifier of the name
+     * Sets the unique identifier of the name. Text of the expression containing
+     * the name changes with it, so the expression needs to be invalidated.
      * @param r unique identifier
      */
     public void setRef(int r) {
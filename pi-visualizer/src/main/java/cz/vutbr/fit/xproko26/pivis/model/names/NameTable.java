@@ -96,5 +96,24 @@ public class NameTable extends ArrayList<NameValue>{
         return null;
     } 
     
+    /**
+     * Returns true if any name of this table is written differently in the
+     * passed table, which holds copies of these names followed by new ones.
+     * Only then the texts referring to the names of this table change.
+     * @param t table replacing this one
+     * @return true if label or substitution of some name differs
+     */
+    public boolean isRenamedIn(NameTable t) {
+        if (t.size() < size()) {
+            return true;
+        }
+        for (int i = 0; i < size(); i++) {
+            NameValue nv = get(i);
+            if (!nv.equals(t.get(i)) || nv.isSubstitued() != t.get(i).isSubstitued()) {
+                return true;
+            }
+        }
+        return false;
+    }
     
 }
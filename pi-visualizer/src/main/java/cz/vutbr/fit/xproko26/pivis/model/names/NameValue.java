@@ -16,6 +16,7 @@
 package cz.vutbr.fit.xproko26.pivis.model.names;
 
 import cz.vutbr.fit.xproko26.pivis.gui.graph.NodeValue;
+import cz.vutbr.fit.xproko26.pivis.model.expressions.Expression;
 
 /**
  * Class which represents name value. Compared to {@link NameRef NameRef}) class,
@@ -61,10 +62,14 @@ public class NameValue extends Name {
     }
     
     /**
-     * Sets substitution flag to true.
+     * Sets substitution flag to true. Text of every reference to the name
+     * changes, so the change is reported only when the flag was not set yet.
      */
     public void setSubstitued() {
-        substitued = true;
+        if (!substitued) {
+            substitued = true;
+            Expression.namesChanged();
+        }
     }
     
     /**
@@ -15,19 +15,21 @@
  */
 package cz.vutbr.fit.xproko26.pivis.model.redmanager;
 
+import java.util.ArrayDeque;
 import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.IdentityHashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Stack;
 import java.util.stream.Collectors;
-import cz.vutbr.fit.xproko26.pivis.model.expressions.AbstractionExpression;
 import cz.vutbr.fit.xproko26.pivis.model.expressions.ConcretizeExpression;
-import cz.vutbr.fit.xproko26.pivis.model.expressions.RootExpression;
 import cz.vutbr.fit.xproko26.pivis.model.expressions.InPrefixExpression;
 import cz.vutbr.fit.xproko26.pivis.model.expressions.MatchExpression;
-import cz.vutbr.fit.xproko26.pivis.model.expressions.ExpressionVisitor;
+import cz.vutbr.fit.xproko26.pivis.model.expressions.ExpressionTraversal;
 import cz.vutbr.fit.xproko26.pivis.model.expressions.Expression;
 import cz.vutbr.fit.xproko26.pivis.model.expressions.InOutPrefixExpression;
-import cz.vutbr.fit.xproko26.pivis.model.expressions.NilExpression;
 import cz.vutbr.fit.xproko26.pivis.model.expressions.OutPrefixExpression;
 import cz.vutbr.fit.xproko26.pivis.model.expressions.ParallelExpression;
 import cz.vutbr.fit.xproko26.pivis.model.expressions.ParallelReplicationExpression;
@@ -39,28 +41,50 @@ import cz.vutbr.fit.xproko26.pivis.model.names.MapTable;
 import cz.vutbr.fit.xproko26.pivis.model.names.NRList;
 import cz.vutbr.fit.xproko26.pivis.model.names.NameMapper;
 import cz.vutbr.fit.xproko26.pivis.model.names.NameRef;
+import cz.vutbr.fit.xproko26.pivis.model.Model;
+import cz.vutbr.fit.xproko26.pivis.stats.Statistics;
 
 /**
  * Reduction manager extends model functionallity about reduction processing
  * (i.e. searching for available reductions, executing reduction, ...)
  * @author Dagmar Prokopova
  */
-public class ReductionManager extends ExpressionVisitor<Object> {
+public class ReductionManager extends ExpressionTraversal<ActionList> {
     
     //singleton instance of ReductionManager
     private static ReductionManager instance;
     
-    //reference to reduction manager listener
-    private static ReductionManagerListener listener;
+    //reference to reduction manager listener, called by any thread reducing a tree
+    private static volatile ReductionManagerListener listener;
     
     //list of all reductions available in current context
     private final List<Reduction> reductionlist;            
+    
+    //positions of reductions in reduction list indexed by participating expressions,
+    //reductions are indexed only when the index is used
+    private final Map<Expression, List<Integer>> expindex;
+    
+    //number of reductions from the start of reduction list which are indexed
+    private int indexed;
+    
+    //stack of reduction contexts of traversed expressions
+    private final Deque<ReductionContext> contexts;
+    
+    //stack of action lists of successors of traversed summations and parallel compositions
+    private final Deque<List<ActionList>> alistsstack;
+    
+    //actions enabled in the expression the reduction list was generated for
+    private ActionList actions;
 
     /**
-     * Constructor which initializes reduction list.
+     * Constructor which initializes reduction list, its index and traversal stacks.
      */
     public ReductionManager() {
         reductionlist = new ArrayList<>();
+        expindex = new IdentityHashMap<>();
+        contexts = new ArrayDeque<>();
+        alistsstack = new ArrayDeque<>();
+        actions = new ActionList();
     }
     
     /**
@@ -90,20 +114,98 @@ public class ReductionManager extends ExpressionVisitor<Object> {
         return reductionlist;
     }
     
+    /**
+     * Returns input and output prefix expressions which are enabled in the
+     * expression the reduction list was generated for, i.e. the observable
+     * actions (barbs) of the expression.
+     * @return action list
+     */
+    public ActionList getActionList() {
+        return actions;
+    }
+    
+    /**
+     * Replaces reduction list with the one generated elsewhere, e.g. for
+     * a precomputed copy of the expression.
+     * @param list reduction list
+     */
+    public void setReductionList(List<Reduction> list) {
+        clearReductionList();
+        list.forEach(red -> addReduction(red));
+    }
+    
+    /**
+     * Removes all reductions from reduction list and its index.
+     */
+    private void clearReductionList() {
+        reductionlist.clear();
+        if (indexed > 0) {
+            expindex.clear();
+            indexed = 0;
+        }
+    }
+    
+    /**
+     * Appends reduction to reduction list.
+     * @param red reduction to be added
+     */
+    private void addReduction(Reduction red) {
+        reductionlist.add(red);
+    }
+    
+    /**
+     * Returns index of reduction list. Positions of reductions added since
+     * the last use are indexed under all expressions participating in them,
+     * so that searching for reductions does not pay for the index.
+     * @return positions of reductions indexed by participating expressions
+     */
+    private Map<Expression, List<Integer>> getIndex() {
+        for (; indexed < reductionlist.size(); indexed++) {
+            int pos = indexed;
+            reductionlist.get(pos).getExpressions().forEach(exp -> expindex.computeIfAbsent(exp, e -> new ArrayList<>(2)).add(pos));
+        }
+        return expindex;
+    }
+    
+    /**
+     * Returns position of the specified reduction in reduction list. Only
+     * reductions which the first expression of the specified one takes part
+     * in are compared.
+     * @param red reduction to be found
+     * @return index into reduction list or -1 if the reduction is not listed
+     */
+    public int indexOf(Reduction red) {
+        List<Expression> exps = red.getExpressions();
+        if (!exps.isEmpty()) {
+            List<Integer> positions = getIndex().get(exps.get(0));
+            if (positions != null) {
+                for (int pos : positions) {
+                    if (reductionlist.get(pos).equals(red)) {
+                        return pos;
+                    }
+                }
+            }
+        }
+        return -1;
+    }
+    
     /**
      * Returns list of suggested complementary expressions to an expression
-     * specified as an argument. The method uses generated reduction list.
+     * specified as an argument. The method uses index of generated reduction list.
      * @param exp expression for which suggestions should be found
      * @return list of suggested expressions
      */
     public List<Expression> getSuggestions(Expression exp) {
         List<Expression> ret = new ArrayList<>();
-        reductionlist.stream().forEach( red -> {
-            Expression compexp = red.getComplement(exp);            
-            if (compexp != null) {
-                ret.add(compexp);
-            }
-        });
+        List<Integer> positions = getIndex().get(exp);
+        if (positions != null) {
+            positions.forEach(pos -> {
+                Expression compexp = reductionlist.get(pos).getComplement(exp);
+                if (compexp != null) {
+                    ret.add(compexp);
+                }
+            });
+        }
         return ret;
     }
     
@@ -151,11 +253,18 @@ public class ReductionManager extends ExpressionVisitor<Object> {
      */
     public void reduce(Reduction red) {
 
+        Statistics.Probe probe = Statistics.getInstance().start(Statistics.Stage.REDUCE, Model.hasLocalData());
+        String channel = null;
         if (red instanceof TReduction) {
             reduce((TReduction) red);
         } else {
+            //channel has to be read before the prefixes are removed
+            if (probe.isRecorded()) {
+                channel = ((IOReduction) red).getOut().getChannel().toString();
+            }
             reduce((IOReduction) red);
         } 
+        probe.stop(0, 0, channel);
     }
     
     /**
@@ -277,6 +386,7 @@ public class ReductionManager extends ExpressionVisitor<Object> {
                     rexp.getRestrictions().remove(c); 
                     //it would be possible to remove the name from privnames too but not necessary
                 }
+                rexp.invalidate();
                 
                 //if the restriction node contains no restriction names, its useless, so lets remove it
                 if (rexp.getRestrictions().isEmpty()) {
@@ -401,6 +511,7 @@ public class ReductionManager extends ExpressionVisitor<Object> {
         if (parent instanceof RestrictionExpression) {
             //if there already is a restriction node ahead, just add names to it
             ((RestrictionExpression) parent).getRestrictions().addAll(privnames);
+            parent.invalidate();
         } else {
             //else create new restriction node and insert it between parallel exp and its parent
             RestrictionExpression rexp = new RestrictionExpression(parent);
@@ -461,158 +572,185 @@ public class ReductionManager extends ExpressionVisitor<Object> {
      * @param exp the root node of expression tree which should be traversed
      */
     public void generateReductionList(Expression exp) {
-        reductionlist.clear();        
+        Statistics.Probe probe = Statistics.getInstance().start(Statistics.Stage.REDLIST, Model.hasLocalData());
+        long visited = getVisited();
+        clearReductionList();
+        actions = new ActionList();
         if (exp != null) {
             //visit root with empty reduction context
-            visit(exp, new ReductionContext());
+            contexts.push(new ReductionContext());
+            ActionList result = traverse(exp);
+            contexts.pop();
+            if (result != null) {
+                actions = result;
+            }
         }   
+        probe.stop(getVisited() - visited, getReductionList().size());
     }    
 
     @Override
-    public Object visit(RootExpression node, Object ctx) {
-        return visit(node.getSuccExp(), ctx);
+    protected List<Expression> enter(Expression node) {
+        ReductionContext ctx = contexts.peek();
+        switch (node.getType()) {
+            case PARALLEL_REPLICATION:
+                alistsstack.push(new ArrayList<>());
+                //helper is not searched through yet
+                return ((ParallelReplicationExpression) node).getVisibleSuccExps();
+            case SUM:
+            case PARALLEL:
+                alistsstack.push(new ArrayList<>());
+                break;
+            case IN_PREFIX:
+            case OUT_PREFIX:
+                return null;
+            case TAU_PREFIX:
+                if (ctx.isEnabled()) {
+                    addReduction(new TReduction((TauPrefixExpression) node));
+                }
+                return null;
+            case MATCH:
+                if (!((MatchExpression) node).isValid()) {
+                    return null;
+                }
+                break;
+            case CONCRETIZE:
+                return enter((ConcretizeExpression) node, ctx);
+            default:
+                break;
+        }
+        return node.getSuccessors();
     }
 
-    @Override
-    public Object visit(RestrictionExpression node, Object ctx) {
-        return visit(node.getSuccExp(), ctx);
+    /**
+     * Enters concretize expression with new reduction context and returns
+     * its instance which should be traversed.
+     * @param node concretize expression
+     * @param ctx current reduction context
+     * @return instance of the process or null
+     */
+    private List<Expression> enter(ConcretizeExpression node, ReductionContext ctx) {
+        ReductionContext newctx = ctx.copy();
+        contexts.push(newctx);
+        if (node.getSuccExp() != null) {
+            if (!node.isReduced()) {
+                newctx.update(node.getIDRef().toString(), node.getArgs());
+            }
+            return node.getSuccessors();
+        }
+        else {
+            if (ctx.notUsed(node.getIDRef().toString(), node.getArgs())) {
+                if (listener != null) {
+                    Expression inst = listener.getInstance(node);
+                    if (inst != null) {
+                        newctx.update(node.getIDRef().toString(), node.getArgs());
+                        return Collections.singletonList(inst);
+                    }
+                }
+            }
+            return null;
+        }
     }
 
     @Override
-    public Object visit(SumExpression node, Object ctx) {
-        ActionList alist = new ActionList();
-        node.getSuccExps().stream().map((e) -> visit(e, ctx)).forEachOrdered((actions) -> {
-            alist.addAll((ActionList)actions);
-        });
-        return alist;
+    protected void returned(Expression node, Expression succ, ActionList result) {
+        switch (node.getType()) {
+            case SUM:
+            case PARALLEL:
+            case PARALLEL_REPLICATION:
+                alistsstack.peek().add(result);
+                break;
+            default:
+                break;
+        }
     }
 
     @Override
-    public Object visit(ParallelExpression node, Object ctx) {
+    protected ActionList leave(Expression node, ActionList last) {
+        switch (node.getType()) {
+            case CONCRETIZE:
+                contexts.pop();
+                break;
+            case SUM:
+                return union(alistsstack.pop());
+            case PARALLEL:
+                List<ActionList> alists = alistsstack.pop();
+                if (contexts.peek().isEnabled()) {
+                    extractReductions(alists);
+                }
+                return union(alists);
+            case PARALLEL_REPLICATION:
+                List<ActionList> replists = alistsstack.pop();
+                leave((ParallelReplicationExpression) node, replists);
+                return union(replists);
+            case IN_PREFIX:
+                ActionList inlist = new ActionList();
+                inlist.add((InPrefixExpression) node);
+                return inlist;
+            case OUT_PREFIX:
+                ActionList outlist = new ActionList();
+                outlist.add((OutPrefixExpression) node);
+                return outlist;
+            default:
+                break;
+        }
+        //expressions without own actions pass the actions of their successor
+        return (last != null) ? last : new ActionList();
+    }
+
+    /**
+     * Unites action lists of successors into one action list.
+     * @param alists action lists of successors
+     * @return united action list
+     */
+    private ActionList union(List<ActionList> alists) {
         ActionList alist = new ActionList();
-        List<ActionList> alists = new ArrayList<>();
-        node.getSuccExps().stream().map((e) -> visit(e, ctx)).forEachOrdered((actions) -> {
-            alists.add((ActionList)actions);
-            alist.addAll((ActionList)actions);
-        });
+        alists.forEach(actions -> alist.addAll(actions));
+        return alist;
+    }
 
-        if (((ReductionContext) ctx).isEnabled()) {
-            extractReductions(alists); 
+    /**
+     * Extracts reductions of parallel replication expression after its
+     * successors were traversed. If there was no replication copy,
+     * the helper is searched through as well.
+     * @param node parallel replication expression
+     * @param alists action lists of traversed successors
+     */
+    private void leave(ParallelReplicationExpression node, List<ActionList> alists) {
+        ReductionContext ctx = contexts.peek();
+        if (!ctx.isEnabled()) {
+            return;
         }
-        return alist;        
-    }
         
-    @Override
-    public Object visit(ParallelReplicationExpression node, Object ctx) {
-        ActionList alist = new ActionList();
-        List<ActionList> alists = new ArrayList<>();
         Expression helper = null;
         ActionList origlist = null;
         boolean traversedCopy = false;
+        int i = 0;
         for (Expression ex : node.getSuccExps()) {
-
             if (ex.isReplicationHelper()) {
                 helper = ex; //save it in case of need
-                continue; // do not search throuhg yet
+                continue;
             } else if (ex.isReplicationCopy()) {
                 traversedCopy = true;
             }
-
-            ActionList actions = (ActionList) visit(ex, ctx);
-            alists.add(actions);
-            alist.addAll(actions);
-            
             if (ex.isReplicationOriginal()) {
-                origlist = actions; //save in case of comparation with helper
+                origlist = alists.get(i); //save in case of comparation with helper
             }
-            
-        }                
-
-        if (((ReductionContext) ctx).isEnabled()) {
-            extractReductions(alists); 
-            
-            //if there was no replication copy, search for reduction actions in helper
-            if (!traversedCopy && (helper != null)) {
-                alists.clear();
-                ReductionContext newctx = ((ReductionContext)ctx).copy();                
-                newctx.setEnabled(false); //prevent adding helper branch internal reductions into the list
-                alists.add((ActionList) visit(helper, newctx));
-                alists.add(origlist);
-                extractReductions(alists); 
-            }
-            
+            i++;
         }
-        return alist;  
-    }
-
-    @Override
-    public Object visit(ReplicationExpression node, Object ctx) {
-        return visit(node.getSuccExp(), ctx);
-    }
-    
-    @Override
-    public Object visit(InPrefixExpression node, Object ctx) {
-        ActionList alist = new ActionList();
-        alist.add(node);
-        return alist;
-    }
-
-    @Override
-    public Object visit(OutPrefixExpression node, Object ctx) {
-        ActionList alist = new ActionList();
-        alist.add(node);
-        return alist;
-    }
-
-    @Override
-    public Object visit(TauPrefixExpression node, Object ctx) {
-        if (((ReductionContext) ctx).isEnabled()) {
-            reductionlist.add(new TReduction(node));
-        }
-        return new ActionList();
-    }
-
-    @Override
-    public Object visit(MatchExpression node, Object ctx) {
-       if (node.isValid()) {
-           return visit(node.getSuccExp(), ctx);
-       }
-       else {
-           return new ActionList();
-       }
-    }
+        
+        extractReductions(alists); 
 
-    @Override
-    public Object visit(ConcretizeExpression node, Object ctx) {
-        ReductionContext newctx = ((ReductionContext)ctx).copy();
-        if (node.getSuccExp() != null) {
-            if (!node.isReduced()) {
-                newctx.update(node.getIDRef().toString(), node.getArgs());
-            }
-            return visit(node.getSuccExp(), newctx);
+        //if there was no replication copy, search for reduction actions in helper
+        if (!traversedCopy && (helper != null)) {
+            List<ActionList> helperlists = new ArrayList<>();
+            ReductionContext newctx = ctx.copy();                
+            newctx.setEnabled(false); //prevent adding helper branch internal reductions into the list
+            contexts.push(newctx);
+            helperlists.add(traverse(helper));
+            contexts.pop();
+            helperlists.add(origlist);
+            extractReductions(helperlists); 
         }
-        else {
-            if (((ReductionContext) ctx).notUsed(node.getIDRef().toString(), node.getArgs())) {
-                if (listener != null) {
-                    Expression inst = listener.getInstance(node);
-                    if (inst != null) {
-                        newctx.update(node.getIDRef().toString(), node.getArgs());
-                        return visit(inst, newctx);
-                    }
-                }
-            }
-            return new ActionList();
-        }
-    }
-
-    @Override
-    public Object visit(NilExpression node, Object ctx) {
-        return new ActionList();
-    }
-
-    @Override
-    public Object visit(AbstractionExpression node, Object ctx) {
-        return visit(node.getSuccExp(), ctx);
     }
     
     /**
@@ -632,14 +770,14 @@ public class ReductionManager extends ExpressionVisitor<Object> {
                 //for each input action in the examined list find output complements in the following lists
                 sublist.getInList().forEach((in) -> {
                     compsublist.getOutList().stream().map((out) -> new IOReduction(in, out)).filter((r) -> (r.isNameTransferValid())).forEachOrdered((r) -> {
-                        reductionlist.add(r);
+                        addReduction(r);
                     });
                 });
                 
                 //for each output action in the examined list find input complements in the following lists
                 sublist.getOutList().forEach((out) -> {
                     compsublist.getInList().stream().map((in) -> new IOReduction(in, out)).filter((r) -> (r.isNameTransferValid())).forEachOrdered((r) -> {
-                        reductionlist.add(r);
+                        addReduction(r);
                     });
                 });                
             }
@@ -17,37 +17,43 @@ package cz.vutbr.fit.xproko26.pivis.model.simplifier;
 
 import java.util.ArrayList;
 import java.util.List;
-import cz.vutbr.fit.xproko26.pivis.model.expressions.ExpressionVisitor;
-import cz.vutbr.fit.xproko26.pivis.model.expressions.AbstractionExpression;
-import cz.vutbr.fit.xproko26.pivis.model.expressions.ConcretizeExpression;
-import cz.vutbr.fit.xproko26.pivis.model.expressions.RootExpression;
+import java.util.stream.Collectors;
+import cz.vutbr.fit.xproko26.pivis.model.expressions.ExpressionTraversal;
 import cz.vutbr.fit.xproko26.pivis.model.expressions.Expression;
 import cz.vutbr.fit.xproko26.pivis.model.expressions.ExpressionList;
-import cz.vutbr.fit.xproko26.pivis.model.expressions.InPrefixExpression;
 import cz.vutbr.fit.xproko26.pivis.model.expressions.MatchExpression;
 import cz.vutbr.fit.xproko26.pivis.model.expressions.NilExpression;
-import cz.vutbr.fit.xproko26.pivis.model.expressions.OutPrefixExpression;
 import cz.vutbr.fit.xproko26.pivis.model.expressions.ParallelExpression;
 import cz.vutbr.fit.xproko26.pivis.model.expressions.ParallelReplicationExpression;
 import cz.vutbr.fit.xproko26.pivis.model.expressions.ReplicationExpression;
 import cz.vutbr.fit.xproko26.pivis.model.expressions.RestrictionExpression;
+import cz.vutbr.fit.xproko26.pivis.model.expressions.SimpleExpression;
 import cz.vutbr.fit.xproko26.pivis.model.expressions.SumExpression;
-import cz.vutbr.fit.xproko26.pivis.model.expressions.TauPrefixExpression;
 import cz.vutbr.fit.xproko26.pivis.model.names.NameRef;
+import cz.vutbr.fit.xproko26.pivis.model.Model;
+import cz.vutbr.fit.xproko26.pivis.stats.Statistics;
 
 /**
  * Simplifier extends model functionallity about expression simplification
  * (i.e. merging duplicit node neighbours, removing nil branches, removing 
- * replication copies, ...)
+ * replication copies, ...). The singleton instance is used by the event
+ * dispatch thread, other threads create their own instances, because the
+ * traversal state is kept in the instance.
  * @author Dagmar Prokopova
  */
-public class Simplifier extends ExpressionVisitor<Object> {
+public class Simplifier extends ExpressionTraversal<Object> {
 
     //singleton instance of Simplifier
     private static Simplifier instance;
     
-    //reference to simplifier listener
-    private static SimplifierListener listener;
+    //reference to simplifier listener, called by any thread simplifying a tree
+    private static volatile SimplifierListener listener;
+
+    /**
+     * Constructor which creates simplifier with its own traversal state.
+     */
+    public Simplifier() {
+    }
 
     /**
      * Method for accessing the singleton instance.
@@ -79,21 +85,71 @@ public class Simplifier extends ExpressionVisitor<Object> {
      * @return simplified expression
      */
     public Expression makeSimple(Expression exp) {
+        Statistics.Probe probe = Statistics.getInstance().start(Statistics.Stage.SIMPLIFY, Model.hasLocalData());
+        long visited = getVisited();
         if (exp != null) {
-            visit(exp, null); 
+            traverse(exp); 
         }      
+        probe.stop(getVisited() - visited, 0);
         return exp;
     }
     
     
     @Override
-    public Object visit(RootExpression node, Object o) {
-        return visit(node.getSuccExp(), o);
+    protected List<Expression> enter(Expression node) {
+        switch (node.getType()) {
+            case PARALLEL_REPLICATION:
+                //visit descendant only if it is not replication copy nor helper
+                return node.getSuccessors().stream().filter(e -> !e.isReplicationCopy()).collect(Collectors.toList());
+            case SUM:
+            case PARALLEL:
+                //successors may be removed or moved during simplification
+                return new ArrayList<>(node.getSuccessors());
+            default:
+                return node.getSuccessors();
+        }
     }
 
     @Override
-    public Object visit(RestrictionExpression node, Object o) {
-        visit(node.getSuccExp(), o);
+    protected Object leave(Expression node, Object last) {
+        switch (node.getType()) {
+            case RESTRICTION:
+                leave((RestrictionExpression) node);
+                break;
+            case SUM:
+                leave((SumExpression) node);
+                break;
+            case PARALLEL_REPLICATION:
+                leave((ParallelReplicationExpression) node);
+                break;
+            case PARALLEL:
+                leave((ParallelExpression) node);
+                break;
+            case REPLICATION:
+            case CONCRETIZE:
+            case ABSTRACTION:
+                if (((SimpleExpression) node).getSuccExp() instanceof NilExpression) {
+                    //remove node if its direct descendant is Nil expression
+                    ((SimpleExpression) node).remove();
+                }
+                break;
+            case MATCH:
+                if ((((MatchExpression) node).getSuccExp() instanceof NilExpression) || ((MatchExpression) node).isValid()) {
+                    //remove node if its direct descendant is Nil or is always true
+                    ((MatchExpression) node).remove();
+                }
+                break;
+            default:
+                break;
+        }
+        return null;
+    }
+
+    /**
+     * Simplifies restriction expression after its successor was simplified.
+     * @param node expression
+     */
+    private void leave(RestrictionExpression node) {
         if (node.getSuccExp() instanceof NilExpression) {
             //remove node if its direct descendant is Nil expression
             node.remove();
@@ -106,18 +162,19 @@ public class Simplifier extends ExpressionVisitor<Object> {
                 for (NameRef nr : node.getRestrictions()) {
                     ((RestrictionExpression) parent).getRestrictions().add(nr);
                 }
+                parent.invalidate();
                 //remove node
                 node.remove();
             }
         }
-        return null;
     }
 
-    @Override
-    public Object visit(SumExpression node, Object o) {
-        List<Expression> tmp = new ArrayList<>(node.getSuccExps());
-        tmp.forEach(e-> visit(e, null));
-        tmp.clear();
+    /**
+     * Simplifies summation after its successors were simplified.
+     * @param node expression
+     */
+    private void leave(SumExpression node) {
+        List<Expression> tmp = new ArrayList<>();
         
         //remove all Nil branches
         node.getSuccExps().forEach(e->{
@@ -140,14 +197,14 @@ public class Simplifier extends ExpressionVisitor<Object> {
                 ((SumExpression) parent).removeExp(node);
             }
         }
-        return null;
     }
 
-    @Override
-    public Object visit(ParallelExpression node, Object o) {
-        List<Expression> tmp = new ArrayList<>(node.getSuccExps());
-        tmp.forEach(e-> visit(e, null));
-        tmp.clear();
+    /**
+     * Simplifies parallel composition after its successors were simplified.
+     * @param node expression
+     */
+    private void leave(ParallelExpression node) {
+        List<Expression> tmp = new ArrayList<>();
         
         //remove all Nil branches
         node.getSuccExps().forEach(e->{
@@ -170,19 +227,14 @@ public class Simplifier extends ExpressionVisitor<Object> {
                 ((ParallelExpression) parent).removeExp(node);
             }
         }
-        
-        return null;
     }
 
-    @Override
-    public Object visit(ParallelReplicationExpression node, Object o) {
-        
-        List<Expression> tmp = new ArrayList<>(node.getSuccExps());
-        tmp.forEach(e-> {
-            if (!e.isReplicationCopy()) {
-                visit(e, null); //visit descendant only if it is not replication copy nor helper
-            }});
-        tmp.clear();
+    /**
+     * Simplifies parallel replication after its successors were simplified.
+     * @param node expression
+     */
+    private void leave(ParallelReplicationExpression node) {
+        List<Expression> tmp = new ArrayList<>();
         
         //remove nil children and replication copies(incl. helper)
         for (Expression exp : node.getSuccExps()) {
@@ -237,7 +289,7 @@ public class Simplifier extends ExpressionVisitor<Object> {
                 //replace node with Nil, since it has no children
                 parent.replaceSucc(node, new NilExpression(parent));
             }
-            return null;
+            return;
         }
         
         //check if original replication branch is still present        
@@ -260,70 +312,8 @@ public class Simplifier extends ExpressionVisitor<Object> {
                 listener.requestReplication(orig);
             }
         }
-        
-        return null;
     }
 
-    @Override
-    public Object visit(ReplicationExpression node, Object o) {
-        visit(node.getSuccExp(), o);        
-        if (node.getSuccExp() instanceof NilExpression) {
-            //remove node if its direct descendant is Nil expression
-            node.remove();
-        }
-        return null;
-    }
-
-    @Override
-    public Object visit(InPrefixExpression node, Object o) {
-        return visit(node.getSuccExp(), o);
-    }
-
-    @Override
-    public Object visit(OutPrefixExpression node, Object o) {
-        return visit(node.getSuccExp(), o);
-    }
-
-    @Override
-    public Object visit(TauPrefixExpression node, Object o) {
-        return visit(node.getSuccExp(), o);
-    }
-
-    @Override
-    public Object visit(MatchExpression node, Object o) {
-        visit(node.getSuccExp(), o);        
-        if ((node.getSuccExp() instanceof NilExpression) || node.isValid()) {
-            //remove node if its direct descendant is Nil or is always true
-            node.remove();
-        }
-        return null;
-    }
-
-    @Override
-    public Object visit(ConcretizeExpression node, Object o) {
-        visit(node.getSuccExp(), o);
-        if (node.getSuccExp() instanceof NilExpression) {
-            //remove node if its direct descendant is Nil
-            node.remove();
-        }
-        return null;
-    }
-
-    @Override
-    public Object visit(NilExpression node, Object o) {
-        return null;
-    }
-
-    @Override
-    public Object visit(AbstractionExpression node, Object o) {
-        visit(node.getSuccExp(), o);
-        if (node.getSuccExp() instanceof NilExpression) {
-            //remove node if its direct descendant is Nil
-            node.remove();
-        }
-        return null;
-    }
-    
     /**
      * Checks whether the node which can hold multiple descendants (i.e. summation 
      * or parallel composition) is redundat (has no or one descendant), and if so 
@@ -26,7 +26,7 @@ public class Command {
      * Possible command types.
      */
     public enum Type {
-        AGENT, SHOW, EMPTY, CLEAR, RESET, ENV, HELP, EXIT, LIST, SIMPLIFY, REDUCE
+        AGENT, SHOW, EMPTY, CLEAR, RESET, ENV, HELP, EXIT, LIST, SIMPLIFY, REDUCE, STATS, STATS_RESET, CHECK, CHECK_RESUME, CHECK_CANCEL, LTS
     }
     
     //type of the command
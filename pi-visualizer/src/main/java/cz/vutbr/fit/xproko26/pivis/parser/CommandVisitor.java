@@ -78,5 +78,45 @@ public class CommandVisitor extends PiExprBaseVisitor<Command> {
     public Command visitEnv(PiExprParser.EnvContext ctx) {        
         return new Command(Command.Type.ENV, ctx);
     }
+    
+    @Override
+    public Command visitStats(PiExprParser.StatsContext ctx) {        
+        return new Command(Command.Type.STATS, ctx);
+    }
+    
+    @Override
+    public Command visitStatsReset(PiExprParser.StatsResetContext ctx) {        
+        return new Command(Command.Type.STATS_RESET, ctx);
+    }
+    
+    @Override
+    public Command visitCheckResume(PiExprParser.CheckResumeContext ctx) {        
+        return new Command(Command.Type.CHECK_RESUME, ctx);
+    }
+    
+    @Override
+    public Command visitCheckCancel(PiExprParser.CheckCancelContext ctx) {        
+        return new Command(Command.Type.CHECK_CANCEL, ctx);
+    }
+    
+    @Override
+    public Command visitCheckDeadlock(PiExprParser.CheckDeadlockContext ctx) {        
+        return new Command(Command.Type.CHECK, ctx);
+    }
+    
+    @Override
+    public Command visitCheckInput(PiExprParser.CheckInputContext ctx) {        
+        return new Command(Command.Type.CHECK, ctx);
+    }
+    
+    @Override
+    public Command visitCheckOutput(PiExprParser.CheckOutputContext ctx) {        
+        return new Command(Command.Type.CHECK, ctx);
+    }
+    
+    @Override
+    public Command visitLts(PiExprParser.LtsContext ctx) {        
+        return new Command(Command.Type.LTS, ctx);
+    }
 
 }
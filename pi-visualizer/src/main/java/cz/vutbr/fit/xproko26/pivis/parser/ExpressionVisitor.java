@@ -147,10 +147,10 @@ public class ExpressionVisitor extends PiExprBaseVisitor<Expression> {
         InPrefixExpression ex = new InPrefixExpression(parent);
         
         //process channel name
-        ex.setChannel(parent.getNameReference(new NameValue(ctx.NAME().getText())));
+        ex.setChannel(parent.getNameReference(new NameValue(ctx.name().getText())));
         if (ex.getChannel() == null) {
             //throw an exception if name was not defined
-            throw new ParseCancellationException(ctx.NAME().getText());
+            throw new ParseCancellationException(ctx.name().getText());
         }
         
         //process parameters
@@ -170,10 +170,10 @@ public class ExpressionVisitor extends PiExprBaseVisitor<Expression> {
         OutPrefixExpression ex = new OutPrefixExpression(parent);
         
         //process channel name
-        ex.setChannel(parent.getNameReference(new NameValue(ctx.NAME().getText())));        
+        ex.setChannel(parent.getNameReference(new NameValue(ctx.name().getText())));        
         if (ex.getChannel() == null) {
             //throw an exception if name was not defined
-            throw new ParseCancellationException(ctx.NAME().getText());
+            throw new ParseCancellationException(ctx.name().getText());
         }
         
         //process parameters
@@ -194,17 +194,17 @@ public class ExpressionVisitor extends PiExprBaseVisitor<Expression> {
         MatchExpression ex = new MatchExpression(parent);
         
         //process left name
-        ex.setLeft(parent.getNameReference(new NameValue(ctx.NAME(0).getText())));
+        ex.setLeft(parent.getNameReference(new NameValue(ctx.name(0).getText())));
         if (ex.getLeft() == null) {
             //throw an exception if name was not defined
-            throw new ParseCancellationException(ctx.NAME(0).getText());
+            throw new ParseCancellationException(ctx.name(0).getText());
         }
         
         //process right name
-        ex.setRight(parent.getNameReference(new NameValue(ctx.NAME(1).getText())));
+        ex.setRight(parent.getNameReference(new NameValue(ctx.name(1).getText())));
         if (ex.getRight() == null) {
             //throw an exception if name was not defined
-            throw new ParseCancellationException(ctx.NAME(1).getText());
+            throw new ParseCancellationException(ctx.name(1).getText());
         }
         
         //visit following context and set the created expression as successor
@@ -46,7 +46,7 @@ public class NRListVisitor extends PiExprBaseVisitor<NRList> {
         
         //create NRList
         NRList nl = new NRList();
-        ctx.NAME().stream().forEach(n -> {
+        ctx.name().stream().forEach(n -> {
             //for each name found in the context ask parent for name reference
             NameRef nr = parent.getNameReference(new NameValue(n.getText()));
             if (nr == null) {
@@ -30,6 +30,6 @@ public class NVListVisitor extends PiExprBaseVisitor<NVList> {
     
     @Override
     public NVList visitNlist(PiExprParser.NlistContext ctx) {        
-        return new NVList(ctx.NAME().stream().map(n -> new NameValue(n.getText())).collect(toList()));
+        return new NVList(ctx.name().stream().map(n -> new NameValue(n.getText())).collect(toList()));
     }
 }
@@ -16,17 +16,23 @@
 package cz.vutbr.fit.xproko26.pivis.parser;
 
 import java.util.ArrayList;
+import java.util.EnumSet;
 import java.util.List;
+import java.util.Set;
 import org.antlr.v4.runtime.ANTLRInputStream;
 import org.antlr.v4.runtime.CharStream;
 import org.antlr.v4.runtime.CommonTokenStream;
 import org.antlr.v4.runtime.misc.ParseCancellationException;
+import org.antlr.v4.runtime.tree.TerminalNode;
 import cz.vutbr.fit.xproko26.pivis.antlr.PiExprLexer;
 import cz.vutbr.fit.xproko26.pivis.antlr.PiExprParser;
 import cz.vutbr.fit.xproko26.pivis.antlr.PiExprParser.CmdContext;
 import cz.vutbr.fit.xproko26.pivis.model.expressions.RootExpression;
 import cz.vutbr.fit.xproko26.pivis.model.expressions.Expression;
 import cz.vutbr.fit.xproko26.pivis.model.ProcessDefinition;
+import cz.vutbr.fit.xproko26.pivis.model.explorer.Explorer;
+import cz.vutbr.fit.xproko26.pivis.model.explorer.Property;
+import cz.vutbr.fit.xproko26.pivis.stats.Statistics;
 
 /**
  * TextParser is a singleton class which (with the usage of Antlr library) 
@@ -114,28 +120,34 @@ public class TextParser {
      */
     public void parseCommand(String instring) throws Exception {
     
+        Statistics.Probe probe = Statistics.getInstance().start(Statistics.Stage.PARSE);
+        CommonTokenStream tokens = null;
+        List<CmdContext> cmds;
         try {
             //split input string into tokens
             CharStream input = new ANTLRInputStream(instring);
             PiExprLexer lexer = new PiExprLexer(input);
             lexer.removeErrorListeners();
             lexer.addErrorListener(ErrorListener.getInstance());
-            CommonTokenStream tokens = new CommonTokenStream(lexer);
+            tokens = new CommonTokenStream(lexer);
   
             //parse tokens into tree
             PiExprParser parser = new PiExprParser(tokens);
             parser.removeErrorListeners();
             parser.addErrorListener(ErrorListener.getInstance());
             
-            //extract and process command from the tree
-            List<CmdContext> cmds = parser.cmds().cmd();
-            if (!cmds.isEmpty()) {
-                //invoke listener method according to command type
-                processCmd(cmds.get(0).accept(new CommandVisitor()));
-            }
+            //extract command from the tree
+            cmds = parser.cmds().cmd();
 
         } catch (ParseCancellationException ex) {
             throw new Exception("Syntax error: " + ex.getMessage());
+        } finally {
+            probe.stop((tokens != null) ? tokens.size() : 0, 0);
+        }
+
+        if (!cmds.isEmpty()) {
+            //invoke listener method according to command type
+            processCmd(cmds.get(0).accept(new CommandVisitor()));
         }
     }
 
@@ -185,6 +197,100 @@ public class TextParser {
         return (env.ID() == null) ? null : env.ID().toString();
     }
     
+    /**
+     * Extracts checked property, bounds and options out of check command
+     * context and invokes listener method. Bounds which are not specified
+     * are replaced by default values.
+     * @param ctx check command context
+     * @throws Exception if a bound does not fit into integer
+     */
+    private void processCheck(Object ctx) throws Exception {
+        PiExprParser.BoundsContext bounds;
+        Property prop;
+        if (ctx instanceof PiExprParser.CheckDeadlockContext) {
+            bounds = ((PiExprParser.CheckDeadlockContext) ctx).bounds();
+            prop = Property.deadlock();
+        } else if (ctx instanceof PiExprParser.CheckOutputContext) {
+            bounds = ((PiExprParser.CheckOutputContext) ctx).bounds();
+            prop = Property.output(((PiExprParser.CheckOutputContext) ctx).name().getText());
+        } else {
+            bounds = ((PiExprParser.CheckInputContext) ctx).bounds();
+            prop = Property.input(((PiExprParser.CheckInputContext) ctx).name().getText());
+        }
+        
+        try {
+            listener.cmdCheck(prop, getBound(bounds, 0, Explorer.DEFAULT_DEPTH),
+                    getBound(bounds, 1, Explorer.DEFAULT_STATES), getOptions(bounds));
+        } catch (NumberFormatException e) {
+            throw new Exception("Error: Bound of the check is too large.");
+        }
+    }
+    
+    /**
+     * Extracts format, bounds and options out of lts command context and
+     * invokes listener method. Bounds which are not specified are replaced
+     * by default values.
+     * @param ctx lts command context
+     * @throws Exception if the format is not supported or a bound does not
+     * fit into integer
+     */
+    private void processLts(Object ctx) throws Exception {
+        PiExprParser.LtsContext lts = (PiExprParser.LtsContext) ctx;
+        Explorer.LtsFormat format = null;
+        for (Explorer.LtsFormat f : Explorer.LtsFormat.values()) {
+            if (f.getExtension().equals(lts.name().getText())) {
+                format = f;
+            }
+        }
+        if (format == null) {
+            throw new Exception("Error: Unsupported LTS format '" + lts.name().getText() + "'.");
+        }
+        
+        try {
+            listener.cmdLts(format, getBound(lts.bounds(), 0, Explorer.DEFAULT_DEPTH),
+                    getBound(lts.bounds(), 1, Explorer.DEFAULT_STATES), getOptions(lts.bounds()));
+        } catch (NumberFormatException e) {
+            throw new Exception("Error: Bound of the exploration is too large.");
+        }
+    }
+    
+    /**
+     * Returns bound at specified position or default value if it was not
+     * specified.
+     * @param bounds bounds context
+     * @param index position of the bound
+     * @param def default value
+     * @return value of the bound
+     * @throws NumberFormatException if the bound does not fit into integer
+     */
+    private int getBound(PiExprParser.BoundsContext bounds, int index, int def) {
+        List<TerminalNode> values = bounds.INT();
+        return (values.size() > index) ? Integer.parseInt(values.get(index).getText()) : def;
+    }
+    
+    /**
+     * Returns options of the exploration specified in bounds context.
+     * @param bounds bounds context
+     * @return set of options
+     */
+    private Set<Explorer.Option> getOptions(PiExprParser.BoundsContext bounds) {
+        Set<Explorer.Option> opts = EnumSet.noneOf(Explorer.Option.class);
+        for (PiExprParser.OptionContext opt : bounds.option()) {
+            if (opt instanceof PiExprParser.PartialOrderContext) {
+                opts.add(Explorer.Option.PARTIAL_ORDER);
+            } else if (opt instanceof PiExprParser.SymmetryContext) {
+                opts.add(Explorer.Option.SYMMETRY);
+            } else if (opt instanceof PiExprParser.DiskStoreContext) {
+                opts.add(Explorer.Option.DISK);
+            } else if (opt instanceof PiExprParser.BitstateContext) {
+                opts.add(Explorer.Option.BITSTATE);
+            } else if (opt instanceof PiExprParser.CheckpointContext) {
+                opts.add(Explorer.Option.CHECKPOINT);
+            }
+        }
+        return opts;
+    }
+    
     /**
      * Invokes appropriate listener method based on parsed command type.
      * @param command parsed command
@@ -227,6 +333,24 @@ public class TextParser {
             case ENV:                
                 listener.cmdEnv(getProcId(command.getContext()));
                 break;
+            case STATS:
+                listener.cmdStats();
+                break;
+            case STATS_RESET:
+                listener.cmdStatsReset();
+                break;
+            case CHECK:
+                processCheck(command.getContext());
+                break;
+            case CHECK_RESUME:
+                listener.cmdCheckResume();
+                break;
+            case CHECK_CANCEL:
+                listener.cmdCheckCancel();
+                break;
+            case LTS:
+                processLts(command.getContext());
+                break;
             default:
                 break;
         }
@@ -16,6 +16,9 @@
 package cz.vutbr.fit.xproko26.pivis.parser;
 
 import cz.vutbr.fit.xproko26.pivis.model.ProcessDefinition;
+import cz.vutbr.fit.xproko26.pivis.model.explorer.Explorer;
+import cz.vutbr.fit.xproko26.pivis.model.explorer.Property;
+import java.util.Set;
 import cz.vutbr.fit.xproko26.pivis.model.expressions.Expression;
 
 /**
@@ -76,4 +79,42 @@ public interface TextParserListener {
      * @param id process identifier specified for env command or null
      */
     public void cmdEnv(String id);
+    
+    /**
+     * Invoked when stats command parsed.
+     */
+    public void cmdStats();
+    
+    /**
+     * Invoked when stats reset command parsed.
+     */
+    public void cmdStatsReset();
+    
+    /**
+     * Invoked when check command parsed.
+     * @param prop checked property
+     * @param depth maximal number of reductions
+     * @param states maximal number of explored states
+     * @param opts options of the exploration
+     */
+    public void cmdCheck(Property prop, int depth, int states, Set<Explorer.Option> opts);
+    
+    /**
+     * Invoked when check resume command parsed.
+     */
+    public void cmdCheckResume();
+    
+    /**
+     * Invoked when check cancel command parsed.
+     */
+    public void cmdCheckCancel();
+    
+    /**
+     * Invoked when lts command parsed.
+     * @param format format of the exported file
+     * @param depth maximal number of reductions
+     * @param states maximal number of explored states
+     * @param opts options of the exploration
+     */
+    public void cmdLts(Explorer.LtsFormat format, int depth, int states, Set<Explorer.Option> opts);
 }
@@ -0,0 +1,387 @@
+/*
+ * Copyright 2017 Dagmar Prokopova <xproko26@stud.fit.vutbr.cz>.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package cz.vutbr.fit.xproko26.pivis.stats;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.util.EnumMap;
+import java.util.Map;
+
+/**
+ * Statistics is a singleton class which collects timing and counters of
+ * individual stages of the application, so that it can be found out which
+ * stage is responsible for slow response. For each stage it records number
+ * of calls, histogram of latencies, number of visited nodes, number of found
+ * items (e.g. reductions) and bytes allocated by the calling thread. Stages
+ * may be measured from any thread. Work done on a local copy of model data,
+ * such as background speculation, is recorded only under its own stage, so
+ * that the stages triggered by the user are not inflated by it.
+ * @author Dagmar Prokopova
+ */
+public class Statistics {
+
+    /**
+     * Measured stages.
+     */
+    public enum Stage {
+        PARSE("parse"),
+        REDLIST("redlist"),
+        REDUCE("reduce"),
+        SIMPLIFY("simplify"),
+        INSTANTIATE("instantiate"),
+        REPLICATE("replicate"),
+        VISUALIZE("visualize"),
+        LAYOUT("layout"),
+        LAYOUT_GROUP("layout-group"),
+        EXPORT("export"),
+        SAVE("save"),
+        LOAD("load"),
+        SPECULATE("speculate");
+
+        //name of the stage printed in the console
+        private final String name;
+
+        /**
+         * Constructor which sets the name of the stage.
+         * @param n name of the stage
+         */
+        Stage(String n) {
+            name = n;
+        }
+
+        /**
+         * Returns name of the stage.
+         * @return name
+         */
+        public String getName() {
+            return name;
+        }
+    }
+
+    //number of histogram buckets, bucket i holds latencies below 2^i microseconds
+    private static final int BUCKETS = 32;
+
+    //statistics instance, created eagerly so that probes do not lock
+    private static final Statistics instance = new Statistics();
+
+    //records of all stages
+    private final Map<Stage, Record> records = new EnumMap<>(Stage.class);
+
+    //factory of flight recorder events, null if not available
+    private static final FlightEventFactory EVENTS = loadEventFactory();
+
+    //bean measuring allocated bytes, null if not supported
+    private final com.sun.management.ThreadMXBean threads;
+
+    /**
+     * Private constructor which creates empty records of all stages.
+     */
+    private Statistics() {
+        for (Stage s : Stage.values()) {
+            records.put(s, new Record());
+        }
+        ThreadMXBean bean = ManagementFactory.getThreadMXBean();
+        if (bean instanceof com.sun.management.ThreadMXBean
+                && ((com.sun.management.ThreadMXBean) bean).isThreadAllocatedMemorySupported()) {
+            threads = (com.sun.management.ThreadMXBean) bean;
+            threads.setThreadAllocatedMemoryEnabled(true);
+        } else {
+            threads = null;
+        }
+    }
+
+    /**
+     * Method for accessing the singleton instance.
+     * @return instance of Statistics class
+     */
+    public static Statistics getInstance() {
+        return instance;
+    }
+
+    /**
+     * Starts measurement of the stage.
+     * @param stage measured stage
+     * @return probe which finishes the measurement
+     */
+    public Probe start(Stage stage) {
+        return start(stage, false);
+    }
+
+    /**
+     * Starts measurement of the stage. Stages executed on a local copy of
+     * model data are part of the stage which runs them, so they are not
+     * recorded.
+     * @param stage measured stage
+     * @param local true if the stage is executed on a local copy of model data
+     * @return probe which finishes the measurement
+     */
+    public Probe start(Stage stage, boolean local) {
+        if (local) {
+            return new Probe(null, 0);
+        }
+        return new Probe(stage, getAllocatedBytes());
+    }
+
+    /**
+     * Clears records of all stages.
+     */
+    public void reset() {
+        for (Record r : records.values()) {
+            r.reset();
+        }
+    }
+
+    /**
+     * Returns table of all stages which were called at least once. Latency
+     * percentiles are upper bounds of the histogram buckets.
+     * @return textual representation of the statistics
+     */
+    public String getString() {
+        StringBuilder sb = new StringBuilder();
+        sb.append(String.format("%-12s %8s %11s %10s %10s %10s %10s %10s %10s %10s %12s%n",
+                "stage", "calls", "total[ms]", "mean[us]", "p50[us]", "p90[us]", "p99[us]", "max[us]",
+                "nodes", "found", "alloc[KB]"));
+        for (Map.Entry<Stage, Record> e : records.entrySet()) {
+            e.getValue().append(e.getKey(), sb);
+        }
+        if (threads == null) {
+            sb.append("Allocated bytes are not supported by this JVM.\n");
+        }
+        return sb.toString();
+    }
+
+    /**
+     * Loads factory of flight recorder events. Event classes are compiled
+     * separately only on JDK 11 and newer, so the factory is missing if the
+     * JVM does not provide flight recorder API or if the application was
+     * built without it.
+     * @return factory of events or null if not available
+     */
+    private static FlightEventFactory loadEventFactory() {
+        try {
+            Class.forName("jdk.jfr.Event");
+            Class<?> cls = Class.forName("cz.vutbr.fit.xproko26.pivis.stats.FlightRecorderEvents");
+            return (FlightEventFactory) cls.getDeclaredConstructor().newInstance();
+        } catch (ReflectiveOperationException | LinkageError ex) {
+            return null;
+        }
+    }
+
+    /**
+     * Returns number of bytes allocated by the calling thread.
+     * @return allocated bytes or 0 if not supported
+     */
+    private long getAllocatedBytes() {
+        return (threads != null) ? threads.getThreadAllocatedBytes(Thread.currentThread().getId()) : 0;
+    }
+
+    /**
+     * FlightEvent is flight recorder event of one measurement of a stage.
+     */
+    interface FlightEvent {
+
+        /**
+         * Finishes the event and commits it together with counters.
+         * @param nodes number of visited nodes
+         * @param found number of found items
+         * @param detail detail of the stage or null
+         */
+        void end(long nodes, long found, String detail);
+
+        /**
+         * Returns true if the event is being recorded.
+         * @return true if the event is recorded
+         */
+        boolean isEnabled();
+    }
+
+    /**
+     * FlightEventFactory creates and starts flight recorder events of
+     * the stages.
+     */
+    interface FlightEventFactory {
+
+        /**
+         * Creates and starts event of the stage.
+         * @param stage measured stage
+         * @return started event
+         */
+        FlightEvent create(Stage stage);
+    }
+
+    /**
+     * Probe holds the start of one measurement of a stage together with
+     * flight recorder event of the stage.
+     */
+    public class Probe {
+
+        //measured stage, null if the measurement is not recorded
+        private final Stage stage;
+
+        //bytes allocated by the thread at the start
+        private final long alloc;
+
+        //time of the start
+        private final long start;
+
+        //flight recorder event, null if not available
+        private final FlightEvent event;
+
+        /**
+         * Constructor which stores the start of the measurement.
+         * @param s measured stage
+         * @param a bytes allocated by the thread at the start
+         */
+        private Probe(Stage s, long a) {
+            stage = s;
+            alloc = a;
+            event = (EVENTS != null && s != null) ? EVENTS.create(s) : null;
+            start = System.nanoTime();
+        }
+
+        /**
+         * Finishes the measurement without any counters.
+         */
+        public void stop() {
+            stop(0, 0);
+        }
+
+        /**
+         * Finishes the measurement and records it together with counters.
+         * @param nodes number of visited nodes
+         * @param found number of found items
+         */
+        public void stop(long nodes, long found) {
+            stop(nodes, found, null);
+        }
+
+        /**
+         * Finishes the measurement and records it together with counters,
+         * detail of the stage is passed only to the flight recorder event.
+         * @param nodes number of visited nodes
+         * @param found number of found items
+         * @param detail detail of the stage (e.g. channel or file) or null
+         */
+        public void stop(long nodes, long found, String detail) {
+            if (stage == null) {
+                return;
+            }
+            long time = System.nanoTime() - start;
+            records.get(stage).add(time, nodes, found, getAllocatedBytes() - alloc);
+            if (event != null) {
+                event.end(nodes, found, detail);
+            }
+        }
+
+        /**
+         * Returns true if flight recorder event of the stage is being
+         * recorded, so that its detail is worth computing.
+         * @return true if the event is recorded
+         */
+        public boolean isRecorded() {
+            return (event != null) && event.isEnabled();
+        }
+    }
+
+    /**
+     * Record holds collected values of one stage.
+     */
+    private static class Record {
+
+        //number of calls
+        private long calls;
+
+        //total and maximal latency in nanoseconds
+        private long total;
+        private long max;
+
+        //histogram of latencies
+        private final long[] histogram = new long[BUCKETS];
+
+        //number of visited nodes and found items
+        private long nodes;
+        private long found;
+
+        //allocated bytes
+        private long alloc;
+
+        /**
+         * Adds one measurement.
+         * @param time latency in nanoseconds
+         * @param n number of visited nodes
+         * @param f number of found items
+         * @param a allocated bytes
+         */
+        private synchronized void add(long time, long n, long f, long a) {
+            calls++;
+            total += time;
+            max = Math.max(max, time);
+            long us = time / 1000;
+            int bucket = (us == 0) ? 0 : Math.min(BUCKETS - 1, 64 - Long.numberOfLeadingZeros(us));
+            histogram[bucket]++;
+            nodes += n;
+            found += f;
+            alloc += a;
+        }
+
+        /**
+         * Clears all values.
+         */
+        private synchronized void reset() {
+            calls = 0;
+            total = 0;
+            max = 0;
+            for (int i = 0; i < BUCKETS; i++) {
+                histogram[i] = 0;
+            }
+            nodes = 0;
+            found = 0;
+            alloc = 0;
+        }
+
+        /**
+         * Appends line of the stage unless it was never called.
+         * @param stage stage of the record
+         * @param sb string builder
+         */
+        private synchronized void append(Stage stage, StringBuilder sb) {
+            if (calls == 0) {
+                return;
+            }
+            sb.append(String.format("%-12s %8d %11.3f %10d %10d %10d %10d %10d %10d %10d %12d%n",
+                    stage.getName(), calls, total / 1e6, total / calls / 1000,
+                    getPercentile(50), getPercentile(90), getPercentile(99), max / 1000,
+                    nodes, found, alloc / 1024));
+        }
+
+        /**
+         * Returns upper bound of the bucket containing the percentile.
+         * @param p percentile
+         * @return latency in microseconds
+         */
+        private long getPercentile(int p) {
+            long limit = (calls * p + 99) / 100;
+            long count = 0;
+            for (int i = 0; i < BUCKETS; i++) {
+                count += histogram[i];
+                if (count >= limit) {
+                    return Math.min(1L << i, max / 1000);
+                }
+            }
+            return max / 1000;
+        }
+    }
+}
@@ -16,21 +16,9 @@
 package cz.vutbr.fit.xproko26.pivis.visualizer;
 
 import cz.vutbr.fit.xproko26.pivis.gui.graph.NodeValue;
-import cz.vutbr.fit.xproko26.pivis.model.expressions.ExpressionVisitor;
-import cz.vutbr.fit.xproko26.pivis.model.expressions.AbstractionExpression;
-import cz.vutbr.fit.xproko26.pivis.model.expressions.ConcretizeExpression;
-import cz.vutbr.fit.xproko26.pivis.model.expressions.RootExpression;
+import cz.vutbr.fit.xproko26.pivis.model.expressions.ExpressionTraversal;
 import cz.vutbr.fit.xproko26.pivis.model.expressions.Expression;
-import cz.vutbr.fit.xproko26.pivis.model.expressions.InPrefixExpression;
-import cz.vutbr.fit.xproko26.pivis.model.expressions.MatchExpression;
-import cz.vutbr.fit.xproko26.pivis.model.expressions.NilExpression;
-import cz.vutbr.fit.xproko26.pivis.model.expressions.OutPrefixExpression;
-import cz.vutbr.fit.xproko26.pivis.model.expressions.ParallelExpression;
-import cz.vutbr.fit.xproko26.pivis.model.expressions.ParallelReplicationExpression;
-import cz.vutbr.fit.xproko26.pivis.model.expressions.ReplicationExpression;
-import cz.vutbr.fit.xproko26.pivis.model.expressions.RestrictionExpression;
-import cz.vutbr.fit.xproko26.pivis.model.expressions.SumExpression;
-import cz.vutbr.fit.xproko26.pivis.model.expressions.TauPrefixExpression;
+import java.util.List;
 
 /**
  * NodeValueModifier is a singleton auxiliary class which traverses the 
@@ -39,7 +27,7 @@ import cz.vutbr.fit.xproko26.pivis.model.expressions.TauPrefixExpression;
  * specification.
  * @author Dagmar Prokopova
  */
-public class NodeValueModifier extends ExpressionVisitor<Void> {
+public class NodeValueModifier extends ExpressionTraversal<Void> {
         
     //singleton instance of NodeVAlueModifier
     private static NodeValueModifier instance;
@@ -69,130 +57,36 @@ public class NodeValueModifier extends ExpressionVisitor<Void> {
             return;
         
         action = a;
-        visit(exp, null);
+        traverse(exp);
     }
 
     
     @Override
-    public Void visit(RootExpression node, Void o) {
-        visit(node.getSuccExp(), null);
-        return null;
-    }
-
-    @Override
-    public Void visit(RestrictionExpression node, Void o) {
-        visit(node.getSuccExp(), null);
-        return null;
-    }
-
-    @Override
-    public Void visit(SumExpression node, Void o) {
-        NodeValue nv = node.getVisual();
-        if (nv != null) {
-            action.apply(nv);
-            node.getSuccExps().stream().forEach((e) -> visit(e, null));
-        }        
-        return null;
-    }
-
-    @Override
-    public Void visit(ParallelExpression node, Void o) {
-        NodeValue nv = node.getVisual();
-        if (nv != null) {
-            action.apply(nv);
-            node.getSuccExps().stream().forEach((e) -> visit(e, null));
-        }        
-        return null;
-    }
-        
-    @Override
-    public Void visit(ParallelReplicationExpression node, Void o) {
-        NodeValue nv = node.getVisual();
-        if (nv != null) {
-            action.apply(nv);            
-        }
-        node.getSuccExps().stream().forEach((e) -> visit(e, null));
-        return null;
-    }
-
-    @Override
-    public Void visit(ReplicationExpression node, Void o) {
-        NodeValue nv = node.getVisual();
-        if (nv != null) {
-            action.apply(nv);            
-        }
-        if (!node.isReplicationHelper()) {
-            //visit successor only if it is not helper
-            visit(node.getSuccExp(), null);
+    protected List<Expression> enter(Expression node) {
+        switch (node.getType()) {
+            case ROOT:
+            case RESTRICTION:
+            case ABSTRACTION:
+                //expressions without visual representation
+                return node.getSuccessors();
+            default:
+                break;
         }
-        return null;
-    }
-
-    @Override
-    public Void visit(InPrefixExpression node, Void o) {
-        NodeValue nv = node.getVisual();
-        if (nv != null) {
-            action.apply(nv);
-            visit(node.getSuccExp(), null);
-        }        
-        return null;
-    }
-
-    @Override
-    public Void visit(OutPrefixExpression node, Void o) {
-        NodeValue nv = node.getVisual();
-        if (nv != null) {
-            action.apply(nv);
-            visit(node.getSuccExp(), null);
-        }        
-        return null;
-    }
-
-    @Override
-    public Void visit(TauPrefixExpression node, Void o) {
-        NodeValue nv = node.getVisual();
-        if (nv != null) {
-            action.apply(nv);
-            visit(node.getSuccExp(), null);
-        }        
-        return null;
-    }
-
-    @Override
-    public Void visit(MatchExpression node, Void o) {
-        NodeValue nv = node.getVisual();
-        if (nv != null) {
-            action.apply(nv);
-            visit(node.getSuccExp(), null);
-        }        
-        return null;
-    }
-
-    @Override
-    public Void visit(ConcretizeExpression node, Void o) {
-        NodeValue nv = node.getVisual();
-        if (nv != null) {
-            action.apply(nv);
-            if (node.getSuccExp() != null) {
-                visit(node.getSuccExp(), null);
-            }
-        }        
-        return null;
-    }
-
-    @Override
-    public Void visit(NilExpression node, Void o) {
+        
         NodeValue nv = node.getVisual();
         if (nv != null) {
             action.apply(nv);
         }
-        return null;
-    }
-
-    @Override
-    public Void visit(AbstractionExpression node, Void o) {
-        visit(node.getSuccExp(), null);
-        return null;
+        switch (node.getType()) {
+            case PARALLEL_REPLICATION:
+                return node.getSuccessors();
+            case REPLICATION:
+                //visit successor only if it is not helper
+                return node.isReplicationHelper() ? null : node.getSuccessors();
+            default:
+                //visit successors only if the expression is visualized
+                return (nv != null) ? node.getSuccessors() : null;
+        }
     }
     
 }
@@ -15,24 +15,21 @@
  */
 package cz.vutbr.fit.xproko26.pivis.visualizer;
 
+import java.util.Collections;
+import java.util.List;
+import java.util.stream.Collectors;
 import cz.vutbr.fit.xproko26.pivis.gui.graph.NodeValue;
 import cz.vutbr.fit.xproko26.pivis.gui.graph.EdgeValue;
-import cz.vutbr.fit.xproko26.pivis.model.expressions.AbstractionExpression;
 import cz.vutbr.fit.xproko26.pivis.model.expressions.ConcretizeExpression;
-import cz.vutbr.fit.xproko26.pivis.model.expressions.RootExpression;
 import cz.vutbr.fit.xproko26.pivis.model.expressions.Expression;
 import cz.vutbr.fit.xproko26.pivis.model.expressions.InPrefixExpression;
 import cz.vutbr.fit.xproko26.pivis.model.expressions.MatchExpression;
-import cz.vutbr.fit.xproko26.pivis.model.expressions.ExpressionVisitor;
+import cz.vutbr.fit.xproko26.pivis.model.expressions.ExpressionTraversal;
+import cz.vutbr.fit.xproko26.pivis.model.names.NRList;
 import cz.vutbr.fit.xproko26.pivis.model.names.NameRef;
-import cz.vutbr.fit.xproko26.pivis.model.expressions.NilExpression;
 import cz.vutbr.fit.xproko26.pivis.model.expressions.OutPrefixExpression;
-import cz.vutbr.fit.xproko26.pivis.model.expressions.ParallelExpression;
-import cz.vutbr.fit.xproko26.pivis.model.expressions.ReplicationExpression;
-import cz.vutbr.fit.xproko26.pivis.model.expressions.RestrictionExpression;
-import cz.vutbr.fit.xproko26.pivis.model.expressions.SumExpression;
-import cz.vutbr.fit.xproko26.pivis.model.expressions.TauPrefixExpression;
 import cz.vutbr.fit.xproko26.pivis.model.expressions.ParallelReplicationExpression;
+import cz.vutbr.fit.xproko26.pivis.stats.Statistics;
 
 /**
  * Visualizer is a singleton class which provides auxiliary methods to convert 
@@ -43,7 +40,7 @@ import cz.vutbr.fit.xproko26.pivis.model.expressions.ParallelReplicationExpressi
  * creation of node or edge by graphic library..
  * @author Dagmar Prokopova
  */
-public class Visualizer extends ExpressionVisitor<NodeValue> {
+public class Visualizer extends ExpressionTraversal<NodeValue> {
     
     //singleton instance of Visualizer
     private static Visualizer instance;
@@ -54,6 +51,9 @@ public class Visualizer extends ExpressionVisitor<NodeValue> {
     //flag which indicates whether the nodes should be ordered hierarchicaly
     private static boolean hierarchic;
     
+    //visual object of parent node of the traversed expressions
+    private NodeValue group;
+    
     /**
      * Method for accessing the singleton instance.
      * @return instance of Visualizer class
@@ -80,8 +80,12 @@ public class Visualizer extends ExpressionVisitor<NodeValue> {
      * @param h true if nodes should be ordered hierarchically
      */
     public void visualize(Expression exp, boolean h) {
+        Statistics.Probe probe = Statistics.getInstance().start(Statistics.Stage.VISUALIZE);
+        long visited = getVisited();
         hierarchic = h;
-        visit(exp, null);
+        group = null;
+        traverse(exp);
+        probe.stop(getVisited() - visited, 0);
     }
     
     /**
@@ -92,7 +96,8 @@ public class Visualizer extends ExpressionVisitor<NodeValue> {
      * @param previous visual object of predcessor node of the first created expression
      */
     public void visualizeBranch(Expression node, NodeValue parent, NodeValue previous) {
-        NodeValue nv = visit(node, parent);
+        group = parent;
+        NodeValue nv = traverse(node);
         if (previous != null) {
             createEdge(null, previous, nv, new EdgeValue("", EdgeValue.Type.E_FLOW));
         }
@@ -119,163 +124,137 @@ public class Visualizer extends ExpressionVisitor<NodeValue> {
     }
     
     @Override
-    public NodeValue visit(RootExpression node, NodeValue parent) {
-        //ignore expression - no visual representation
-        return visit(node.getSuccExp(), parent);
-    }        
-    
-    @Override
-    public NodeValue visit(RestrictionExpression node, NodeValue parent) {
-        //ignore expression - no visual representation
-        return visit(node.getSuccExp(), parent);
-    }
-
-    @Override
-    public NodeValue visit(SumExpression node, NodeValue parent) {
-        //extract visual object from the expression or create new
-        NodeValue nv1 = (node.getVisual() != null) ? node.getVisual() : new NodeValue("+", NodeValue.Type.V_NODE);
-        createNode(node, parent, nv1);
-        
-        //visit all successors and connect created visual object with edges 
-        node.getSuccExps().stream().map((e) -> visit(e, parent)).forEachOrdered((nv2) -> {
-            createEdge(parent, nv1, nv2, new EdgeValue("", EdgeValue.Type.E_FLOW));
-        });               
-        return nv1;
-    }
+    protected List<Expression> enter(Expression node) {
+        switch (node.getType()) {
+            case SUM:
+                createNode(node, "+");
+                break;
+            case PARALLEL:
+                createNode(node, "|");
+                break;
+            case PARALLEL_REPLICATION:
+                //check if parallel replication expression should be visualized
+                if (((ParallelReplicationExpression) node).isVisible()) {
+                    createNode(node, "|");
+                    //visit all successors except for replication helpers
+                    return node.getSuccessors().stream().filter(e -> !e.isReplicationHelper()).collect(Collectors.toList());
+                }
+                //if it should not be visualized, then it must contain only original replication branch
+                return Collections.singletonList(((ParallelReplicationExpression) node).getRepOriginal());
+            case REPLICATION:
+                //replication copy node is not visualized
+                if (!node.isReplicationCopy()) {
+                    createNode(node, "!");
+                }
+                break;
+            case IN_PREFIX:
+                NodeValue in = createNode(node, "i");
+                createNames(in, ((InPrefixExpression) node).getChannel(), EdgeValue.Type.E_IN, ((InPrefixExpression) node).getParams());
+                break;
+            case OUT_PREFIX:
+                NodeValue out = createNode(node, "o");
+                createNames(out, ((OutPrefixExpression) node).getChannel(), EdgeValue.Type.E_OUT, ((OutPrefixExpression) node).getParams());
+                break;
+            case TAU_PREFIX:
+                createNode(node, "t");
+                break;
+            case MATCH:
+                NodeValue nv1 = createNode(node, "=");
 
-    @Override
-    public NodeValue visit(ParallelExpression node, NodeValue parent) {
-        //extract visual object from the expression or create new
-        NodeValue nv1 = (node.getVisual() != null) ? node.getVisual() : new NodeValue("|", NodeValue.Type.V_NODE);
-        createNode(node, parent, nv1);
+                //process left name
+                NodeValue name1 = createName(group, ((MatchExpression) node).getLeft());
+                createEdge(group, nv1, name1, new EdgeValue("", EdgeValue.Type.E_PARAM)); 
 
-        //visit all successors and connect created visual object with edges
-        node.getSuccExps().stream().map((e) -> visit(e, parent)).forEachOrdered((nv2) -> {
-            createEdge(parent, nv1, nv2, new EdgeValue("", EdgeValue.Type.E_FLOW));
-        });
-        return nv1;
+                //process right name
+                NodeValue name2 = createName(group, ((MatchExpression) node).getRight());
+                createEdge(group, nv1, name2, new EdgeValue("", EdgeValue.Type.E_PARAM)); 
+                break;
+            case CONCRETIZE:
+                createNode((ConcretizeExpression) node);
+                //instance of the process is not visualized
+                return null;
+            case NIL:
+                createNode(node, "0");
+                break;
+            default:
+                //root, restriction and abstraction are ignored - no visual representation
+                break;
+        }
+        return node.getSuccessors();
     }
-    
-    
+
     @Override
-    public NodeValue visit(ParallelReplicationExpression node, NodeValue parent) {
-        //check if parallel replication expression should be visualized
-        if (node.isVisible()) {
-            
-            //extract visual object from the expression or create new
-            NodeValue nv1 = (node.getVisual() != null) ? node.getVisual() : new NodeValue("|", NodeValue.Type.V_NODE);
-            createNode(node, parent, nv1);
-            
-            //visit all successors (except for replication helpers) and connect created visual object with edges
-            for (Expression succex : node.getSuccExps()) {
-                if (!succex.isReplicationHelper()) {
-                    NodeValue nv2 = visit(succex, parent);
-                    createEdge(parent, nv1, nv2, new EdgeValue("", EdgeValue.Type.E_FLOW));
-                }
-            }
-            return nv1;
-        } else {
-            //if it should not be visualized, then it must contain only original replication branch
-            return visit(node.getRepOriginal(), parent);
+    protected void returned(Expression node, Expression succ, NodeValue result) {
+        if (isVisualized(node)) {
+            //connect created visual object with the successor
+            createEdge(group, node.getVisual(), result, new EdgeValue("", EdgeValue.Type.E_FLOW));
         }
     }
-    
 
     @Override
-    public NodeValue visit(ReplicationExpression node, NodeValue parent) {        
-        if (node.isReplicationCopy()) {
-            //replication copy node is not visualized
-            return visit(node.getSuccExp(), parent);
-        }
-        else {
-            //extract visual object from the expression or create new
-            NodeValue nv1 = (node.getVisual() != null) ? node.getVisual() : new NodeValue("!", NodeValue.Type.V_NODE);
-            createNode(node, parent, nv1);
-        
-            //visit successor and connect created visual object with edge
-            NodeValue nv2 = visit(node.getSuccExp(), parent);
-            createEdge(parent, nv1, nv2, new EdgeValue("", EdgeValue.Type.E_FLOW));
-            
-            return nv1;
+    protected NodeValue leave(Expression node, NodeValue last) {
+        //expressions without visual representation pass the visual object of their successor
+        return isVisualized(node) ? node.getVisual() : last;
+    }
+
+    /**
+     * Returns true if the expression has its own visual representation.
+     * @param node expression
+     * @return true if expression is visualized
+     */
+    private boolean isVisualized(Expression node) {
+        switch (node.getType()) {
+            case ROOT:
+            case RESTRICTION:
+            case ABSTRACTION:
+                return false;
+            case PARALLEL_REPLICATION:
+                return ((ParallelReplicationExpression) node).isVisible();
+            case REPLICATION:
+                return !node.isReplicationCopy();
+            default:
+                return true;
         }
     }
-    
-    @Override
-    public NodeValue visit(InPrefixExpression node, NodeValue parent) {
-        //extract visual object from the expression or create new
-        NodeValue nv1 = (node.getVisual() != null) ? node.getVisual() : new NodeValue("i", NodeValue.Type.V_NODE);
-        createNode(node, parent, nv1);
 
-        //process channel name
-        NodeValue channel = createName(parent, node.getChannel());
-        createEdge(parent, nv1, channel, new EdgeValue("", EdgeValue.Type.E_IN));
-        
-        //process parameters
-        node.getParams().stream().map((ref) -> createName(parent, ref)).forEachOrdered((name) -> {
-            createEdge(parent, nv1, name, new EdgeValue("", EdgeValue.Type.E_PARAM));
-        });
-        
-        //visit successor and connect created visual object with edge
-        NodeValue nv2 = visit(node.getSuccExp(), parent);
-        createEdge(parent, nv1, nv2, new EdgeValue("", EdgeValue.Type.E_FLOW));
+    /**
+     * Extracts visual object from the expression or creates new one with
+     * specified label and creates node out of it.
+     * @param node expression
+     * @param label label of new visual object
+     * @return visual object
+     */
+    private NodeValue createNode(Expression node, String label) {
+        NodeValue nv1 = (node.getVisual() != null) ? node.getVisual() : new NodeValue(label, NodeValue.Type.V_NODE);
+        createNode(node, group, nv1);
         return nv1;
     }
 
-    @Override
-    public NodeValue visit(OutPrefixExpression node, NodeValue parent) {
-        //extract visual object from the expression or create new
-        NodeValue nv1 = (node.getVisual() != null) ? node.getVisual() : new NodeValue("o", NodeValue.Type.V_NODE);
-        createNode(node, parent, nv1);
-
+    /**
+     * Creates nodes of the channel and parameters of prefix expression
+     * and connects them with the visual object of the prefix.
+     * @param nv1 visual object of the prefix
+     * @param channel channel name
+     * @param type type of the channel edge
+     * @param params parameters
+     */
+    private void createNames(NodeValue nv1, NameRef channel, EdgeValue.Type type, NRList params) {
         //process channel name
-        NodeValue channel = createName(parent, node.getChannel());
-        createEdge(parent, nv1, channel, new EdgeValue("", EdgeValue.Type.E_OUT));
+        NodeValue chan = createName(group, channel);
+        createEdge(group, nv1, chan, new EdgeValue("", type));
         
         //process parameters
-        node.getParams().stream().map((ref) -> createName(parent, ref)).forEachOrdered((name) -> {
-            createEdge(parent, nv1, name, new EdgeValue("", EdgeValue.Type.E_PARAM));
+        params.stream().map((ref) -> createName(group, ref)).forEachOrdered((name) -> {
+            createEdge(group, nv1, name, new EdgeValue("", EdgeValue.Type.E_PARAM));
         });
-        
-        //visit successor and connect created visual object with edge
-        NodeValue nv2 = visit(node.getSuccExp(), parent);
-        createEdge(parent, nv1, nv2, new EdgeValue("", EdgeValue.Type.E_FLOW));
-        return nv1;
     }
 
-    @Override
-    public NodeValue visit(TauPrefixExpression node, NodeValue parent) {
-        //extract visual object from the expression or create new
-        NodeValue nv1 = (node.getVisual() != null) ? node.getVisual() : new NodeValue("t", NodeValue.Type.V_NODE);
-        createNode(node, parent, nv1);
-        
-        //visit successor and connect created visual object with edge
-        NodeValue nv2 = visit(node.getSuccExp(), parent);
-        createEdge(parent, nv1, nv2, new EdgeValue("", EdgeValue.Type.E_FLOW));
-        return nv1;
-    }
-
-    @Override
-    public NodeValue visit(MatchExpression node, NodeValue parent) {
-        //extract visual object from the expression or create new
-        NodeValue nv1 = (node.getVisual() != null) ? node.getVisual() : new NodeValue("=", NodeValue.Type.V_NODE);
-        createNode(node, parent, nv1);
-
-        //process left name
-        NodeValue name1 = createName(parent, node.getLeft());
-        createEdge(parent, nv1, name1, new EdgeValue("", EdgeValue.Type.E_PARAM)); 
-        
-        //process right name
-        NodeValue name2 = createName(parent, node.getRight());
-        createEdge(parent, nv1, name2, new EdgeValue("", EdgeValue.Type.E_PARAM)); 
-        
-        //visit successor and connect created visual object with edge
-        NodeValue nv2 = visit(node.getSuccExp(), parent);
-        createEdge(parent, nv1, nv2, new EdgeValue("", EdgeValue.Type.E_FLOW)); 
-        return nv1;
-    }
-
-    @Override
-    public NodeValue visit(ConcretizeExpression node, NodeValue parent) {
+    /**
+     * Creates visual object of concretize expression with label and type
+     * according to the process and creates node out of it.
+     * @param node concretize expression
+     */
+    private void createNode(ConcretizeExpression node) {
         //extract visual object from the expression or create new
         NodeValue nv1 = (node.getVisual() != null) ? node.getVisual() : new NodeValue(node.getIDRef().toString(), NodeValue.Type.V_PROC);
         nv1.setLabel(node.getIDRef().getNameValue().getLabel()); //update label
@@ -295,31 +274,15 @@ public class Visualizer extends ExpressionVisitor<NodeValue> {
                 }
             }
         }
-        createNode(node, parent, nv1);
+        createNode(node, group, nv1);
             
         //connect arguments
         for (NameRef nref : node.getArgs()) {
-            NodeValue name = createName(parent, nref);
-            createEdge(parent, nv1, name, new EdgeValue("", EdgeValue.Type.E_PARAM)); 
+            NodeValue name = createName(group, nref);
+            createEdge(group, nv1, name, new EdgeValue("", EdgeValue.Type.E_PARAM)); 
         }
-      
-        return nv1;
     }
 
-    @Override
-    public NodeValue visit(NilExpression node, NodeValue parent) {
-        //extract visual object from the expression or create new
-        NodeValue nv1 = (node.getVisual() != null) ? node.getVisual() : new NodeValue("0", NodeValue.Type.V_NODE);
-        createNode(node, parent, nv1);        
-        return nv1;
-    }
-    
-    @Override
-    public NodeValue visit(AbstractionExpression node, NodeValue parent) {
-        //ignore expression - no visual representation
-        return visit(node.getSuccExp(), parent);
-    }        
-
     /**
      * Invokes listener method to create node and stores the visual
      * object into the expression node.
@@ -0,0 +1,78 @@
+/*
+ * Copyright 2017 Dagmar Prokopova <xproko26@stud.fit.vutbr.cz>.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package cz.vutbr.fit.xproko26.pivis.stats;
+
+/**
+ * FlightRecorderEvents creates flight recorder events of the stages measured
+ * by {@link Statistics Statistics}. It is loaded only when the JVM provides
+ * flight recorder API.
+ * @author Dagmar Prokopova
+ */
+public class FlightRecorderEvents implements Statistics.FlightEventFactory {
+
+    /**
+     * Creates and starts event of the stage.
+     * @param stage measured stage
+     * @return started event
+     */
+    @Override
+    public StageEvent create(Statistics.Stage stage) {
+        StageEvent event;
+        switch (stage) {
+            case PARSE:
+                event = new StageEvent.ParseEvent();
+                break;
+            case REDLIST:
+                event = new StageEvent.RedListEvent();
+                break;
+            case REDUCE:
+                event = new StageEvent.ReduceEvent();
+                break;
+            case SIMPLIFY:
+                event = new StageEvent.SimplifyEvent();
+                break;
+            case INSTANTIATE:
+                event = new StageEvent.InstantiateEvent();
+                break;
+            case REPLICATE:
+                event = new StageEvent.ReplicateEvent();
+                break;
+            case VISUALIZE:
+                event = new StageEvent.VisualizeEvent();
+                break;
+            case LAYOUT:
+                event = new StageEvent.LayoutEvent();
+                break;
+            case LAYOUT_GROUP:
+                event = new StageEvent.GroupLayoutEvent();
+                break;
+            case EXPORT:
+                event = new StageEvent.ExportEvent();
+                break;
+            case SAVE:
+                event = new StageEvent.SaveEvent();
+                break;
+            case SPECULATE:
+                event = new StageEvent.SpeculateEvent();
+                break;
+            default:
+                event = new StageEvent.LoadEvent();
+                break;
+        }
+        event.begin();
+        return event;
+    }
+}
@@ -0,0 +1,333 @@
+/*
+ * Copyright 2017 Dagmar Prokopova <xproko26@stud.fit.vutbr.cz>.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package cz.vutbr.fit.xproko26.pivis.stats;
+
+import java.io.File;
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import cz.vutbr.fit.xproko26.pivis.model.Model;
+
+/**
+ * StageEvent is a base of Java Flight Recorder events emitted for stages
+ * measured by {@link Statistics Statistics}, so that a recording shows where
+ * each user interaction spends its time. Event is started together with the
+ * probe of the stage and committed when the probe is stopped. Counters of
+ * the probe are stored into the fields of the specific event, sizes which are
+ * not counted by the probe are computed only if the event is committed.
+ * Events are created by {@link FlightRecorderEvents FlightRecorderEvents},
+ * because flight recorder fails to instrument event classes whose code mixes
+ * types of several events. Event classes are compiled separately from the
+ * rest of the application, so that it builds and runs without flight
+ * recorder API.
+ * @author Dagmar Prokopova
+ */
+@Category("Pi-Visualizer")
+public abstract class StageEvent extends Event implements Statistics.FlightEvent {
+
+    /**
+     * Ends the event and commits it with counters of the probe.
+     * @param nodes number of visited nodes
+     * @param found number of found items
+     * @param detail detail of the stage or null
+     */
+    @Override
+    public void end(long nodes, long found, String detail) {
+        end();
+        if (shouldCommit()) {
+            set(nodes, found, detail);
+            commit();
+        }
+    }
+
+    /**
+     * Stores counters of the probe into the fields of the event.
+     * @param nodes number of visited nodes
+     * @param found number of found items
+     * @param detail detail of the stage or null
+     */
+    protected abstract void set(long nodes, long found, String detail);
+
+    /**
+     * Returns number of names in the name table of the model.
+     * @return number of names
+     */
+    private static long getNames() {
+        return Model.getInstance().getNameTable().size();
+    }
+
+    /**
+     * Event of parsing.
+     */
+    @Name("pivis.Parse")
+    @Label("Parse")
+    @Description("Parsing of a console command")
+    public static class ParseEvent extends StageEvent {
+
+        @Label("Tokens")
+        private long tokens;
+
+        @Override
+        protected void set(long nodes, long found, String detail) {
+            tokens = nodes;
+        }
+    }
+
+    /**
+     * Event of reduction list generation.
+     */
+    @Name("pivis.ReductionList")
+    @Label("Reduction List")
+    @Description("Generation of the reduction list")
+    public static class RedListEvent extends StageEvent {
+
+        @Label("Nodes")
+        private long nodes;
+
+        @Label("Reductions")
+        private long reductions;
+
+        @Override
+        protected void set(long n, long found, String detail) {
+            nodes = n;
+            reductions = found;
+        }
+    }
+
+    /**
+     * Event of reduction execution.
+     */
+    @Name("pivis.Reduction")
+    @Label("Reduction")
+    @Description("Execution of a reduction")
+    public static class ReduceEvent extends StageEvent {
+
+        @Label("Reduction Type")
+        private String type;
+
+        @Label("Channel")
+        private String channel;
+
+        @Label("Names")
+        private long names;
+
+        @Override
+        protected void set(long nodes, long found, String detail) {
+            type = (detail == null) ? "tau" : "communication";
+            channel = detail;
+            names = getNames();
+        }
+    }
+
+    /**
+     * Event of simplification.
+     */
+    @Name("pivis.Simplification")
+    @Label("Simplification")
+    @Description("Simplification of the expression")
+    public static class SimplifyEvent extends StageEvent {
+
+        @Label("Nodes")
+        private long nodes;
+
+        @Override
+        protected void set(long n, long found, String detail) {
+            nodes = n;
+        }
+    }
+
+    /**
+     * Event of instantiation.
+     */
+    @Name("pivis.Instantiation")
+    @Label("Instantiation")
+    @Description("Instantiation of a process definition")
+    public static class InstantiateEvent extends StageEvent {
+
+        @Label("Process")
+        private String process;
+
+        @Label("Nodes")
+        private long nodes;
+
+        @Label("Names")
+        private long names;
+
+        @Override
+        protected void set(long n, long found, String detail) {
+            process = detail;
+            nodes = n;
+            names = getNames();
+        }
+    }
+
+    /**
+     * Event of replication.
+     */
+    @Name("pivis.Replication")
+    @Label("Replication")
+    @Description("Creation of a replication branch")
+    public static class ReplicateEvent extends StageEvent {
+
+        @Label("Nodes")
+        private long nodes;
+
+        @Label("Names")
+        private long names;
+
+        @Override
+        protected void set(long n, long found, String detail) {
+            nodes = n;
+            names = getNames();
+        }
+    }
+
+    /**
+     * Event of visualization.
+     */
+    @Name("pivis.Visualization")
+    @Label("Visualization")
+    @Description("Creation of graph cells of the expression")
+    public static class VisualizeEvent extends StageEvent {
+
+        @Label("Nodes")
+        private long nodes;
+
+        @Override
+        protected void set(long n, long found, String detail) {
+            nodes = n;
+        }
+    }
+
+    /**
+     * Event of layout of the whole graph.
+     */
+    @Name("pivis.Layout")
+    @Label("Layout")
+    @Description("Layout of the whole graph")
+    public static class LayoutEvent extends StageEvent {
+
+        @Label("Cells")
+        private long cells;
+
+        @Override
+        protected void set(long nodes, long found, String detail) {
+            cells = nodes;
+        }
+    }
+
+    /**
+     * Event of layout of a group.
+     */
+    @Name("pivis.GroupLayout")
+    @Label("Group Layout")
+    @Description("Layout of a single group of the graph")
+    public static class GroupLayoutEvent extends StageEvent {
+
+        @Label("Cells")
+        private long cells;
+
+        @Override
+        protected void set(long nodes, long found, String detail) {
+            cells = nodes;
+        }
+    }
+
+    /**
+     * Event of export.
+     */
+    @Name("pivis.Export")
+    @Label("Export")
+    @Description("Export of the graph")
+    public static class ExportEvent extends StageEvent {
+
+        @Label("Format")
+        private String format;
+
+        @Label("Cells")
+        private long cells;
+
+        @Override
+        protected void set(long nodes, long found, String detail) {
+            format = detail;
+            cells = nodes;
+        }
+    }
+
+    /**
+     * Event of saving.
+     */
+    @Name("pivis.Save")
+    @Label("Save")
+    @Description("Saving of application data")
+    public static class SaveEvent extends StageEvent {
+
+        @Label("File")
+        private String file;
+
+        @Label("Size")
+        @DataAmount
+        private long size;
+
+        @Override
+        protected void set(long nodes, long found, String detail) {
+            file = detail;
+            size = (detail != null) ? new File(detail).length() : 0;
+        }
+    }
+
+    /**
+     * Event of loading.
+     */
+    @Name("pivis.Load")
+    @Label("Load")
+    @Description("Loading of application data")
+    public static class LoadEvent extends StageEvent {
+
+        @Label("File")
+        private String file;
+
+        @Label("Size")
+        @DataAmount
+        private long size;
+
+        @Override
+        protected void set(long nodes, long found, String detail) {
+            file = detail;
+            size = (detail != null) ? new File(detail).length() : 0;
+        }
+    }
+
+    /**
+     * Event of speculation.
+     */
+    @Name("pivis.Speculation")
+    @Label("Speculation")
+    @Description("Background execution of a listed reduction on a copy of application data")
+    public static class SpeculateEvent extends StageEvent {
+
+        @Label("Reductions")
+        private long reductions;
+
+        @Override
+        protected void set(long nodes, long found, String detail) {
+            reductions = found;
+        }
+    }
+}
@@ -0,0 +1,293 @@
+/*
+ * Copyright 2017 Dagmar Prokopova <xproko26@stud.fit.vutbr.cz>.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package cz.vutbr.fit.xproko26.pivis.bench;
+
+import java.util.ArrayList;
+import java.util.List;
+import cz.vutbr.fit.xproko26.pivis.model.expressions.AbstractionExpression;
+import cz.vutbr.fit.xproko26.pivis.model.expressions.ConcretizeExpression;
+import cz.vutbr.fit.xproko26.pivis.model.expressions.Expression;
+import cz.vutbr.fit.xproko26.pivis.model.expressions.InPrefixExpression;
+import cz.vutbr.fit.xproko26.pivis.model.expressions.MatchExpression;
+import cz.vutbr.fit.xproko26.pivis.model.expressions.NilExpression;
+import cz.vutbr.fit.xproko26.pivis.model.expressions.OutPrefixExpression;
+import cz.vutbr.fit.xproko26.pivis.model.expressions.ParallelExpression;
+import cz.vutbr.fit.xproko26.pivis.model.expressions.ParallelReplicationExpression;
+import cz.vutbr.fit.xproko26.pivis.model.expressions.ReplicationExpression;
+import cz.vutbr.fit.xproko26.pivis.model.expressions.RestrictionExpression;
+import cz.vutbr.fit.xproko26.pivis.model.expressions.RootExpression;
+import cz.vutbr.fit.xproko26.pivis.model.expressions.SumExpression;
+import cz.vutbr.fit.xproko26.pivis.model.expressions.TauPrefixExpression;
+import cz.vutbr.fit.xproko26.pivis.model.redmanager.ActionList;
+import cz.vutbr.fit.xproko26.pivis.model.redmanager.IOReduction;
+import cz.vutbr.fit.xproko26.pivis.model.redmanager.Reduction;
+import cz.vutbr.fit.xproko26.pivis.model.redmanager.ReductionContext;
+import cz.vutbr.fit.xproko26.pivis.model.redmanager.ReductionManagerListener;
+import cz.vutbr.fit.xproko26.pivis.model.redmanager.TReduction;
+
+/**
+ * Reduction list search of the first released version, kept as the baseline
+ * of {@link DispatchBenchmark DispatchBenchmark}. The expression tree is
+ * traversed recursively and every visited expression is dispatched to its
+ * visit method by a chain of instanceof checks, as the former
+ * ExpressionVisitor did. Only the list of reductions is built.
+ * @author Dagmar Prokopova
+ */
+public class BaselineReductionSearch {
+
+    //listener providing instances of concretize expressions
+    private final ReductionManagerListener listener;
+
+    //list of all reductions available in current context
+    private final List<Reduction> reductionlist;
+
+    /**
+     * Creates the search.
+     * @param listener listener providing instances of concretize expressions
+     */
+    public BaselineReductionSearch(ReductionManagerListener listener) {
+        this.listener = listener;
+        reductionlist = new ArrayList<>();
+    }
+
+    /**
+     * Returns list of reductions found.
+     * @return reduction list
+     */
+    public List<Reduction> getReductionList() {
+        return reductionlist;
+    }
+
+    /**
+     * Traverses the expression tree and fills the reduction list.
+     * @param exp the root node of expression tree which should be traversed
+     */
+    public void generateReductionList(Expression exp) {
+        reductionlist.clear();
+        if (exp != null) {
+            //visit root with empty reduction context
+            visit(exp, new ReductionContext());
+        }
+    }
+
+    /**
+     * Redirects the processing of expression into the correct visit method
+     * according to its class type.
+     * @param node expression to be visited
+     * @param o object passed as a parameter
+     * @return result of the processing
+     */
+    public Object visit(Expression node, Object o) {
+
+        //if no expression is passed, no processing is done
+        if (node == null)
+            return null;
+
+        if (node instanceof RootExpression) {
+            return visit((RootExpression)node, o);
+        } else if (node instanceof RestrictionExpression) {
+            return visit((RestrictionExpression)node, o);
+        } else if (node instanceof SumExpression) {
+            return visit((SumExpression)node, o);
+        } else if (node instanceof ParallelReplicationExpression) { // order matters
+            return visit((ParallelReplicationExpression)node, o);
+        } else if (node instanceof ParallelExpression) {
+            return visit((ParallelExpression)node, o);
+        } else if (node instanceof ReplicationExpression) {
+            return visit((ReplicationExpression)node, o);
+        } else if (node instanceof InPrefixExpression) {
+            return visit((InPrefixExpression)node, o);
+        } else if (node instanceof OutPrefixExpression) {
+            return visit((OutPrefixExpression)node, o);
+        } else if (node instanceof TauPrefixExpression) {
+            return visit((TauPrefixExpression)node, o);
+        } else if (node instanceof MatchExpression) {
+            return visit((MatchExpression)node, o);
+        } else if (node instanceof ConcretizeExpression) {
+            return visit((ConcretizeExpression)node, o);
+        } else if (node instanceof NilExpression) {
+            return visit((NilExpression)node, o);
+        } else if (node instanceof AbstractionExpression) {
+            return visit((AbstractionExpression)node, o);
+        } else
+            return null;
+    }
+
+    public Object visit(RootExpression node, Object ctx) {
+        return visit(node.getSuccExp(), ctx);
+    }
+
+    public Object visit(RestrictionExpression node, Object ctx) {
+        return visit(node.getSuccExp(), ctx);
+    }
+
+    public Object visit(SumExpression node, Object ctx) {
+        ActionList alist = new ActionList();
+        node.getSuccExps().stream().map((e) -> visit(e, ctx)).forEachOrdered((actions) -> {
+            alist.addAll((ActionList)actions);
+        });
+        return alist;
+    }
+
+    public Object visit(ParallelExpression node, Object ctx) {
+        ActionList alist = new ActionList();
+        List<ActionList> alists = new ArrayList<>();
+        node.getSuccExps().stream().map((e) -> visit(e, ctx)).forEachOrdered((actions) -> {
+            alists.add((ActionList)actions);
+            alist.addAll((ActionList)actions);
+        });
+
+        if (((ReductionContext) ctx).isEnabled()) {
+            extractReductions(alists);
+        }
+        return alist;
+    }
+
+    public Object visit(ParallelReplicationExpression node, Object ctx) {
+        ActionList alist = new ActionList();
+        List<ActionList> alists = new ArrayList<>();
+        Expression helper = null;
+        ActionList origlist = null;
+        boolean traversedCopy = false;
+        for (Expression ex : node.getSuccExps()) {
+
+            if (ex.isReplicationHelper()) {
+                helper = ex; //save it in case of need
+                continue; // do not search throuhg yet
+            } else if (ex.isReplicationCopy()) {
+                traversedCopy = true;
+            }
+
+            ActionList actions = (ActionList) visit(ex, ctx);
+            alists.add(actions);
+            alist.addAll(actions);
+
+            if (ex.isReplicationOriginal()) {
+                origlist = actions; //save in case of comparation with helper
+            }
+
+        }
+
+        if (((ReductionContext) ctx).isEnabled()) {
+            extractReductions(alists);
+
+            //if there was no replication copy, search for reduction actions in helper
+            if (!traversedCopy && (helper != null)) {
+                alists.clear();
+                ReductionContext newctx = ((ReductionContext)ctx).copy();
+                newctx.setEnabled(false); //prevent adding helper branch internal reductions into the list
+                alists.add((ActionList) visit(helper, newctx));
+                alists.add(origlist);
+                extractReductions(alists);
+            }
+
+        }
+        return alist;
+    }
+
+    public Object visit(ReplicationExpression node, Object ctx) {
+        return visit(node.getSuccExp(), ctx);
+    }
+
+    public Object visit(InPrefixExpression node, Object ctx) {
+        ActionList alist = new ActionList();
+        alist.add(node);
+        return alist;
+    }
+
+    public Object visit(OutPrefixExpression node, Object ctx) {
+        ActionList alist = new ActionList();
+        alist.add(node);
+        return alist;
+    }
+
+    public Object visit(TauPrefixExpression node, Object ctx) {
+        if (((ReductionContext) ctx).isEnabled()) {
+            reductionlist.add(new TReduction(node));
+        }
+        return new ActionList();
+    }
+
+    public Object visit(MatchExpression node, Object ctx) {
+       if (node.isValid()) {
+           return visit(node.getSuccExp(), ctx);
+       }
+       else {
+           return new ActionList();
+       }
+    }
+
+    public Object visit(ConcretizeExpression node, Object ctx) {
+        ReductionContext newctx = ((ReductionContext)ctx).copy();
+        if (node.getSuccExp() != null) {
+            if (!node.isReduced()) {
+                newctx.update(node.getIDRef().toString(), node.getArgs());
+            }
+            return visit(node.getSuccExp(), newctx);
+        }
+        else {
+            if (((ReductionContext) ctx).notUsed(node.getIDRef().toString(), node.getArgs())) {
+                if (listener != null) {
+                    Expression inst = listener.getInstance(node);
+                    if (inst != null) {
+                        newctx.update(node.getIDRef().toString(), node.getArgs());
+                        return visit(inst, newctx);
+                    }
+                }
+            }
+            return new ActionList();
+        }
+    }
+
+    public Object visit(NilExpression node, Object ctx) {
+        return new ActionList();
+    }
+
+    public Object visit(AbstractionExpression node, Object ctx) {
+        return visit(node.getSuccExp(), ctx);
+    }
+
+    /**
+     * Extracts available input-output reductions from the action lists united
+     * into the list which is passed as an argument.
+     * @param alists list of action lists
+     */
+    private void extractReductions(List<ActionList> alists) {
+
+        //cycle throung the action lists while there are still at least 2 of them
+        for (int i=0; i < alists.size()-1; i++) {
+            ActionList sublist = alists.get(i);
+            //put the selected action list in contrast with all following action lists
+            for (int j = i + 1; j < alists.size(); j++) {
+                ActionList compsublist = alists.get(j);
+
+                //for each input action in the examined list find output complements in the following lists
+                sublist.getInList().forEach((in) -> {
+                    compsublist.getOutList().stream().map((out) -> new IOReduction(in, out)).filter((r) -> (r.isNameTransferValid())).forEachOrdered((r) -> {
+                        reductionlist.add(r);
+                    });
+                });
+
+                //for each output action in the examined list find input complements in the following lists
+                sublist.getOutList().forEach((out) -> {
+                    compsublist.getInList().stream().map((in) -> new IOReduction(in, out)).filter((r) -> (r.isNameTransferValid())).forEachOrdered((r) -> {
+                        reductionlist.add(r);
+                    });
+                });
+            }
+        }
+    }
+}
@@ -0,0 +1,159 @@
+/*
+ * Copyright 2017 Dagmar Prokopova <xproko26@stud.fit.vutbr.cz>.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package cz.vutbr.fit.xproko26.pivis.bench;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import cz.vutbr.fit.xproko26.pivis.formater.TextFormater;
+import cz.vutbr.fit.xproko26.pivis.model.Model;
+import cz.vutbr.fit.xproko26.pivis.model.expressions.Expression;
+import cz.vutbr.fit.xproko26.pivis.model.expressions.ExpressionList;
+import cz.vutbr.fit.xproko26.pivis.model.names.NameValue;
+import cz.vutbr.fit.xproko26.pivis.model.redmanager.Reduction;
+import cz.vutbr.fit.xproko26.pivis.model.redmanager.ReductionManager;
+
+/**
+ * CacheCheck verifies that a reduction drops only the cached formated texts
+ * of the expressions it touches. Each example is formated, reduced a few
+ * times and formated again after every reduction. The check fails if the
+ * cached text of an expression list which is neither an ancestor nor
+ * a descendant of the reduced prefixes is not kept, unless the reduction
+ * substituted some name, or if no cached text survives any reduction.
+ * @author Dagmar Prokopova
+ */
+public class CacheCheck {
+
+    //number of reductions performed on each example
+    private static final int STEPS = 5;
+
+    /**
+     * Runs the check.
+     * @param args inputs to be checked, all example inputs if there are none
+     */
+    public static void main(String[] args) {
+        List<String> inputs = (args.length > 0) ? Arrays.asList(args) : Regression.getInputs();
+        Inputs.init();
+        int kept = 0;
+        int failed = 0;
+        for (String input : inputs) {
+            try {
+                kept += check(input);
+            } catch (Exception ex) {
+                System.err.println(input + ": " + ex.getMessage());
+                failed++;
+            }
+        }
+        if (failed > 0) {
+            System.exit(1);
+        }
+        if (kept == 0) {
+            System.err.println("caches: no cached text survived a reduction");
+            System.exit(1);
+        }
+        System.out.println("caches: ok, " + kept + " cached texts kept");
+    }
+
+    /**
+     * Reduces the example and checks cached texts after every reduction.
+     * @param input input identifier
+     * @return number of cached texts kept by the reductions
+     * @throws Exception if a cached text of an untouched list was dropped
+     */
+    private static int check(String input) throws Exception {
+        Model model = Model.getInstance();
+        Inputs.restore(Inputs.getData(input));
+        int kept = 0;
+        for (int step = 0; step < STEPS; step++) {
+            List<Reduction> redlist = ReductionManager.getInstance().getReductionList();
+            if (redlist.isEmpty()) {
+                break;
+            }
+            Reduction red = redlist.get(step % redlist.size());
+            List<NameValue> names = new ArrayList<>(model.getNameTable());
+            TextFormater.getInstance().getString(model.getExpression());
+
+            //cached texts of lists the reduction does not touch
+            Set<Expression> touched = Collections.newSetFromMap(new IdentityHashMap<>());
+            for (Expression exp : red.getExpressions()) {
+                touched.addAll(exp.getParentList());
+                touched.addAll(getSubtree(exp));
+            }
+            Map<ExpressionList, Object> cached = new IdentityHashMap<>();
+            for (Expression exp : getSubtree(model.getExpression())) {
+                if (exp instanceof ExpressionList && !touched.contains(exp)
+                        && ((ExpressionList) exp).getFormatted() != null) {
+                    cached.put((ExpressionList) exp, ((ExpressionList) exp).getFormatted());
+                }
+            }
+
+            int substituted = getSubstituted(names);
+            model.setReduction(red);
+            model.reduce();
+            if (getSubstituted(names) != substituted) {
+                //substituted names may be part of any text
+                continue;
+            }
+            for (Map.Entry<ExpressionList, Object> entry : cached.entrySet()) {
+                if (entry.getKey().getFormatted() != entry.getValue()) {
+                    throw new Exception("Error: Cached text of '" + entry.getKey()
+                            + "' was dropped by reduction " + (step % redlist.size())
+                            + " (step " + (step + 1) + ").");
+                }
+            }
+            kept += cached.size();
+        }
+        return kept;
+    }
+
+    /**
+     * Returns number of substituted names.
+     * @param names names of the name table
+     * @return number of names with substitution flag
+     */
+    private static int getSubstituted(List<NameValue> names) {
+        int count = 0;
+        for (NameValue nv : names) {
+            if (nv.isSubstitued()) {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    /**
+     * Returns the expression and all its descendants.
+     * @param exp expression
+     * @return expressions of the subtree
+     */
+    private static Set<Expression> getSubtree(Expression exp) {
+        Set<Expression> subtree = Collections.newSetFromMap(new IdentityHashMap<>());
+        Deque<Expression> stack = new ArrayDeque<>();
+        stack.push(exp);
+        while (!stack.isEmpty()) {
+            Expression e = stack.pop();
+            subtree.add(e);
+            e.getSuccessors().forEach(stack::push);
+        }
+        return subtree;
+    }
+}
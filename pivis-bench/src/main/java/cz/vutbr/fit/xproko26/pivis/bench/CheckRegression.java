@@ -0,0 +1,286 @@
+/*
+ * Copyright 2017 Dagmar Prokopova <xproko26@stud.fit.vutbr.cz>.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package cz.vutbr.fit.xproko26.pivis.bench;
+
+import java.io.File;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.Callable;
+import cz.vutbr.fit.xproko26.pivis.model.Model;
+import cz.vutbr.fit.xproko26.pivis.model.explorer.CheckResult;
+import cz.vutbr.fit.xproko26.pivis.model.explorer.Explorer;
+import cz.vutbr.fit.xproko26.pivis.model.explorer.Explorer.Option;
+import cz.vutbr.fit.xproko26.pivis.model.explorer.Property;
+import cz.vutbr.fit.xproko26.pivis.model.names.NameValue;
+
+/**
+ * CheckRegression runs reachability checks of deadlock and of input and
+ * output on every name of each example input and compares their results
+ * with golden files. Each check is run by the plain search and again with
+ * every option of the exploration. Checks with disk store and checks resumed
+ * from a checkpoint must give the same result including the number of
+ * states, symmetry reduction the same outcome and trace length, partial-order
+ * reduction and bitstate hashing the same verdict whether the property is
+ * reachable. Golden files are read from the directory given by the system
+ * property pivis.golden, by default it is the golden directory of this module.
+ * Usage: [-record] [input]...
+ * @author Dagmar Prokopova
+ */
+public class CheckRegression {
+
+    //bounds of every check, kept low since states of replication grow in
+    //every step and each check is run six times
+    private static final int DEPTH = 6;
+    private static final int STATES = 500;
+
+    //number of cancellation tests after the first checkpoint, after which
+    //the check with checkpoints is stopped and resumed
+    private static final int STOP_AFTER = 20;
+
+    /**
+     * Runs the check, or records golden files when the first argument is
+     * -record. Without inputs all example inputs are processed.
+     * @param args command line arguments
+     */
+    public static void main(String[] args) {
+        boolean record = args.length > 0 && args[0].equals("-record");
+        List<String> inputs = new ArrayList<>();
+        for (int i = record ? 1 : 0; i < args.length; i++) {
+            inputs.add(args[i]);
+        }
+        if (inputs.isEmpty()) {
+            inputs = Regression.getInputs();
+        }
+
+        Inputs.init();
+        int failed = 0;
+        for (String input : inputs) {
+            try {
+                if (record) {
+                    record(input);
+                    System.out.println(input + ": recorded");
+                } else {
+                    System.out.println(input + ": ok, " + check(input) + " checks resumed");
+                }
+            } catch (Exception ex) {
+                System.err.println(input + ": " + ex.getMessage());
+                failed++;
+            }
+        }
+        System.exit(failed == 0 ? 0 : 1);
+    }
+
+    /**
+     * Returns golden file of the input.
+     * @param input input identifier
+     * @return golden file
+     */
+    private static File getGolden(String input) {
+        return new File(System.getProperty("pivis.golden", "golden"), input + ".check.golden");
+    }
+
+    /**
+     * Checks deadlock and barbs on all names of the input by the plain
+     * search and stores the results into its golden file.
+     * @param input input identifier
+     * @throws Exception if a check failed or the file could not be written
+     */
+    private static void record(String input) throws Exception {
+        Inputs.restore(Inputs.getData(input));
+        List<String> lines = new ArrayList<>();
+        lines.add("deadlock");
+        Set<String> names = new TreeSet<>();
+        for (NameValue nv : Model.getInstance().getData().getNameTable()) {
+            names.add(nv.toString());
+        }
+        for (String name : names) {
+            lines.add("input " + name);
+            lines.add("output " + name);
+        }
+        for (int i = 0; i < lines.size(); i++) {
+            CheckResult plain = Explorer.getInstance().check(getProperty(lines.get(i)), DEPTH, STATES);
+            lines.set(i, lines.get(i) + " " + getResult(plain));
+        }
+        File golden = getGolden(input);
+        golden.getParentFile().mkdirs();
+        Files.write(golden.toPath(), lines, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Runs checks of the golden file by the plain search and with every
+     * option and compares their results.
+     * @param input input identifier
+     * @return number of checks which were stopped and resumed
+     * @throws Exception describing the first difference
+     */
+    private static int check(String input) throws Exception {
+        File golden = getGolden(input);
+        if (!golden.isFile()) {
+            throw new Exception("Error: Missing golden file '" + golden.getPath() + "'.");
+        }
+        Inputs.restore(Inputs.getData(input));
+        Explorer explorer = Explorer.getInstance();
+        int resumed = 0;
+        for (String line : Files.readAllLines(golden.toPath(), StandardCharsets.UTF_8)) {
+            String[] fields = line.split(" ");
+            if (fields.length < 3) {
+                throw new Exception("Error: Invalid golden file '" + golden.getPath() + "'.");
+            }
+            String desc = fields[0].equals("deadlock") ? fields[0] : fields[0] + " " + fields[1];
+            Property prop = getProperty(desc);
+
+            CheckResult plain = explorer.check(prop, DEPTH, STATES);
+            compare(desc, "plain", line.substring(desc.length() + 1), getResult(plain));
+
+            CheckResult disk = explorer.check(prop, DEPTH, STATES, EnumSet.of(Option.DISK));
+            compare(desc, "disk", getResult(plain), getResult(disk));
+
+            StoppingThread thread = new StoppingThread(explorer.prepareCheck(prop, DEPTH, STATES,
+                    EnumSet.of(Option.CHECKPOINT)));
+            thread.start();
+            thread.join();
+            CheckResult ckpt = thread.result;
+            if (ckpt == null) {
+                if (!Explorer.CHECKPOINT_FILE.exists()) {
+                    throw thread.error;
+                }
+                ckpt = explorer.resume();
+                resumed++;
+            }
+            compare(desc, "checkpoint", getResult(plain), getResult(ckpt));
+
+            CheckResult sym = explorer.check(prop, DEPTH, STATES, EnumSet.of(Option.SYMMETRY));
+            compare(desc, "sym", getOutcome(plain), getOutcome(sym));
+
+            CheckResult por = explorer.check(prop, DEPTH, STATES, EnumSet.of(Option.PARTIAL_ORDER));
+            compare(desc, "por", getVerdict(plain), getVerdict(por));
+
+            CheckResult bitstate = explorer.check(prop, DEPTH, STATES, EnumSet.of(Option.BITSTATE));
+            compare(desc, "bitstate", getVerdict(plain), getVerdict(bitstate));
+        }
+        return resumed;
+    }
+
+    /**
+     * Returns property of its description in the golden file.
+     * @param desc deadlock, input channel or output channel
+     * @return property
+     */
+    private static Property getProperty(String desc) {
+        if (desc.equals("deadlock")) {
+            return Property.deadlock();
+        } else if (desc.startsWith("input ")) {
+            return Property.input(desc.substring("input ".length()));
+        }
+        return Property.output(desc.substring("output ".length()));
+    }
+
+    /**
+     * Returns outcome, trace length and number of states of the result.
+     * @param result result of the check
+     * @return description of the result
+     */
+    private static String getResult(CheckResult result) {
+        return getOutcome(result) + " " + result.getStates();
+    }
+
+    /**
+     * Returns outcome and trace length of the result.
+     * @param result result of the check
+     * @return description of the outcome
+     */
+    private static String getOutcome(CheckResult result) {
+        return result.getOutcome() + " " + (result.getTrace() == null ? "-" : result.getTrace().size());
+    }
+
+    /**
+     * Returns whether the property was reached. Bounded searches which
+     * stopped without reaching it have the same verdict.
+     * @param result result of the check
+     * @return verdict
+     */
+    private static String getVerdict(CheckResult result) {
+        return (result.getOutcome() == CheckResult.Outcome.REACHABLE) ? "reachable" : "not reached";
+    }
+
+    /**
+     * Compares expected and actual result of the check.
+     * @param desc description of the property
+     * @param mode search the result was obtained by
+     * @param expected expected result
+     * @param actual actual result
+     * @throws Exception if the results differ
+     */
+    private static void compare(String desc, String mode, String expected, String actual) throws Exception {
+        if (!expected.equals(actual)) {
+            throw new Exception("Error: Check of " + desc + " (" + mode + ") differs, expected '"
+                    + expected + "' but got '" + actual + "'.");
+        }
+    }
+
+    /**
+     * StoppingThread runs the check with checkpoints and reports itself
+     * interrupted once the first checkpoint was written and the search
+     * tested the cancellation several more times, so that the check stops
+     * in the middle of the search at the same place in every run. The
+     * interrupt status itself is not set, so that writing of the checkpoint
+     * is not affected.
+     */
+    private static class StoppingThread extends Thread {
+
+        //check to be run
+        private final Callable<CheckResult> task;
+
+        //number of cancellation tests after the first checkpoint
+        private int tests;
+
+        //result of the check, null if it was stopped or failed
+        private CheckResult result;
+
+        //exception the check was stopped with
+        private Exception error;
+
+        /**
+         * Creates thread running the check.
+         * @param t check to be run
+         */
+        StoppingThread(Callable<CheckResult> t) {
+            task = t;
+        }
+
+        @Override
+        public void run() {
+            try {
+                result = task.call();
+            } catch (Exception ex) {
+                error = ex;
+            }
+        }
+
+        @Override
+        public boolean isInterrupted() {
+            if (Explorer.CHECKPOINT_FILE.exists() && ++tests > STOP_AFTER) {
+                return true;
+            }
+            return super.isInterrupted();
+        }
+    }
+}
@@ -0,0 +1,96 @@
+/*
+ * Copyright 2017 Dagmar Prokopova <xproko26@stud.fit.vutbr.cz>.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package cz.vutbr.fit.xproko26.pivis.bench;
+
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import cz.vutbr.fit.xproko26.pivis.model.Data;
+
+/**
+ * DataState holds serialized application data of the benchmarked input,
+ * so that every benchmark can start from the same model state. Inputs are
+ * all stored examples and synthetic families of growing size.
+ * @author Dagmar Prokopova
+ */
+@State(Scope.Thread)
+public class DataState {
+
+    //benchmarked input
+    @Param({
+        "testing-examples/higher_order_pi_calc.pvs",
+        "testing-examples/name_substitution.pvs",
+        "testing-examples/recursion_indirect.pvs",
+        "testing-examples/recursion_name.pvs",
+        "testing-examples/recursion_priv_name.pvs",
+        "testing-examples/recursion_single_proc.pvs",
+        "testing-examples/reduce_to_remove_sum.pvs",
+        "testing-examples/replication.pvs",
+        "testing-examples/scope_extrusion.pvs",
+        "testing-examples/scope_intrusion1.pvs",
+        "testing-examples/scope_intrusion2.pvs",
+        "testing-examples/simplify1.pvs",
+        "testing-examples/simplify2.pvs",
+        "testing-examples/simplify3_reduce_first.pvs",
+        "testing-examples/simplify4.pvs",
+        "demo-examples/client-server/client_server.pvs",
+        "demo-examples/elastic-buffer/elastic_buffer.pvs",
+        "demo-examples/eshop/eshop.pvs",
+        "demo-examples/ping-pong/pingpong.pvs",
+        "demo-examples/unbound-buffer/unbound_buffer.pvs",
+        "synthetic/client-server/10",
+        "synthetic/client-server/100",
+        "synthetic/client-server/1000",
+        "synthetic/buffer/100",
+        "synthetic/buffer/1000",
+        "synthetic/parallel/1000",
+        "synthetic/chain/1000",
+        "synthetic/replication/1000",
+        "synthetic/sum/1000"
+    })
+    public String input;
+
+    //serialized data of the input
+    private byte[] bytes;
+
+    /**
+     * Loads the input.
+     * @throws Exception if the input could not be loaded
+     */
+    @Setup(Level.Trial)
+    public void load() throws Exception {
+        bytes = Inputs.getData(input);
+    }
+
+    /**
+     * Returns serialized data of the input.
+     * @return serialized data
+     */
+    public byte[] getBytes() {
+        return bytes;
+    }
+
+    /**
+     * Sets fresh copy of the input data into the model.
+     * @return restored data
+     * @throws Exception if the data could not be restored
+     */
+    public Data restore() throws Exception {
+        return Inputs.restore(bytes);
+    }
+}
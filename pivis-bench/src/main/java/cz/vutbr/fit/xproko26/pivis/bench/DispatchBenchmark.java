@@ -0,0 +1,116 @@
+/*
+ * Copyright 2017 Dagmar Prokopova <xproko26@stud.fit.vutbr.cz>.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package cz.vutbr.fit.xproko26.pivis.bench;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import cz.vutbr.fit.xproko26.pivis.model.expressions.ConcretizeExpression;
+import cz.vutbr.fit.xproko26.pivis.model.expressions.Expression;
+import cz.vutbr.fit.xproko26.pivis.model.redmanager.Reduction;
+import cz.vutbr.fit.xproko26.pivis.model.redmanager.ReductionManager;
+
+/**
+ * Benchmark of dispatch in the reduction list search. The search of the
+ * reduction manager, which switches on the type tag of visited expressions,
+ * is compared with the searches it replaced:
+ * <ul>
+ * <li>baselineRecursive - search of the first released version, a recursive
+ * visitor dispatching by a chain of instanceof checks
+ * ({@link BaselineReductionSearch BaselineReductionSearch}),</li>
+ * <li>instanceofCallbacks - the same explicit-stack search as the reduction
+ * manager, whose callbacks dispatch by chains of instanceof checks
+ * ({@link InstanceofReductionSearch InstanceofReductionSearch}).</li>
+ * </ul>
+ * The difference between instanceofCallbacks and typeTag is the cost of the
+ * dispatch alone.
+ * @author Dagmar Prokopova
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = "-Xss512m")
+public class DispatchBenchmark {
+
+    /**
+     * Expression of the input and the searches.
+     */
+    @State(Scope.Thread)
+    public static class ExpressionState {
+
+        //expression of the input
+        private Expression exp;
+
+        //reduction manager dispatching by type tag
+        private final ReductionManager tag = new ReductionManager();
+
+        //explicit-stack search dispatching by instanceof checks; concretize
+        //expressions are instantiated by the reduction manager during setup
+        private final InstanceofReductionSearch chain =
+                new InstanceofReductionSearch(ConcretizeExpression::getSuccExp);
+
+        //recursive search dispatching by instanceof checks
+        private final BaselineReductionSearch baseline =
+                new BaselineReductionSearch(ConcretizeExpression::getSuccExp);
+
+        /**
+         * Restores the input before each iteration and checks that all
+         * searches find the same number of reductions.
+         * @param data input data
+         * @throws Exception if the data could not be restored
+         */
+        @Setup(Level.Iteration)
+        public void setup(DataState data) throws Exception {
+            exp = data.restore().getExpression();
+            tag.generateReductionList(exp);
+            chain.generateReductionList(exp);
+            baseline.generateReductionList(exp);
+            int size = tag.getReductionList().size();
+            if ((chain.getReductionList().size() != size) || (baseline.getReductionList().size() != size)) {
+                throw new IllegalStateException("Error: Searches found different reductions.");
+            }
+        }
+    }
+
+    @Benchmark
+    public List<Reduction> typeTag(ExpressionState state) {
+        state.tag.generateReductionList(state.exp);
+        return state.tag.getReductionList();
+    }
+
+    @Benchmark
+    public List<Reduction> instanceofCallbacks(ExpressionState state) {
+        state.chain.generateReductionList(state.exp);
+        return state.chain.getReductionList();
+    }
+
+    @Benchmark
+    public List<Reduction> baselineRecursive(ExpressionState state) {
+        state.baseline.generateReductionList(state.exp);
+        return state.baseline.getReductionList();
+    }
+}
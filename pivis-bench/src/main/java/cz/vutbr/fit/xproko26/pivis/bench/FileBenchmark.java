@@ -0,0 +1,89 @@
+/*
+ * Copyright 2017 Dagmar Prokopova <xproko26@stud.fit.vutbr.cz>.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package cz.vutbr.fit.xproko26.pivis.bench;
+
+import java.io.File;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import cz.vutbr.fit.xproko26.pivis.filemanager.FileManager;
+import cz.vutbr.fit.xproko26.pivis.model.Data;
+
+/**
+ * Benchmarks of saving and loading application data into and from a file.
+ * @author Dagmar Prokopova
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = "-Xss512m")
+public class FileBenchmark {
+
+    /**
+     * Data of the input and temporary file they are saved into.
+     */
+    @State(Scope.Thread)
+    public static class FileState {
+
+        //data of the input
+        private Data data;
+
+        //temporary file
+        private File file;
+
+        /**
+         * Restores the input and saves it into temporary file.
+         * @param input input data
+         * @throws Exception if the data could not be restored or saved
+         */
+        @Setup(Level.Trial)
+        public void setup(DataState input) throws Exception {
+            data = input.restore();
+            file = File.createTempFile("pivis-bench", ".pvs");
+            FileManager.getInstance().save(data, file);
+        }
+
+        /**
+         * Removes temporary file.
+         */
+        @TearDown(Level.Trial)
+        public void teardown() {
+            file.delete();
+        }
+    }
+
+    @Benchmark
+    public File save(FileState state) throws Exception {
+        FileManager.getInstance().save(state.data, state.file);
+        return state.file;
+    }
+
+    @Benchmark
+    public Data load(FileState state) throws Exception {
+        return FileManager.getInstance().load(state.file);
+    }
+}
@@ -0,0 +1,270 @@
+/*
+ * Copyright 2017 Dagmar Prokopova <xproko26@stud.fit.vutbr.cz>.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package cz.vutbr.fit.xproko26.pivis.bench;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.nio.file.Files;
+import java.util.List;
+import java.util.Set;
+import cz.vutbr.fit.xproko26.pivis.filemanager.FileManager;
+import cz.vutbr.fit.xproko26.pivis.generator.ModelGenerator;
+import cz.vutbr.fit.xproko26.pivis.generator.ModelGenerator.Family;
+import cz.vutbr.fit.xproko26.pivis.model.Data;
+import cz.vutbr.fit.xproko26.pivis.model.Model;
+import cz.vutbr.fit.xproko26.pivis.model.ModelListener;
+import cz.vutbr.fit.xproko26.pivis.model.ProcessDefinition;
+import cz.vutbr.fit.xproko26.pivis.model.ProcessList;
+import cz.vutbr.fit.xproko26.pivis.model.Speculator;
+import cz.vutbr.fit.xproko26.pivis.model.expressions.Expression;
+import cz.vutbr.fit.xproko26.pivis.model.explorer.Explorer;
+import cz.vutbr.fit.xproko26.pivis.model.explorer.Property;
+import cz.vutbr.fit.xproko26.pivis.model.redmanager.Reduction;
+import cz.vutbr.fit.xproko26.pivis.parser.TextParser;
+import cz.vutbr.fit.xproko26.pivis.parser.TextParserListener;
+
+/**
+ * Inputs provides benchmark inputs. Input is identified by its path
+ * relative to the examples directory (e.g. testing-examples/replication.pvs
+ * or demo-examples/eshop/eshop.txt), or by synthetic family and size
+ * (e.g. synthetic/client-server/1000, see
+ * {@link ModelGenerator ModelGenerator}). Examples directory is taken from the system
+ * property pivis.examples, by default it is the run directory of the repository.
+ * @author Dagmar Prokopova
+ */
+public class Inputs {
+
+    //prefix of synthetic inputs
+    private static final String SYNTHETIC = "synthetic/";
+
+    //flag indicating that the engine was already set up
+    private static boolean initialized;
+
+    /**
+     * Sets up the engine for benchmarking. Speculation is disabled, so that
+     * no work is done in the background, parsed expressions and process
+     * definitions are passed into the model and model changes are not
+     * reported anywhere.
+     */
+    public static synchronized void init() {
+        if (initialized) {
+            return;
+        }
+        initialized = true;
+        Speculator.setMemoryBudget(0);
+        Model model = Model.getInstance();
+        model.addListener(new ModelListener() {
+            @Override
+            public void expressionModified(Expression exp) {
+            }
+
+            @Override
+            public void redListModified(List<Reduction> list, int index) {
+            }
+
+            @Override
+            public void procListModified(ProcessList list) {
+            }
+
+            @Override
+            public void reductionModified(int index) {
+            }
+
+            @Override
+            public void initialized() {
+            }
+        });
+        TextParser.getInstance().addListener(new TextParserListener() {
+            @Override
+            public void cmdExit() {
+            }
+
+            @Override
+            public void cmdClear() {
+            }
+
+            @Override
+            public void cmdReset() {
+            }
+
+            @Override
+            public void cmdHelp() {
+            }
+
+            @Override
+            public void cmdAgent(ProcessDefinition procdef) {
+                model.addProcDef(procdef);
+            }
+
+            @Override
+            public void cmdShow(Expression expr) {
+                model.setExpression(expr);
+            }
+
+            @Override
+            public void cmdList() {
+            }
+
+            @Override
+            public void cmdReduce() {
+            }
+
+            @Override
+            public void cmdSimplify() {
+            }
+
+            @Override
+            public void cmdEnv(String id) {
+            }
+
+            @Override
+            public void cmdStats() {
+            }
+
+            @Override
+            public void cmdStatsReset() {
+            }
+
+            @Override
+            public void cmdCheck(Property prop, int depth, int states, Set<Explorer.Option> opts) {
+            }
+
+            @Override
+            public void cmdCheckResume() {
+            }
+
+            @Override
+            public void cmdCheckCancel() {
+            }
+
+            @Override
+            public void cmdLts(Explorer.LtsFormat format, int depth, int states, Set<Explorer.Option> opts) {
+            }
+        });
+    }
+
+    /**
+     * Returns file of the example input.
+     * @param input input identifier
+     * @return file
+     */
+    public static File getFile(String input) {
+        return new File(System.getProperty("pivis.examples", "../run"), input);
+    }
+
+    /**
+     * Returns serialized application data of the input. Data of .pvs files
+     * are returned as they are stored, data of other inputs are created by
+     * parsing their process definitions and expression.
+     * @param input input identifier
+     * @return serialized data
+     * @throws Exception if the input could not be loaded
+     */
+    public static byte[] getData(String input) throws Exception {
+        init();
+        if (input.endsWith(".pvs")) {
+            return Files.readAllBytes(getFile(input).toPath());
+        }
+
+        Model model = Model.getInstance();
+        model.init();
+        model.setProcDefs(TextParser.getInstance().parseProcDefs(getDefinitions(input)));
+        TextParser.getInstance().parseCommand(getCommand(input));
+        if (model.getExpression() == null) {
+            throw new Exception("Error: Input '" + input + "' contains no expression.");
+        }
+        return serialize(model.getData());
+    }
+
+    /**
+     * Restores application data from serialized form and sets them into the model.
+     * @param bytes serialized data
+     * @return restored data
+     * @throws Exception if the data could not be restored
+     */
+    public static Data restore(byte[] bytes) throws Exception {
+        try (ObjectInputStream in = new ObjectInputStream(new ByteArrayInputStream(bytes))) {
+            Data data = (Data) in.readObject();
+            Model.getInstance().setData(data);
+            FileManager.getInstance().init();
+            return data;
+        }
+    }
+
+    /**
+     * Serializes application data.
+     * @param data application data
+     * @return serialized data
+     * @throws IOException if serialization failed
+     */
+    public static byte[] serialize(Data data) throws IOException {
+        ByteArrayOutputStream bos = new ByteArrayOutputStream();
+        try (ObjectOutputStream out = new ObjectOutputStream(bos)) {
+            out.writeObject(data);
+        }
+        return bos.toByteArray();
+    }
+
+    /**
+     * Returns process definitions of the input, one per line.
+     * @param input input identifier
+     * @return process definitions
+     * @throws Exception if the input could not be loaded
+     */
+    public static String getDefinitions(String input) throws Exception {
+        if (input.startsWith(SYNTHETIC)) {
+            return ModelGenerator.getInstance().generate(Family.fromName(getFamily(input)), getSize(input));
+        }
+        return FileManager.getInstance().getString(getFile(input)).trim();
+    }
+
+    /**
+     * Returns show command of the input. Expression of the input is the body
+     * of its last process definition.
+     * @param input input identifier
+     * @return show command
+     * @throws Exception if the input could not be loaded
+     */
+    public static String getCommand(String input) throws Exception {
+        String[] lines = getDefinitions(input).split("\\r?\\n");
+        String last = lines[lines.length - 1];
+        return "show " + last.substring(last.indexOf('=') + 1).trim();
+    }
+
+    /**
+     * Returns family of synthetic input.
+     * @param input input identifier
+     * @return family name
+     */
+    private static String getFamily(String input) {
+        String[] parts = input.split("/");
+        return parts[1];
+    }
+
+    /**
+     * Returns size of synthetic input.
+     * @param input input identifier
+     * @return size
+     */
+    private static int getSize(String input) {
+        String[] parts = input.split("/");
+        return Integer.parseInt(parts[2]);
+    }
+}
@@ -0,0 +1,295 @@
+/*
+ * Copyright 2017 Dagmar Prokopova <xproko26@stud.fit.vutbr.cz>.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package cz.vutbr.fit.xproko26.pivis.bench;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Stack;
+import java.util.stream.Collectors;
+import cz.vutbr.fit.xproko26.pivis.model.expressions.ConcretizeExpression;
+import cz.vutbr.fit.xproko26.pivis.model.expressions.Expression;
+import cz.vutbr.fit.xproko26.pivis.model.expressions.ExpressionTraversal;
+import cz.vutbr.fit.xproko26.pivis.model.expressions.InPrefixExpression;
+import cz.vutbr.fit.xproko26.pivis.model.expressions.MatchExpression;
+import cz.vutbr.fit.xproko26.pivis.model.expressions.OutPrefixExpression;
+import cz.vutbr.fit.xproko26.pivis.model.expressions.ParallelExpression;
+import cz.vutbr.fit.xproko26.pivis.model.expressions.ParallelReplicationExpression;
+import cz.vutbr.fit.xproko26.pivis.model.expressions.SumExpression;
+import cz.vutbr.fit.xproko26.pivis.model.expressions.TauPrefixExpression;
+import cz.vutbr.fit.xproko26.pivis.model.redmanager.ActionList;
+import cz.vutbr.fit.xproko26.pivis.model.redmanager.IOReduction;
+import cz.vutbr.fit.xproko26.pivis.model.redmanager.Reduction;
+import cz.vutbr.fit.xproko26.pivis.model.redmanager.ReductionContext;
+import cz.vutbr.fit.xproko26.pivis.model.redmanager.ReductionManagerListener;
+import cz.vutbr.fit.xproko26.pivis.model.redmanager.TReduction;
+
+/**
+ * Reduction list search of the version before type tags, kept for
+ * {@link DispatchBenchmark DispatchBenchmark}. It already traverses the
+ * tree with an explicit stack and indexes the found reductions like
+ * the reduction manager, but its callbacks dispatch by chains of instanceof
+ * checks instead of a switch on the type tag.
+ * @author Dagmar Prokopova
+ */
+public class InstanceofReductionSearch extends ExpressionTraversal<ActionList> {
+
+    //listener providing instances of concretize expressions
+    private final ReductionManagerListener listener;
+
+    //list of all reductions available in current context
+    private final List<Reduction> reductionlist;
+
+    //positions of reductions in reduction list indexed by participating expressions
+    private final Map<Expression, List<Integer>> expindex;
+
+    //stack of reduction contexts of traversed expressions
+    private final Stack<ReductionContext> contexts;
+
+    //stack of action lists of successors of traversed summations and parallel compositions
+    private final Stack<List<ActionList>> alistsstack;
+
+    /**
+     * Creates the search.
+     * @param listener listener providing instances of concretize expressions
+     */
+    public InstanceofReductionSearch(ReductionManagerListener listener) {
+        this.listener = listener;
+        reductionlist = new ArrayList<>();
+        expindex = new IdentityHashMap<>();
+        contexts = new Stack<>();
+        alistsstack = new Stack<>();
+    }
+
+    /**
+     * Returns list of reductions found.
+     * @return reduction list
+     */
+    public List<Reduction> getReductionList() {
+        return reductionlist;
+    }
+
+    /**
+     * Removes all reductions from reduction list and its index.
+     */
+    private void clearReductionList() {
+        reductionlist.clear();
+        expindex.clear();
+    }
+
+    /**
+     * Appends reduction to reduction list and indexes its position under
+     * all expressions participating in it.
+     * @param red reduction to be added
+     */
+    private void addReduction(Reduction red) {
+        int pos = reductionlist.size();
+        reductionlist.add(red);
+        red.getExpressions().forEach(exp -> expindex.computeIfAbsent(exp, e -> new ArrayList<>(2)).add(pos));
+    }
+
+    /**
+     * Traverses the expression tree and fills the reduction list.
+     * @param exp the root node of expression tree which should be traversed
+     */
+    public void generateReductionList(Expression exp) {
+        clearReductionList();
+        if (exp != null) {
+            //visit root with empty reduction context
+            contexts.push(new ReductionContext());
+            traverse(exp);
+            contexts.pop();
+        }
+    }
+
+    @Override
+    protected List<Expression> enter(Expression node) {
+        ReductionContext ctx = contexts.peek();
+        if (node instanceof ParallelReplicationExpression) { // order matters
+            alistsstack.push(new ArrayList<>());
+            //helper is not searched through yet
+            return node.getSuccessors().stream().filter(e -> !e.isReplicationHelper()).collect(Collectors.toList());
+        }
+        else if ((node instanceof SumExpression) || (node instanceof ParallelExpression)) {
+            alistsstack.push(new ArrayList<>());
+        }
+        else if ((node instanceof InPrefixExpression) || (node instanceof OutPrefixExpression)) {
+            return null;
+        }
+        else if (node instanceof TauPrefixExpression) {
+            if (ctx.isEnabled()) {
+                addReduction(new TReduction((TauPrefixExpression) node));
+            }
+            return null;
+        }
+        else if (node instanceof MatchExpression) {
+            if (!((MatchExpression) node).isValid()) {
+                return null;
+            }
+        }
+        else if (node instanceof ConcretizeExpression) {
+            return enter((ConcretizeExpression) node, ctx);
+        }
+        return node.getSuccessors();
+    }
+
+    /**
+     * Enters concretize expression with new reduction context and returns
+     * its instance which should be traversed.
+     * @param node concretize expression
+     * @param ctx current reduction context
+     * @return instance of the process or null
+     */
+    private List<Expression> enter(ConcretizeExpression node, ReductionContext ctx) {
+        ReductionContext newctx = ctx.copy();
+        contexts.push(newctx);
+        if (node.getSuccExp() != null) {
+            if (!node.isReduced()) {
+                newctx.update(node.getIDRef().toString(), node.getArgs());
+            }
+            return node.getSuccessors();
+        }
+        else {
+            if (ctx.notUsed(node.getIDRef().toString(), node.getArgs())) {
+                if (listener != null) {
+                    Expression inst = listener.getInstance(node);
+                    if (inst != null) {
+                        newctx.update(node.getIDRef().toString(), node.getArgs());
+                        return Collections.singletonList(inst);
+                    }
+                }
+            }
+            return null;
+        }
+    }
+
+    @Override
+    protected void returned(Expression node, Expression succ, ActionList result) {
+        if ((node instanceof SumExpression) || (node instanceof ParallelExpression)) {
+            alistsstack.peek().add(result);
+        }
+    }
+
+    @Override
+    protected ActionList leave(Expression node, ActionList last) {
+        if (node instanceof ConcretizeExpression) {
+            contexts.pop();
+        }
+
+        if ((node instanceof SumExpression) || (node instanceof ParallelExpression)) {
+            List<ActionList> alists = alistsstack.pop();
+            ActionList alist = new ActionList();
+            alists.forEach(actions -> alist.addAll(actions));
+            if (node instanceof ParallelReplicationExpression) {
+                leave((ParallelReplicationExpression) node, alists);
+            }
+            else if ((node instanceof ParallelExpression) && contexts.peek().isEnabled()) {
+                extractReductions(alists);
+            }
+            return alist;
+        }
+        else if (node instanceof InPrefixExpression) {
+            ActionList alist = new ActionList();
+            alist.add((InPrefixExpression) node);
+            return alist;
+        }
+        else if (node instanceof OutPrefixExpression) {
+            ActionList alist = new ActionList();
+            alist.add((OutPrefixExpression) node);
+            return alist;
+        }
+        //expressions without own actions pass the actions of their successor
+        return (last != null) ? last : new ActionList();
+    }
+
+    /**
+     * Extracts reductions of parallel replication expression after its
+     * successors were traversed. If there was no replication copy,
+     * the helper is searched through as well.
+     * @param node parallel replication expression
+     * @param alists action lists of traversed successors
+     */
+    private void leave(ParallelReplicationExpression node, List<ActionList> alists) {
+        ReductionContext ctx = contexts.peek();
+        if (!ctx.isEnabled()) {
+            return;
+        }
+
+        Expression helper = null;
+        ActionList origlist = null;
+        boolean traversedCopy = false;
+        int i = 0;
+        for (Expression ex : node.getSuccExps()) {
+            if (ex.isReplicationHelper()) {
+                helper = ex; //save it in case of need
+                continue;
+            } else if (ex.isReplicationCopy()) {
+                traversedCopy = true;
+            }
+            if (ex.isReplicationOriginal()) {
+                origlist = alists.get(i); //save in case of comparation with helper
+            }
+            i++;
+        }
+
+        extractReductions(alists);
+
+        //if there was no replication copy, search for reduction actions in helper
+        if (!traversedCopy && (helper != null)) {
+            List<ActionList> helperlists = new ArrayList<>();
+            ReductionContext newctx = ctx.copy();
+            newctx.setEnabled(false); //prevent adding helper branch internal reductions into the list
+            contexts.push(newctx);
+            helperlists.add(traverse(helper));
+            contexts.pop();
+            helperlists.add(origlist);
+            extractReductions(helperlists);
+        }
+    }
+
+    /**
+     * Extracts available input-output reductions from the action lists united
+     * into the list which is passed as an argument.
+     * @param alists list of action lists
+     */
+    private void extractReductions(List<ActionList> alists) {
+
+        //cycle throung the action lists while there are still at least 2 of them
+        for (int i=0; i < alists.size()-1; i++) {
+            ActionList sublist = alists.get(i);
+            //put the selected action list in contrast with all following action lists
+            for (int j = i + 1; j < alists.size(); j++) {
+                ActionList compsublist = alists.get(j);
+
+                //for each input action in the examined list find output complements in the following lists
+                sublist.getInList().forEach((in) -> {
+                    compsublist.getOutList().stream().map((out) -> new IOReduction(in, out)).filter((r) -> (r.isNameTransferValid())).forEachOrdered((r) -> {
+                        addReduction(r);
+                    });
+                });
+
+                //for each output action in the examined list find input complements in the following lists
+                sublist.getOutList().forEach((out) -> {
+                    compsublist.getInList().stream().map((in) -> new IOReduction(in, out)).filter((r) -> (r.isNameTransferValid())).forEachOrdered((r) -> {
+                        addReduction(r);
+                    });
+                });
+            }
+        }
+    }
+}
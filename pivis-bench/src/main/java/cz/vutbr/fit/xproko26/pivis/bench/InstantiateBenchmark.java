@@ -0,0 +1,100 @@
+/*
+ * Copyright 2017 Dagmar Prokopova <xproko26@stud.fit.vutbr.cz>.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package cz.vutbr.fit.xproko26.pivis.bench;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import cz.vutbr.fit.xproko26.pivis.model.Model;
+import cz.vutbr.fit.xproko26.pivis.model.expressions.ConcretizeExpression;
+import cz.vutbr.fit.xproko26.pivis.model.expressions.Expression;
+import cz.vutbr.fit.xproko26.pivis.model.expressions.ExpressionTraversal;
+
+/**
+ * Benchmark of process instantiation through concretization. Instance of
+ * the first instantiated concretization of the input is dropped and created
+ * again by the model, which includes regeneration of the reduction list.
+ * @author Dagmar Prokopova
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = "-Xss512m")
+public class InstantiateBenchmark {
+
+    /**
+     * Fresh copy of the input with dropped instance of one concretization.
+     */
+    @State(Scope.Thread)
+    public static class ConcretizeState {
+
+        //concretization to be instantiated, null if there is none
+        private ConcretizeExpression cexp;
+
+        /**
+         * Restores the input before each invocation and drops the instance
+         * of the first instantiated concretization.
+         * @param data input data
+         * @throws Exception if the data could not be restored
+         */
+        @Setup(Level.Invocation)
+        public void setup(DataState data) throws Exception {
+            cexp = findInstantiated(data.restore().getExpression());
+            if (cexp != null) {
+                cexp.setSuccExp(null);
+            }
+        }
+    }
+
+    @Benchmark
+    public Expression instantiate(ConcretizeState state) throws Exception {
+        return Model.getInstance().getExpressionInstance(state.cexp);
+    }
+
+    /**
+     * Returns the first concretization in the expression which has its instance.
+     * @param exp expression
+     * @return concretization or null if there is none
+     */
+    private static ConcretizeExpression findInstantiated(Expression exp) {
+        ConcretizeExpression[] found = new ConcretizeExpression[1];
+        new ExpressionTraversal<Void>() {
+            @Override
+            protected List<Expression> enter(Expression node) {
+                if (found[0] != null) {
+                    return null;
+                }
+                if ((node.getType() == Expression.Type.CONCRETIZE) && (((ConcretizeExpression) node).getSuccExp() != null)) {
+                    found[0] = (ConcretizeExpression) node;
+                    return null;
+                }
+                return node.getSuccessors();
+            }
+        }.traverse(exp);
+        return found[0];
+    }
+}
@@ -0,0 +1,184 @@
+/*
+ * Copyright 2017 Dagmar Prokopova <xproko26@stud.fit.vutbr.cz>.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package cz.vutbr.fit.xproko26.pivis.bench;
+
+import com.mxgraph.model.mxGeometry;
+import com.mxgraph.model.mxIGraphModel;
+import com.mxgraph.view.mxGraph;
+import cz.vutbr.fit.xproko26.pivis.gui.graph.graphlib.jgraphx.layout.mxHierarchicalLayout;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+/**
+ * Command line benchmark comparing the placement stage of the hierarchical
+ * layout with the iterative (mxCoordinateAssignment) and the linear
+ * (mxLinearCoordinateAssignment) coordinate assignment. Random layered
+ * graphs of the given sizes are generated, both placements are timed and
+ * the resulting width, sum of horizontal edge offsets and number of
+ * overlapping vertices are reported.
+ * Crossing reduction is skipped by default since it is not subject of the
+ * comparison and its cost would dominate the run on the largest graphs. With
+ * --crossing it runs before the placement, so that the rank order is the one
+ * the application lays out.
+ * Usage: LayoutBenchmark [cells,...] [--linear-only] [--crossing]
+ * @author Dagmar Prokopova
+ */
+public class LayoutBenchmark {
+
+    //default graph sizes (number of vertices)
+    private static final int[] SIZES = { 1000, 5000, 10000, 50000 };
+
+    //seed of the graph generator so that runs are comparable
+    private static final long SEED = 2017;
+
+    /**
+     * Runs the benchmark.
+     * @param args comma separated list of sizes, optionally --linear-only
+     * and --crossing
+     */
+    public static void main(String[] args) {
+        int[] sizes = SIZES;
+        boolean linearOnly = false;
+        boolean crossing = false;
+        for (String arg : args) {
+            if (arg.equals("--linear-only")) {
+                linearOnly = true;
+            } else if (arg.equals("--crossing")) {
+                crossing = true;
+            } else {
+                String[] parts = arg.split(",");
+                sizes = new int[parts.length];
+                for (int i = 0; i < parts.length; i++) {
+                    sizes[i] = Integer.parseInt(parts[i].trim());
+                }
+            }
+        }
+
+        System.out.println(String.format("%8s %10s %12s %14s %16s %9s",
+                "cells", "placement", "time [ms]", "width", "edge offset",
+                "overlaps"));
+
+        for (int n : sizes) {
+            if (!linearOnly) {
+                run(n, false, crossing);
+            }
+            run(n, true, crossing);
+        }
+    }
+
+    /**
+     * Generates graph of the given size, lays it out and prints results.
+     * @param n number of vertices
+     * @param linear placement stage selection
+     * @param crossing whether crossing reduction runs before the placement
+     */
+    private static void run(int n, boolean linear, boolean crossing) {
+        mxGraph graph = generate(n);
+        final long[] elapsed = new long[1];
+
+        mxHierarchicalLayout layout = new mxHierarchicalLayout(graph) {
+            @Override
+            public void crossingStage(Object parent) {
+                if (crossing) {
+                    super.crossingStage(parent);
+                }
+            }
+
+            @Override
+            public double placementStage(double initialX, Object parent) {
+                long start = System.nanoTime();
+                double result = super.placementStage(initialX, parent);
+                elapsed[0] += System.nanoTime() - start;
+                return result;
+            }
+        };
+        layout.setLinearPlacement(linear);
+        layout.execute(graph.getDefaultParent());
+
+        //width of the drawing and horizontal offsets of the edges
+        mxIGraphModel model = graph.getModel();
+        double left = Double.MAX_VALUE;
+        double right = -Double.MAX_VALUE;
+        double offset = 0.0;
+        Map<Double, List<mxGeometry>> ranks = new HashMap<>();
+        for (Object cell : graph.getChildVertices(graph.getDefaultParent())) {
+            mxGeometry g = model.getGeometry(cell);
+            left = Math.min(left, g.getX());
+            right = Math.max(right, g.getX() + g.getWidth());
+            ranks.computeIfAbsent(g.getY(), y -> new ArrayList<>()).add(g);
+        }
+
+        //neighbouring vertices of one rank which overlap
+        int overlaps = 0;
+        for (List<mxGeometry> rank : ranks.values()) {
+            rank.sort(Comparator.comparingDouble(mxGeometry::getX));
+            for (int i = 1; i < rank.size(); i++) {
+                mxGeometry prev = rank.get(i - 1);
+                if (rank.get(i).getX() < prev.getX() + prev.getWidth()) {
+                    overlaps++;
+                }
+            }
+        }
+        for (Object edge : graph.getChildEdges(graph.getDefaultParent())) {
+            mxGeometry s = model.getGeometry(model.getTerminal(edge, true));
+            mxGeometry t = model.getGeometry(model.getTerminal(edge, false));
+            offset += Math.abs(s.getCenterX() - t.getCenterX());
+        }
+
+        System.out.println(String.format("%8d %10s %12.1f %14.1f %16.1f %9d",
+                n, linear ? "linear" : "iterative", elapsed[0] / 1e6,
+                right - left, offset, overlaps));
+    }
+
+    /**
+     * Generates random connected layered graph. Most edges connect
+     * neighbouring layers, some of them skip several layers to create
+     * long edges.
+     * @param n number of vertices
+     * @return generated graph
+     */
+    private static mxGraph generate(int n) {
+        Random random = new Random(SEED + n);
+        mxGraph graph = new mxGraph();
+        Object parent = graph.getDefaultParent();
+        int layerSize = Math.max(4, (int) Math.sqrt(n));
+        List<Object> vertices = new ArrayList<>(n);
+
+        graph.getModel().beginUpdate();
+        try {
+            for (int i = 0; i < n; i++) {
+                Object v = graph.insertVertex(parent, null, null, 0, 0,
+                        20 + random.nextInt(40), 20);
+                vertices.add(v);
+                if (i > 0) {
+                    int layer = i / layerSize;
+                    int back = (random.nextInt(10) == 0) ? 2 + random.nextInt(3) : 1;
+                    int from = Math.max(0, layer - back) * layerSize;
+                    int to = Math.min(i, from + layerSize);
+                    Object u = vertices.get(from + random.nextInt(Math.max(1, to - from)));
+                    graph.insertEdge(parent, null, null, u, v);
+                }
+            }
+        } finally {
+            graph.getModel().endUpdate();
+        }
+        return graph;
+    }
+}
@@ -0,0 +1,104 @@
+/*
+ * Copyright 2017 Dagmar Prokopova <xproko26@stud.fit.vutbr.cz>.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package cz.vutbr.fit.xproko26.pivis.bench;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import cz.vutbr.fit.xproko26.pivis.model.ProcessDefinition;
+import cz.vutbr.fit.xproko26.pivis.model.Model;
+import cz.vutbr.fit.xproko26.pivis.parser.TextParser;
+
+/**
+ * Benchmarks of parsing process definitions and commands. Inputs are the
+ * process definitions of demo examples and synthetic families.
+ * @author Dagmar Prokopova
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = "-Xss512m")
+public class ParserBenchmark {
+
+    /**
+     * Text of the parsed input.
+     */
+    @State(Scope.Thread)
+    public static class TextState {
+
+        //parsed input
+        @Param({
+            "demo-examples/client-server/server_client.txt",
+            "demo-examples/elastic-buffer/elastic_buffer.txt",
+            "demo-examples/eshop/eshop.txt",
+            "demo-examples/ping-pong/pingpong.txt",
+            "demo-examples/unbound-buffer/unbound_buffer.txt",
+            "synthetic/client-server/10",
+            "synthetic/client-server/100",
+            "synthetic/client-server/1000",
+            "synthetic/buffer/100",
+            "synthetic/buffer/1000",
+            "synthetic/parallel/1000",
+            "synthetic/chain/1000",
+            "synthetic/replication/1000",
+            "synthetic/sum/1000"
+        })
+        public String text;
+
+        //process definitions
+        private String definitions;
+
+        //show command
+        private String command;
+
+        /**
+         * Loads the input and sets its process definitions into the model,
+         * so that the expression of show command can be created.
+         * @throws Exception if the input could not be loaded
+         */
+        @Setup(Level.Trial)
+        public void load() throws Exception {
+            Inputs.init();
+            definitions = Inputs.getDefinitions(text);
+            command = Inputs.getCommand(text);
+            Model.getInstance().init();
+            Model.getInstance().setProcDefs(TextParser.getInstance().parseProcDefs(definitions));
+        }
+    }
+
+    @Benchmark
+    public List<ProcessDefinition> parseProcDefs(TextState state) throws Exception {
+        return TextParser.getInstance().parseProcDefs(state.definitions);
+    }
+
+    @Benchmark
+    public Object parseCommand(TextState state) throws Exception {
+        TextParser.getInstance().parseCommand(state.command);
+        return Model.getInstance().getExpression();
+    }
+}
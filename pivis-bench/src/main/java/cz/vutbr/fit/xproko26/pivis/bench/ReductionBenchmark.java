@@ -0,0 +1,105 @@
+/*
+ * Copyright 2017 Dagmar Prokopova <xproko26@stud.fit.vutbr.cz>.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package cz.vutbr.fit.xproko26.pivis.bench;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import cz.vutbr.fit.xproko26.pivis.model.Model;
+import cz.vutbr.fit.xproko26.pivis.model.expressions.Expression;
+import cz.vutbr.fit.xproko26.pivis.model.redmanager.Reduction;
+import cz.vutbr.fit.xproko26.pivis.model.redmanager.ReductionManager;
+
+/**
+ * Benchmarks of reduction manager. Reduction list is generated for the
+ * expression of the input, reduction is executed on a fresh copy of the
+ * input, the first available reduction is used.
+ * @author Dagmar Prokopova
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = "-Xss512m")
+public class ReductionBenchmark {
+
+    /**
+     * Expression of the input with all concretizations already instantiated.
+     */
+    @State(Scope.Thread)
+    public static class ListState {
+
+        //expression of the input
+        private Expression exp;
+
+        /**
+         * Restores the input before each iteration.
+         * @param data input data
+         * @throws Exception if the data could not be restored
+         */
+        @Setup(Level.Iteration)
+        public void setup(DataState data) throws Exception {
+            exp = data.restore().getExpression();
+        }
+    }
+
+    /**
+     * Fresh copy of the input with selected reduction.
+     */
+    @State(Scope.Thread)
+    public static class ReduceState {
+
+        //reduction to be executed, null if there is none
+        private Reduction red;
+
+        /**
+         * Restores the input before each invocation, since reduction
+         * modifies the expression.
+         * @param data input data
+         * @throws Exception if the data could not be restored
+         */
+        @Setup(Level.Invocation)
+        public void setup(DataState data) throws Exception {
+            data.restore();
+            List<Reduction> redlist = ReductionManager.getInstance().getReductionList();
+            red = redlist.isEmpty() ? null : redlist.get(0);
+        }
+    }
+
+    @Benchmark
+    public List<Reduction> generateReductionList(ListState state) {
+        ReductionManager.getInstance().generateReductionList(state.exp);
+        return ReductionManager.getInstance().getReductionList();
+    }
+
+    @Benchmark
+    public Expression reduce(ReduceState state) {
+        if (state.red != null) {
+            ReductionManager.getInstance().reduce(state.red);
+        }
+        return Model.getInstance().getExpression();
+    }
+}
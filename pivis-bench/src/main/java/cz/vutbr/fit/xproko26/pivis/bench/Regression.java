@@ -0,0 +1,370 @@
+/*
+ * Copyright 2017 Dagmar Prokopova <xproko26@stud.fit.vutbr.cz>.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package cz.vutbr.fit.xproko26.pivis.bench;
+
+import java.io.File;
+import java.lang.management.ManagementFactory;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import cz.vutbr.fit.xproko26.pivis.model.Model;
+import cz.vutbr.fit.xproko26.pivis.model.redmanager.Reduction;
+import cz.vutbr.fit.xproko26.pivis.model.redmanager.ReductionManager;
+
+/**
+ * Regression replays recorded sequences of reductions and simplifications
+ * of every example input through the model and compares resulting
+ * expressions with golden files. Each golden file also stores CPU time and
+ * allocation budget of its scenario, the check fails when the replay exceeds
+ * any of them. All scenarios are measured in several rounds and the fastest
+ * replay of all rounds is compared with the budget, so that a round disturbed
+ * by compilation or by other processes does not decide the result. Golden
+ * files are read from the directory given by the system property
+ * pivis.golden, by default it is the golden directory of this module.
+ * Usage: [-record] [input]...
+ * @author Dagmar Prokopova
+ */
+public class Regression {
+
+    //directories containing example inputs
+    private static final String[] EXAMPLES = {"testing-examples", "demo-examples"};
+
+    //maximal number of recorded reductions
+    private static final int STEPS = 8;
+
+    //number of rounds in which every scenario is measured
+    private static final int ROUNDS = 3;
+
+    //time in nanoseconds the scenario is replayed before the measured replays
+    private static final long WARMUP = 100_000_000L;
+
+    //number of measured replays in each round
+    private static final int MEASURED = 20;
+
+    //recorded budget is measured value multiplied by the factor plus the slack,
+    //the slack covers the noise of the shortest scenarios
+    private static final double TIME_FACTOR = 2;
+    private static final long TIME_SLACK = 100_000L;
+    private static final double ALLOC_FACTOR = 1.5;
+    private static final long ALLOC_SLACK = 16L << 10;
+
+    //prefix of the golden file line holding budgets
+    private static final String BUDGET = "#budget ";
+
+    //bean measuring CPU time and allocated bytes of the current thread
+    private static final com.sun.management.ThreadMXBean THREADS =
+            (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+
+    /**
+     * Runs the check, or records golden files when the first argument is
+     * -record. Without inputs all example inputs are processed.
+     * @param args command line arguments
+     * @throws Exception if the example directories could not be listed
+     */
+    public static void main(String[] args) throws Exception {
+        boolean record = args.length > 0 && args[0].equals("-record");
+        List<String> inputs = new ArrayList<>();
+        for (int i = record ? 1 : 0; i < args.length; i++) {
+            inputs.add(args[i]);
+        }
+        if (inputs.isEmpty()) {
+            inputs = getInputs();
+        }
+
+        Inputs.init();
+        int failed = 0;
+        List<Scenario> scenarios = new ArrayList<>();
+        for (String input : inputs) {
+            try {
+                scenarios.add(record ? Scenario.record(input) : Scenario.load(input));
+            } catch (Exception ex) {
+                System.err.println(input + ": " + ex.getMessage());
+                failed++;
+            }
+        }
+        for (int round = 0; round < ROUNDS; round++) {
+            for (Iterator<Scenario> it = scenarios.iterator(); it.hasNext();) {
+                Scenario scenario = it.next();
+                try {
+                    scenario.measure();
+                } catch (Exception ex) {
+                    System.err.println(scenario.input + ": " + ex.getMessage());
+                    failed++;
+                    it.remove();
+                }
+            }
+        }
+        for (Scenario scenario : scenarios) {
+            try {
+                if (record) {
+                    scenario.store();
+                    System.out.println(scenario.input + ": recorded");
+                } else {
+                    scenario.check();
+                    System.out.println(scenario.input + ": ok");
+                }
+            } catch (Exception ex) {
+                System.err.println(scenario.input + ": " + ex.getMessage());
+                failed++;
+            }
+        }
+        System.exit(failed == 0 ? 0 : 1);
+    }
+
+    /**
+     * Returns identifiers of all example inputs, that is all .pvs and .txt
+     * files in the example directories.
+     * @return list of inputs
+     */
+    static List<String> getInputs() {
+        List<String> inputs = new ArrayList<>();
+        for (String dir : EXAMPLES) {
+            collect(Inputs.getFile(dir), dir, inputs);
+        }
+        Collections.sort(inputs);
+        return inputs;
+    }
+
+    /**
+     * Adds inputs found in the directory and its subdirectories.
+     * @param dir directory
+     * @param prefix identifier of the directory
+     * @param inputs list of inputs
+     */
+    private static void collect(File dir, String prefix, List<String> inputs) {
+        File[] files = dir.listFiles();
+        if (files == null) {
+            return;
+        }
+        for (File f : files) {
+            String id = prefix + "/" + f.getName();
+            if (f.isDirectory()) {
+                collect(f, id, inputs);
+            } else if (id.endsWith(".pvs") || id.endsWith(".txt")) {
+                inputs.add(id);
+            }
+        }
+    }
+
+    /**
+     * Returns golden file of the input.
+     * @param input input identifier
+     * @return golden file
+     */
+    private static File getGolden(String input) {
+        return new File(System.getProperty("pivis.golden", "golden"), input + ".golden");
+    }
+
+    /**
+     * Restores the input and executes the scenario through the model.
+     * @param bytes serialized data of the input
+     * @param actions scenario
+     * @return expression after loading and after every action
+     * @throws Exception if an action could not be executed
+     */
+    private static List<String> replay(byte[] bytes, List<String> actions) throws Exception {
+        Model model = Model.getInstance();
+        List<String> result = new ArrayList<>();
+        Inputs.restore(bytes);
+        result.add(String.valueOf(model.getExpression()));
+        for (String action : actions) {
+            if (action.equals("simplify")) {
+                model.simplify();
+            } else if (action.startsWith("reduce ")) {
+                int index = Integer.parseInt(action.substring("reduce ".length()));
+                List<Reduction> redlist = ReductionManager.getInstance().getReductionList();
+                if (index >= redlist.size()) {
+                    throw new Exception("Error: Reduction " + index + " is not available.");
+                }
+                model.setReduction(redlist.get(index));
+                model.reduce();
+            } else {
+                throw new Exception("Error: Unknown action '" + action + "'.");
+            }
+            result.add(String.valueOf(model.getExpression()));
+        }
+        return result;
+    }
+
+    /**
+     * Compares expected and resulting expressions.
+     * @param expected expected expressions
+     * @param result resulting expressions
+     * @param actions scenario
+     * @throws Exception describing the first difference
+     */
+    private static void compare(List<String> expected, List<String> result, List<String> actions) throws Exception {
+        for (int i = 0; i < expected.size(); i++) {
+            if (!expected.get(i).equals(result.get(i))) {
+                String step = i == 0 ? "loading" : "'" + actions.get(i - 1) + "' (step " + i + ")";
+                throw new Exception("Error: Expression after " + step + " differs, expected '"
+                        + expected.get(i) + "' but got '" + result.get(i) + "'.");
+            }
+        }
+    }
+
+    /**
+     * Scenario holds actions of one input, expected expressions, budgets
+     * and the cost of the fastest replay measured so far.
+     */
+    private static class Scenario {
+
+        //input identifier
+        private final String input;
+
+        //serialized data of the input
+        private final byte[] bytes;
+
+        //actions and expressions after loading and after every action
+        private final List<String> actions;
+        private final List<String> expected;
+
+        //budgets of CPU time in nanoseconds and allocated bytes
+        private long time;
+        private long alloc;
+
+        //CPU time and allocated bytes of the fastest measured replay
+        private long besttime = Long.MAX_VALUE;
+        private long bestalloc = Long.MAX_VALUE;
+
+        /**
+         * Creates scenario.
+         * @param in input identifier
+         * @param b serialized data of the input
+         * @param a actions
+         * @param e expected expressions
+         */
+        private Scenario(String in, byte[] b, List<String> a, List<String> e) {
+            input = in;
+            bytes = b;
+            actions = a;
+            expected = e;
+        }
+
+        /**
+         * Creates the default scenario of the input, which reduces
+         * a different reduction in each step and simplifies the result,
+         * until there is nothing to reduce or enough steps were done.
+         * @param input input identifier
+         * @return scenario without budgets
+         * @throws Exception if the input could not be replayed
+         */
+        private static Scenario record(String input) throws Exception {
+            byte[] bytes = Inputs.getData(input);
+            List<String> actions = new ArrayList<>();
+            Inputs.restore(bytes);
+            for (int i = 0; i < STEPS; i++) {
+                List<Reduction> redlist = ReductionManager.getInstance().getReductionList();
+                if (redlist.isEmpty()) {
+                    break;
+                }
+                int index = i % redlist.size();
+                Model.getInstance().setReduction(redlist.get(index));
+                Model.getInstance().reduce();
+                Model.getInstance().simplify();
+                actions.add("reduce " + index);
+                actions.add("simplify");
+            }
+            return new Scenario(input, bytes, actions, replay(bytes, actions));
+        }
+
+        /**
+         * Reads scenario and budgets of the input from its golden file.
+         * @param input input identifier
+         * @return scenario
+         * @throws Exception if the golden file is missing or invalid
+         */
+        private static Scenario load(String input) throws Exception {
+            File golden = getGolden(input);
+            if (!golden.isFile()) {
+                throw new Exception("Error: Missing golden file '" + golden.getPath() + "'.");
+            }
+            List<String> lines = Files.readAllLines(golden.toPath(), StandardCharsets.UTF_8);
+            if (lines.size() < 2 || lines.size() % 2 != 0 || !lines.get(0).startsWith(BUDGET)) {
+                throw new Exception("Error: Invalid golden file '" + golden.getPath() + "'.");
+            }
+            List<String> actions = new ArrayList<>();
+            List<String> expected = new ArrayList<>();
+            expected.add(lines.get(1));
+            for (int i = 2; i < lines.size(); i += 2) {
+                actions.add(lines.get(i));
+                expected.add(lines.get(i + 1));
+            }
+            Scenario scenario = new Scenario(input, Inputs.getData(input), actions, expected);
+            String[] budget = lines.get(0).substring(BUDGET.length()).split(" ");
+            scenario.time = Long.parseLong(budget[0]);
+            scenario.alloc = Long.parseLong(budget[1]);
+            return scenario;
+        }
+
+        /**
+         * Replays the scenario for the warmup time and then repeatedly
+         * measures it, every replay is verified.
+         * @throws Exception if any replay differs from the expected expressions
+         */
+        private void measure() throws Exception {
+            long end = System.nanoTime() + WARMUP;
+            do {
+                compare(expected, replay(bytes, actions), actions);
+            } while (System.nanoTime() < end);
+            for (int i = 0; i < MEASURED; i++) {
+                long a = THREADS.getThreadAllocatedBytes(Thread.currentThread().getId());
+                long start = THREADS.getCurrentThreadCpuTime();
+                List<String> result = replay(bytes, actions);
+                long t = THREADS.getCurrentThreadCpuTime() - start;
+                a = THREADS.getThreadAllocatedBytes(Thread.currentThread().getId()) - a;
+                compare(expected, result, actions);
+                besttime = Math.min(besttime, t);
+                bestalloc = Math.min(bestalloc, a);
+            }
+        }
+
+        /**
+         * Checks that the fastest measured replay fits into the budgets.
+         * @throws Exception if the replay exceeds the budgets
+         */
+        private void check() throws Exception {
+            if (besttime > time) {
+                throw new Exception("Error: CPU time " + besttime / 1000 + " us exceeds budget " + time / 1000 + " us.");
+            }
+            if (bestalloc > alloc) {
+                throw new Exception("Error: Allocated " + bestalloc + " bytes exceeds budget " + alloc + " bytes.");
+            }
+        }
+
+        /**
+         * Stores the scenario, expected expressions and budgets derived from
+         * the fastest measured replay into the golden file.
+         * @throws Exception if the golden file could not be written
+         */
+        private void store() throws Exception {
+            List<String> lines = new ArrayList<>();
+            lines.add(BUDGET + (long) (besttime * TIME_FACTOR + TIME_SLACK) + " "
+                    + (long) (bestalloc * ALLOC_FACTOR + ALLOC_SLACK));
+            lines.add(expected.get(0));
+            for (int i = 0; i < actions.size(); i++) {
+                lines.add(actions.get(i));
+                lines.add(expected.get(i + 1));
+            }
+            File golden = getGolden(input);
+            golden.getParentFile().mkdirs();
+            Files.write(golden.toPath(), lines, StandardCharsets.UTF_8);
+        }
+    }
+}
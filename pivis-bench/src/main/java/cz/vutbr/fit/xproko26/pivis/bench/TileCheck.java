@@ -0,0 +1,120 @@
+/*
+ * Copyright 2017 Dagmar Prokopova <xproko26@stud.fit.vutbr.cz>.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package cz.vutbr.fit.xproko26.pivis.bench;
+
+import com.mxgraph.canvas.mxICanvas;
+import com.mxgraph.swing.mxGraphComponent;
+import com.mxgraph.view.mxGraph;
+import cz.vutbr.fit.xproko26.pivis.gui.graph.graphlib.jgraphx.JGraphXGraphControl;
+import java.awt.Graphics2D;
+import java.awt.image.BufferedImage;
+
+/**
+ * TileCheck verifies that zooming the graph shows scaled tiles of the
+ * previous scale instead of rendering the graph again. A graph is painted
+ * through the tiled graph control, the view is zoomed and the graph is
+ * painted again. The check fails if any cell is drawn during the second
+ * paint or if nothing is drawn at all.
+ * @author Dagmar Prokopova
+ */
+public class TileCheck {
+
+    //size of the painted area
+    private static final int WIDTH = 800;
+    private static final int HEIGHT = 600;
+
+    //number of cells drawn by the graph control
+    private static int cells;
+
+    /**
+     * Runs the check.
+     * @param args not used
+     */
+    public static void main(String[] args) {
+        mxGraph graph = new mxGraph();
+        Object parent = graph.getDefaultParent();
+        for (int i = 0; i < 50; i++) {
+            graph.insertVertex(parent, null, "v" + i, (i % 10) * 60, (i / 10) * 60, 40, 30);
+        }
+
+        mxGraphComponent gcomp = new mxGraphComponent(graph) {
+            @Override
+            protected void createHandlers() {
+                //handlers need a display, nobody interacts with the graph
+            }
+
+            @Override
+            protected mxGraphControl createGraphControl() {
+                return new JGraphXGraphControl(this) {
+                    @Override
+                    public void drawCell(mxICanvas canvas, Object cell) {
+                        cells++;
+                        super.drawCell(canvas, cell);
+                    }
+                };
+            }
+        };
+        JGraphXGraphControl control = (JGraphXGraphControl) gcomp.getGraphControl();
+
+        paint(control);
+        cells = 0;
+        graph.getView().setScale(2);
+        BufferedImage zoomed = paint(control);
+
+        if (cells > 0) {
+            System.err.println("zoom: " + cells + " cells rendered instead of scaled tiles");
+            System.exit(1);
+        }
+        if (isBlank(zoomed)) {
+            System.err.println("zoom: scaled tiles were not drawn");
+            System.exit(1);
+        }
+        System.out.println("zoom: ok");
+    }
+
+    /**
+     * Paints the graph control into an image.
+     * @param control graph control
+     * @return painted image
+     */
+    private static BufferedImage paint(JGraphXGraphControl control) {
+        BufferedImage img = new BufferedImage(WIDTH, HEIGHT, BufferedImage.TYPE_INT_ARGB);
+        Graphics2D g = img.createGraphics();
+        try {
+            g.setClip(0, 0, WIDTH, HEIGHT);
+            control.drawGraph(g, true);
+        } finally {
+            g.dispose();
+        }
+        return img;
+    }
+
+    /**
+     * Returns true if no pixel of the image was painted.
+     * @param img image
+     * @return true for fully transparent image
+     */
+    private static boolean isBlank(BufferedImage img) {
+        for (int y = 0; y < img.getHeight(); y++) {
+            for (int x = 0; x < img.getWidth(); x++) {
+                if ((img.getRGB(x, y) >>> 24) != 0) {
+                    return false;
+                }
+            }
+        }
+        return true;
+    }
+}
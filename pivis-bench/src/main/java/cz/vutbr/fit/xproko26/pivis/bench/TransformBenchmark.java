@@ -0,0 +1,108 @@
+/*
+ * Copyright 2017 Dagmar Prokopova <xproko26@stud.fit.vutbr.cz>.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package cz.vutbr.fit.xproko26.pivis.bench;
+
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import cz.vutbr.fit.xproko26.pivis.model.expressions.Expression;
+import cz.vutbr.fit.xproko26.pivis.model.expressions.RootExpression;
+import cz.vutbr.fit.xproko26.pivis.model.names.MapTable;
+import cz.vutbr.fit.xproko26.pivis.model.names.NameMapper;
+import cz.vutbr.fit.xproko26.pivis.model.simplifier.Simplifier;
+
+/**
+ * Benchmarks of transformations of whole expression: simplification,
+ * copying and name mapping of a copy (as done by replication).
+ * @author Dagmar Prokopova
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = "-Xss512m")
+public class TransformBenchmark {
+
+    /**
+     * Expression of the input, restored before each iteration.
+     */
+    @State(Scope.Thread)
+    public static class ExpressionState {
+
+        //expression of the input
+        private Expression exp;
+
+        /**
+         * Restores the input before each iteration.
+         * @param data input data
+         * @throws Exception if the data could not be restored
+         */
+        @Setup(Level.Iteration)
+        public void setup(DataState data) throws Exception {
+            exp = data.restore().getExpression();
+        }
+    }
+
+    /**
+     * Fresh copy of the input, restored before each invocation, since
+     * the benchmarked operation modifies the expression.
+     */
+    @State(Scope.Thread)
+    public static class FreshState {
+
+        //root of the input expression
+        private RootExpression root;
+
+        //copy of the expression under the root
+        private Expression copy;
+
+        /**
+         * Restores the input and copies its expression.
+         * @param data input data
+         * @throws Exception if the data could not be restored
+         */
+        @Setup(Level.Invocation)
+        public void setup(DataState data) throws Exception {
+            root = (RootExpression) data.restore().getExpression();
+            copy = root.getSuccExp().copy(root);
+        }
+    }
+
+    @Benchmark
+    public Expression simplify(FreshState state) {
+        return Simplifier.getInstance().makeSimple(state.root);
+    }
+
+    @Benchmark
+    public Expression mapNames(FreshState state) {
+        NameMapper.getInstance().traverse(state.copy, new MapTable(state.root), true);
+        return state.copy;
+    }
+
+    @Benchmark
+    public Expression copy(ExpressionState state) {
+        return state.exp.copy(null);
+    }
+}
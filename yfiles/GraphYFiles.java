@@ -443,6 +443,22 @@ public class GraphYFiles implements GraphLib {
         origraph.clear();
     }
 
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void beginUpdate() {
+        //graph component repaints lazily, no batching needed
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void endUpdate() {
+        //graph component repaints lazily, no batching needed
+    }
+
     /**
      * {@inheritDoc}
      */